@@ -0,0 +1,60 @@
+package org.pms.domain.alarm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 设备监测值越限告警(网关在接入时判定, 经告警通道优先转发给后端)
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-27
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeviceAlarmDTO {
+	
+	/**
+	 * 设备ID
+	 */
+	private String deviceId;
+	/**
+	 * 租户ID
+	 */
+	private String tenantId;
+	/**
+	 * 管道ID(设备注册表未收录时为空)
+	 */
+	private String pipelineId;
+	/**
+	 * 产品ID
+	 */
+	private String productId;
+	/**
+	 * 命中的规则名称
+	 */
+	private String rule;
+	/**
+	 * 越限项, 如pressureHigh、voltageLow
+	 */
+	private List<String> breaches;
+	
+	private double pressure;
+	private double temperature;
+	private int voltage;
+	
+	/**
+	 * 上报时间戳(AEP消息时间戳)
+	 */
+	private Long timestamp;
+	/**
+	 * 网关接收时间戳, 用于统计告警端到端延迟
+	 */
+	private long receivedAt;
+	
+}
@@ -3,9 +3,13 @@ package org.pms.domain.command.dto;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.pms.domain.support.CanonicalStringDeserializer;
 
 /**
  * @author alcsyooterranf
@@ -25,11 +29,13 @@ public class BaseCommandRespDataDTO {
 	 * 租户ID
 	 */
 	@JsonProperty(value = "tenantId")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
 	private String tenantId;
 	/**
 	 * 指令任务ID
 	 */
 	@JsonProperty(value = "taskId")
+	@NotNull
 	private Long taskId;
 	/**
 	 * 指令执行结果
@@ -40,21 +46,25 @@ public class BaseCommandRespDataDTO {
 	 * 协议类型
 	 */
 	@JsonProperty(value = "protocol")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
 	private String protocol;
 	/**
 	 * 产品ID
 	 */
 	@JsonProperty(value = "productId")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
 	private String productId;
 	/**
 	 * 消息类型=commandResponse
 	 */
 	@JsonProperty(value = "messageType")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
 	private String messageType;
 	/**
 	 * 设备ID
 	 */
 	@JsonProperty(value = "deviceId")
+	@NotBlank
 	private String deviceId;
 	
 	@Data
@@ -1,10 +1,13 @@
 package org.pms.domain.devicedata.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.pms.domain.support.CanonicalStringDeserializer;
 
 /**
  * @author alcsyooterranf
@@ -28,6 +31,7 @@ public class BaseDeviceDataDTO {
 	 * 数据上报主题
 	 */
 	@JsonProperty(value = "topic")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
 	private String topic;
 	/**
 	 * 时间戳
@@ -38,21 +42,25 @@ public class BaseDeviceDataDTO {
 	 * 租户ID
 	 */
 	@JsonProperty(value = "tenantId")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
 	private String tenantId;
 	/**
 	 * 服务标识
 	 */
 	@JsonProperty(value = "serviceId")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
 	private String serviceId;
 	/**
 	 * 协议类型
 	 */
 	@JsonProperty(value = "protocol")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
 	private String protocol;
 	/**
 	 * 产品ID
 	 */
 	@JsonProperty(value = "productId")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
 	private String productId;
 	/**
 	 * 消息负载 JsonNode
@@ -61,15 +69,32 @@ public class BaseDeviceDataDTO {
 	 */
 	@JsonProperty(value = "payload")
 	private JsonNode payload;
+	/**
+	 * 监测数据(data_report)payload的解析结果, 由AEP消息流式解析器填充, 此时payload为空
+	 */
+	@JsonIgnore
+	private MonitorReadingDTO reading;
+	/**
+	 * 设备信息(info_report)payload的解析结果, 由AEP消息流式解析器填充, 此时payload为空
+	 */
+	@JsonIgnore
+	private InfoDTO info;
+	/**
+	 * 所属管道ID, 由网关设备注册表在接入时填充, 注册表未开启或未收录时为空
+	 */
+	@JsonIgnore
+	private String pipelineId;
 	/**
 	 * 消息类型=dataReport
 	 */
 	@JsonProperty(value = "messageType")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
 	private String messageType;
 	/**
 	 * (可选)设备标识
 	 */
 	@JsonProperty(value = "deviceType")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
 	private String deviceType;
 	/**
 	 * 设备ID
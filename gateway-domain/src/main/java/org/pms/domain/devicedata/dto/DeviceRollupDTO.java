@@ -0,0 +1,63 @@
+package org.pms.domain.devicedata.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 设备监测值窗口汇总(网关按滚动窗口聚合后转发给后端)
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-25
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeviceRollupDTO {
+	
+	/**
+	 * 设备ID
+	 */
+	private String deviceId;
+	/**
+	 * 租户ID
+	 */
+	private String tenantId;
+	/**
+	 * 产品ID
+	 */
+	private String productId;
+	/**
+	 * 窗口起始时间戳(含)
+	 */
+	private long windowStart;
+	/**
+	 * 窗口结束时间戳(不含)
+	 */
+	private long windowEnd;
+	/**
+	 * 窗口内数据条数
+	 */
+	private int count;
+	/**
+	 * 窗口内最后一条数据的时间戳
+	 */
+	private long lastTimestamp;
+	
+	private double pressureMin;
+	private double pressureMax;
+	private double pressureMean;
+	private double pressureLast;
+	
+	private double temperatureMin;
+	private double temperatureMax;
+	private double temperatureMean;
+	private double temperatureLast;
+	
+	private int voltageMin;
+	private int voltageMax;
+	private int voltageLast;
+	
+}
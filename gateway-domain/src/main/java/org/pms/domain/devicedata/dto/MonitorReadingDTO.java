@@ -0,0 +1,66 @@
+package org.pms.domain.devicedata.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.pms.domain.support.FixedPoint;
+
+/**
+ * 监测数据(data_report)解析结果
+ * 由AEP消息流式解析时直接提取, 不构建JsonNode树
+ * <p>
+ * pressure/temperature为十进制定点值(实际值 × 10^scale), 入队前解析一次, 阈值判定直接比较基本类型;
+ * pressureText/temperatureText仅在原文透传模式(aep.reading.mode=RAW_TEXT)下保留上报的原始文本
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-14
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MonitorReadingDTO {
+	
+	/**
+	 * 压力原始文本, 仅原文透传模式下保留
+	 */
+	private String pressureText;
+	/**
+	 * 压力定点值
+	 */
+	private long pressure;
+	/**
+	 * 压力定点值的小数位数
+	 */
+	private int pressureScale;
+	/**
+	 * 温度原始文本, 仅原文透传模式下保留
+	 */
+	private String temperatureText;
+	/**
+	 * 温度定点值
+	 */
+	private int temperature;
+	/**
+	 * 温度定点值的小数位数
+	 */
+	private int temperatureScale;
+	/**
+	 * 电压, 设备上报的整数原始值, 网关不做单位换算(二进制帧pms-frame-v1的单位为0.1V)
+	 */
+	private int voltage;
+	
+	/**
+	 * 压力实际值, 用于统计、聚合等不要求精确十进制的场景
+	 */
+	public double pressureValue() {
+		return FixedPoint.toDouble(pressure, pressureScale);
+	}
+	
+	/**
+	 * 温度实际值, 用于统计、聚合等不要求精确十进制的场景
+	 */
+	public double temperatureValue() {
+		return FixedPoint.toDouble(temperature, temperatureScale);
+	}
+	
+}
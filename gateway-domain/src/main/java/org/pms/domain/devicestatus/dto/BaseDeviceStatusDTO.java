@@ -0,0 +1,70 @@
+package org.pms.domain.devicestatus.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.pms.domain.support.CanonicalStringDeserializer;
+
+/**
+ * AEP设备上下线通知(aep/onoffline)
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-22
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BaseDeviceStatusDTO {
+	
+	/**
+	 * 上线
+	 */
+	public static final int EVENT_ONLINE = 1;
+	/**
+	 * 下线
+	 */
+	public static final int EVENT_OFFLINE = 0;
+	
+	/**
+	 * 时间戳
+	 */
+	@JsonProperty(value = "timestamp")
+	private Long timestamp;
+	/**
+	 * 租户ID
+	 */
+	@JsonProperty(value = "tenantId")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
+	private String tenantId;
+	/**
+	 * 协议类型
+	 */
+	@JsonProperty(value = "protocol")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
+	private String protocol;
+	/**
+	 * 产品ID
+	 */
+	@JsonProperty(value = "productId")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
+	private String productId;
+	/**
+	 * 消息类型=deviceOnlineOfflineReport
+	 */
+	@JsonProperty(value = "messageType")
+	@JsonDeserialize(using = CanonicalStringDeserializer.class)
+	private String messageType;
+	/**
+	 * 设备ID
+	 */
+	@JsonProperty(value = "deviceId")
+	private String deviceId;
+	/**
+	 * 事件类型, 1-上线, 0-下线
+	 */
+	@JsonProperty(value = "eventType")
+	private Integer eventType;
+	
+}
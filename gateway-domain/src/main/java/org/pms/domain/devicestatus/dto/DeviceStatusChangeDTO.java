@@ -0,0 +1,45 @@
+package org.pms.domain.devicestatus.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 设备在线状态变更(经抖动抑制后转发给后端)
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-22
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeviceStatusChangeDTO {
+	
+	/**
+	 * 设备ID
+	 */
+	private String deviceId;
+	/**
+	 * 产品ID
+	 */
+	private String productId;
+	/**
+	 * 租户ID
+	 */
+	private String tenantId;
+	/**
+	 * 是否在线
+	 */
+	private boolean online;
+	/**
+	 * 状态变更时间(AEP事件时间戳)
+	 */
+	private Long timestamp;
+	/**
+	 * 本次上报前被抑制的状态切换次数, 大于0表示设备发生过抖动
+	 */
+	private int suppressedToggles;
+	
+}
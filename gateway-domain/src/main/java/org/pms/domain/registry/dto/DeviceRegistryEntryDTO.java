@@ -0,0 +1,52 @@
+package org.pms.domain.registry.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 设备注册信息(后端设备台账的网关侧缓存条目)
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-01
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeviceRegistryEntryDTO {
+	
+	/**
+	 * 正常
+	 */
+	public static final int STATUS_ENABLED = 1;
+	/**
+	 * 停用
+	 */
+	public static final int STATUS_DISABLED = 0;
+	/**
+	 * 已删除
+	 */
+	public static final int STATUS_DELETED = -1;
+	
+	/**
+	 * 设备ID
+	 */
+	private String deviceId;
+	/**
+	 * 租户ID
+	 */
+	private String tenantId;
+	/**
+	 * 所属管道ID
+	 */
+	private String pipelineId;
+	/**
+	 * 设备状态
+	 */
+	private Integer status;
+	/**
+	 * 最后更新时间戳, 增量同步的游标
+	 */
+	private Long updateTime;
+	
+}
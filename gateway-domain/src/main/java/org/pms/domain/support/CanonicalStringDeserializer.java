@@ -0,0 +1,32 @@
+package org.pms.domain.support;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+
+/**
+ * 经{@link StringDictionary}规范化的String反序列化器
+ * 用于取值很少的字段: @JsonDeserialize(using = CanonicalStringDeserializer.class)
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-02
+ */
+public class CanonicalStringDeserializer extends StdScalarDeserializer<String> {
+	
+	public CanonicalStringDeserializer() {
+		super(String.class);
+	}
+	
+	@Override
+	public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+		if (parser.hasToken(JsonToken.VALUE_STRING)) {
+			return StringDictionary.canonical(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+		}
+		return StringDictionary.canonical(StringDeserializer.instance.deserialize(parser, context));
+	}
+	
+}
@@ -0,0 +1,217 @@
+package org.pms.domain.support;
+
+/**
+ * 十进制定点数工具
+ * 定点值 = 实际值 × 10^scale, 以long保存; scale由配置决定, 同一字段在网关内使用同一scale
+ * <p>
+ * 设计思路：
+ * - 直接解析字符缓冲区, 不创建String/BigDecimal, 不经过double, 结果与十进制文本精确对应
+ * - 超出scale的小数位四舍五入(HALF_UP)
+ * - 有效数字最多18位; 末尾的0只调整数量级, 不计入有效数字(如"12.30000000000000000000")
+ * - 只接受十进制数字、可选的正负号、小数点与指数部分; NaN/Infinity、空串、溢出均视为不合法
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-03
+ */
+public final class FixedPoint {
+	
+	/**
+	 * scale上限
+	 */
+	public static final int MAX_SCALE = 9;
+	
+	/**
+	 * 有效数字上限, 保证尾数不溢出long
+	 */
+	private static final int MAX_DIGITS = 18;
+	
+	private static final long[] POW10 = new long[MAX_DIGITS + 1];
+	
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; i++) {
+			POW10[i] = POW10[i - 1] * 10;
+		}
+	}
+	
+	private FixedPoint() {
+	}
+	
+	/**
+	 * 解析十进制文本为定点值
+	 *
+	 * @param buf   字符缓冲区
+	 * @param off   起始偏移
+	 * @param len   长度
+	 * @param scale 小数位数
+	 * @return 定点值
+	 * @throws NumberFormatException 文本不合法或超出范围
+	 */
+	public static long parse(char[] buf, int off, int len, int scale) {
+		int end = off + len;
+		int i = off;
+		// 字符串形式的数值允许首尾空白
+		while (i < end && buf[i] == ' ') {
+			i++;
+		}
+		while (end > i && buf[end - 1] == ' ') {
+			end--;
+		}
+		boolean negative = false;
+		if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+		
+		long mantissa = 0;
+		int digits = 0;
+		// 尾数末尾尚未计入的0: 之后出现非0数字时才计入尾数, 一直在末尾则只调整数量级
+		int pendingZeros = 0;
+		int fraction = 0;
+		boolean seenDigit = false;
+		boolean seenPoint = false;
+		for (; i < end; i++) {
+			char c = buf[i];
+			if (c >= '0' && c <= '9') {
+				seenDigit = true;
+				if (c == '0') {
+					if (mantissa != 0) {
+						pendingZeros++;
+					}
+				} else {
+					digits += pendingZeros + 1;
+					if (digits > MAX_DIGITS) {
+						throw invalid(buf, off, len, "有效数字过多");
+					}
+					mantissa = mantissa * POW10[pendingZeros + 1] + (c - '0');
+					pendingZeros = 0;
+				}
+				if (seenPoint) {
+					fraction++;
+				}
+			} else if (c == '.' && !seenPoint) {
+				seenPoint = true;
+			} else {
+				break;
+			}
+		}
+		if (!seenDigit) {
+			throw invalid(buf, off, len, "缺少数字");
+		}
+		
+		int exponent = 0;
+		if (i < end && (buf[i] == 'e' || buf[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+				negativeExponent = buf[i] == '-';
+				i++;
+			}
+			if (i == end) {
+				throw invalid(buf, off, len, "指数缺少数字");
+			}
+			for (; i < end; i++) {
+				char c = buf[i];
+				if (c < '0' || c > '9' || exponent > 999) {
+					throw invalid(buf, off, len, "指数不合法");
+				}
+				exponent = exponent * 10 + (c - '0');
+			}
+			if (negativeExponent) {
+				exponent = -exponent;
+			}
+		}
+		if (i != end) {
+			throw invalid(buf, off, len, "包含非法字符");
+		}
+		
+		long value = shift(mantissa, scale - fraction + exponent + pendingZeros);
+		if (value < 0) {
+			throw invalid(buf, off, len, "超出范围");
+		}
+		return negative ? -value : value;
+	}
+	
+	/**
+	 * 解析十进制文本为定点值
+	 *
+	 * @see #parse(char[], int, int, int)
+	 */
+	public static long parse(String text, int scale) {
+		return parse(text.toCharArray(), 0, text.length(), scale);
+	}
+	
+	/**
+	 * 转换定点值的scale, 缩小scale时四舍五入(HALF_UP)
+	 *
+	 * @throws ArithmeticException 超出范围
+	 */
+	public static long rescale(long value, int fromScale, int toScale) {
+		if (fromScale == toScale) {
+			return value;
+		}
+		long magnitude = shift(Math.abs(value), toScale - fromScale);
+		if (magnitude < 0) {
+			throw new ArithmeticException("定点值超出范围: " + value + ", scale " + fromScale + " → " + toScale);
+		}
+		return value < 0 ? -magnitude : magnitude;
+	}
+	
+	/**
+	 * 定点值转换为double, 用于统计、聚合等不要求精确十进制的场景
+	 */
+	public static double toDouble(long value, int scale) {
+		return (double) value / POW10[scale];
+	}
+	
+	/**
+	 * 格式化为十进制文本, 保留scale位小数, 如(12345, 2) → "123.45", (-5, 2) → "-0.05"
+	 */
+	public static String format(long value, int scale) {
+		if (scale == 0) {
+			return Long.toString(value);
+		}
+		StringBuilder sb = new StringBuilder(21 + scale);
+		if (value < 0) {
+			sb.append('-');
+		}
+		String digits = Long.toString(Math.abs(value));
+		int intDigits = digits.length() - scale;
+		if (intDigits <= 0) {
+			sb.append('0').append('.');
+			for (int i = intDigits; i < 0; i++) {
+				sb.append('0');
+			}
+			sb.append(digits);
+		} else {
+			sb.append(digits, 0, intDigits).append('.').append(digits, intDigits, digits.length());
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * 非负尾数乘以10^shift, shift为负时四舍五入, 溢出时返回-1
+	 */
+	private static long shift(long mantissa, int shift) {
+		if (mantissa == 0) {
+			return 0;
+		}
+		if (shift >= 0) {
+			if (shift > MAX_DIGITS || mantissa > Long.MAX_VALUE / POW10[shift]) {
+				return -1;
+			}
+			return mantissa * POW10[shift];
+		}
+		if (-shift > MAX_DIGITS) {
+			return 0;
+		}
+		long divisor = POW10[-shift];
+		long quotient = mantissa / divisor;
+		return mantissa % divisor >= divisor / 2 ? quotient + 1 : quotient;
+	}
+	
+	private static NumberFormatException invalid(char[] buf, int off, int len, String reason) {
+		return new NumberFormatException("数值不合法(" + reason + "): " + new String(buf, off, Math.min(len, 32)));
+	}
+	
+}
@@ -0,0 +1,152 @@
+package org.pms.domain.support;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界字符串字典, 用于规范化取值很少的字段(tenantId、productId、serviceId、protocol等)
+ * <p>
+ * 设计思路：
+ * - 同一取值的字段在所有DTO中共享同一个String实例, 队列中积压的DTO不再各自持有副本
+ * - 直接按parser的字符缓冲区查找, 命中时不创建String
+ * - 固定容量的开放寻址表, 无锁: 读为volatile读, 新增为CAS; 探测窗口内没有空位时不缓存, 直接返回新String
+ * - 容量固定, 取值异常多(如被灌入随机值)时不会无限增长, 只是命中率下降
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-02
+ */
+public final class StringDictionary {
+	
+	/**
+	 * 表容量(2的幂)
+	 */
+	private static final int CAPACITY = 4096;
+	
+	/**
+	 * 超过该长度的字符串不缓存
+	 */
+	private static final int MAX_LENGTH = 64;
+	
+	/**
+	 * 探测窗口
+	 */
+	private static final int MAX_PROBES = 8;
+	
+	private static final AtomicReferenceArray<String> TABLE = new AtomicReferenceArray<>(CAPACITY);
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+	
+	private StringDictionary() {
+	}
+	
+	/**
+	 * 规范化字符串
+	 *
+	 * @param value 字符串
+	 * @return 字典中相同内容的实例, 无法缓存时返回value本身
+	 */
+	public static String canonical(String value) {
+		if (value == null || value.length() > MAX_LENGTH) {
+			return value;
+		}
+		int hash = value.hashCode();
+		for (int i = 0; i < MAX_PROBES; i++) {
+			int index = (spread(hash) + i) & (CAPACITY - 1);
+			String existing = TABLE.get(index);
+			if (existing == null) {
+				if (TABLE.compareAndSet(index, null, value)) {
+					MISSES.increment();
+					return value;
+				}
+				existing = TABLE.get(index);
+			}
+			if (existing.hashCode() == hash && existing.equals(value)) {
+				HITS.increment();
+				return existing;
+			}
+		}
+		MISSES.increment();
+		return value;
+	}
+	
+	/**
+	 * 按字符缓冲区规范化, 命中时不创建String
+	 *
+	 * @param buffer 字符缓冲区(如JsonParser.getTextCharacters())
+	 * @param offset 起始位置
+	 * @param length 长度
+	 * @return 字典中相同内容的实例, 无法缓存时返回新String
+	 */
+	public static String canonical(char[] buffer, int offset, int length) {
+		if (length > MAX_LENGTH) {
+			return new String(buffer, offset, length);
+		}
+		// 与String.hashCode()算法一致, 使表中的String可以直接比较hashCode
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + buffer[offset + i];
+		}
+		for (int i = 0; i < MAX_PROBES; i++) {
+			int index = (spread(hash) + i) & (CAPACITY - 1);
+			String existing = TABLE.get(index);
+			if (existing == null) {
+				String value = new String(buffer, offset, length);
+				if (TABLE.compareAndSet(index, null, value)) {
+					MISSES.increment();
+					return value;
+				}
+				existing = TABLE.get(index);
+			}
+			if (existing.hashCode() == hash && contentEquals(existing, buffer, offset, length)) {
+				HITS.increment();
+				return existing;
+			}
+		}
+		MISSES.increment();
+		return new String(buffer, offset, length);
+	}
+	
+	/**
+	 * 字典命中次数
+	 */
+	public static long hits() {
+		return HITS.sum();
+	}
+	
+	/**
+	 * 字典未命中次数(含新增)
+	 */
+	public static long misses() {
+		return MISSES.sum();
+	}
+	
+	/**
+	 * 字典当前条目数(遍历计数, 仅用于监控)
+	 */
+	public static int size() {
+		int size = 0;
+		for (int i = 0; i < CAPACITY; i++) {
+			if (TABLE.get(i) != null) {
+				size++;
+			}
+		}
+		return size;
+	}
+	
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+	
+	private static boolean contentEquals(String value, char[] buffer, int offset, int length) {
+		if (value.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (value.charAt(i) != buffer[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+}
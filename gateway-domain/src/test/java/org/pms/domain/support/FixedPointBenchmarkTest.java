@@ -0,0 +1,55 @@
+package org.pms.domain.support;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 定点值解析与原先String + Double.parseDouble解析的开销对比
+ * 单线程计时, 预热后取多轮中的最小值, 只用于对比量级, 结果输出到控制台
+ * 默认构建不运行, 需要时: mvn -Pdev,benchmark test; 边界用例见{@link FixedPointTest}
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+public class FixedPointBenchmarkTest {
+	
+	private static final char[][] SAMPLES = {
+			"123.456".toCharArray(), "0.875".toCharArray(), "12.3".toCharArray(), "-4.05".toCharArray(),
+			"1.6".toCharArray(), "25.125".toCharArray(), "0.2".toCharArray(), "101.01".toCharArray()};
+	private static final int ITERATIONS = 2_000_000;
+	private static final int ROUNDS = 10;
+	
+	@Test
+	public void parseCost() {
+		for (char[] text : SAMPLES) {
+			long expected = new BigDecimal(new String(text)).setScale(3, RoundingMode.HALF_UP).unscaledValue().longValue();
+			assertEquals(expected, FixedPoint.parse(text, 0, text.length, 3));
+		}
+		
+		long fixedPoint = Long.MAX_VALUE;
+		long parseDouble = Long.MAX_VALUE;
+		long sink = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				char[] text = SAMPLES[i & 7];
+				sink += FixedPoint.parse(text, 0, text.length, 3);
+			}
+			fixedPoint = Math.min(fixedPoint, System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				char[] text = SAMPLES[i & 7];
+				sink += (long) Double.parseDouble(new String(text, 0, text.length));
+			}
+			parseDouble = Math.min(parseDouble, System.nanoTime() - start);
+		}
+		System.out.printf("FixedPoint.parse: %.1fns/次, String + Double.parseDouble: %.1fns/次 (sink=%d)%n",
+				(double) fixedPoint / ITERATIONS, (double) parseDouble / ITERATIONS, sink);
+	}
+	
+}
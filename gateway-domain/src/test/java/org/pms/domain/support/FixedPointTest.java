@@ -0,0 +1,93 @@
+package org.pms.domain.support;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 定点值解析、换算与格式化测试
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+public class FixedPointTest {
+	
+	@Test
+	public void parseRoundsHalfUp() {
+		assertEquals(1235, FixedPoint.parse("1.2345", 3));
+		assertEquals(1234, FixedPoint.parse("1.2344", 3));
+		assertEquals(-1235, FixedPoint.parse("-1.2345", 3));
+		assertEquals(1, FixedPoint.parse("0.0005", 3));
+		assertEquals(0, FixedPoint.parse("0.0004", 3));
+		assertEquals(3, FixedPoint.parse("2.5", 0));
+		assertEquals(-3, FixedPoint.parse("-2.5", 0));
+	}
+	
+	@Test
+	public void parseAcceptsExponentSignAndWhitespace() {
+		assertEquals(150_000, FixedPoint.parse("1.5e2", 3));
+		assertEquals(1_500, FixedPoint.parse("15E-1", 3));
+		assertEquals(1_500, FixedPoint.parse(" +1.5 ", 3));
+		assertEquals(0, FixedPoint.parse("-0.000", 3));
+	}
+	
+	@Test
+	public void trailingZerosDoNotCountAsDigits() {
+		assertEquals(12_300, FixedPoint.parse("12.30000000000000000000", 3));
+		assertEquals(100_000_000_000_000_000L, FixedPoint.parse("100000000000000000.000000", 0));
+		assertEquals(0, FixedPoint.parse("0.000000000000000000000001", 3));
+		// 中间的0仍计入有效数字
+		assertEquals(100_000_000_000_000_001L, FixedPoint.parse("100000000000000001", 0));
+		assertInvalid("1000000000000000001");
+	}
+	
+	@Test
+	public void parseRejectsOverflow() {
+		assertEquals(9_223_372_036_854_775_000L, FixedPoint.parse("9223372036854775", 3));
+		assertInvalid("9300000000000000");
+		assertInvalid("1e16");
+		assertInvalid("1" + "0".repeat(30));
+		assertInvalid("1234567890.123456789");
+	}
+	
+	@Test
+	public void parseRejectsMalformedText() {
+		for (String text : new String[]{"", " ", "-", ".", "NaN", "Infinity", "1.2.3", "1e", "1e+", "12a", "0x10", "1e1000"}) {
+			assertInvalid(text);
+		}
+	}
+	
+	@Test
+	public void rescaleRoundsHalfUp() {
+		assertEquals(123, FixedPoint.rescale(12_345, 3, 1));
+		assertEquals(124, FixedPoint.rescale(12_350, 3, 1));
+		assertEquals(-124, FixedPoint.rescale(-12_350, 3, 1));
+		assertEquals(1_234_500, FixedPoint.rescale(12_345, 3, 5));
+		try {
+			FixedPoint.rescale(Long.MAX_VALUE / 10, 0, 2);
+			fail("超出范围应抛出ArithmeticException");
+		} catch (ArithmeticException expected) {
+			// 预期
+		}
+	}
+	
+	@Test
+	public void formatKeepsScaleDigits() {
+		assertEquals("123.45", FixedPoint.format(12_345, 2));
+		assertEquals("-0.05", FixedPoint.format(-5, 2));
+		assertEquals("0.000", FixedPoint.format(0, 3));
+		assertEquals("7", FixedPoint.format(7, 0));
+		assertEquals(12.3, FixedPoint.toDouble(12_300, 3), 0);
+	}
+	
+	private static void assertInvalid(String text) {
+		try {
+			long value = FixedPoint.parse(text, 3);
+			fail("应拒绝\"" + text + "\", 实际解析为" + value);
+		} catch (NumberFormatException expected) {
+			// 预期
+		}
+	}
+	
+}
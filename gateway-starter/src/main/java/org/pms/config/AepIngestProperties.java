@@ -0,0 +1,24 @@
+package org.pms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * AEP平台推送接口(/aep/**)的接入校验配置
+ *
+ * @author alcsyooterranf
+ */
+@Data
+@ConfigurationProperties(prefix = "aep.ingest", ignoreInvalidFields = true)
+public class AepIngestProperties {
+	
+	/**
+	 * 共享密钥所在的请求头
+	 */
+	private String tokenHeader = "X-AEP-Token";
+	/**
+	 * 共享密钥, 与AEP平台订阅推送时配置的值保持一致; 为空时不做校验(由CA证书/网络层保证来源)
+	 */
+	private String token;
+	
+}
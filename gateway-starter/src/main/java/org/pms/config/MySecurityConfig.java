@@ -1,13 +1,19 @@
 package org.pms.config;
 
+import org.pms.filter.AepIngestAuthFilter;
+import org.pms.filter.CommandTrackingFilter;
 import org.pms.filter.JwtAuthenticationFilter;
 import org.pms.filter.OptionFilter;
+import org.pms.filter.RequestCoalescingFilter;
 import org.pms.filter.RequestForwardEncapsulationFilter;
 import org.pms.handler.MyAccessAuthorizationManager;
 import org.pms.handler.MyAccessDeniedHandler;
 import org.pms.handler.MyAuthenticationEntryPoint;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -27,6 +33,9 @@ import java.util.List;
  * <p>
  * Gateway只负责JWT验签和用户上下文透传，不负责登录/登出
  * 登录/登出功能由auth-service提供
+ * <p>
+ * AEP平台推送接口(/aep/**)使用独立的精简过滤器链, 只做共享密钥校验,
+ * 不经过JWT验签、鉴权、请求转发封装等面向用户的安全组件
  *
  * @author alcsyooterranf
  * @version 2.0
@@ -35,6 +44,7 @@ import java.util.List;
 @Configuration
 @EnableWebSecurity  // 启用web安全
 @EnableMethodSecurity // 启用方法安全
+@EnableConfigurationProperties(AepIngestProperties.class)
 public class MySecurityConfig {
 	
 	private final JwtAuthenticationFilter jwtAuthenticationFilter;
@@ -43,30 +53,61 @@ public class MySecurityConfig {
 	private final MyAuthenticationEntryPoint myAuthenticationEntryPoint;
 	private final MyAccessAuthorizationManager myAccessAuthorizationManager;
 	private final RequestForwardEncapsulationFilter requestForwardEncapsulationFilter;
+	private final CommandTrackingFilter commandTrackingFilter;
+	private final RequestCoalescingFilter requestCoalescingFilter;
 	
 	public MySecurityConfig(
 			JwtAuthenticationFilter jwtAuthenticationFilter,
 			OptionFilter optionFilter, MyAccessDeniedHandler myAccessDeniedHandler,
 			MyAuthenticationEntryPoint myAuthenticationEntryPoint,
 			MyAccessAuthorizationManager myAccessAuthorizationManager,
-			RequestForwardEncapsulationFilter requestForwardEncapsulationFilter) {
+			RequestForwardEncapsulationFilter requestForwardEncapsulationFilter,
+			CommandTrackingFilter commandTrackingFilter,
+			RequestCoalescingFilter requestCoalescingFilter) {
 		this.jwtAuthenticationFilter = jwtAuthenticationFilter;
 		this.optionFilter = optionFilter;
 		this.myAccessDeniedHandler = myAccessDeniedHandler;
 		this.myAuthenticationEntryPoint = myAuthenticationEntryPoint;
 		this.myAccessAuthorizationManager = myAccessAuthorizationManager;
 		this.requestForwardEncapsulationFilter = requestForwardEncapsulationFilter;
+		this.commandTrackingFilter = commandTrackingFilter;
+		this.requestCoalescingFilter = requestCoalescingFilter;
 	}
 	
+	/**
+	 * AEP平台推送接口专用过滤器链, 优先匹配
+	 * 设备上报为高QPS接口, 只保留共享密钥校验, 关闭SecurityContext、匿名用户、请求缓存、安全响应头等组件
+	 */
 	@Bean
+	@Order(1)
+	public SecurityFilterChain aepSecurityFilterChain(HttpSecurity http, AepIngestProperties aepIngestProperties)
+			throws Exception {
+		http
+				.securityMatcher("/aep/**")
+				.csrf(AbstractHttpConfigurer::disable)
+				.cors(AbstractHttpConfigurer::disable)
+				.headers(AbstractHttpConfigurer::disable)
+				.sessionManagement(AbstractHttpConfigurer::disable)
+				.securityContext(AbstractHttpConfigurer::disable)
+				.requestCache(AbstractHttpConfigurer::disable)
+				.anonymous(AbstractHttpConfigurer::disable)
+				.servletApi(AbstractHttpConfigurer::disable)
+				.exceptionHandling(AbstractHttpConfigurer::disable)
+				.httpBasic(AbstractHttpConfigurer::disable)
+				.formLogin(AbstractHttpConfigurer::disable)
+				.logout(AbstractHttpConfigurer::disable);
+		http.addFilterBefore(new AepIngestAuthFilter(aepIngestProperties), UsernamePasswordAuthenticationFilter.class);
+		return http.build();
+	}
+	
+	@Bean
+	@Order(2)
 	public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
 		http
 				.authorizeHttpRequests(
 						auth -> auth
 								// 放行auth-service的所有接口（登录、刷新token等）
 								.requestMatchers("/auth/**").permitAll()
-								// 放行AEP平台有关接口
-								.requestMatchers("/aep/**").permitAll()
 								// 自定义权限逻辑
 								.anyRequest().access(myAccessAuthorizationManager)
 				)
@@ -115,9 +156,55 @@ public class MySecurityConfig {
 		// 将自定义的JwtAuthenticationFilter放到LogoutFilter之前
 		http.addFilterBefore(jwtAuthenticationFilter, LogoutFilter.class);
 		http.addFilterAfter(requestForwardEncapsulationFilter, AuthorizationFilter.class);
+		// 指令下发跟踪放在请求转发封装之后, 可以取到透传的用户ID
+		http.addFilterAfter(commandTrackingFilter, RequestForwardEncapsulationFilter.class);
+		// GET请求合并同样需要透传的用户ID/角色作为合并键
+		http.addFilterAfter(requestCoalescingFilter, CommandTrackingFilter.class);
 		return http.build();
 	}
 	
+	/**
+	 * 自定义Filter声明为@Component后会被Spring Boot自动注册到Servlet容器, 对所有请求(包括/aep/**)生效
+	 * 这里关闭自动注册, 使其只在securityFilterChain中执行
+	 */
+	@Bean
+	public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilterRegistration(
+			JwtAuthenticationFilter filter) {
+		FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.setEnabled(false);
+		return registration;
+	}
+	
+	@Bean
+	public FilterRegistrationBean<OptionFilter> optionFilterRegistration(OptionFilter filter) {
+		FilterRegistrationBean<OptionFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.setEnabled(false);
+		return registration;
+	}
+	
+	@Bean
+	public FilterRegistrationBean<RequestForwardEncapsulationFilter> requestForwardEncapsulationFilterRegistration(
+			RequestForwardEncapsulationFilter filter) {
+		FilterRegistrationBean<RequestForwardEncapsulationFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.setEnabled(false);
+		return registration;
+	}
+	
+	@Bean
+	public FilterRegistrationBean<CommandTrackingFilter> commandTrackingFilterRegistration(CommandTrackingFilter filter) {
+		FilterRegistrationBean<CommandTrackingFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.setEnabled(false);
+		return registration;
+	}
+	
+	@Bean
+	public FilterRegistrationBean<RequestCoalescingFilter> requestCoalescingFilterRegistration(
+			RequestCoalescingFilter filter) {
+		FilterRegistrationBean<RequestCoalescingFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.setEnabled(false);
+		return registration;
+	}
+	
 	/**
 	 * 配置角色继承, ADMIN 包含 USER 的权限
 	 *
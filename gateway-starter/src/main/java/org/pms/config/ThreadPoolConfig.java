@@ -2,9 +2,12 @@ package org.pms.config;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 
 import java.util.concurrent.*;
@@ -20,7 +23,7 @@ public class ThreadPoolConfig {
 	
 	@Bean
 	@ConditionalOnMissingBean(ThreadPoolExecutor.class)
-	public ThreadPoolExecutor threadPoolExecutor(ThreadPoolConfigProperties properties) {
+	public ThreadPoolExecutor threadPoolExecutor(ThreadPoolConfigProperties properties, Environment environment) {
 		// 实例化策略
 		RejectedExecutionHandler handler = switch (properties.getPolicy()) {
 			case "DiscardPolicy" -> new ThreadPoolExecutor.DiscardPolicy();
@@ -28,13 +31,18 @@ public class ThreadPoolConfig {
 			case "CallerRunsPolicy" -> new ThreadPoolExecutor.CallerRunsPolicy();
 			default -> new ThreadPoolExecutor.AbortPolicy();
 		};
+		// 虚拟线程模式(spring.threads.virtual.enabled=true, 需Java 21+)下由虚拟线程执行任务, 线程池只用于限制并发数
+		ThreadFactory threadFactory = Threading.VIRTUAL.isActive(environment)
+				? new VirtualThreadTaskExecutor("gateway-vt-").getVirtualThreadFactory()
+				: Executors.defaultThreadFactory();
+		log.info("业务线程池使用{}线程", Threading.VIRTUAL.isActive(environment) ? "虚拟" : "平台");
 		// 创建线程池
 		return new ThreadPoolExecutor(properties.getCorePoolSize(),
 				properties.getMaxPoolSize(),
 				properties.getKeepAliveTime(),
 				TimeUnit.SECONDS,
 				new LinkedBlockingQueue<>(properties.getBlockQueueSize()),
-				Executors.defaultThreadFactory(),
+				threadFactory,
 				handler);
 	}
 	
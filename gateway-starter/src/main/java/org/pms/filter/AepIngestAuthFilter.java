@@ -0,0 +1,58 @@
+package org.pms.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.pms.config.AepIngestProperties;
+import org.pms.types.GatewayCode;
+import org.pms.utils.HttpResponseUtil;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * AEP推送接口共享密钥校验Filter
+ * 仅挂载在/aep/**专用的SecurityFilterChain上, 不注册为@Component, 避免被Servlet容器再次注册到所有请求
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-12
+ */
+@Slf4j
+public class AepIngestAuthFilter extends OncePerRequestFilter {
+	
+	private final String tokenHeader;
+	private final byte[] expectedToken;
+	
+	public AepIngestAuthFilter(AepIngestProperties properties) {
+		this.tokenHeader = properties.getTokenHeader();
+		this.expectedToken = StringUtils.isBlank(properties.getToken())
+				? null
+				: properties.getToken().getBytes(StandardCharsets.UTF_8);
+		if (this.expectedToken == null) {
+			log.warn("未配置aep.ingest.token, AEP推送接口不做共享密钥校验");
+		}
+	}
+	
+	@Override
+	protected void doFilterInternal(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response,
+									@NotNull FilterChain filterChain) throws ServletException, IOException {
+		if (expectedToken != null) {
+			String token = request.getHeader(tokenHeader);
+			// 常量时间比较, 防止时序攻击
+			if (token == null || !MessageDigest.isEqual(expectedToken, token.getBytes(StandardCharsets.UTF_8))) {
+				log.warn("AEP推送接口密钥校验失败: uri={}, remote={}", request.getRequestURI(), request.getRemoteAddr());
+				response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+				HttpResponseUtil.assembleResponse(response, GatewayCode.AUTHENTICATION_FAILURE);
+				return;
+			}
+		}
+		filterChain.doFilter(request, response);
+	}
+	
+}
@@ -0,0 +1,121 @@
+package org.pms.filter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.pms.trigger.command.CommandCorrelationTable;
+import org.pms.trigger.command.CommandTrackingConfig;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * 指令下发跟踪Filter
+ * 指令下发请求经网关转发后端成功后, 从后端响应的data中取taskId, 登记到指令往返关联表;
+ * deviceId/productId依次从响应data、请求体中按AEP字段名(deviceId/productId)与后端字段名(deviceSN/pipelineSN)查找
+ * 解析失败只记日志, 不影响响应
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-08
+ */
+@Slf4j
+@Component
+public class CommandTrackingFilter extends OncePerRequestFilter {
+	
+	private static final String USER_ID_HEADER = "X-User-Id";
+	private static final String[] DEVICE_ID_FIELDS = {"deviceId", "deviceSN"};
+	private static final String[] PRODUCT_ID_FIELDS = {"productId", "pipelineSN"};
+	private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+	
+	private final CommandCorrelationTable correlationTable;
+	private final CommandTrackingConfig config;
+	private final ObjectMapper objectMapper;
+	
+	public CommandTrackingFilter(CommandCorrelationTable correlationTable, CommandTrackingConfig config,
+								 ObjectMapper objectMapper) {
+		this.correlationTable = correlationTable;
+		this.config = config;
+		this.objectMapper = objectMapper;
+	}
+	
+	@Override
+	protected boolean shouldNotFilter(@NotNull HttpServletRequest request) {
+		if (!config.isEnabled() || !"POST".equals(request.getMethod())) {
+			return true;
+		}
+		String uri = request.getRequestURI();
+		for (String pattern : config.getIssuePaths()) {
+			if (PATH_MATCHER.match(pattern, uri)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	protected void doFilterInternal(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response,
+									@NotNull FilterChain filterChain) throws ServletException, IOException {
+		ContentCachingRequestWrapper cachingRequest = new ContentCachingRequestWrapper(request);
+		ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+		try {
+			filterChain.doFilter(cachingRequest, cachingResponse);
+			if (cachingResponse.getStatus() / 100 == 2) {
+				track(cachingRequest, cachingResponse);
+			}
+		} finally {
+			cachingResponse.copyBodyToResponse();
+		}
+	}
+	
+	private void track(ContentCachingRequestWrapper request, ContentCachingResponseWrapper response) {
+		try {
+			byte[] body = response.getContentAsByteArray();
+			if (body.length == 0) {
+				return;
+			}
+			JsonNode data = objectMapper.readTree(body).path("data");
+			JsonNode taskIdNode = data.isValueNode() ? data : data.path(config.getTaskIdField());
+			long taskId;
+			if (taskIdNode.isIntegralNumber() && taskIdNode.canConvertToLong()) {
+				taskId = taskIdNode.asLong();
+			} else if (taskIdNode.isTextual()) {
+				taskId = Long.parseLong(taskIdNode.asText().trim());
+			} else {
+				log.debug("指令下发响应中没有taskId, 不跟踪: uri={}", request.getRequestURI());
+				return;
+			}
+			byte[] requestBody = request.getContentAsByteArray();
+			JsonNode requestNode = requestBody.length > 0 ? objectMapper.readTree(requestBody) : null;
+			correlationTable.register(taskId,
+					field(DEVICE_ID_FIELDS, data, requestNode),
+					field(PRODUCT_ID_FIELDS, data, requestNode),
+					request.getHeader(USER_ID_HEADER),
+					System.currentTimeMillis());
+		} catch (IOException | RuntimeException e) {
+			log.warn("解析指令下发响应失败, 不跟踪: uri={}, error={}", request.getRequestURI(), e.getMessage());
+		}
+	}
+	
+	private static String field(String[] names, JsonNode data, JsonNode request) {
+		for (String name : names) {
+			JsonNode value = data.path(name);
+			if (value.isValueNode()) {
+				return value.asText();
+			}
+			if (request != null && request.path(name).isValueNode()) {
+				return request.path(name).asText();
+			}
+		}
+		return null;
+	}
+	
+}
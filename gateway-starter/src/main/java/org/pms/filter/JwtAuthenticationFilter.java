@@ -21,7 +21,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Set;
 
 /**
  * WHAT THE ZZZZEAL
@@ -34,8 +33,8 @@ import java.util.Set;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 	
-	// /aep/**为AEP平台接口
-	private static final Set<String> EXCLUDED_PREFIX_PATHS = Set.of("/aep/", "/rbac/user/register");
+	// /aep/**为AEP平台接口, 已由独立的过滤器链处理, 不会进入此Filter
+	private static final String[] EXCLUDED_PREFIX_PATHS = {"/rbac/user/register"};
 	private static final String TOKEN_HEADER = GatewayConstants.TOKEN_HEADER;
 	private static final String TOKEN_PREFIX = GatewayConstants.TOKEN_PREFIX;
 	// TODO: WebSocket握手时从query参数获取token
@@ -47,11 +46,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, @NotNull HttpServletResponse response,
 									@NotNull FilterChain filterChain) throws ServletException, IOException {
-		log.info("JWT url {}", request.getRequestURL());
+		log.debug("JWT uri {}", request.getRequestURI());
 		
 		// 0. 放行接口, 并在request中设置放行标志
-		String uri = request.getRequestURI();
-		if (EXCLUDED_PREFIX_PATHS.stream().anyMatch(uri::startsWith)) {
+		if (isExcluded(request.getRequestURI())) {
 			log.debug("JWT Filter: release");
 			filterChain.doFilter(request, response);
 			return;
@@ -91,6 +89,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 		filterChain.doFilter(request, response);
 	}
 	
+	private static boolean isExcluded(String uri) {
+		for (String prefix : EXCLUDED_PREFIX_PATHS) {
+			if (uri.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * 提取token（支持HTTP Header和WebSocket Query参数两种方式）
 	 *
@@ -0,0 +1,173 @@
+package org.pms.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.pms.trigger.coalesce.CoalesceConfig;
+import org.pms.trigger.coalesce.RequestCoalescer;
+import org.pms.trigger.coalesce.SharedResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 代理GET请求合并Filter
+ * 看板刷新时大量相同的管理接口GET请求同时到达, 只由第一个请求转发后端, 其余请求等待并回放其响应副本
+ * 合并键包含透传的用户ID或角色, 放在请求转发封装之后执行; 只对配置的路由生效
+ * 流式请求(Accept含text/event-stream)不合并: 首个请求的响应会被整体缓存, 推送的事件要等连接结束才发出
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-10
+ */
+@Component
+public class RequestCoalescingFilter extends OncePerRequestFilter {
+	
+	private static final String USER_ID_HEADER = "X-User-Id";
+	private static final String USER_ROLES_HEADER = "X-User-Roles";
+	private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+	/**
+	 * 不回放的响应头: 逐跳头、由回放时重新计算的长度, 以及不应在用户间共享的Set-Cookie
+	 */
+	private static final Set<String> EXCLUDED_HEADERS = Set.of(
+			HttpHeaders.CONTENT_TYPE.toLowerCase(), HttpHeaders.CONTENT_LENGTH.toLowerCase(),
+			HttpHeaders.TRANSFER_ENCODING.toLowerCase(), HttpHeaders.CONNECTION.toLowerCase(),
+			HttpHeaders.SET_COOKIE.toLowerCase(), "keep-alive");
+	
+	private final RequestCoalescer coalescer;
+	private final CoalesceConfig config;
+	
+	public RequestCoalescingFilter(RequestCoalescer coalescer, CoalesceConfig config) {
+		this.coalescer = coalescer;
+		this.config = config;
+	}
+	
+	@Override
+	protected boolean shouldNotFilter(@NotNull HttpServletRequest request) {
+		return !config.isEnabled() || !"GET".equals(request.getMethod()) || acceptsEventStream(request);
+	}
+	
+	private static boolean acceptsEventStream(HttpServletRequest request) {
+		String accept = request.getHeader(HttpHeaders.ACCEPT);
+		return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+	}
+	
+	@Override
+	protected void doFilterInternal(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response,
+									@NotNull FilterChain filterChain) throws ServletException, IOException {
+		CoalesceConfig.Route route = route(request.getRequestURI());
+		// 没有透传用户信息时无法确定授权范围, 不合并
+		if (route == null || request.getHeader(USER_ID_HEADER) == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		String key = key(request, route);
+		RequestCoalescer.Flight created = new RequestCoalescer.Flight();
+		RequestCoalescer.Flight flight = coalescer.join(key, created);
+		if (flight == null) {
+			filterChain.doFilter(request, response);
+		} else if (flight == created) {
+			lead(request, response, filterChain, key, flight);
+		} else {
+			long waitMs = route.getMaxWaitMs() != null ? route.getMaxWaitMs() : config.getMaxWaitMs();
+			SharedResponse shared = coalescer.await(flight, waitMs);
+			if (shared == null) {
+				filterChain.doFilter(request, response);
+			} else {
+				replay(shared, response);
+			}
+		}
+	}
+	
+	private void lead(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+					  String key, RequestCoalescer.Flight flight) throws ServletException, IOException {
+		ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+		SharedResponse shared = null;
+		try {
+			filterChain.doFilter(request, cachingResponse);
+			shared = capture(cachingResponse);
+		} finally {
+			coalescer.complete(key, flight, shared);
+			cachingResponse.copyBodyToResponse();
+		}
+	}
+	
+	/**
+	 * 复制响应, 过大或流式响应不复用(未声明Accept的流式请求仍会走到这里)
+	 */
+	private SharedResponse capture(ContentCachingResponseWrapper response) {
+		byte[] body = response.getContentAsByteArray();
+		String contentType = response.getContentType();
+		if (body.length > config.getMaxBodyBytes()
+				|| (contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE))) {
+			return null;
+		}
+		List<Map.Entry<String, String>> headers = new ArrayList<>();
+		for (String name : response.getHeaderNames()) {
+			if (EXCLUDED_HEADERS.contains(name.toLowerCase())) {
+				continue;
+			}
+			for (String value : response.getHeaders(name)) {
+				headers.add(Map.entry(name, value));
+			}
+		}
+		return new SharedResponse(response.getStatus(), contentType, headers, body);
+	}
+	
+	private static void replay(SharedResponse shared, HttpServletResponse response) throws IOException {
+		response.setStatus(shared.status());
+		for (Map.Entry<String, String> header : shared.headers()) {
+			response.addHeader(header.getKey(), header.getValue());
+		}
+		if (shared.contentType() != null) {
+			response.setContentType(shared.contentType());
+		}
+		response.setContentLength(shared.body().length);
+		response.getOutputStream().write(shared.body());
+	}
+	
+	private CoalesceConfig.Route route(String uri) {
+		for (CoalesceConfig.Route route : config.getRoutes()) {
+			if (route.getPattern() != null && PATH_MATCHER.match(route.getPattern(), uri)) {
+				return route;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 合并键: 授权范围 + 内容协商头 + 路径与查询参数
+	 */
+	private static String key(HttpServletRequest request, CoalesceConfig.Route route) {
+		String scope = route.getScope() == CoalesceConfig.Scope.ROLES
+				? "R:" + sortedRoles(request.getHeader(USER_ROLES_HEADER))
+				: "U:" + request.getHeader(USER_ID_HEADER);
+		String query = request.getQueryString();
+		return scope
+				+ '|' + request.getHeader(HttpHeaders.ACCEPT)
+				+ '|' + request.getHeader(HttpHeaders.ACCEPT_ENCODING)
+				+ '|' + request.getRequestURI()
+				+ (query != null ? '?' + query : "");
+	}
+	
+	private static String sortedRoles(String roles) {
+		if (roles == null || roles.isEmpty()) {
+			return "";
+		}
+		String[] parts = roles.split(",");
+		Arrays.sort(parts);
+		return String.join(",", parts);
+	}
+	
+}
@@ -26,16 +26,17 @@ public class MyAccessAuthorizationManager implements AuthorizationManager<Reques
 		if (uri.startsWith("/rbac/user/register")) {
 			return new AuthorizationDecision(true);
 		}
-		// 放行电信AEP平台的相关接口请求, 将鉴权逻任务交给CA证书
-		else if (uri.startsWith("/aep")) {
-			return new AuthorizationDecision(true);
-		}
 		// 配置WebSocket告警推送权限, 允许admin和operator访问（已通过JWT鉴权）
 		else if (uri.startsWith("/ws/") && authentication.get().getAuthorities().stream().anyMatch(
 				authority -> "ROLE_admin".equals(authority.getAuthority()) ||
 						"ROLE_operator".equals(authority.getAuthority()))) {
 			return new AuthorizationDecision(true);
 		}
+		// 网关本地的设备在线状态表不区分租户, 只允许admin访问
+		else if (uri.startsWith("/device_manage/presence")) {
+			return new AuthorizationDecision(authentication.get().getAuthorities().stream().anyMatch(
+					authority -> "ROLE_admin".equals(authority.getAuthority())));
+		}
 		// 配置设备管理模块权限, 允许admin和operator访问
 		else if (uri.startsWith("/device_manage") && authentication.get().getAuthorities().stream().anyMatch(
 				authority -> "ROLE_admin".equals(authority.getAuthority()) ||
@@ -48,6 +49,21 @@ public class MyAccessAuthorizationManager implements AuthorizationManager<Reques
 						"ROLE_operator".equals(authority.getAuthority()))) {
 			return new AuthorizationDecision(true);
 		}
+		// 网关本地的最新监测值缓存不区分租户, 只允许admin访问
+		else if (uri.startsWith("/device_data/latest")) {
+			return new AuthorizationDecision(authentication.get().getAuthorities().stream().anyMatch(
+					authority -> "ROLE_admin".equals(authority.getAuthority())));
+		}
+		// 网关本地的实时监测值推送同样不区分租户, 只允许admin访问
+		else if (uri.startsWith("/device_data/live")) {
+			return new AuthorizationDecision(authentication.get().getAuthorities().stream().anyMatch(
+					authority -> "ROLE_admin".equals(authority.getAuthority())));
+		}
+		// 网关本地的历史监测值存储同样不区分租户, 只允许admin访问
+		else if (uri.startsWith("/device_data/history")) {
+			return new AuthorizationDecision(authentication.get().getAuthorities().stream().anyMatch(
+					authority -> "ROLE_admin".equals(authority.getAuthority())));
+		}
 		// 配置设备数据上报模块权限, 允许admin和operator访问
 		else if (uri.startsWith("/device_data") && authentication.get().getAuthorities().stream().anyMatch(
 				authority -> "ROLE_admin".equals(authority.getAuthority()) ||
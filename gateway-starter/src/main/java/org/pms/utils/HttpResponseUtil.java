@@ -1,30 +1,21 @@
 package org.pms.utils;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletResponse;
+import org.pms.trigger.response.ResponseBodyCache;
 import org.pms.types.GatewayCode;
-import org.pms.types.Response;
 
 import java.io.IOException;
 
 /**
  * @author alcsyooterranf
  * @program PressureMonitorSys-gateway
- * @description HttpResponse包装工具类
+ * @description HttpResponse包装工具类, 响应体由{@link ResponseBodyCache}预序列化, 直接写出字节
  * @create 2025/11/29
  */
 public class HttpResponseUtil {
 	
 	public static void assembleResponse(HttpServletResponse response, GatewayCode responseCode) throws IOException {
-		response.setCharacterEncoding("UTF-8");
-		response.setContentType("application/json");
-		Response bean = Response.builder()
-				.code(responseCode.getCode())
-				.message(responseCode.getMessage())
-				.build();
-		response.getWriter().write(new ObjectMapper().writeValueAsString(bean));
-		response.getWriter().flush();
-		response.getWriter().close();
+		ResponseBodyCache.write(response, responseCode);
 	}
 	
 }
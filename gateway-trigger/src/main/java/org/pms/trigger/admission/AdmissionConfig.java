@@ -0,0 +1,89 @@
+package org.pms.trigger.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 过载保护(准入控制)配置
+ * 配置说明：
+ * - enabled: 是否开启, 开启后被拒绝的AEP推送返回HTTP 429并携带Retry-After
+ * - updateIntervalMs: 负载压力的计算间隔
+ * - targetDrainSeconds: 数据队列积压按当前消费速率需要的消费时间达到该值时, 该项压力为1
+ * - rpcLatencyTargetMs: 设备数据RPC耗时(指数加权平均)达到该值时, 该项压力为1
+ * - dataShedStart / dataShedFull: 负载压力在两者之间时按比例拒绝普通设备数据, 达到dataShedFull时全部拒绝
+ * - commandShedStart / commandShedFull: 同上, 用于指令响应, 应高于设备数据的阈值
+ * - minRetryAfterSeconds / maxRetryAfterSeconds: Retry-After取值范围
+ * <p>
+ * 负载压力 = max(数据队列使用率, 积压消费时间 / targetDrainSeconds, RPC耗时 / rpcLatencyTargetMs);
+ * 越限告警数据不参与过载拒绝, 只在队列真正满时被拒绝
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-05
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.admission")
+public class AdmissionConfig {
+	
+	/**
+	 * 是否开启
+	 * 默认关闭
+	 */
+	private boolean enabled = false;
+	
+	/**
+	 * 负载压力计算间隔(毫秒)
+	 * 默认1000ms
+	 */
+	private int updateIntervalMs = 1000;
+	
+	/**
+	 * 积压消费时间目标(秒)
+	 * 默认10秒
+	 */
+	private double targetDrainSeconds = 10;
+	
+	/**
+	 * 设备数据RPC耗时目标(毫秒)
+	 * 默认2000ms
+	 */
+	private double rpcLatencyTargetMs = 2000;
+	
+	/**
+	 * 开始拒绝普通设备数据的负载压力
+	 * 默认0.8, 与队列满载告警阈值一致
+	 */
+	private double dataShedStart = 0.8;
+	
+	/**
+	 * 全部拒绝普通设备数据的负载压力
+	 * 默认1.0
+	 */
+	private double dataShedFull = 1.0;
+	
+	/**
+	 * 开始拒绝指令响应的负载压力
+	 * 默认1.0
+	 */
+	private double commandShedStart = 1.0;
+	
+	/**
+	 * 全部拒绝指令响应的负载压力
+	 * 默认1.5
+	 */
+	private double commandShedFull = 1.5;
+	
+	/**
+	 * Retry-After下限(秒)
+	 * 默认1秒
+	 */
+	private int minRetryAfterSeconds = 1;
+	
+	/**
+	 * Retry-After上限(秒)
+	 * 默认60秒
+	 */
+	private int maxRetryAfterSeconds = 60;
+	
+}
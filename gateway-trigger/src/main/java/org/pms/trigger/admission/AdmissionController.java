@@ -0,0 +1,267 @@
+package org.pms.trigger.admission;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.trigger.aep.IngestResult;
+import org.pms.trigger.buffer.DataBuffer;
+import org.pms.trigger.response.ResponseBodyCache;
+import org.pms.types.GatewayCode;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 过载保护(准入控制)
+ * <p>
+ * 设计思路：
+ * - 由定时任务按数据队列使用率、实测消费速率与设备数据RPC耗时计算负载压力, 接入线程只读volatile字段, 不加锁
+ * - 按优先级逐级拒绝: 普通设备数据先被按比例拒绝, 压力继续升高才拒绝指令响应; 越限告警数据不参与过载拒绝
+ * - 拒绝比例在shedStart~shedFull之间线性增长, 随机拒绝, 避免压力越过阈值时流量整体断崖
+ * - Retry-After = 当前积压 / 实测消费速率, AEP按此退避, 而不是立即重推到已满的队列
+ * - RPC耗时只有转发时才有样本; 一个周期内没有RPC时按同一系数向0衰减,
+ *   否则数据被全部拒绝后不再转发, 耗时停留在失败时的高值, 压力无法回落
+ * - 未开启时不拒绝, 队列满时仍按原有方式返回LOCAL_QUEUE_IS_FULL
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-05
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+	
+	/**
+	 * 消费速率、RPC耗时的指数加权系数
+	 */
+	private static final double EWMA_ALPHA = 0.3;
+	
+	/**
+	 * 负载压力上限, 防止单项指标异常时数值失控
+	 */
+	private static final double MAX_PRESSURE = 10;
+	
+	private final AdmissionConfig config;
+	private final DataBuffer dataBuffer;
+	private final LongAdder shedData = new LongAdder();
+	private final LongAdder shedCommands = new LongAdder();
+	
+	/**
+	 * 以下字段由定时任务写入, 接入线程只读
+	 */
+	private volatile double pressure;
+	private volatile double dataShedRatio;
+	private volatile double commandShedRatio;
+	private volatile int retryAfterSeconds;
+	
+	/**
+	 * RPC耗时与本周期是否有RPC由消费线程写入; 其余字段仅由定时任务访问
+	 */
+	private volatile double rpcLatencyMs;
+	private volatile boolean rpcSampled;
+	private volatile double drainRate;
+	private long lastDrained;
+	private int lastBacklog;
+	private long lastUpdateAt;
+	
+	public AdmissionController(AdmissionConfig config, DataBuffer dataBuffer) {
+		this.config = config;
+		this.dataBuffer = dataBuffer;
+		this.retryAfterSeconds = config.getMinRetryAfterSeconds();
+	}
+	
+	public boolean isEnabled() {
+		return config.isEnabled();
+	}
+	
+	/**
+	 * 普通设备数据是否准入
+	 */
+	public boolean admitData() {
+		if (!shed(dataShedRatio)) {
+			return true;
+		}
+		shedData.increment();
+		return false;
+	}
+	
+	/**
+	 * 指令响应是否准入
+	 */
+	public boolean admitCommand() {
+		if (!shed(commandShedRatio)) {
+			return true;
+		}
+		shedCommands.increment();
+		return false;
+	}
+	
+	/**
+	 * 记录一次设备数据RPC耗时, 失败按耗时目标的2倍计入
+	 *
+	 * @param latencyMs 耗时
+	 * @param success   是否成功
+	 */
+	public void recordRpc(long latencyMs, boolean success) {
+		double sample = success ? latencyMs : Math.max(latencyMs, config.getRpcLatencyTargetMs() * 2);
+		rpcLatencyMs = rpcLatencyMs == 0 ? sample : rpcLatencyMs + EWMA_ALPHA * (sample - rpcLatencyMs);
+		rpcSampled = true;
+	}
+	
+	/**
+	 * 重新计算负载压力、各优先级拒绝比例与Retry-After
+	 *
+	 * @param now 当前时间(毫秒)
+	 */
+	public void update(long now) {
+		long drained = dataBuffer.getDataDrainedCount();
+		int backlog = dataBuffer.getDataQueueSize();
+		// 只在上个周期有积压时采样, 队列空闲时的消费速率反映的是流入速率而不是消费能力
+		if (lastBacklog > 0 && lastUpdateAt > 0 && now > lastUpdateAt) {
+			double rate = (drained - lastDrained) * 1000.0 / (now - lastUpdateAt);
+			drainRate = drainRate == 0 ? rate : drainRate + EWMA_ALPHA * (rate - drainRate);
+		}
+		lastDrained = drained;
+		lastBacklog = backlog;
+		lastUpdateAt = now;
+		// 本周期没有转发(空闲或数据已被全部拒绝), RPC耗时向0衰减
+		if (!rpcSampled) {
+			rpcLatencyMs = rpcLatencyMs * (1 - EWMA_ALPHA);
+		}
+		rpcSampled = false;
+		
+		// 尚无消费速率样本时不计积压消费时间这一项, 由队列使用率兜底
+		double drainSeconds = backlog == 0 || drainRate <= 0 ? 0 : backlog / drainRate;
+		double current = Math.min(MAX_PRESSURE, Math.max(dataBuffer.getDataQueueUsageRate(),
+				Math.max(drainSeconds / config.getTargetDrainSeconds(), rpcLatencyMs / config.getRpcLatencyTargetMs())));
+		
+		pressure = current;
+		double retryAfter = backlog > 0 && drainRate <= 0 ? config.getMaxRetryAfterSeconds() : Math.ceil(drainSeconds);
+		retryAfterSeconds = (int) Math.max(config.getMinRetryAfterSeconds(),
+				Math.min(config.getMaxRetryAfterSeconds(), retryAfter));
+		if (!config.isEnabled()) {
+			return;
+		}
+		double previous = dataShedRatio;
+		dataShedRatio = ratio(current, config.getDataShedStart(), config.getDataShedFull());
+		commandShedRatio = ratio(current, config.getCommandShedStart(), config.getCommandShedFull());
+		if (previous == 0 && dataShedRatio > 0) {
+			log.warn("网关过载, 开始拒绝设备数据: pressure={}, backlog={}, drainRate={}/s, rpcLatency={}ms",
+					String.format("%.2f", current), backlog, String.format("%.1f", drainRate), String.format("%.0f", rpcLatencyMs));
+		} else if (previous > 0 && dataShedRatio == 0) {
+			log.info("网关负载恢复, 停止拒绝设备数据: pressure={}", String.format("%.2f", current));
+		}
+	}
+	
+	/**
+	 * 当前建议的退避时间(秒)
+	 */
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+	
+	/**
+	 * 构造拒绝响应: 开启时返回HTTP 429并携带Retry-After, 未开启时保持原有的HTTP 200 + 错误码
+	 *
+	 * @param code 响应码
+	 */
+	public ResponseEntity<byte[]> reject(GatewayCode code) {
+		if (!config.isEnabled()) {
+			return ResponseEntity.ok()
+					.contentType(MediaType.APPLICATION_JSON)
+					.body(ResponseBodyCache.of(code));
+		}
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfterSeconds))
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(ResponseBodyCache.of(code));
+	}
+	
+	/**
+	 * 构造批量接入响应: 开启时若全部消息因容量不足被拒绝, 返回HTTP 429并携带Retry-After;
+	 * 部分拒绝时返回HTTP 200与逐条结果, 由调用方只重推被拒绝的消息
+	 *
+	 * @param results 逐条接入结果
+	 * @param body    响应体
+	 */
+	public <T> ResponseEntity<T> batchResponse(IngestResult[] results, T body) {
+		if (!config.isEnabled() || results.length == 0) {
+			return ResponseEntity.ok(body);
+		}
+		for (IngestResult result : results) {
+			if (!result.isBackpressure()) {
+				return ResponseEntity.ok(body);
+			}
+		}
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfterSeconds))
+				.body(body);
+	}
+	
+	/**
+	 * 获取过载保护指标
+	 */
+	public AdmissionMetrics getMetrics() {
+		return AdmissionMetrics.builder()
+				.enabled(config.isEnabled())
+				.pressure(pressure)
+				.drainRate(drainRate)
+				.rpcLatencyMs(rpcLatencyMs)
+				.dataShedRatio(dataShedRatio)
+				.commandShedRatio(commandShedRatio)
+				.retryAfterSeconds(retryAfterSeconds)
+				.shedData(shedData.sum())
+				.shedCommands(shedCommands.sum())
+				.build();
+	}
+	
+	/**
+	 * 打印过载保护状态
+	 */
+	public void logStatus() {
+		AdmissionMetrics metrics = getMetrics();
+		if (!metrics.isEnabled()) {
+			return;
+		}
+		log.info("过载保护 - 压力: {}, 消费速率: {}/s, RPC耗时: {}ms, 数据拒绝比例: {}%, 指令拒绝比例: {}%, Retry-After: {}s, 已拒绝数据: {}, 已拒绝指令: {}",
+				String.format("%.2f", metrics.getPressure()), String.format("%.1f", metrics.getDrainRate()),
+				String.format("%.0f", metrics.getRpcLatencyMs()),
+				String.format("%.1f", metrics.getDataShedRatio() * 100), String.format("%.1f", metrics.getCommandShedRatio() * 100),
+				metrics.getRetryAfterSeconds(), metrics.getShedData(), metrics.getShedCommands());
+	}
+	
+	private static boolean shed(double ratio) {
+		return ratio > 0 && (ratio >= 1 || ThreadLocalRandom.current().nextDouble() < ratio);
+	}
+	
+	private static double ratio(double pressure, double start, double full) {
+		if (pressure < start) {
+			return 0;
+		}
+		if (pressure >= full || full <= start) {
+			return 1;
+		}
+		return (pressure - start) / (full - start);
+	}
+	
+	@Data
+	@Builder
+	public static class AdmissionMetrics {
+		
+		private boolean enabled;
+		private double pressure;
+		private double drainRate;
+		private double rpcLatencyMs;
+		private double dataShedRatio;
+		private double commandShedRatio;
+		private int retryAfterSeconds;
+		private long shedData;
+		private long shedCommands;
+		
+	}
+	
+}
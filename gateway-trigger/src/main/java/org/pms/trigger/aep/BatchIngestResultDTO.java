@@ -0,0 +1,71 @@
+package org.pms.trigger.aep;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量接入结果, 按请求中的消息顺序逐条返回
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-17
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchIngestResultDTO {
+	
+	/**
+	 * 消息总数
+	 */
+	private int total;
+	/**
+	 * 已接收数量(含被去重的重复消息、死区内未转发的数据、被限流丢弃的数据与后端暂无接口的设备信息上报)
+	 */
+	private int accepted;
+	/**
+	 * 被拒绝数量
+	 */
+	private int rejected;
+	/**
+	 * 逐条结果
+	 */
+	private List<ItemResult> items;
+	
+	public static BatchIngestResultDTO of(IngestResult[] results) {
+		List<ItemResult> items = new ArrayList<>(results.length);
+		int accepted = 0;
+		for (int i = 0; i < results.length; i++) {
+			IngestResult result = results[i];
+			if (result.isAcknowledged()) {
+				accepted++;
+			}
+			items.add(new ItemResult(i, result.getGatewayCode().getCode(), result.getGatewayCode().getMessage()));
+		}
+		return new BatchIngestResultDTO(results.length, accepted, results.length - accepted, items);
+	}
+	
+	@Data
+	@AllArgsConstructor
+	@NoArgsConstructor
+	public static class ItemResult {
+		
+		/**
+		 * 消息在批次中的下标
+		 */
+		private int index;
+		/**
+		 * 结果码
+		 */
+		private String code;
+		/**
+		 * 结果描述
+		 */
+		private String message;
+		
+	}
+	
+}
@@ -0,0 +1,79 @@
+package org.pms.trigger.aep;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.pms.types.GatewayCode;
+
+/**
+ * AEP推送消息的接入结果
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-17
+ */
+@Getter
+@AllArgsConstructor
+public enum IngestResult {
+	
+	/**
+	 * 已放入本地队列
+	 */
+	ACCEPTED(GatewayCode.SUCCESS),
+	/**
+	 * AEP重推的重复消息, 向AEP确认接收但不入队
+	 */
+	DUPLICATE(GatewayCode.SUCCESS),
+	/**
+	 * 监测值落在死区内, 向AEP确认接收并更新本地视图, 但不入队
+	 */
+	SUPPRESSED(GatewayCode.SUCCESS),
+	/**
+	 * 后端暂无接口的上报内容(如info_report), 向AEP确认接收避免重推, 但不入队、不转发
+	 */
+	NOT_FORWARDED(GatewayCode.SUCCESS),
+	/**
+	 * 超出设备或租户的上报速率限制(见IngestRateLimiter), 向AEP确认接收并丢弃;
+	 * 限流针对的是上报过于频繁的终端, 重推只会再次被限流, 不作为背压
+	 */
+	THROTTLED(GatewayCode.SUCCESS),
+	/**
+	 * 设备未注册、已停用或租户不一致
+	 */
+	UNKNOWN_DEVICE(GatewayCode.AUTHORIZATION_FAILURE),
+	/**
+	 * 协议类型不支持
+	 */
+	PROTOCOL_NOT_SUPPORTED(GatewayCode.PROTOCOL_NOT_SUPPORTED),
+	/**
+	 * 上报数据内容为空
+	 */
+	PAYLOAD_EMPTY(GatewayCode.DATA_REPORT_PAYLOAD_EMPTY),
+	/**
+	 * 消息格式不合法或暂不支持的payload
+	 */
+	PARSE_ERROR(GatewayCode.DATA_REPORT_PARSE_ERROR),
+	/**
+	 * 本地队列已满
+	 */
+	QUEUE_FULL(GatewayCode.LOCAL_QUEUE_IS_FULL),
+	/**
+	 * 网关过载, 按优先级主动拒绝(见AdmissionController)
+	 */
+	OVERLOADED(GatewayCode.LOCAL_QUEUE_IS_FULL);
+	
+	private final GatewayCode gatewayCode;
+	
+	/**
+	 * 是否向AEP确认接收(AEP收到成功响应后不再重推)
+	 */
+	public boolean isAcknowledged() {
+		return gatewayCode == GatewayCode.SUCCESS;
+	}
+	
+	/**
+	 * 是否因容量不足被拒绝, 此类拒绝应让AEP退避后重推
+	 */
+	public boolean isBackpressure() {
+		return this == QUEUE_FULL || this == OVERLOADED;
+	}
+	
+}
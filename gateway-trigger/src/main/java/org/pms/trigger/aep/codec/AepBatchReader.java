@@ -0,0 +1,98 @@
+package org.pms.trigger.aep.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AEP批量消息读取工具
+ * <p>
+ * 支持两种格式：
+ * - JSON数组: [{...}, {...}]
+ * - NDJSON: 每行一条JSON对象
+ * <p>
+ * 单条消息语义格式错误时跳过该条(结果列表对应位置为null), 继续读取后续消息;
+ * JSON语法错误无法定位下一条消息的起点, 直接抛出异常, 整批拒绝
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-17
+ */
+@Slf4j
+public final class AepBatchReader {
+	
+	private AepBatchReader() {
+	}
+	
+	/**
+	 * 单条消息读取器
+	 */
+	@FunctionalInterface
+	public interface ItemReader<T> {
+		
+		/**
+		 * 读取一条消息, 调用时parser位于消息的START_OBJECT上
+		 */
+		T read(JsonParser parser) throws IOException;
+		
+	}
+	
+	/**
+	 * 读取批量消息
+	 *
+	 * @param parser     JsonParser(尚未读取任何token)
+	 * @param itemReader 单条消息读取器
+	 * @param maxItems   单批最大消息数
+	 * @return 消息列表, 格式错误的消息对应位置为null
+	 * @throws IOException JSON语法错误、消息数超限或读取失败
+	 */
+	public static <T> List<T> readAll(JsonParser parser, ItemReader<T> itemReader, int maxItems) throws IOException {
+		List<T> items = new ArrayList<>();
+		JsonToken token = parser.nextToken();
+		boolean wrapped = token == JsonToken.START_ARRAY;
+		if (wrapped) {
+			token = parser.nextToken();
+		}
+		while (token != null && token != JsonToken.END_ARRAY) {
+			if (items.size() >= maxItems) {
+				throw new AepMessageFormatException(parser, "批量消息数超过上限: " + maxItems);
+			}
+			items.add(readItem(parser, itemReader, items.size()));
+			token = parser.nextToken();
+		}
+		if (wrapped && token != JsonToken.END_ARRAY) {
+			throw new AepMessageFormatException(parser, "批量消息JSON数组不完整");
+		}
+		return items;
+	}
+	
+	private static <T> T readItem(JsonParser parser, ItemReader<T> itemReader, int index) throws IOException {
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			log.warn("批量消息第{}条不是JSON对象, 已跳过", index);
+			parser.skipChildren();
+			return null;
+		}
+		// 位于START_OBJECT时上下文已进入该对象, 父层级(数组内为1, NDJSON为0)即为消息结束后的层级
+		int parentDepth = parser.getParsingContext().getNestingDepth() - 1;
+		try {
+			return itemReader.read(parser);
+		} catch (AepMessageFormatException | JsonMappingException e) {
+			log.warn("批量消息第{}条格式不合法, 已跳过: {}", index, e.getOriginalMessage());
+			skipToDepth(parser, parentDepth);
+			return null;
+		}
+	}
+	
+	private static void skipToDepth(JsonParser parser, int depth) throws IOException {
+		while (parser.getParsingContext().getNestingDepth() > depth) {
+			if (parser.nextToken() == null) {
+				return;
+			}
+		}
+	}
+	
+}
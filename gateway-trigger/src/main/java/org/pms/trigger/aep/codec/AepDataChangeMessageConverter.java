@@ -0,0 +1,59 @@
+package org.pms.trigger.aep.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+
+/**
+ * AEP data_change消息转换器, 只负责读取{@link BaseDeviceDataDTO}
+ * 使用{@link AepDataChangeReader}流式解析, 替代Jackson数据绑定+JsonNode树
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-14
+ */
+public class AepDataChangeMessageConverter extends AbstractHttpMessageConverter<BaseDeviceDataDTO> {
+	
+	private final JsonFactory jsonFactory;
+	private final AepDataChangeReader reader;
+	
+	public AepDataChangeMessageConverter(JsonFactory jsonFactory, AepDataChangeReader reader) {
+		super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+		this.jsonFactory = jsonFactory;
+		this.reader = reader;
+	}
+	
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return BaseDeviceDataDTO.class == clazz;
+	}
+	
+	@Override
+	protected boolean canWrite(MediaType mediaType) {
+		return false;
+	}
+	
+	@Override
+	protected BaseDeviceDataDTO readInternal(Class<? extends BaseDeviceDataDTO> clazz,
+											 HttpInputMessage inputMessage) throws IOException {
+		try (JsonParser parser = jsonFactory.createParser(inputMessage.getBody())) {
+			return reader.read(parser);
+		} catch (JsonProcessingException e) {
+			throw new HttpMessageNotReadableException("data_change消息解析失败: " + e.getOriginalMessage(), e, inputMessage);
+		}
+	}
+	
+	@Override
+	protected void writeInternal(BaseDeviceDataDTO dto, HttpOutputMessage outputMessage) {
+		throw new HttpMessageNotWritableException("AepDataChangeMessageConverter不支持序列化");
+	}
+	
+}
@@ -0,0 +1,154 @@
+package org.pms.trigger.aep.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.trigger.aep.codec.binary.BinaryCodecRegistry;
+import org.pms.trigger.aep.codec.binary.BinaryFrame;
+import org.pms.trigger.aep.codec.schema.PayloadDecoderRegistry;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * AEP平台data_change消息流式解析器
+ * <p>
+ * 设计思路：
+ * - 基于JsonParser逐token读取, 一次遍历完成字段提取, 不构建JsonNode树
+ * - 非透传payload按serviceId交给启动时由schema编译的解码器, 直接提取到{@link MonitorReadingDTO}/InfoDTO
+ * - AEP消息中serviceId通常位于payload之前; 位于之后时先将payload缓存为TokenBuffer, 消息读完再解码
+ * - 透传payload从parser字符缓冲区直接Base64解码到池化帧缓冲区, 消息读完后按productId/serviceId分派给编解码器
+ * - tenantId/productId/serviceId等取值很少的字段经StringDictionary规范化, 队列中的DTO共享同一实例
+ * - 消息结构或payload字段不合法时立即抛出{@link AepMessageFormatException}, 在入队前拒绝
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-14
+ */
+@Component
+public class AepDataChangeReader {
+
+	private final BinaryCodecRegistry codecRegistry;
+	private final PayloadDecoderRegistry payloadDecoders;
+	
+	public AepDataChangeReader(BinaryCodecRegistry codecRegistry, PayloadDecoderRegistry payloadDecoders) {
+		this.codecRegistry = codecRegistry;
+		this.payloadDecoders = payloadDecoders;
+	}
+	
+	/**
+	 * 从parser读取一条data_change消息
+	 * parser可以位于消息起始的START_OBJECT上, 也可以尚未读取任何token
+	 *
+	 * @param parser JsonParser
+	 * @return 设备数据
+	 * @throws IOException 消息格式不合法或读取失败
+	 */
+	public BaseDeviceDataDTO read(JsonParser parser) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == null) {
+			token = parser.nextToken();
+		}
+		if (token != JsonToken.START_OBJECT) {
+			throw new AepMessageFormatException(parser, "data_change消息必须为JSON对象");
+		}
+
+		BaseDeviceDataDTO dto = new BaseDeviceDataDTO();
+		BinaryFrame frame = null;
+		TokenBuffer deferredPayload = null;
+		try {
+			String fieldName;
+			while ((fieldName = parser.nextFieldName()) != null) {
+				token = parser.nextToken();
+				switch (fieldName) {
+					case "upPacketSN" -> dto.setUpPacketSN(JsonValues.readInteger(parser, token));
+					case "upDataSN" -> dto.setUpDataSN(JsonValues.readInteger(parser, token));
+					case "topic" -> dto.setTopic(JsonValues.readCanonicalText(parser, token));
+					case "timestamp" -> dto.setTimestamp(JsonValues.readLong(parser, token));
+					case "tenantId" -> dto.setTenantId(JsonValues.readCanonicalText(parser, token));
+					case "serviceId" -> dto.setServiceId(JsonValues.readCanonicalText(parser, token));
+					case "protocol" -> dto.setProtocol(JsonValues.readCanonicalText(parser, token));
+					case "productId" -> dto.setProductId(JsonValues.readCanonicalText(parser, token));
+					case "payload" -> {
+						if (token == JsonToken.START_OBJECT && dto.getServiceId() == null) {
+							deferredPayload = new TokenBuffer(parser);
+							deferredPayload.copyCurrentStructure(parser);
+						} else {
+							frame = readPayload(parser, token, dto, frame);
+						}
+					}
+					case "messageType" -> dto.setMessageType(JsonValues.readCanonicalText(parser, token));
+					case "deviceType" -> dto.setDeviceType(JsonValues.readCanonicalText(parser, token));
+					case "deviceId" -> dto.setDeviceId(JsonValues.readText(parser, token));
+					case "assocAssetId" -> dto.setAssocAssetId(JsonValues.readText(parser, token));
+					case "IMSI" -> dto.setIMSI(JsonValues.readText(parser, token));
+					case "IMEI" -> dto.setIMEI(JsonValues.readText(parser, token));
+					default -> parser.skipChildren();
+				}
+			}
+			if (parser.currentToken() != JsonToken.END_OBJECT) {
+				throw new AepMessageFormatException(parser, "data_change消息不完整");
+			}
+			if (frame != null) {
+				// productId/serviceId可能位于payload之后, 消息读完再分派
+				dto.setReading(decodeFrame(parser, dto, frame));
+			}
+			if (deferredPayload != null) {
+				try (JsonParser payloadParser = deferredPayload.asParser()) {
+					payloadParser.nextToken();
+					payloadDecoders.lookup(dto.getServiceId()).decode(payloadParser, dto);
+				}
+			}
+			return dto;
+		} finally {
+			if (frame != null) {
+				codecRegistry.framePool().release(frame);
+			}
+		}
+	}
+
+	/**
+	 * 读取payload
+	 * - 对象: 非透传模式, 按serviceId对应的schema解析
+	 * - 字符串: 透传模式, Base64编码的二进制数据, 解码到帧缓冲区; 透传模式未开启时原样保留
+	 *
+	 * @return 透传模式下持有的帧缓冲区
+	 */
+	private BinaryFrame readPayload(JsonParser parser, JsonToken token, BaseDeviceDataDTO dto,
+									BinaryFrame frame) throws IOException {
+		switch (token) {
+			case VALUE_NULL -> {
+			}
+			case VALUE_STRING -> {
+				if (!codecRegistry.isEnabled()) {
+					dto.setPayload(TextNode.valueOf(parser.getText()));
+					return frame;
+				}
+				BinaryFrame target = frame != null ? frame : codecRegistry.framePool().acquire();
+				if (!target.decodeBase64(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())) {
+					if (frame == null) {
+						codecRegistry.framePool().release(target);
+					}
+					throw new AepMessageFormatException(parser, "透传payload不是合法的Base64或超过帧长度上限");
+				}
+				return target;
+			}
+			case START_OBJECT -> payloadDecoders.lookup(dto.getServiceId()).decode(parser, dto);
+			default -> throw new AepMessageFormatException(parser, "payload类型不合法: " + token);
+		}
+		return frame;
+	}
+	
+	private MonitorReadingDTO decodeFrame(JsonParser parser, BaseDeviceDataDTO dto, BinaryFrame frame) throws IOException {
+		MonitorReadingDTO reading = new MonitorReadingDTO();
+		try {
+			codecRegistry.decode(dto.getProductId(), dto.getServiceId(), frame, reading);
+		} catch (IllegalArgumentException e) {
+			throw new AepMessageFormatException(parser, "透传payload解码失败: " + e.getMessage());
+		}
+		return reading;
+	}
+
+}
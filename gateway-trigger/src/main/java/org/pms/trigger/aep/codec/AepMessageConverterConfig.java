@@ -0,0 +1,32 @@
+package org.pms.trigger.aep.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * 注册AEP消息转换器, 放在转换器列表首位, 优先于Jackson数据绑定
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-14
+ */
+@Configuration
+public class AepMessageConverterConfig implements WebMvcConfigurer {
+	
+	private final ObjectMapper objectMapper;
+	private final AepDataChangeReader aepDataChangeReader;
+	
+	public AepMessageConverterConfig(ObjectMapper objectMapper, AepDataChangeReader aepDataChangeReader) {
+		this.objectMapper = objectMapper;
+		this.aepDataChangeReader = aepDataChangeReader;
+	}
+	
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		converters.add(0, new AepDataChangeMessageConverter(objectMapper.getFactory(), aepDataChangeReader));
+	}
+	
+}
@@ -0,0 +1,19 @@
+package org.pms.trigger.aep.codec;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * AEP消息语义格式错误(JSON语法合法, 但字段类型/结构不符合约定)
+ * 与JSON语法错误区分, 批量读取时可跳过该条消息继续读取后续消息
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-17
+ */
+public class AepMessageFormatException extends JsonParseException {
+	
+	public AepMessageFormatException(JsonParser parser, String message) {
+		super(parser, message);
+	}
+	
+}
@@ -0,0 +1,111 @@
+package org.pms.trigger.aep.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.pms.domain.support.FixedPoint;
+import org.pms.domain.support.StringDictionary;
+
+import java.io.IOException;
+
+/**
+ * AEP消息字段值读取工具, 类型不符时抛出{@link AepMessageFormatException}
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-21
+ */
+public final class JsonValues {
+	
+	private JsonValues() {
+	}
+	
+	public static String readText(JsonParser parser, JsonToken token) throws IOException {
+		if (token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (!token.isScalarValue()) {
+			throw new AepMessageFormatException(parser, "字段" + parser.currentName() + "类型不合法: " + token);
+		}
+		return parser.getText();
+	}
+	
+	/**
+	 * 读取取值很少的文本字段(tenantId、productId、serviceId等), 经{@link StringDictionary}规范化
+	 */
+	public static String readCanonicalText(JsonParser parser, JsonToken token) throws IOException {
+		if (token == JsonToken.VALUE_STRING) {
+			return StringDictionary.canonical(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+		}
+		return StringDictionary.canonical(readText(parser, token));
+	}
+	
+	public static Integer readInteger(JsonParser parser, JsonToken token) throws IOException {
+		if (token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (token != JsonToken.VALUE_NUMBER_INT) {
+			throw new AepMessageFormatException(parser, "字段" + parser.currentName() + "必须为整数");
+		}
+		return parser.getIntValue();
+	}
+	
+	public static Long readLong(JsonParser parser, JsonToken token) throws IOException {
+		if (token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (token != JsonToken.VALUE_NUMBER_INT) {
+			throw new AepMessageFormatException(parser, "字段" + parser.currentName() + "必须为整数");
+		}
+		return parser.getLongValue();
+	}
+	
+	/**
+	 * 读取十进制数值字段为定点值, 允许数字或字符串, 直接解析parser的字符缓冲区
+	 *
+	 * @param scale 小数位数
+	 */
+	public static long readFixedPoint(JsonParser parser, JsonToken token, int scale) throws IOException {
+		if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+				&& token != JsonToken.VALUE_STRING) {
+			throw new AepMessageFormatException(parser, "字段" + parser.currentName() + "类型不合法: " + token);
+		}
+		try {
+			return FixedPoint.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), scale);
+		} catch (NumberFormatException e) {
+			throw new AepMessageFormatException(parser, "字段" + parser.currentName() + "格式不合法: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * 读取十进制数值字段为int定点值
+	 *
+	 * @see #readFixedPoint(JsonParser, JsonToken, int)
+	 */
+	public static int readFixedPointInt(JsonParser parser, JsonToken token, int scale) throws IOException {
+		long value = readFixedPoint(parser, token, scale);
+		if (value != (int) value) {
+			throw new AepMessageFormatException(parser, "字段" + parser.currentName() + "超出范围: " + parser.getText());
+		}
+		return (int) value;
+	}
+	
+	/**
+	 * 读取整数字段, 允许数字或字符串, 小数截断
+	 */
+	public static int readLenientInt(JsonParser parser, JsonToken token) throws IOException {
+		switch (token) {
+			case VALUE_NUMBER_INT:
+				return parser.getIntValue();
+			case VALUE_NUMBER_FLOAT:
+				return (int) parser.getDoubleValue();
+			case VALUE_STRING:
+				try {
+					return Integer.parseInt(parser.getText().trim());
+				} catch (NumberFormatException e) {
+					throw new AepMessageFormatException(parser, "字段" + parser.currentName() + "格式不合法: " + parser.getText());
+				}
+			default:
+				throw new AepMessageFormatException(parser, "字段" + parser.currentName() + "类型不合法: " + token);
+		}
+	}
+	
+}
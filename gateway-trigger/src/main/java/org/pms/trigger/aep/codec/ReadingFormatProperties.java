@@ -0,0 +1,65 @@
+package org.pms.trigger.aep.codec;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import org.pms.domain.support.FixedPoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 监测数据数值格式配置
+ * 配置说明：
+ * - pressureScale: 压力定点值的小数位数, 超出部分四舍五入
+ * - temperatureScale: 温度定点值的小数位数, 超出部分四舍五入
+ * - mode: 转发后端时的数值文本来源
+ *   - RAW_TEXT: 保留并原样转发上报的原始文本, 转发内容与接入定点值之前一致
+ *   - CANONICAL: 由定点值按scale格式化, 队列中不保留原始文本; 转发文本会变化(如scale=3时"12.3"转发为"12.300"),
+ *     需确认后端按数值而非文本处理后再开启
+ * <p>
+ * pressure/temperature在入队前解析为定点值, 不合法或超出范围的数值直接拒绝;
+ * 阈值告警、死区、聚合、最新值与历史值均基于同一scale的定点值
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-03
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "aep.reading")
+public class ReadingFormatProperties {
+	
+	/**
+	 * 压力小数位数
+	 * 默认3
+	 */
+	private int pressureScale = 3;
+	
+	/**
+	 * 温度小数位数
+	 * 默认2, 温度定点值以int保存
+	 */
+	private int temperatureScale = 2;
+	
+	/**
+	 * 数值文本来源
+	 * 默认RAW_TEXT
+	 */
+	private Mode mode = Mode.RAW_TEXT;
+	
+	public enum Mode {
+		RAW_TEXT,
+		CANONICAL
+	}
+	
+	@PostConstruct
+	public void validate() {
+		if (pressureScale < 0 || pressureScale > FixedPoint.MAX_SCALE
+				|| temperatureScale < 0 || temperatureScale > FixedPoint.MAX_SCALE) {
+			throw new IllegalStateException("aep.reading.*-scale应为0~" + FixedPoint.MAX_SCALE);
+		}
+	}
+	
+	public boolean isRetainText() {
+		return mode == Mode.RAW_TEXT;
+	}
+	
+}
@@ -0,0 +1,111 @@
+package org.pms.trigger.aep.codec.binary;
+
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 透传编解码器注册表
+ * <p>
+ * 启动时根据配置构建 productId → serviceId → 编解码器 的两级映射, 运行期只读
+ * 匹配顺序: (productId, serviceId) → (productId, *) → (*, serviceId) → (*, *) → defaultCodec
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-20
+ */
+@Slf4j
+@Component
+public class BinaryCodecRegistry {
+	
+	/**
+	 * 通配符
+	 */
+	public static final String ANY = "*";
+	
+	private final TransparentPayloadProperties properties;
+	private final Map<String, Map<String, BinaryPayloadCodec>> bindings = new HashMap<>();
+	private final BinaryPayloadCodec defaultCodec;
+	private final BinaryFramePool framePool;
+	
+	public BinaryCodecRegistry(TransparentPayloadProperties properties, List<BinaryPayloadCodec> codecs) {
+		this.properties = properties;
+		Map<String, BinaryPayloadCodec> codecsByName = new HashMap<>();
+		for (BinaryPayloadCodec codec : codecs) {
+			if (codecsByName.put(codec.name(), codec) != null) {
+				throw new IllegalStateException("透传编解码器名称重复: " + codec.name());
+			}
+		}
+		for (TransparentPayloadProperties.Binding binding : properties.getBindings()) {
+			BinaryPayloadCodec codec = codecsByName.get(binding.getCodec());
+			if (codec == null) {
+				throw new IllegalStateException("透传编解码器不存在: " + binding.getCodec());
+			}
+			bindings.computeIfAbsent(binding.getProductId(), key -> new HashMap<>())
+					.put(binding.getServiceId(), codec);
+		}
+		if (StringUtils.hasText(properties.getDefaultCodec())) {
+			this.defaultCodec = codecsByName.get(properties.getDefaultCodec());
+			if (defaultCodec == null) {
+				throw new IllegalStateException("透传默认编解码器不存在: " + properties.getDefaultCodec());
+			}
+		} else {
+			this.defaultCodec = null;
+		}
+		this.framePool = new BinaryFramePool(properties.getFramePoolSize(), properties.getMaxFrameBytes());
+		log.info("透传编解码器注册完成: enabled={}, codecs={}, bindings={}, defaultCodec={}",
+				properties.isEnabled(), codecsByName.keySet(), properties.getBindings().size(),
+				properties.getDefaultCodec());
+	}
+	
+	public boolean isEnabled() {
+		return properties.isEnabled();
+	}
+	
+	public BinaryFramePool framePool() {
+		return framePool;
+	}
+	
+	/**
+	 * 按productId/serviceId查找编解码器
+	 *
+	 * @return 编解码器, 未匹配返回null
+	 */
+	public BinaryPayloadCodec lookup(String productId, String serviceId) {
+		BinaryPayloadCodec codec = lookup(bindings.get(productId), serviceId);
+		if (codec == null) {
+			codec = lookup(bindings.get(ANY), serviceId);
+		}
+		return codec != null ? codec : defaultCodec;
+	}
+	
+	/**
+	 * 解码一帧数据
+	 *
+	 * @param productId 产品ID
+	 * @param serviceId 服务标识
+	 * @param frame     帧
+	 * @param reading   解码结果
+	 * @throws IllegalArgumentException 未匹配到编解码器或帧格式不合法
+	 */
+	public void decode(String productId, String serviceId, BinaryFrame frame, MonitorReadingDTO reading) {
+		BinaryPayloadCodec codec = lookup(productId, serviceId);
+		if (codec == null) {
+			throw new IllegalArgumentException("未注册透传编解码器: productId=" + productId + ", serviceId=" + serviceId);
+		}
+		codec.decode(frame.buffer(), frame.length(), reading);
+	}
+	
+	private static BinaryPayloadCodec lookup(Map<String, BinaryPayloadCodec> byService, String serviceId) {
+		if (byService == null) {
+			return null;
+		}
+		BinaryPayloadCodec codec = byService.get(serviceId);
+		return codec != null ? codec : byService.get(ANY);
+	}
+	
+}
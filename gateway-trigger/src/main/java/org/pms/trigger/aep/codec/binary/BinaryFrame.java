@@ -0,0 +1,89 @@
+package org.pms.trigger.aep.codec.binary;
+
+import java.util.Arrays;
+
+/**
+ * 可复用的帧缓冲区, 由{@link BinaryFramePool}管理
+ * <p>
+ * Base64解码直接读取JsonParser内部的字符缓冲区, 不创建中间String和byte[]
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-20
+ */
+public final class BinaryFrame {
+	
+	private static final byte[] DECODE_TABLE = new byte[128];
+	
+	static {
+		Arrays.fill(DECODE_TABLE, (byte) -1);
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for (int i = 0; i < alphabet.length(); i++) {
+			DECODE_TABLE[alphabet.charAt(i)] = (byte) i;
+		}
+		// 兼容URL安全字母表
+		DECODE_TABLE['-'] = 62;
+		DECODE_TABLE['_'] = 63;
+	}
+	
+	private final byte[] buffer;
+	private int length;
+	
+	BinaryFrame(int capacity) {
+		this.buffer = new byte[capacity];
+	}
+	
+	public byte[] buffer() {
+		return buffer;
+	}
+	
+	public int length() {
+		return length;
+	}
+	
+	/**
+	 * Base64解码到缓冲区, 允许省略末尾的'='
+	 *
+	 * @param src    字符数组
+	 * @param offset 起始位置
+	 * @param count  字符数
+	 * @return 解码成功返回true; 含非法字符或超出缓冲区容量返回false
+	 */
+	public boolean decodeBase64(char[] src, int offset, int count) {
+		int end = offset + count;
+		while (end > offset && src[end - 1] == '=') {
+			end--;
+		}
+		int chars = end - offset;
+		if (chars % 4 == 1 || count - chars > 2) {
+			return false;
+		}
+		int decodedLength = chars / 4 * 3 + Math.max(0, chars % 4 - 1);
+		if (decodedLength > buffer.length) {
+			return false;
+		}
+		
+		int out = 0;
+		int bits = 0;
+		int bitCount = 0;
+		for (int i = offset; i < end; i++) {
+			char c = src[i];
+			int value = c < 128 ? DECODE_TABLE[c] : -1;
+			if (value < 0) {
+				return false;
+			}
+			bits = (bits << 6) | value;
+			bitCount += 6;
+			if (bitCount >= 8) {
+				bitCount -= 8;
+				buffer[out++] = (byte) (bits >>> bitCount);
+			}
+		}
+		length = out;
+		return true;
+	}
+	
+	void reset() {
+		length = 0;
+	}
+	
+}
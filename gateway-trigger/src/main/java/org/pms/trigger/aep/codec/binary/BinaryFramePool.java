@@ -0,0 +1,37 @@
+package org.pms.trigger.aep.codec.binary;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 帧缓冲区池
+ * <p>
+ * 不使用ThreadLocal: 虚拟线程模式下每个请求一个线程, ThreadLocal缓冲区无法复用
+ * 池为空时临时创建缓冲区, 归还时池已满则丢弃, 池大小只影响复用率不影响正确性
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-20
+ */
+public final class BinaryFramePool {
+	
+	private final ArrayBlockingQueue<BinaryFrame> frames;
+	private final int frameCapacity;
+	
+	public BinaryFramePool(int poolSize, int frameCapacity) {
+		this.frames = new ArrayBlockingQueue<>(poolSize);
+		this.frameCapacity = frameCapacity;
+		for (int i = 0; i < poolSize; i++) {
+			frames.offer(new BinaryFrame(frameCapacity));
+		}
+	}
+	
+	public BinaryFrame acquire() {
+		BinaryFrame frame = frames.poll();
+		return frame != null ? frame : new BinaryFrame(frameCapacity);
+	}
+	
+	public void release(BinaryFrame frame) {
+		frame.reset();
+		frames.offer(frame);
+	}
+	
+}
@@ -0,0 +1,31 @@
+package org.pms.trigger.aep.codec.binary;
+
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+
+/**
+ * 透传模式二进制payload编解码器
+ * <p>
+ * 实现类注册为Spring Bean即可, 通过aep.transparent.bindings按productId/serviceId绑定
+ * decode直接从帧缓冲区读取字段写入reading, 不得持有frame引用(缓冲区会被复用)
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-20
+ */
+public interface BinaryPayloadCodec {
+	
+	/**
+	 * 编解码器名称, 用于配置绑定
+	 */
+	String name();
+	
+	/**
+	 * 解码一帧数据
+	 *
+	 * @param frame   帧缓冲区, 有效数据为[0, length)
+	 * @param length  帧长度
+	 * @param reading 解码结果
+	 * @throws IllegalArgumentException 帧格式不合法
+	 */
+	void decode(byte[] frame, int length, MonitorReadingDTO reading);
+	
+}
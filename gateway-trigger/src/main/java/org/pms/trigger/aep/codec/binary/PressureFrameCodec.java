@@ -0,0 +1,82 @@
+package org.pms.trigger.aep.codec.binary;
+
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.domain.support.FixedPoint;
+import org.pms.trigger.aep.codec.ReadingFormatProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 压力监测终端二进制帧(参考实现)
+ * <p>
+ * 帧格式(大端, 共8字节)：
+ * | 偏移 | 长度 | 字段        | 说明                          |
+ * | 0    | 1    | magic       | 固定0xA5                      |
+ * | 1    | 1    | version     | 固定0x01                      |
+ * | 2    | 2    | pressure    | 有符号, 压力 = 原始值 / 100   |
+ * | 4    | 2    | temperature | 有符号, 温度 = 原始值 / 10    |
+ * | 6    | 1    | voltage     | 无符号, 电压 = 原始值 / 10(V) |
+ * | 7    | 1    | checksum    | 前7字节异或                    |
+ * <p>
+ * voltage原样写入帧中的原始值(单位0.1V, 如36表示3.6V), 网关不做换算; 与JSON payload的voltage字段一样由后端按设备协议解释
+ * pressure/temperature原始值本身即为定点值, 只需转换为配置的scale
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-20
+ */
+@Component
+public class PressureFrameCodec implements BinaryPayloadCodec {
+	
+	public static final String NAME = "pms-frame-v1";
+	
+	private static final int FRAME_LENGTH = 8;
+	private static final int MAGIC = 0xA5;
+	private static final int VERSION = 0x01;
+	private static final int PRESSURE_SCALE = 2;
+	private static final int TEMPERATURE_SCALE = 1;
+	
+	private final ReadingFormatProperties format;
+	
+	public PressureFrameCodec(ReadingFormatProperties format) {
+		this.format = format;
+	}
+	
+	@Override
+	public String name() {
+		return NAME;
+	}
+	
+	@Override
+	public void decode(byte[] frame, int length, MonitorReadingDTO reading) {
+		if (length != FRAME_LENGTH) {
+			throw new IllegalArgumentException("帧长度不合法: " + length + ", 应为" + FRAME_LENGTH);
+		}
+		if ((frame[0] & 0xFF) != MAGIC || (frame[1] & 0xFF) != VERSION) {
+			throw new IllegalArgumentException("帧头不合法");
+		}
+		int checksum = 0;
+		for (int i = 0; i < FRAME_LENGTH - 1; i++) {
+			checksum ^= frame[i];
+		}
+		if ((byte) checksum != frame[FRAME_LENGTH - 1]) {
+			throw new IllegalArgumentException("帧校验失败");
+		}
+		
+		int pressure = (short) (((frame[2] & 0xFF) << 8) | (frame[3] & 0xFF));
+		int temperature = (short) (((frame[4] & 0xFF) << 8) | (frame[5] & 0xFF));
+		reading.setPressure(FixedPoint.rescale(pressure, PRESSURE_SCALE, format.getPressureScale()));
+		reading.setPressureScale(format.getPressureScale());
+		try {
+			reading.setTemperature(Math.toIntExact(
+					FixedPoint.rescale(temperature, TEMPERATURE_SCALE, format.getTemperatureScale())));
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("温度超出范围: " + temperature, e);
+		}
+		reading.setTemperatureScale(format.getTemperatureScale());
+		if (format.isRetainText()) {
+			reading.setPressureText(FixedPoint.format(pressure, PRESSURE_SCALE));
+			reading.setTemperatureText(FixedPoint.format(temperature, TEMPERATURE_SCALE));
+		}
+		reading.setVoltage(frame[6] & 0xFF);
+	}
+	
+}
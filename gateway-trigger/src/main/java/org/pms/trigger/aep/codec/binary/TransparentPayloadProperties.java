@@ -0,0 +1,70 @@
+package org.pms.trigger.aep.codec.binary;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 透传模式配置
+ * 配置说明：
+ * - enabled: 是否开启透传模式, 关闭时透传payload按解析失败处理
+ * - maxFrameBytes: 单帧最大字节数(解码后)
+ * - framePoolSize: 帧缓冲区池大小, 建议不小于Tomcat最大线程数
+ * - defaultCodec: 未匹配到绑定时使用的编解码器, 为空则拒绝(各产品需在bindings中显式绑定)
+ * - bindings: productId/serviceId → 编解码器名称, "*"匹配任意值
+ * <p>
+ * 示例：
+ * aep.transparent.bindings[0].product-id=15000001
+ * aep.transparent.bindings[0].service-id=*
+ * aep.transparent.bindings[0].codec=pms-frame-v1
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-20
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "aep.transparent")
+public class TransparentPayloadProperties {
+	
+	/**
+	 * 是否开启透传模式
+	 * 默认开启
+	 */
+	private boolean enabled = true;
+	
+	/**
+	 * 单帧最大字节数
+	 * 默认256, NB-IoT单包上行通常不超过此值
+	 */
+	private int maxFrameBytes = 256;
+	
+	/**
+	 * 帧缓冲区池大小
+	 * 默认200, 与Tomcat默认最大线程数一致
+	 */
+	private int framePoolSize = 200;
+	
+	/**
+	 * 默认编解码器
+	 * 默认为空, 未绑定的产品透传payload按解析失败处理, 避免被误按参考帧格式解码
+	 */
+	private String defaultCodec = "";
+	
+	/**
+	 * 编解码器绑定
+	 */
+	private List<Binding> bindings = new ArrayList<>();
+	
+	@Data
+	public static class Binding {
+		
+		private String productId = BinaryCodecRegistry.ANY;
+		private String serviceId = BinaryCodecRegistry.ANY;
+		private String codec;
+		
+	}
+	
+}
@@ -0,0 +1,24 @@
+package org.pms.trigger.aep.codec.schema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * payload字段读取器: 读取parser当前值并写入目标对象
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-21
+ */
+@FunctionalInterface
+public interface FieldReader<T> {
+	
+	/**
+	 * @param parser JsonParser, 位于字段值上
+	 * @param token  字段值token
+	 * @param target 目标对象
+	 */
+	void read(JsonParser parser, JsonToken token, T target) throws IOException;
+	
+}
@@ -0,0 +1,90 @@
+package org.pms.trigger.aep.codec.schema;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.trigger.aep.codec.AepMessageFormatException;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 由schema编译得到的payload解码器(某个serviceId专用)
+ * <p>
+ * 字段名在编译时intern, Jackson默认对字段名intern, 匹配时先比较引用再比较内容;
+ * 字段读取器为数组下标访问, 解码过程中没有反射和Map查找
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-21
+ */
+public final class PayloadDecoder<T> {
+	
+	/**
+	 * 单个schema最大字段数(必填字段以long位图记录)
+	 */
+	static final int MAX_FIELDS = Long.SIZE;
+	
+	private final String serviceId;
+	private final PayloadTarget<T> target;
+	private final String[] names;
+	private final FieldReader<T>[] readers;
+	private final long requiredMask;
+	private final List<String> requiredNames;
+	
+	PayloadDecoder(String serviceId, PayloadTarget<T> target, String[] names, FieldReader<T>[] readers,
+				   long requiredMask, List<String> requiredNames) {
+		this.serviceId = serviceId;
+		this.target = target;
+		this.names = names;
+		this.readers = readers;
+		this.requiredMask = requiredMask;
+		this.requiredNames = requiredNames;
+	}
+	
+	/**
+	 * 解码payload并挂到dto上, 调用时parser位于payload的START_OBJECT上
+	 *
+	 * @param parser JsonParser
+	 * @param dto    设备数据
+	 * @throws IOException 字段类型不合法、缺少必填字段或读取失败
+	 */
+	public void decode(JsonParser parser, BaseDeviceDataDTO dto) throws IOException {
+		T value = target.create();
+		long seen = 0;
+		String fieldName;
+		while ((fieldName = parser.nextFieldName()) != null) {
+			JsonToken token = parser.nextToken();
+			int index = indexOf(fieldName);
+			if (index < 0) {
+				parser.skipChildren();
+				continue;
+			}
+			readers[index].read(parser, token, value);
+			seen |= 1L << index;
+		}
+		if ((seen & requiredMask) != requiredMask) {
+			throw new AepMessageFormatException(parser, "payload缺少字段, " + serviceId + "需包含" + requiredNames);
+		}
+		target.attach(dto, value);
+	}
+	
+	public String serviceId() {
+		return serviceId;
+	}
+	
+	private int indexOf(String fieldName) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] == fieldName) {
+				return i;
+			}
+		}
+		// 字段名未intern(如关闭了JsonFactory.Feature.INTERN_FIELD_NAMES)
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(fieldName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+}
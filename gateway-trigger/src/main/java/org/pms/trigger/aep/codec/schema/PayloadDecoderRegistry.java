@@ -0,0 +1,74 @@
+package org.pms.trigger.aep.codec.schema;
+
+import lombok.extern.slf4j.Slf4j;
+import org.pms.trigger.aep.codec.ReadingFormatProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * payload解码器注册表
+ * 启动时将{@link PayloadSchemaProperties}中的每个schema编译为{@link PayloadDecoder}, 配置错误时启动失败
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-21
+ */
+@Slf4j
+@Component
+public class PayloadDecoderRegistry {
+	
+	private final Map<String, PayloadDecoder<?>> decoders = new HashMap<>();
+	private final PayloadDecoder<?> defaultDecoder;
+	
+	public PayloadDecoderRegistry(PayloadSchemaProperties properties, ReadingFormatProperties format) {
+		properties.getSchemas().forEach((serviceId, schema) ->
+				decoders.put(serviceId, compile(serviceId, PayloadTarget.of(schema.getTarget(), format), schema)));
+		this.defaultDecoder = decoders.get(properties.getDefaultServiceId());
+		if (defaultDecoder == null) {
+			throw new IllegalStateException("默认payload schema不存在: " + properties.getDefaultServiceId());
+		}
+		log.info("payload解码器编译完成: serviceIds={}, default={}", decoders.keySet(), properties.getDefaultServiceId());
+	}
+	
+	/**
+	 * 按serviceId查找解码器, 未配置时返回默认解码器
+	 */
+	public PayloadDecoder<?> lookup(String serviceId) {
+		PayloadDecoder<?> decoder = serviceId == null ? null : decoders.get(serviceId);
+		return decoder != null ? decoder : defaultDecoder;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> PayloadDecoder<T> compile(String serviceId, PayloadTarget<T> target,
+												 PayloadSchemaProperties.Schema schema) {
+		Map<String, String> fields = schema.getFields();
+		if (fields.isEmpty() || fields.size() > PayloadDecoder.MAX_FIELDS) {
+			throw new IllegalStateException("payload schema字段数不合法: " + serviceId + ", 应为1~" + PayloadDecoder.MAX_FIELDS);
+		}
+		String[] names = new String[fields.size()];
+		FieldReader<T>[] readers = new FieldReader[fields.size()];
+		int i = 0;
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			names[i] = field.getKey().intern();
+			try {
+				readers[i] = target.property(field.getValue());
+			} catch (IllegalArgumentException e) {
+				throw new IllegalStateException("payload schema配置错误: " + serviceId + ", " + e.getMessage(), e);
+			}
+			i++;
+		}
+		
+		long requiredMask = 0;
+		for (String required : schema.getRequired()) {
+			int index = List.of(names).indexOf(required);
+			if (index < 0) {
+				throw new IllegalStateException("payload schema配置错误: " + serviceId + ", 必填字段未声明: " + required);
+			}
+			requiredMask |= 1L << index;
+		}
+		return new PayloadDecoder<>(serviceId, target, names, readers, requiredMask, List.copyOf(schema.getRequired()));
+	}
+	
+}
@@ -0,0 +1,90 @@
+package org.pms.trigger.aep.codec.schema;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 非透传payload的声明式schema配置
+ * 配置说明：
+ * - defaultServiceId: serviceId未配置schema时使用的schema
+ * - schemas: serviceId → schema
+ * - target: 解析目标类型(monitor/info)
+ * - fields: payload字段名 → 目标属性名
+ * - required: 必填的payload字段名
+ * <p>
+ * 示例(新增一个字段名不同的监测数据服务)：
+ * aep.payload.schemas.data_report_v2.target=monitor
+ * aep.payload.schemas.data_report_v2.fields.p=pressure
+ * aep.payload.schemas.data_report_v2.fields.t=temperature
+ * aep.payload.schemas.data_report_v2.fields.v=voltage
+ * aep.payload.schemas.data_report_v2.required=p,t,v
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-21
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "aep.payload")
+public class PayloadSchemaProperties {
+	
+	/**
+	 * 默认schema
+	 * 默认data_report
+	 */
+	private String defaultServiceId = "data_report";
+	
+	/**
+	 * serviceId → schema
+	 * 内置data_report与info_report
+	 */
+	private Map<String, Schema> schemas = defaultSchemas();
+	
+	@Data
+	public static class Schema {
+		
+		/**
+		 * 解析目标类型
+		 */
+		private String target;
+		/**
+		 * payload字段名 → 目标属性名
+		 */
+		private Map<String, String> fields = new LinkedHashMap<>();
+		/**
+		 * 必填字段
+		 */
+		private List<String> required = new ArrayList<>();
+		
+	}
+	
+	private static Map<String, Schema> defaultSchemas() {
+		Schema dataReport = new Schema();
+		dataReport.setTarget(PayloadTarget.MONITOR);
+		dataReport.getFields().put("pressure", "pressure");
+		dataReport.getFields().put("temperature", "temperature");
+		dataReport.getFields().put("voltage", "voltage");
+		dataReport.getRequired().addAll(List.of("pressure", "temperature", "voltage"));
+		
+		Schema infoReport = new Schema();
+		infoReport.setTarget(PayloadTarget.INFO.name());
+		infoReport.getFields().put("terminal_type", "terminalType");
+		infoReport.getFields().put("software_version", "softwareVersion");
+		infoReport.getFields().put("module_type", "moduleType");
+		infoReport.getFields().put("manufacturer_name", "manufacturerName");
+		infoReport.getFields().put("hardware_version", "hardwareVersion");
+		infoReport.getFields().put("IMEI", "IMEI");
+		infoReport.getFields().put("ICCID", "ICCID");
+		
+		Map<String, Schema> schemas = new LinkedHashMap<>();
+		schemas.put("data_report", dataReport);
+		schemas.put("info_report", infoReport);
+		return schemas;
+	}
+	
+}
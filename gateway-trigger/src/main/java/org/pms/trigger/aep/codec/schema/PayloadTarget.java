@@ -0,0 +1,125 @@
+package org.pms.trigger.aep.codec.schema;
+
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.devicedata.dto.InfoDTO;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.trigger.aep.codec.JsonValues;
+import org.pms.trigger.aep.codec.ReadingFormatProperties;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * payload解析目标类型
+ * <p>
+ * 每种目标类型声明可绑定的属性及其读取器(方法引用, 不使用反射),
+ * schema中的字段映射在启动时编译为这些读取器的数组
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-21
+ */
+public final class PayloadTarget<T> {
+	
+	/**
+	 * 监测数据(data_report)目标类型名称
+	 */
+	public static final String MONITOR = "monitor";
+	
+	/**
+	 * 设备信息(info_report)
+	 */
+	public static final PayloadTarget<InfoDTO> INFO = new PayloadTarget<InfoDTO>("info",
+			InfoDTO::new, BaseDeviceDataDTO::setInfo, Map.of(
+			"terminalType", (parser, token, info) -> info.setTerminalType(JsonValues.readText(parser, token)),
+			"softwareVersion", (parser, token, info) -> info.setSoftwareVersion(JsonValues.readText(parser, token)),
+			"moduleType", (parser, token, info) -> info.setModuleType(JsonValues.readText(parser, token)),
+			"manufacturerName", (parser, token, info) -> info.setManufacturerName(JsonValues.readText(parser, token)),
+			"hardwareVersion", (parser, token, info) -> info.setHardwareVersion(JsonValues.readText(parser, token)),
+			"IMEI", (parser, token, info) -> info.setIMEI(JsonValues.readText(parser, token)),
+			"ICCID", (parser, token, info) -> info.setICCID(JsonValues.readText(parser, token))));
+	
+	private final String name;
+	private final Supplier<T> factory;
+	private final BiConsumer<BaseDeviceDataDTO, T> attach;
+	private final Map<String, FieldReader<T>> properties;
+	
+	private PayloadTarget(String name, Supplier<T> factory, BiConsumer<BaseDeviceDataDTO, T> attach,
+						  Map<String, FieldReader<T>> properties) {
+		this.name = name;
+		this.factory = factory;
+		this.attach = attach;
+		this.properties = properties;
+	}
+	
+	/**
+	 * 监测数据(data_report): pressure/temperature按配置的scale解析为定点值, 不合法时拒绝
+	 *
+	 * @param format 数值格式配置
+	 */
+	public static PayloadTarget<MonitorReadingDTO> monitor(ReadingFormatProperties format) {
+		int pressureScale = format.getPressureScale();
+		int temperatureScale = format.getTemperatureScale();
+		boolean retainText = format.isRetainText();
+		return new PayloadTarget<MonitorReadingDTO>(MONITOR, MonitorReadingDTO::new, BaseDeviceDataDTO::setReading, Map.of(
+				"pressure", (parser, token, reading) -> {
+					reading.setPressure(JsonValues.readFixedPoint(parser, token, pressureScale));
+					reading.setPressureScale(pressureScale);
+					if (retainText) {
+						reading.setPressureText(parser.getText());
+					}
+				},
+				"temperature", (parser, token, reading) -> {
+					reading.setTemperature(JsonValues.readFixedPointInt(parser, token, temperatureScale));
+					reading.setTemperatureScale(temperatureScale);
+					if (retainText) {
+						reading.setTemperatureText(parser.getText());
+					}
+				},
+				"voltage", (parser, token, reading) -> reading.setVoltage(JsonValues.readLenientInt(parser, token))));
+	}
+	
+	/**
+	 * 按名称获取目标类型
+	 *
+	 * @param format 数值格式配置
+	 * @throws IllegalArgumentException 目标类型不存在
+	 */
+	public static PayloadTarget<?> of(String name, ReadingFormatProperties format) {
+		if (MONITOR.equals(name)) {
+			return monitor(format);
+		}
+		if (INFO.name.equals(name)) {
+			return INFO;
+		}
+		throw new IllegalArgumentException("payload目标类型不存在: " + name + ", 可选: " + List.of(MONITOR, INFO.name));
+	}
+	
+	public String name() {
+		return name;
+	}
+	
+	T create() {
+		return factory.get();
+	}
+	
+	void attach(BaseDeviceDataDTO dto, T value) {
+		attach.accept(dto, value);
+	}
+	
+	/**
+	 * 获取属性读取器
+	 *
+	 * @throws IllegalArgumentException 属性不存在
+	 */
+	FieldReader<T> property(String property) {
+		FieldReader<T> reader = properties.get(property);
+		if (reader == null) {
+			throw new IllegalArgumentException("payload目标类型" + name + "不存在属性: " + property
+					+ ", 可选: " + properties.keySet());
+		}
+		return reader;
+	}
+	
+}
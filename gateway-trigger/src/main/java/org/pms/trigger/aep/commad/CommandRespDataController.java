@@ -1,20 +1,42 @@
 package org.pms.trigger.aep.commad;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.pms.domain.command.dto.BaseCommandRespDataDTO;
+import org.pms.trigger.admission.AdmissionController;
+import org.pms.trigger.aep.BatchIngestResultDTO;
+import org.pms.trigger.aep.IngestResult;
+import org.pms.trigger.aep.codec.AepBatchReader;
 import org.pms.trigger.buffer.DataBuffer;
+import org.pms.trigger.buffer.DataBufferConfig;
+import org.pms.trigger.command.CommandCorrelationTable;
+import org.pms.trigger.response.ResponseBodyCache;
 import org.pms.types.GatewayCode;
 import org.pms.types.Response;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 /**
  * AEP平台设备指令响应接口
  * 重构说明：将RocketMQ替换为本地队列+异步批量RPC
+ * 入队成功后在指令往返关联表中撤销对应的待响应指令, 并推送给下发用户
  *
  * @author: alcsyooterranf
  * @date 2025-01-23
@@ -24,13 +46,25 @@ import javax.validation.Valid;
 public class CommandRespDataController {
 	
 	private final DataBuffer dataBuffer;
+	private final DataBufferConfig config;
+	private final ObjectMapper objectMapper;
+	private final AdmissionController admissionController;
+	private final CommandCorrelationTable correlationTable;
+	private final Validator validator;
 	
-	public CommandRespDataController(DataBuffer dataBuffer) {
+	public CommandRespDataController(DataBuffer dataBuffer, DataBufferConfig config, ObjectMapper objectMapper,
+									 AdmissionController admissionController, CommandCorrelationTable correlationTable,
+									 Validator validator) {
 		this.dataBuffer = dataBuffer;
+		this.config = config;
+		this.objectMapper = objectMapper;
+		this.admissionController = admissionController;
+		this.correlationTable = correlationTable;
+		this.validator = validator;
 	}
 	
-	@RequestMapping(value = "aep/command", method = RequestMethod.POST)
-	public Response<String> deviceCommandResponse(@RequestBody @Valid BaseCommandRespDataDTO request) {
+	@RequestMapping(value = "aep/command", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<byte[]> deviceCommandResponse(@RequestBody @Valid BaseCommandRespDataDTO request) {
 		log.info("aep/command收到消息: deviceId={}, taskId={}, status={}",
 				request.getDeviceId(),
 				request.getTaskId(),
@@ -39,6 +73,12 @@ public class CommandRespDataController {
 		// 接口调用计时
 		long start = System.currentTimeMillis();
 		
+		// 过载时按优先级拒绝(指令响应晚于设备数据被拒绝)
+		if (!admissionController.admitCommand()) {
+			log.warn("网关过载，指令响应被拒绝: deviceId={}, taskId={}", request.getDeviceId(), request.getTaskId());
+			return admissionController.reject(GatewayCode.LOCAL_QUEUE_IS_FULL);
+		}
+		
 		// 放入本地队列（快速返回，不等待后端处理）
 		boolean success = dataBuffer.offerCommand(request);
 		
@@ -49,17 +89,92 @@ public class CommandRespDataController {
 		if (!success) {
 			log.error("指令响应队列已满，数据被拒绝: deviceId={}, taskId={}",
 					request.getDeviceId(), request.getTaskId());
-			return Response.<String>builder()
-					.code(GatewayCode.LOCAL_QUEUE_IS_FULL.getCode())
-					.message(GatewayCode.LOCAL_QUEUE_IS_FULL.getMessage())
-					.build();
+			return admissionController.reject(GatewayCode.LOCAL_QUEUE_IS_FULL);
+		}
+		correlationTable.complete(request, end);
+		
+		return ResponseEntity.ok(ResponseBodyCache.commandAccepted());
+	}
+	
+	/**
+	 * 批量指令响应接口, 供上游中继/回放工具打包推送
+	 * 请求体为指令响应消息的JSON数组或NDJSON, 按消息顺序返回逐条结果
+	 * 每条消息与单条接口(@Valid)使用同一个校验器校验, 不通过的消息结果为PARSE_ERROR
+	 * 过载保护开启且全部消息因容量不足被拒绝时返回429 + Retry-After
+	 */
+	@RequestMapping(value = "aep/command/batch", method = RequestMethod.POST,
+			consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Response<BatchIngestResultDTO>> deviceCommandResponseBatch(HttpServletRequest request) throws IOException {
+		List<BaseCommandRespDataDTO> batch;
+		try (JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream())) {
+			batch = AepBatchReader.readAll(parser,
+					p -> objectMapper.readValue(p, BaseCommandRespDataDTO.class),
+					config.getIngestBatchMaxSize());
+		} catch (JsonProcessingException e) {
+			log.error("aep/command/batch消息解析失败: {}", e.getOriginalMessage());
+			return ResponseEntity.ok(Response.<BatchIngestResultDTO>builder()
+					.code(GatewayCode.DATA_REPORT_PARSE_ERROR.getCode())
+					.message(GatewayCode.DATA_REPORT_PARSE_ERROR.getMessage())
+					.build());
 		}
 		
-		return Response.<String>builder()
+		// 解析并校验通过的消息一次性批量入队
+		IngestResult[] results = new IngestResult[batch.size()];
+		List<BaseCommandRespDataDTO> admitted = new ArrayList<>(batch.size());
+		int[] admittedIndex = new int[batch.size()];
+		for (int i = 0; i < batch.size(); i++) {
+			if (batch.get(i) == null || !isValid(batch.get(i), i)) {
+				results[i] = IngestResult.PARSE_ERROR;
+			} else if (!admissionController.admitCommand()) {
+				results[i] = IngestResult.OVERLOADED;
+			} else {
+				admittedIndex[admitted.size()] = i;
+				admitted.add(batch.get(i));
+			}
+		}
+		int accepted = dataBuffer.offerCommandBatch(admitted);
+		long now = System.currentTimeMillis();
+		for (int j = 0; j < admitted.size(); j++) {
+			results[admittedIndex[j]] = j < accepted ? IngestResult.ACCEPTED : IngestResult.QUEUE_FULL;
+			if (j < accepted) {
+				correlationTable.complete(admitted.get(j), now);
+			}
+		}
+		
+		BatchIngestResultDTO result = BatchIngestResultDTO.of(results);
+		log.info("aep/command/batch入队完成: total={}, accepted={}, 队列大小: {}",
+				result.getTotal(), result.getAccepted(), dataBuffer.getCommandQueueSize());
+		
+		return admissionController.batchResponse(results, Response.<BatchIngestResultDTO>builder()
 				.code(GatewayCode.SUCCESS.getCode())
 				.message(GatewayCode.SUCCESS.getMessage())
-				.data("接受设备指令响应通知")
-				.build();
+				.data(result)
+				.build());
+	}
+	
+	/**
+	 * 单条指令响应校验不通过(缺少taskId/deviceId), 在入队前直接拒绝
+	 */
+	@ExceptionHandler(MethodArgumentNotValidException.class)
+	public ResponseEntity<byte[]> handleInvalidMessage(MethodArgumentNotValidException e) {
+		log.error("aep/command消息校验不通过: {}", e.getMessage());
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(ResponseBodyCache.of(GatewayCode.DATA_REPORT_PARSE_ERROR));
+	}
+	
+	/**
+	 * 按单条接口@Valid的规则校验批量中的一条消息
+	 */
+	private boolean isValid(BaseCommandRespDataDTO item, int index) {
+		Set<ConstraintViolation<BaseCommandRespDataDTO>> violations = validator.validate(item);
+		if (violations.isEmpty()) {
+			return true;
+		}
+		ConstraintViolation<BaseCommandRespDataDTO> violation = violations.iterator().next();
+		log.warn("批量指令响应第{}条校验不通过, 已跳过: {} {}", index, violation.getPropertyPath(), violation.getMessage());
+		return false;
 	}
 	
 }
@@ -1,19 +1,34 @@
 package org.pms.trigger.aep.device;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.trigger.admission.AdmissionController;
+import org.pms.trigger.aep.BatchIngestResultDTO;
+import org.pms.trigger.aep.IngestResult;
+import org.pms.trigger.aep.codec.AepBatchReader;
+import org.pms.trigger.aep.codec.AepDataChangeReader;
 import org.pms.trigger.buffer.DataBuffer;
+import org.pms.trigger.buffer.DataBufferConfig;
+import org.pms.trigger.response.ResponseBodyCache;
 import org.pms.types.GatewayCode;
 import org.pms.types.Response;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * AEP平台设备数据上报接口
@@ -26,68 +41,91 @@ import java.util.Objects;
 @RestController
 public class DeviceDataController {
 	
-	private final static List<String> LEGAL_PROTOCOL = List.of("mqtt");
 	private final DataBuffer dataBuffer;
+	private final DataBufferConfig config;
+	private final DeviceDataIngestService ingestService;
+	private final AepDataChangeReader dataChangeReader;
+	private final JsonFactory jsonFactory;
+	private final AdmissionController admissionController;
 	
-	public DeviceDataController(DataBuffer dataBuffer) {
+	public DeviceDataController(DataBuffer dataBuffer, DataBufferConfig config,
+								DeviceDataIngestService ingestService, AepDataChangeReader dataChangeReader,
+								ObjectMapper objectMapper, AdmissionController admissionController) {
 		this.dataBuffer = dataBuffer;
+		this.config = config;
+		this.ingestService = ingestService;
+		this.dataChangeReader = dataChangeReader;
+		this.jsonFactory = objectMapper.getFactory();
+		this.admissionController = admissionController;
 	}
 	
-	@RequestMapping(value = "aep/data_change", method = RequestMethod.POST)
-	public Response<String> deviceDataChange(@RequestBody @Valid BaseDeviceDataDTO request) {
-		String protocol = request.getProtocol();
-		// 1. 检查协议类型
-		if (!LEGAL_PROTOCOL.contains(protocol)) {
-			log.error("不支持的协议类型: {}, 目前支持的协议有: {}", protocol, LEGAL_PROTOCOL);
-			return Response.<String>builder()
-					.code(GatewayCode.PROTOCOL_NOT_SUPPORTED.getCode())
-					.message(GatewayCode.PROTOCOL_NOT_SUPPORTED.getMessage())
-					.build();
-		}
-		
-		// 2. 检查透传模式
-		JsonNode payload = request.getPayload();
-		if (Objects.isNull(payload)) {
-			log.error("上报数据内容为空: {}", request);
-			return Response.<String>builder()
-					.code(GatewayCode.DATA_REPORT_PAYLOAD_EMPTY.getCode())
-					.message(GatewayCode.DATA_REPORT_PAYLOAD_EMPTY.getMessage())
-					.build();
-		}
-		// 透传模式(payload为Base64编码的二进制数据)
-		// TODO: 暂不支持, 以后可拓展
-		if (payload.isTextual()) {
-			log.error("暂不支持透传模式");
-			return Response.<String>builder()
-					.code(GatewayCode.DATA_REPORT_PARSE_ERROR.getCode())
-					.message(GatewayCode.DATA_REPORT_PARSE_ERROR.getMessage())
-					.build();
-		}
+	@RequestMapping(value = "aep/data_change", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<byte[]> deviceDataChange(@RequestBody @Valid BaseDeviceDataDTO request) {
 		log.info("aep/data_change收到消息: deviceId={}, serviceId={}",
 				request.getDeviceId(), request.getServiceId());
 		
 		// 接口调用计时
 		long start = System.currentTimeMillis();
 		
-		// 放入本地队列(快速返回，不等待后端处理)
-		boolean success = dataBuffer.offerData(request);
+		// 校验并放入本地队列(快速返回，不等待后端处理)
+		IngestResult result = ingestService.ingest(request);
 		
 		long end = System.currentTimeMillis();
 		log.info("数据入队耗时: {}ms, 队列大小: {}", end - start, dataBuffer.getDataQueueSize());
 		
-		if (!success) {
-			log.error("设备数据队列已满，数据被拒绝: deviceId={}", request.getDeviceId());
-			return Response.<String>builder()
-					.code(GatewayCode.LOCAL_QUEUE_IS_FULL.getCode())
-					.message(GatewayCode.LOCAL_QUEUE_IS_FULL.getMessage())
-					.build();
+		if (result.isBackpressure()) {
+			// 过载保护开启时返回429 + Retry-After, AEP退避后重推
+			return admissionController.reject(result.getGatewayCode());
+		}
+		if (!result.isAcknowledged()) {
+			return ResponseEntity.ok(ResponseBodyCache.of(result.getGatewayCode()));
+		}
+		return ResponseEntity.ok(ResponseBodyCache.dataAccepted(request.getServiceId()));
+	}
+	
+	/**
+	 * 批量上报接口, 供上游中继/回放工具打包推送
+	 * 请求体为data_change消息的JSON数组或NDJSON, 按消息顺序返回逐条结果
+	 * 过载保护开启且全部消息因容量不足被拒绝时返回429 + Retry-After
+	 */
+	@RequestMapping(value = "aep/data_change/batch", method = RequestMethod.POST,
+			consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Response<BatchIngestResultDTO>> deviceDataChangeBatch(HttpServletRequest request) throws IOException {
+		List<BaseDeviceDataDTO> batch;
+		try (JsonParser parser = jsonFactory.createParser(request.getInputStream())) {
+			batch = AepBatchReader.readAll(parser, dataChangeReader::read, config.getIngestBatchMaxSize());
+		} catch (JsonProcessingException e) {
+			log.error("aep/data_change/batch消息解析失败: {}", e.getOriginalMessage());
+			return ResponseEntity.ok(Response.<BatchIngestResultDTO>builder()
+					.code(GatewayCode.DATA_REPORT_PARSE_ERROR.getCode())
+					.message(GatewayCode.DATA_REPORT_PARSE_ERROR.getMessage())
+					.build());
 		}
 		
-		return Response.<String>builder()
+		long start = System.currentTimeMillis();
+		IngestResult[] results = ingestService.ingestBatch(batch);
+		BatchIngestResultDTO result = BatchIngestResultDTO.of(results);
+		log.info("aep/data_change/batch入队完成: total={}, accepted={}, 耗时: {}ms, 队列大小: {}",
+				result.getTotal(), result.getAccepted(), System.currentTimeMillis() - start,
+				dataBuffer.getDataQueueSize());
+		
+		return admissionController.batchResponse(results, Response.<BatchIngestResultDTO>builder()
 				.code(GatewayCode.SUCCESS.getCode())
 				.message(GatewayCode.SUCCESS.getMessage())
-				.data("接受设备数据(" + request.getServiceId() + ")上报")
-				.build();
+				.data(result)
+				.build());
+	}
+	
+	/**
+	 * 消息结构或payload字段不合法, 在入队前直接拒绝
+	 */
+	@ExceptionHandler(HttpMessageNotReadableException.class)
+	public ResponseEntity<byte[]> handleUnreadableMessage(HttpMessageNotReadableException e) {
+		log.error("aep/data_change消息解析失败: {}", e.getMessage());
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(ResponseBodyCache.of(GatewayCode.DATA_REPORT_PARSE_ERROR));
 	}
 	
 }
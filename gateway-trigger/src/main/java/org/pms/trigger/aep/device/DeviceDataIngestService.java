@@ -0,0 +1,218 @@
+package org.pms.trigger.aep.device;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.trigger.admission.AdmissionController;
+import org.pms.trigger.aep.IngestResult;
+import org.pms.trigger.alarm.AlarmEngine;
+import org.pms.trigger.buffer.DataBuffer;
+import org.pms.trigger.deadband.DeadbandFilter;
+import org.pms.trigger.dedup.DuplicateMessageFilter;
+import org.pms.trigger.history.HistoryStore;
+import org.pms.trigger.live.LiveHub;
+import org.pms.trigger.ratelimit.IngestRateLimiter;
+import org.pms.trigger.registry.DeviceRegistry;
+import org.pms.trigger.latest.LatestReadingTable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 设备数据接入处理
+ * 单条上报与批量上报共用的校验、设备准入、去重、告警判定、死区过滤、限流、过载保护与入队逻辑
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-17
+ */
+@Slf4j
+@Component
+public class DeviceDataIngestService {
+	
+	private final static List<String> LEGAL_PROTOCOL = List.of("mqtt");
+	private final DataBuffer dataBuffer;
+	private final DuplicateMessageFilter duplicateFilter;
+	private final LatestReadingTable latestReadingTable;
+	private final HistoryStore historyStore;
+	private final DeadbandFilter deadbandFilter;
+	private final AlarmEngine alarmEngine;
+	private final DeviceRegistry deviceRegistry;
+	private final AdmissionController admissionController;
+	private final IngestRateLimiter rateLimiter;
+	private final LiveHub liveHub;
+	
+	public DeviceDataIngestService(DataBuffer dataBuffer, DuplicateMessageFilter duplicateFilter,
+								   LatestReadingTable latestReadingTable, HistoryStore historyStore,
+								   DeadbandFilter deadbandFilter, AlarmEngine alarmEngine,
+								   DeviceRegistry deviceRegistry, AdmissionController admissionController,
+								   IngestRateLimiter rateLimiter, LiveHub liveHub) {
+		this.dataBuffer = dataBuffer;
+		this.duplicateFilter = duplicateFilter;
+		this.latestReadingTable = latestReadingTable;
+		this.historyStore = historyStore;
+		this.deadbandFilter = deadbandFilter;
+		this.alarmEngine = alarmEngine;
+		this.deviceRegistry = deviceRegistry;
+		this.admissionController = admissionController;
+		this.rateLimiter = rateLimiter;
+		this.liveHub = liveHub;
+	}
+	
+	/**
+	 * 接入单条设备数据: 校验、设备准入、去重、死区过滤、限流、过载保护通过后放入本地队列
+	 *
+	 * @param data 设备数据
+	 * @return 接入结果
+	 */
+	public IngestResult ingest(BaseDeviceDataDTO data) {
+		IngestResult result = check(data);
+		if (result != IngestResult.ACCEPTED) {
+			return result;
+		}
+		if (!deviceRegistry.admit(data)) {
+			log.warn("设备未注册，数据被拒绝: deviceId={}, tenantId={}", data.getDeviceId(), data.getTenantId());
+			return IngestResult.UNKNOWN_DEVICE;
+		}
+		if (duplicateFilter.isDuplicate(data)) {
+			return IngestResult.DUPLICATE;
+		}
+		// 越限数据走告警通道优先转发(不论数据之后能否入队), 数据本身照常入队
+		boolean breached = alarmEngine.evaluate(data);
+		if (!breached && deadbandFilter.isWithinBand(data)) {
+			updateLocalViews(data);
+			return IngestResult.SUPPRESSED;
+		}
+		// 越限数据同样受限流约束; 被限流的数据确认接收并丢弃, 不会重推, 告警已转发
+		if (!rateLimiter.tryAcquire(data)) {
+			return IngestResult.THROTTLED;
+		}
+		// 越限数据不参与过载拒绝
+		if (!breached && !admissionController.admitData()) {
+			duplicateFilter.forget(data);
+			return IngestResult.OVERLOADED;
+		}
+		if (!dataBuffer.offerData(data)) {
+			log.error("设备数据队列已满，数据被拒绝: deviceId={}", data.getDeviceId());
+			// 未入队的消息AEP会重推, 撤销序号记录(越限告警已放入告警通道, 重推时不再告警)
+			duplicateFilter.forget(data);
+			return IngestResult.QUEUE_FULL;
+		}
+		onAccepted(data);
+		return IngestResult.ACCEPTED;
+	}
+	
+	/**
+	 * 接入批量设备数据: 逐条校验、设备准入、去重、死区过滤、限流、过载保护, 通过的数据一次性批量入队
+	 *
+	 * @param batch 设备数据列表, 解析失败的消息对应位置为null
+	 * @return 与batch一一对应的接入结果
+	 */
+	public IngestResult[] ingestBatch(List<BaseDeviceDataDTO> batch) {
+		IngestResult[] results = new IngestResult[batch.size()];
+		List<BaseDeviceDataDTO> admitted = new ArrayList<>(batch.size());
+		int[] admittedIndex = new int[batch.size()];
+		for (int i = 0; i < batch.size(); i++) {
+			BaseDeviceDataDTO data = batch.get(i);
+			IngestResult result = data == null ? IngestResult.PARSE_ERROR : check(data);
+			if (result == IngestResult.ACCEPTED && !deviceRegistry.admit(data)) {
+				result = IngestResult.UNKNOWN_DEVICE;
+			}
+			if (result == IngestResult.ACCEPTED && duplicateFilter.isDuplicate(data)) {
+				result = IngestResult.DUPLICATE;
+			}
+			if (result == IngestResult.ACCEPTED) {
+				boolean breached = alarmEngine.evaluate(data);
+				if (!breached && deadbandFilter.isWithinBand(data)) {
+					updateLocalViews(data);
+					result = IngestResult.SUPPRESSED;
+				} else if (!rateLimiter.tryAcquire(data)) {
+					result = IngestResult.THROTTLED;
+				} else if (!breached && !admissionController.admitData()) {
+					duplicateFilter.forget(data);
+					result = IngestResult.OVERLOADED;
+				}
+			}
+			if (result == IngestResult.ACCEPTED) {
+				admittedIndex[admitted.size()] = i;
+				admitted.add(data);
+			} else {
+				results[i] = result;
+			}
+		}
+		
+		boolean[] accepted = dataBuffer.offerDataBatch(admitted);
+		for (int j = 0; j < admitted.size(); j++) {
+			if (accepted[j]) {
+				onAccepted(admitted.get(j));
+				results[admittedIndex[j]] = IngestResult.ACCEPTED;
+			} else {
+				duplicateFilter.forget(admitted.get(j));
+				results[admittedIndex[j]] = IngestResult.QUEUE_FULL;
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 数据入队成功后记录死区基准并更新本地视图
+	 *
+	 * @param data 已入队的设备数据
+	 */
+	private void onAccepted(BaseDeviceDataDTO data) {
+		deadbandFilter.record(data);
+		updateLocalViews(data);
+	}
+	
+	/**
+	 * 更新本地视图(最新监测值、历史监测值)并推送给实时看板, 死区内未转发的数据同样更新
+	 *
+	 * @param data 设备数据
+	 */
+	private void updateLocalViews(BaseDeviceDataDTO data) {
+		MonitorReadingDTO reading = data.getReading();
+		if (reading == null) {
+			return;
+		}
+		long timestamp = data.getTimestamp() != null ? data.getTimestamp() : System.currentTimeMillis();
+		latestReadingTable.update(data.getDeviceId(), reading, timestamp);
+		historyStore.append(data.getDeviceId(), reading, timestamp);
+		liveHub.publish(data, reading, timestamp);
+	}
+	
+	/**
+	 * 校验设备数据
+	 *
+	 * @param data 设备数据
+	 * @return 校验通过返回ACCEPTED
+	 */
+	private IngestResult check(BaseDeviceDataDTO data) {
+		// 1. 检查协议类型
+		String protocol = data.getProtocol();
+		if (!LEGAL_PROTOCOL.contains(protocol)) {
+			log.error("不支持的协议类型: {}, 目前支持的协议有: {}", protocol, LEGAL_PROTOCOL);
+			return IngestResult.PROTOCOL_NOT_SUPPORTED;
+		}
+		
+		// 2. 检查payload(非透传payload与透传payload均已由AepDataChangeReader解析为reading/info)
+		if (Objects.nonNull(data.getReading())) {
+			return IngestResult.ACCEPTED;
+		}
+		// 后端目前只有监测数据接口, 设备信息上报在入队前确认并丢弃, 不占用队列与RPC
+		if (Objects.nonNull(data.getInfo())) {
+			log.debug("设备信息上报暂不转发后端: deviceId={}, info={}", data.getDeviceId(), data.getInfo());
+			return IngestResult.NOT_FORWARDED;
+		}
+		JsonNode payload = data.getPayload();
+		if (Objects.isNull(payload)) {
+			log.error("上报数据内容为空: {}", data);
+			return IngestResult.PAYLOAD_EMPTY;
+		}
+		// 透传模式未开启(aep.transparent.enabled=false)时payload保留为Base64文本
+		log.error("透传模式未开启, 拒绝透传数据: deviceId={}", data.getDeviceId());
+		return IngestResult.PARSE_ERROR;
+	}
+	
+}
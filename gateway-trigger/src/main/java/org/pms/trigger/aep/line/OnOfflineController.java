@@ -1,28 +1,43 @@
 package org.pms.trigger.aep.line;
 
 import lombok.extern.slf4j.Slf4j;
-import org.pms.types.GatewayCode;
-import org.pms.types.Response;
+import org.pms.domain.devicestatus.dto.BaseDeviceStatusDTO;
+import org.pms.trigger.presence.PresenceTracker;
+import org.pms.trigger.response.ResponseBodyCache;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Objects;
+
 /**
+ * AEP平台设备上下线通知接口
+ * 通知交给PresenceTracker做抖动抑制, 稳定后的状态变化经本地队列批量转发后端
+ *
  * @author alcsyooterranf
  */
 @Slf4j
 @RestController
 public class OnOfflineController {
 	
-	@RequestMapping(value = "aep/onoffline", method = RequestMethod.POST)
-	public Response<String> deviceOnlineOffline(@RequestBody String json) {
-		log.info("DeviceOnlineOffline: {}", json);
-		return Response.<String>builder()
-				.code(GatewayCode.SUCCESS.getCode())
-				.message(GatewayCode.SUCCESS.getMessage())
-				.data("接受设备上下线通知")
-				.build();
+	private final PresenceTracker presenceTracker;
+	
+	public OnOfflineController(PresenceTracker presenceTracker) {
+		this.presenceTracker = presenceTracker;
+	}
+	
+	@RequestMapping(value = "aep/onoffline", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+	public byte[] deviceOnlineOffline(@RequestBody BaseDeviceStatusDTO request) {
+		log.debug("aep/onoffline收到消息: deviceId={}, eventType={}", request.getDeviceId(), request.getEventType());
+		if (Objects.isNull(request.getDeviceId()) || Objects.isNull(request.getEventType())) {
+			// 格式不合法的通知AEP重推也不会变合法, 仍然确认接收
+			log.error("上下线通知缺少deviceId或eventType: {}", request);
+			return ResponseBodyCache.onOfflineAccepted();
+		}
+		presenceTracker.onEvent(request);
+		return ResponseBodyCache.onOfflineAccepted();
 	}
 	
 }
@@ -0,0 +1,123 @@
+package org.pms.trigger.alarm;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 监测值阈值告警配置
+ * 配置说明：
+ * - enabled: 是否开启
+ * - rules: 阈值规则, 按deviceId、pipelineId、productId匹配, 均为空的规则为默认规则; 优先级: 设备 > 管道 > 产品 > 默认
+ * pipelineId由设备注册表(device.registry)填充, 注册表未开启时管道规则不生效
+ * - consumeIntervalMs: 告警队列消费间隔, 告警端到端延迟主要取决于该值
+ * - retryTimeoutSeconds: 转发失败的告警放回告警通道重试, 接收后超过该时间仍未送达则放弃, 避免无法送达的告警一直占住队头
+ * - repeatWindowSize / repeatMaxDevices: 每台设备记住最近多少条已告警消息的序号, 以及跟踪的设备数上限;
+ * AEP重推的越限数据(原消息入队失败或推送超时)不重复告警, 内存约 repeatMaxDevices × (41 + 8 × repeatWindowSize) 字节, 默认约1MB
+ * <p>
+ * 配置刷新(/actuator/refresh或配置中心推送)后规则重新编译, 无需重启
+ * <p>
+ * 示例：
+ * device.alarm.rules[0].product-id=p1
+ * device.alarm.rules[0].pressure-high=1.6
+ * device.alarm.rules[0].pressure-low=0.2
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-27
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = AlarmConfig.PREFIX)
+public class AlarmConfig {
+	
+	static final String PREFIX = "device.alarm";
+	
+	/**
+	 * 是否开启
+	 * 默认开启(没有规则时不做任何检查)
+	 */
+	private boolean enabled = true;
+	
+	/**
+	 * 阈值规则
+	 */
+	private List<Rule> rules = new ArrayList<>();
+	
+	/**
+	 * 告警队列消费间隔(毫秒)
+	 * 默认10ms
+	 */
+	private int consumeIntervalMs = 10;
+	
+	/**
+	 * 告警重试时限(秒)
+	 * 默认30秒
+	 */
+	private int retryTimeoutSeconds = 30;
+	
+	/**
+	 * 每台设备记住的已告警消息序号个数
+	 * 默认8, 上限64
+	 */
+	private int repeatWindowSize = 8;
+	
+	/**
+	 * 已告警消息记录跟踪的设备数上限
+	 * 默认1万
+	 */
+	private int repeatMaxDevices = 10_000;
+	
+	@Data
+	public static class Rule {
+		
+		/**
+		 * 规则名称, 随告警转发
+		 */
+		private String name;
+		
+		/**
+		 * 设备ID
+		 */
+		private String deviceId;
+		
+		/**
+		 * 管道ID
+		 */
+		private String pipelineId;
+		
+		/**
+		 * 产品ID
+		 */
+		private String productId;
+		
+		/**
+		 * 压力上限, 为空不检查
+		 */
+		private Double pressureHigh;
+		
+		/**
+		 * 压力下限, 为空不检查
+		 */
+		private Double pressureLow;
+		
+		/**
+		 * 温度上限, 为空不检查
+		 */
+		private Double temperatureHigh;
+		
+		/**
+		 * 温度下限, 为空不检查
+		 */
+		private Double temperatureLow;
+		
+		/**
+		 * 电压下限, 为空不检查
+		 */
+		private Integer voltageLow;
+		
+	}
+	
+}
@@ -0,0 +1,284 @@
+package org.pms.trigger.alarm;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.alarm.dto.DeviceAlarmDTO;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.trigger.aep.codec.ReadingFormatProperties;
+import org.pms.trigger.buffer.DataBuffer;
+import org.pms.trigger.dedup.DuplicateMessageFilter;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 监测值阈值告警判定
+ * <p>
+ * 设计思路：
+ * - 在接入线程上判定(去重之后、入队之前), 越限数据生成告警立即放入DataBuffer的告警通道, 不等待数据入队;
+ * 设备数据队列已满时告警照常送达, 入队失败的数据由AEP重推, 同一条消息按序号只告警一次(见{@link RaisedAlarmWindow})
+ * 告警通道独立于设备数据队列, 由单独的定时任务以更短的间隔消费并调用独立的RPC, 不受设备数据积压影响
+ * - 转发失败的告警放回告警通道重试, 接收后超过retryTimeoutSeconds仍未送达的告警放弃
+ * - 规则启动时编译为{@link AlarmRule}, 按deviceId/pipelineId/productId放入HashMap, 判定为一次查找加几次定点值整数比较
+ * - 配置刷新时从Environment重新绑定并编译, 整体替换volatile规则集, 接入线程无锁读取
+ * - 告警照常随设备数据入队转发, 告警通道只负责尽快通知
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-27
+ */
+@Slf4j
+@Component
+public class AlarmEngine {
+	
+	private final AlarmConfig config;
+	private final ReadingFormatProperties format;
+	private final DataBuffer dataBuffer;
+	private final Environment environment;
+	private final LongAdder alarms = new LongAdder();
+	private final LongAdder repeated = new LongAdder();
+	private final LongAdder droppedAlarms = new LongAdder();
+	private final LongAdder expired = new LongAdder();
+	private final LongAdder delivered = new LongAdder();
+	private final LongAdder totalLatencyMs = new LongAdder();
+	private final LongAccumulator maxLatencyMs = new LongAccumulator(Long::max, 0);
+	private volatile RuleSet ruleSet = RuleSet.EMPTY;
+	private RaisedAlarmWindow raisedAlarms;
+	
+	public AlarmEngine(AlarmConfig config, ReadingFormatProperties format, DataBuffer dataBuffer,
+					   Environment environment) {
+		this.config = config;
+		this.format = format;
+		this.dataBuffer = dataBuffer;
+		this.environment = environment;
+	}
+	
+	@PostConstruct
+	public void init() {
+		ruleSet = RuleSet.compile(config, format);
+		raisedAlarms = new RaisedAlarmWindow(config.getRepeatMaxDevices(), config.getRepeatWindowSize());
+		log.info("监测值阈值告警初始化完成: enabled={}, rules={}", config.isEnabled(), ruleSet.size);
+	}
+	
+	/**
+	 * 配置变更后重新编译规则
+	 * 直接从Environment绑定, 不依赖AlarmConfig重新绑定与本监听器的先后顺序
+	 */
+	@EventListener
+	public void onEnvironmentChange(EnvironmentChangeEvent event) {
+		if (event.getKeys().stream().noneMatch(key -> key.startsWith(AlarmConfig.PREFIX))) {
+			return;
+		}
+		AlarmConfig refreshed = Binder.get(environment).bind(AlarmConfig.PREFIX, AlarmConfig.class)
+				.orElseGet(AlarmConfig::new);
+		try {
+			ruleSet = RuleSet.compile(refreshed, format);
+			log.info("监测值阈值告警规则已刷新: enabled={}, rules={}", refreshed.isEnabled(), ruleSet.size);
+		} catch (RuntimeException e) {
+			log.error("监测值阈值告警规则刷新失败, 继续使用原规则", e);
+		}
+	}
+	
+	/**
+	 * 判定设备数据是否越限, 越限时放入告警通道(重推的消息不重复告警)
+	 * 无论数据之后是否入队成功, 告警都已放入告警通道
+	 *
+	 * @param data 设备数据
+	 * @return 是否越限
+	 */
+	public boolean evaluate(BaseDeviceDataDTO data) {
+		MonitorReadingDTO reading = data.getReading();
+		RuleSet rules = ruleSet;
+		if (reading == null || rules.size == 0) {
+			return false;
+		}
+		AlarmRule rule = rules.match(data.getDeviceId(), data.getPipelineId(), data.getProductId());
+		if (rule == null || !rule.breached(reading)) {
+			return false;
+		}
+		if (!raisedAlarms.record(data.getDeviceId(), DuplicateMessageFilter.sequenceOf(data))) {
+			repeated.increment();
+			return true;
+		}
+		
+		alarms.increment();
+		DeviceAlarmDTO alarm = DeviceAlarmDTO.builder()
+				.deviceId(data.getDeviceId())
+				.tenantId(data.getTenantId())
+				.pipelineId(data.getPipelineId())
+				.productId(data.getProductId())
+				.rule(rule.name())
+				.breaches(rule.breaches(reading))
+				.pressure(reading.pressureValue())
+				.temperature(reading.temperatureValue())
+				.voltage(reading.getVoltage())
+				.timestamp(data.getTimestamp())
+				.receivedAt(System.currentTimeMillis())
+				.build();
+		log.warn("设备监测值越限: deviceId={}, rule={}, breaches={}", alarm.getDeviceId(), alarm.getRule(), alarm.getBreaches());
+		if (!dataBuffer.offerAlarm(alarm)) {
+			droppedAlarms.increment();
+		}
+		return true;
+	}
+	
+	/**
+	 * 筛选转发失败后仍可重试的告警, 接收后超过重试时限的告警放弃
+	 *
+	 * @param batch 转发失败的告警
+	 * @param now   当前时间戳
+	 * @return 仍可重试的告警
+	 */
+	public List<DeviceAlarmDTO> retryable(List<DeviceAlarmDTO> batch, long now) {
+		long deadline = now - TimeUnit.SECONDS.toMillis(config.getRetryTimeoutSeconds());
+		List<DeviceAlarmDTO> retry = new ArrayList<>(batch.size());
+		for (DeviceAlarmDTO alarm : batch) {
+			if (alarm.getReceivedAt() >= deadline) {
+				retry.add(alarm);
+			} else {
+				expired.increment();
+				log.error("告警重试超时，放弃转发: deviceId={}, rule={}, receivedAt={}",
+						alarm.getDeviceId(), alarm.getRule(), alarm.getReceivedAt());
+			}
+		}
+		return retry;
+	}
+	
+	/**
+	 * 记录已送达后端的告警, 统计接收到送达的延迟
+	 *
+	 * @param batch 已送达的告警
+	 * @param now   送达时间戳
+	 */
+	public void recordDelivered(List<DeviceAlarmDTO> batch, long now) {
+		for (DeviceAlarmDTO alarm : batch) {
+			long latency = Math.max(0, now - alarm.getReceivedAt());
+			totalLatencyMs.add(latency);
+			maxLatencyMs.accumulate(latency);
+		}
+		delivered.add(batch.size());
+	}
+	
+	public int getConsumeIntervalMs() {
+		return config.getConsumeIntervalMs();
+	}
+	
+	/**
+	 * 获取告警指标
+	 */
+	public AlarmMetrics getMetrics() {
+		long deliveredCount = delivered.sum();
+		return AlarmMetrics.builder()
+				.rules(ruleSet.size)
+				.alarms(alarms.sum())
+				.repeated(repeated.sum())
+				.droppedAlarms(droppedAlarms.sum())
+				.expired(expired.sum())
+				.delivered(deliveredCount)
+				.avgLatencyMs(deliveredCount == 0 ? 0 : (double) totalLatencyMs.sum() / deliveredCount)
+				.maxLatencyMs(maxLatencyMs.get())
+				.build();
+	}
+	
+	/**
+	 * 打印告警状态
+	 */
+	public void logStatus() {
+		AlarmMetrics metrics = getMetrics();
+		if (metrics.getRules() == 0) {
+			return;
+		}
+		log.info("阈值告警 - 规则: {}, 告警: {}, 重推未重复告警: {}, 通道已满丢弃: {}, 重试超时放弃: {}, 已送达: {}, 平均延迟: {}ms, 最大延迟: {}ms",
+				metrics.getRules(), metrics.getAlarms(), metrics.getRepeated(), metrics.getDroppedAlarms(), metrics.getExpired(), metrics.getDelivered(),
+				String.format("%.1f", metrics.getAvgLatencyMs()), metrics.getMaxLatencyMs());
+	}
+	
+	/**
+	 * 编译后的规则集(不可变, 刷新时整体替换)
+	 */
+	private static final class RuleSet {
+		
+		private static final RuleSet EMPTY = new RuleSet(Map.of(), Map.of(), Map.of(), null, 0);
+		
+		private final Map<String, AlarmRule> byDevice;
+		private final Map<String, AlarmRule> byPipeline;
+		private final Map<String, AlarmRule> byProduct;
+		private final AlarmRule defaultRule;
+		private final int size;
+		
+		private RuleSet(Map<String, AlarmRule> byDevice, Map<String, AlarmRule> byPipeline,
+						Map<String, AlarmRule> byProduct, AlarmRule defaultRule, int size) {
+			this.byDevice = byDevice;
+			this.byPipeline = byPipeline;
+			this.byProduct = byProduct;
+			this.defaultRule = defaultRule;
+			this.size = size;
+		}
+		
+		private static RuleSet compile(AlarmConfig config, ReadingFormatProperties format) {
+			if (!config.isEnabled() || config.getRules().isEmpty()) {
+				return EMPTY;
+			}
+			Map<String, AlarmRule> byDevice = new HashMap<>();
+			Map<String, AlarmRule> byPipeline = new HashMap<>();
+			Map<String, AlarmRule> byProduct = new HashMap<>();
+			AlarmRule defaultRule = null;
+			for (AlarmConfig.Rule rule : config.getRules()) {
+				AlarmRule compiled = AlarmRule.compile(rule, format.getPressureScale(), format.getTemperatureScale());
+				if (rule.getDeviceId() != null) {
+					byDevice.put(rule.getDeviceId(), compiled);
+				} else if (rule.getPipelineId() != null) {
+					byPipeline.put(rule.getPipelineId(), compiled);
+				} else if (rule.getProductId() != null) {
+					byProduct.put(rule.getProductId(), compiled);
+				} else {
+					defaultRule = compiled;
+				}
+			}
+			return new RuleSet(byDevice, byPipeline, byProduct, defaultRule, config.getRules().size());
+		}
+		
+		private AlarmRule match(String deviceId, String pipelineId, String productId) {
+			AlarmRule rule = deviceId != null ? byDevice.get(deviceId) : null;
+			if (rule == null && pipelineId != null) {
+				rule = byPipeline.get(pipelineId);
+			}
+			if (rule == null && productId != null) {
+				rule = byProduct.get(productId);
+			}
+			return rule != null ? rule : defaultRule;
+		}
+		
+	}
+	
+	/**
+	 * 告警监控指标
+	 */
+	@Data
+	@Builder
+	public static class AlarmMetrics {
+		
+		private int rules;
+		private long alarms;
+		private long repeated;
+		private long droppedAlarms;
+		private long expired;
+		private long delivered;
+		private double avgLatencyMs;
+		private long maxLatencyMs;
+		
+	}
+	
+}
@@ -0,0 +1,112 @@
+package org.pms.trigger.alarm;
+
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 编译后的阈值规则
+ * 阈值按监测数据的scale编译为定点值(上限向下取整、下限向上取整, 与按实际值比较等价),
+ * 未配置的阈值编译为long极值, 判定时只做整数比较, 不判空、不拆箱
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-27
+ */
+final class AlarmRule {
+	
+	private final String name;
+	private final long pressureHigh;
+	private final long pressureLow;
+	private final long temperatureHigh;
+	private final long temperatureLow;
+	private final int voltageLow;
+	
+	private AlarmRule(String name, long pressureHigh, long pressureLow, long temperatureHigh,
+					  long temperatureLow, int voltageLow) {
+		this.name = name;
+		this.pressureHigh = pressureHigh;
+		this.pressureLow = pressureLow;
+		this.temperatureHigh = temperatureHigh;
+		this.temperatureLow = temperatureLow;
+		this.voltageLow = voltageLow;
+	}
+	
+	/**
+	 * @param rule             规则配置
+	 * @param pressureScale    压力定点值的小数位数
+	 * @param temperatureScale 温度定点值的小数位数
+	 */
+	static AlarmRule compile(AlarmConfig.Rule rule, int pressureScale, int temperatureScale) {
+		String name = rule.getName();
+		if (name == null) {
+			name = rule.getDeviceId() != null ? "device:" + rule.getDeviceId()
+					: rule.getPipelineId() != null ? "pipeline:" + rule.getPipelineId()
+					: rule.getProductId() != null ? "product:" + rule.getProductId() : "default";
+		}
+		return new AlarmRule(name,
+				bound(rule.getPressureHigh(), pressureScale, RoundingMode.FLOOR, Long.MAX_VALUE),
+				bound(rule.getPressureLow(), pressureScale, RoundingMode.CEILING, Long.MIN_VALUE),
+				bound(rule.getTemperatureHigh(), temperatureScale, RoundingMode.FLOOR, Long.MAX_VALUE),
+				bound(rule.getTemperatureLow(), temperatureScale, RoundingMode.CEILING, Long.MIN_VALUE),
+				rule.getVoltageLow() != null ? rule.getVoltageLow() : Integer.MIN_VALUE);
+	}
+	
+	/**
+	 * 阈值转换为定点值, 超出long范围时取极值
+	 */
+	private static long bound(Double threshold, int scale, RoundingMode rounding, long unbounded) {
+		if (threshold == null) {
+			return unbounded;
+		}
+		BigDecimal scaled = BigDecimal.valueOf(threshold).movePointRight(scale).setScale(0, rounding);
+		if (scaled.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+			return Long.MAX_VALUE;
+		}
+		if (scaled.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) < 0) {
+			return Long.MIN_VALUE;
+		}
+		return scaled.longValue();
+	}
+	
+	String name() {
+		return name;
+	}
+	
+	/**
+	 * 是否越限
+	 */
+	boolean breached(MonitorReadingDTO reading) {
+		long pressure = reading.getPressure();
+		int temperature = reading.getTemperature();
+		return pressure > pressureHigh || pressure < pressureLow
+				|| temperature > temperatureHigh || temperature < temperatureLow
+				|| reading.getVoltage() < voltageLow;
+	}
+	
+	/**
+	 * 越限项名称, 仅在{@link #breached}为true时调用
+	 */
+	List<String> breaches(MonitorReadingDTO reading) {
+		List<String> breaches = new ArrayList<>(2);
+		if (reading.getPressure() > pressureHigh) {
+			breaches.add("pressureHigh");
+		}
+		if (reading.getPressure() < pressureLow) {
+			breaches.add("pressureLow");
+		}
+		if (reading.getTemperature() > temperatureHigh) {
+			breaches.add("temperatureHigh");
+		}
+		if (reading.getTemperature() < temperatureLow) {
+			breaches.add("temperatureLow");
+		}
+		if (reading.getVoltage() < voltageLow) {
+			breaches.add("voltageLow");
+		}
+		return breaches;
+	}
+	
+}
@@ -0,0 +1,84 @@
+package org.pms.trigger.alarm;
+
+import org.pms.trigger.dedup.DuplicateMessageFilter;
+import org.pms.trigger.utils.DeviceKeys;
+import org.pms.trigger.utils.DeviceSlotIndex;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 已告警消息记录
+ * <p>
+ * 越限数据在入队之前即告警, 入队失败(AEP会重推)或推送超时重推的同一条消息不应再次告警
+ * 设计思路：
+ * - 每台设备保存最近windowSize条已告警消息的序号(与{@link DuplicateMessageFilter}相同的序号), 环形覆盖
+ * - 只记录越限数据, 跟踪的设备数远少于去重过滤器, 使用单锁; 容量满时淘汰最久未告警的设备
+ * - 与消息去重相互独立: 去重未开启或入队失败撤销了去重记录时, 重推的越限数据同样不会重复告警
+ * - 未携带序号的消息无法识别重推, 每次都告警
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+final class RaisedAlarmWindow {
+	
+	private static final long EMPTY_SEQ = DuplicateMessageFilter.EMPTY_SEQ;
+	
+	/**
+	 * 窗口大小上限(游标以byte存储)
+	 */
+	private static final int MAX_WINDOW_SIZE = 64;
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	private final DeviceSlotIndex index;
+	private final int windowSize;
+	/**
+	 * 槽位slot的窗口为window[slot * windowSize, (slot + 1) * windowSize)
+	 */
+	private final long[] window;
+	private final byte[] cursor;
+	
+	RaisedAlarmWindow(int maxDevices, int windowSize) {
+		this.index = new DeviceSlotIndex(Math.max(1, maxDevices));
+		this.windowSize = Math.min(Math.max(windowSize, 1), MAX_WINDOW_SIZE);
+		this.window = new long[index.capacity() * this.windowSize];
+		this.cursor = new byte[index.capacity()];
+	}
+	
+	/**
+	 * 记录一次告警
+	 *
+	 * @param deviceId 设备ID
+	 * @param seq      消息序号, 见{@link DuplicateMessageFilter#sequenceOf}
+	 * @return 该消息是否首次告警(重推的消息返回false)
+	 */
+	boolean record(String deviceId, long seq) {
+		if (deviceId == null || seq == EMPTY_SEQ) {
+			return true;
+		}
+		long key = DeviceKeys.of(deviceId);
+		lock.lock();
+		try {
+			int slot = index.acquire(key, DeviceSlotIndex.now());
+			int base = slot * windowSize;
+			if (index.created()) {
+				for (int i = 0; i < windowSize; i++) {
+					window[base + i] = EMPTY_SEQ;
+				}
+				cursor[slot] = 0;
+			} else {
+				for (int i = 0; i < windowSize; i++) {
+					if (window[base + i] == seq) {
+						return false;
+					}
+				}
+			}
+			int next = cursor[slot];
+			window[base + next] = seq;
+			cursor[slot] = (byte) ((next + 1) % windowSize);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+}
@@ -1,16 +1,21 @@
 package org.pms.trigger.buffer;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.alarm.dto.DeviceAlarmDTO;
 import org.pms.domain.command.dto.BaseCommandRespDataDTO;
 import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.devicedata.dto.DeviceRollupDTO;
+import org.pms.domain.devicestatus.dto.DeviceStatusChangeDTO;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.LinkedBlockingQueue;
 
 /**
@@ -23,6 +28,7 @@ import java.util.concurrent.LinkedBlockingQueue;
  * 性能优化：
  * - 配置化：队列容量可通过配置文件调整
  * - 监控指标：提供队列使用率、告警等监控方法
+ * - 租户公平：设备数据队列按租户分子队列, 按加权差额轮询组批, 见{@link TenantFairQueue}
  * - 降级策略：队列满时可降级到Redis Stream（TODO）
  *
  * @author alcsyooterranf
@@ -32,14 +38,25 @@ import java.util.concurrent.LinkedBlockingQueue;
 @Component
 public class DataBuffer {
 	
+	/**
+	 * 队列状态日志中输出的租户数
+	 */
+	private static final int TENANT_STATUS_LIMIT = 10;
+	
 	@Resource
 	private DataBufferConfig config;
 	
+	/**
+	 * 告警通道(优先通道)
+	 * 容量可配置，默认2000; 使用双端队列, 转发失败的告警放回队头
+	 */
+	private LinkedBlockingDeque<DeviceAlarmDTO> alarmQueue;
+	
 	/**
 	 * 设备数据队列
-	 * 容量可配置，默认10000
+	 * 容量可配置，默认10000; 按租户公平排队, 未开启时所有租户共用一个FIFO子队列
 	 */
-	private volatile BlockingQueue<BaseDeviceDataDTO> dataQueue;
+	private TenantFairQueue<BaseDeviceDataDTO> dataQueue;
 	
 	/**
 	 * 指令响应队列
@@ -47,6 +64,18 @@ public class DataBuffer {
 	 */
 	private BlockingQueue<BaseCommandRespDataDTO> commandQueue;
 	
+	/**
+	 * 设备状态变更队列
+	 * 容量可配置，默认5000
+	 */
+	private BlockingQueue<DeviceStatusChangeDTO> statusQueue;
+	
+	/**
+	 * 设备数据窗口汇总队列
+	 * 容量可配置，默认5000
+	 */
+	private BlockingQueue<DeviceRollupDTO> rollupQueue;
+	
 	/**
 	 * 设备数据重试队列
 	 * 容量可配置，默认5000
@@ -60,26 +89,94 @@ public class DataBuffer {
 	private BlockingQueue<BaseCommandRespDataDTO> retryCommandQueue;
 	
 	/**
-	 * 初始化队列（延迟初始化，等待配置注入）
-	 */
-	private void initQueuesIfNeeded() {
-		if (dataQueue == null) {
-			synchronized (this) {
-				if (dataQueue == null) {
-					dataQueue = new LinkedBlockingQueue<>(config.getDataQueueSize());
-					commandQueue = new LinkedBlockingQueue<>(config.getCommandQueueSize());
-					retryDataQueue = new LinkedBlockingQueue<>(config.getRetryDataQueueSize());
-					retryCommandQueue = new LinkedBlockingQueue<>(config.getRetryCommandQueueSize());
-					log.info("设备数据缓冲队列初始化完成 - 数据队列:{}, 指令队列:{}, 重试数据:{}, 重试指令:{}",
-							config.getDataQueueSize(),
-							config.getCommandQueueSize(),
-							config.getRetryDataQueueSize(),
-							config.getRetryCommandQueueSize());
-				}
+	 * 初始化队列（配置注入完成后执行）
+	 * 不使用双重检查锁延迟初始化, 避免每次入队/出队都经过volatile读和synchronized块(虚拟线程下会pin住载体线程)
+	 */
+	@PostConstruct
+	public void initQueues() {
+		alarmQueue = new LinkedBlockingDeque<>(config.getAlarmQueueSize());
+		dataQueue = new TenantFairQueue<>(config.getDataQueueSize(), config.getTenantQueue(), BaseDeviceDataDTO::getTenantId);
+		commandQueue = new LinkedBlockingQueue<>(config.getCommandQueueSize());
+		statusQueue = new LinkedBlockingQueue<>(config.getStatusQueueSize());
+		rollupQueue = new LinkedBlockingQueue<>(config.getRollupQueueSize());
+		retryDataQueue = new LinkedBlockingQueue<>(config.getRetryDataQueueSize());
+		retryCommandQueue = new LinkedBlockingQueue<>(config.getRetryCommandQueueSize());
+		log.info("设备数据缓冲队列初始化完成 - 告警通道:{}, 数据队列:{}, 指令队列:{}, 状态队列:{}, 汇总队列:{}, 重试数据:{}, 重试指令:{}",
+				config.getAlarmQueueSize(),
+				config.getDataQueueSize(),
+				config.getCommandQueueSize(),
+				config.getStatusQueueSize(),
+				config.getRollupQueueSize(),
+				config.getRetryDataQueueSize(),
+				config.getRetryCommandQueueSize());
+		if (config.getTenantQueue().isEnabled()) {
+			log.info("设备数据队列按租户公平排队 - 容量比例:{}, 保底容量:{}, 轮询额度:{}, 租户上限:{}, 单独配置:{}",
+					config.getTenantQueue().getShare(),
+					config.getTenantQueue().getMinCapacity(),
+					config.getTenantQueue().getQuantum(),
+					config.getTenantQueue().getMaxTenants(),
+					config.getTenantQueue().getTenants().keySet());
+		}
+	}
+	
+	// ==================== 告警通道操作 ====================
+	
+	/**
+	 * 添加告警到告警通道
+	 *
+	 * @param alarm 告警
+	 * @return true-成功, false-通道已满
+	 */
+	public boolean offerAlarm(DeviceAlarmDTO alarm) {
+		boolean success = alarmQueue.offerLast(alarm);
+		if (!success) {
+			log.error("告警通道已满，告警被丢弃: deviceId={}, queueSize={}/{}",
+					alarm.getDeviceId(), alarmQueue.size(), config.getAlarmQueueSize());
+		}
+		return success;
+	}
+	
+	/**
+	 * 转发失败的告警按原顺序放回队头, 下次优先转发
+	 *
+	 * @param batch 告警列表
+	 */
+	public void requeueAlarms(List<DeviceAlarmDTO> batch) {
+		for (int i = batch.size() - 1; i >= 0; i--) {
+			if (!alarmQueue.offerFirst(batch.get(i))) {
+				log.error("告警通道已满，重新入队失败: deviceId={}", batch.get(i).getDeviceId());
 			}
 		}
 	}
 	
+	/**
+	 * 批量取出告警
+	 *
+	 * @param maxSize 最大取出数量
+	 * @return 告警列表
+	 */
+	public List<DeviceAlarmDTO> drainAlarmBatch(int maxSize) {
+		List<DeviceAlarmDTO> batch = new ArrayList<>();
+		alarmQueue.drainTo(batch, maxSize);
+		return batch;
+	}
+	
+	/**
+	 * 获取告警通道当前大小
+	 */
+	public int getAlarmQueueSize() {
+		return alarmQueue.size();
+	}
+	
+	/**
+	 * 获取告警通道使用率
+	 *
+	 * @return 使用率（0.0 ~ 1.0）
+	 */
+	public double getAlarmQueueUsageRate() {
+		return (double) alarmQueue.size() / config.getAlarmQueueSize();
+	}
+	
 	// ==================== 设备数据队列操作 ====================
 	
 	/**
@@ -89,11 +186,10 @@ public class DataBuffer {
 	 * @return true-成功, false-队列已满
 	 */
 	public boolean offerData(BaseDeviceDataDTO data) {
-		initQueuesIfNeeded();
 		boolean success = dataQueue.offer(data);
 		if (!success) {
-			log.warn("设备数据队列已满，数据被拒绝: deviceId={}, queueSize={}/{}",
-					data.getDeviceId(), dataQueue.size(), config.getDataQueueSize());
+			log.warn("设备数据队列已满，数据被拒绝: deviceId={}, tenantId={}, queueSize={}/{}",
+					data.getDeviceId(), data.getTenantId(), dataQueue.size(), config.getDataQueueSize());
 			
 			// TODO: 降级策略 - 将数据保存到Redis Stream，防止数据丢失
 			// saveToRedisStream(data);
@@ -102,23 +198,43 @@ public class DataBuffer {
 	}
 	
 	/**
-	 * 批量取出设备数据
+	 * 批量添加设备数据到队列
+	 * 按顺序入队, 某租户的数据被拒绝后该租户在本批次中的后续数据一并拒绝, 保证租户内的入队顺序;
+	 * 其他租户的数据不受影响
+	 *
+	 * @param dataList 设备数据列表
+	 * @return 与dataList一一对应的入队结果
+	 */
+	public boolean[] offerDataBatch(List<BaseDeviceDataDTO> dataList) {
+		boolean[] results = dataQueue.offerAll(dataList);
+		int accepted = 0;
+		for (boolean result : results) {
+			if (result) {
+				accepted++;
+			}
+		}
+		if (accepted < dataList.size()) {
+			log.warn("设备数据队列已满，批量数据部分被拒绝: accepted={}, rejected={}, queueSize={}/{}",
+					accepted, dataList.size() - accepted, dataQueue.size(), config.getDataQueueSize());
+		}
+		return results;
+	}
+	
+	/**
+	 * 批量取出设备数据, 各租户按权重轮流取出
+	 * 仅由设备数据消费任务调用
 	 *
 	 * @param maxSize 最大取出数量
 	 * @return 设备数据列表
 	 */
 	public List<BaseDeviceDataDTO> drainDataBatch(int maxSize) {
-		initQueuesIfNeeded();
-		List<BaseDeviceDataDTO> batch = new ArrayList<>(maxSize);
-		dataQueue.drainTo(batch, maxSize);
-		return batch;
+		return dataQueue.drain(maxSize);
 	}
 	
 	/**
 	 * 获取设备数据队列当前大小
 	 */
 	public int getDataQueueSize() {
-		initQueuesIfNeeded();
 		return dataQueue.size();
 	}
 	
@@ -135,10 +251,23 @@ public class DataBuffer {
 	 * @return 使用率（0.0 ~ 1.0）
 	 */
 	public double getDataQueueUsageRate() {
-		initQueuesIfNeeded();
 		return (double) dataQueue.size() / config.getDataQueueSize();
 	}
 	
+	/**
+	 * 获取设备数据队列累计取出数量, 用于计算消费速率
+	 */
+	public long getDataDrainedCount() {
+		return dataQueue.drained();
+	}
+	
+	/**
+	 * 获取设备数据队列各租户指标, 按积压降序
+	 */
+	public List<TenantFairQueue.TenantMetrics> getDataTenantMetrics() {
+		return dataQueue.tenantMetrics();
+	}
+	
 	/**
 	 * 设备数据队列是否接近满载
 	 *
@@ -157,7 +286,6 @@ public class DataBuffer {
 	 * @return true-成功, false-队列已满
 	 */
 	public boolean offerCommand(BaseCommandRespDataDTO command) {
-		initQueuesIfNeeded();
 		boolean success = commandQueue.offer(command);
 		if (!success) {
 			log.warn("指令响应队列已满，数据被拒绝: deviceId={}, taskId={}, queueSize={}/{}",
@@ -169,6 +297,28 @@ public class DataBuffer {
 		return success;
 	}
 	
+	/**
+	 * 批量添加指令响应到队列
+	 * 按顺序入队, 遇到队列已满即停止
+	 *
+	 * @param commandList 指令响应列表
+	 * @return 成功入队的数量, 即commandList中前N条入队成功
+	 */
+	public int offerCommandBatch(List<BaseCommandRespDataDTO> commandList) {
+		int accepted = 0;
+		for (BaseCommandRespDataDTO command : commandList) {
+			if (!commandQueue.offer(command)) {
+				break;
+			}
+			accepted++;
+		}
+		if (accepted < commandList.size()) {
+			log.warn("指令响应队列已满，批量数据部分被拒绝: accepted={}, rejected={}, queueSize={}/{}",
+					accepted, commandList.size() - accepted, commandQueue.size(), config.getCommandQueueSize());
+		}
+		return accepted;
+	}
+	
 	/**
 	 * 批量取出指令响应
 	 *
@@ -176,7 +326,6 @@ public class DataBuffer {
 	 * @return 指令响应列表
 	 */
 	public List<BaseCommandRespDataDTO> drainCommandBatch(int maxSize) {
-		initQueuesIfNeeded();
 		List<BaseCommandRespDataDTO> batch = new ArrayList<>(maxSize);
 		commandQueue.drainTo(batch, maxSize);
 		return batch;
@@ -186,7 +335,6 @@ public class DataBuffer {
 	 * 获取指令响应队列当前大小
 	 */
 	public int getCommandQueueSize() {
-		initQueuesIfNeeded();
 		return commandQueue.size();
 	}
 	
@@ -203,7 +351,6 @@ public class DataBuffer {
 	 * @return 使用率（0.0 ~ 1.0）
 	 */
 	public double getCommandQueueUsageRate() {
-		initQueuesIfNeeded();
 		return (double) commandQueue.size() / config.getCommandQueueSize();
 	}
 	
@@ -216,6 +363,96 @@ public class DataBuffer {
 		return getCommandQueueUsageRate() > config.getQueueFullThreshold();
 	}
 	
+	// ==================== 设备状态队列操作 ====================
+	
+	/**
+	 * 添加设备状态变更到队列
+	 *
+	 * @param change 设备状态变更
+	 * @return true-成功, false-队列已满
+	 */
+	public boolean offerStatus(DeviceStatusChangeDTO change) {
+		boolean success = statusQueue.offer(change);
+		if (!success) {
+			log.warn("设备状态队列已满，状态变更暂缓转发: deviceId={}, queueSize={}/{}",
+					change.getDeviceId(), statusQueue.size(), config.getStatusQueueSize());
+		}
+		return success;
+	}
+	
+	/**
+	 * 批量取出设备状态变更
+	 *
+	 * @param maxSize 最大取出数量
+	 * @return 设备状态变更列表
+	 */
+	public List<DeviceStatusChangeDTO> drainStatusBatch(int maxSize) {
+		List<DeviceStatusChangeDTO> batch = new ArrayList<>(maxSize);
+		statusQueue.drainTo(batch, maxSize);
+		return batch;
+	}
+	
+	/**
+	 * 获取设备状态队列当前大小
+	 */
+	public int getStatusQueueSize() {
+		return statusQueue.size();
+	}
+	
+	/**
+	 * 获取设备状态队列使用率
+	 *
+	 * @return 使用率（0.0 ~ 1.0）
+	 */
+	public double getStatusQueueUsageRate() {
+		return (double) statusQueue.size() / config.getStatusQueueSize();
+	}
+	
+	// ==================== 设备数据汇总队列操作 ====================
+	
+	/**
+	 * 添加设备数据窗口汇总到队列
+	 *
+	 * @param rollup 窗口汇总
+	 * @return true-成功, false-队列已满
+	 */
+	public boolean offerRollup(DeviceRollupDTO rollup) {
+		boolean success = rollupQueue.offer(rollup);
+		if (!success) {
+			log.warn("设备数据汇总队列已满: deviceId={}, queueSize={}/{}",
+					rollup.getDeviceId(), rollupQueue.size(), config.getRollupQueueSize());
+		}
+		return success;
+	}
+	
+	/**
+	 * 批量取出设备数据窗口汇总
+	 *
+	 * @param maxSize 最大取出数量
+	 * @return 窗口汇总列表
+	 */
+	public List<DeviceRollupDTO> drainRollupBatch(int maxSize) {
+		List<DeviceRollupDTO> batch = new ArrayList<>(maxSize);
+		rollupQueue.drainTo(batch, maxSize);
+		return batch;
+	}
+	
+	/**
+	 * 获取设备数据汇总队列当前大小
+	 */
+	public int getRollupQueueSize() {
+		return rollupQueue.size();
+	}
+	
+	/**
+	 * 获取设备数据汇总队列使用率
+	 *
+	 * @return 使用率（0.0 ~ 1.0）
+	 */
+	public double getRollupQueueUsageRate() {
+		return (double) rollupQueue.size() / config.getRollupQueueSize();
+	}
+	
 	// ==================== 重试队列操作 ====================
 	
 	/**
@@ -224,7 +461,6 @@ public class DataBuffer {
 	 * @param data 设备数据
 	 */
 	public void offerToRetryData(BaseDeviceDataDTO data) {
-		initQueuesIfNeeded();
 		boolean success = retryDataQueue.offer(data);
 		if (!success) {
 			log.error("重试队列已满，数据将丢失: deviceId={}, queueSize={}/{}",
@@ -251,7 +487,6 @@ public class DataBuffer {
 	 * @return 设备数据列表
 	 */
 	public List<BaseDeviceDataDTO> drainRetryDataBatch(int maxSize) {
-		initQueuesIfNeeded();
 		List<BaseDeviceDataDTO> batch = new ArrayList<>(maxSize);
 		retryDataQueue.drainTo(batch, maxSize);
 		return batch;
@@ -261,7 +496,6 @@ public class DataBuffer {
 	 * 获取重试数据队列当前大小
 	 */
 	public int getRetryDataQueueSize() {
-		initQueuesIfNeeded();
 		return retryDataQueue.size();
 	}
 	
@@ -278,7 +512,6 @@ public class DataBuffer {
 	 * @return 使用率（0.0 ~ 1.0）
 	 */
 	public double getRetryDataQueueUsageRate() {
-		initQueuesIfNeeded();
 		return (double) retryDataQueue.size() / config.getRetryDataQueueSize();
 	}
 	
@@ -297,7 +530,6 @@ public class DataBuffer {
 	 * @param command 指令响应
 	 */
 	public void offerToRetryCommand(BaseCommandRespDataDTO command) {
-		initQueuesIfNeeded();
 		boolean success = retryCommandQueue.offer(command);
 		if (!success) {
 			log.error("指令重试队列已满，数据将丢失: deviceId={}, taskId={}, queueSize={}/{}",
@@ -325,7 +557,6 @@ public class DataBuffer {
 	 * @return 指令响应列表
 	 */
 	public List<BaseCommandRespDataDTO> drainRetryCommandBatch(int maxSize) {
-		initQueuesIfNeeded();
 		List<BaseCommandRespDataDTO> batch = new ArrayList<>(maxSize);
 		retryCommandQueue.drainTo(batch, maxSize);
 		return batch;
@@ -335,7 +566,6 @@ public class DataBuffer {
 	 * 获取重试指令队列当前大小
 	 */
 	public int getRetryCommandQueueSize() {
-		initQueuesIfNeeded();
 		return retryCommandQueue.size();
 	}
 	
@@ -352,7 +582,6 @@ public class DataBuffer {
 	 * @return 使用率（0.0 ~ 1.0）
 	 */
 	public double getRetryCommandQueueUsageRate() {
-		initQueuesIfNeeded();
 		return (double) retryCommandQueue.size() / config.getRetryCommandQueueSize();
 	}
 	
@@ -371,12 +600,19 @@ public class DataBuffer {
 	 * 打印队列状态（用于监控）
 	 */
 	public void logQueueStatus() {
-		initQueuesIfNeeded();
-		log.info("队列状态监控 - 数据队列:{}/{} ({:.1f}%), 指令队列:{}/{} ({:.1f}%), 重试数据:{}/{} ({:.1f}%), 重试指令:{}/{} ({:.1f}%)",
+		log.info("队列状态监控 - 告警通道:{}/{} ({:.1f}%), 数据队列:{}/{} ({:.1f}%), 指令队列:{}/{} ({:.1f}%), 状态队列:{}/{} ({:.1f}%), 汇总队列:{}/{} ({:.1f}%), 重试数据:{}/{} ({:.1f}%), 重试指令:{}/{} ({:.1f}%)",
+				alarmQueue.size(), config.getAlarmQueueSize(), getAlarmQueueUsageRate() * 100,
 				dataQueue.size(), config.getDataQueueSize(), getDataQueueUsageRate() * 100,
 				commandQueue.size(), config.getCommandQueueSize(), getCommandQueueUsageRate() * 100,
+				statusQueue.size(), config.getStatusQueueSize(), getStatusQueueUsageRate() * 100,
+				rollupQueue.size(), config.getRollupQueueSize(), getRollupQueueUsageRate() * 100,
 				retryDataQueue.size(), config.getRetryDataQueueSize(), getRetryDataQueueUsageRate() * 100,
 				retryCommandQueue.size(), config.getRetryCommandQueueSize(), getRetryCommandQueueUsageRate() * 100);
+		if (config.getTenantQueue().isEnabled()) {
+			List<TenantFairQueue.TenantMetrics> tenants = dataQueue.tenantMetrics();
+			log.info("数据队列租户状态 - 租户数:{}, 积压前{}: {}", tenants.size(), Math.min(tenants.size(), TENANT_STATUS_LIMIT),
+					tenants.subList(0, Math.min(tenants.size(), TENANT_STATUS_LIMIT)));
+		}
 	}
 	
 	/**
@@ -385,7 +621,6 @@ public class DataBuffer {
 	 * @return 告警信息列表，无告警返回空列表
 	 */
 	public List<String> checkAlerts() {
-		initQueuesIfNeeded();
 		List<String> alerts = new ArrayList<>();
 		
 		// 数据队列告警
@@ -419,14 +654,23 @@ public class DataBuffer {
 	 * 获取队列监控指标（用于Prometheus等监控系统）
 	 */
 	public QueueMetrics getMetrics() {
-		initQueuesIfNeeded();
 		return QueueMetrics.builder()
+				.alarmQueueSize(alarmQueue.size())
+				.alarmQueueCapacity(config.getAlarmQueueSize())
+				.alarmQueueUsageRate(getAlarmQueueUsageRate())
 				.dataQueueSize(dataQueue.size())
 				.dataQueueCapacity(config.getDataQueueSize())
 				.dataQueueUsageRate(getDataQueueUsageRate())
+				.dataQueueTenants(dataQueue.tenants())
 				.commandQueueSize(commandQueue.size())
 				.commandQueueCapacity(config.getCommandQueueSize())
 				.commandQueueUsageRate(getCommandQueueUsageRate())
+				.statusQueueSize(statusQueue.size())
+				.statusQueueCapacity(config.getStatusQueueSize())
+				.statusQueueUsageRate(getStatusQueueUsageRate())
+				.rollupQueueSize(rollupQueue.size())
+				.rollupQueueCapacity(config.getRollupQueueSize())
+				.rollupQueueUsageRate(getRollupQueueUsageRate())
 				.retryDataQueueSize(retryDataQueue.size())
 				.retryDataQueueCapacity(config.getRetryDataQueueSize())
 				.retryDataQueueUsageRate(getRetryDataQueueUsageRate())
@@ -443,14 +687,27 @@ public class DataBuffer {
 	@Builder
 	public static class QueueMetrics {
 		
+		private int alarmQueueSize;
+		private int alarmQueueCapacity;
+		private double alarmQueueUsageRate;
+		
 		private int dataQueueSize;
 		private int dataQueueCapacity;
 		private double dataQueueUsageRate;
+		private int dataQueueTenants;
 		
 		private int commandQueueSize;
 		private int commandQueueCapacity;
 		private double commandQueueUsageRate;
 		
+		private int statusQueueSize;
+		private int statusQueueCapacity;
+		private double statusQueueUsageRate;
+		
+		private int rollupQueueSize;
+		private int rollupQueueCapacity;
+		private double rollupQueueUsageRate;
+		
 		private int retryDataQueueSize;
 		private int retryDataQueueCapacity;
 		private double retryDataQueueUsageRate;
@@ -4,15 +4,35 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 设备数据缓冲队列配置*
  * 配置说明：
+ * - alarmQueueSize: 告警通道容量，告警独立于设备数据队列优先转发
  * - dataQueueSize: 设备数据队列容量，建议 = 峰值QPS × 缓冲时间(秒)
  * - commandQueueSize: 指令响应队列容量，指令频率较低，可设置较小
+ * - statusQueueSize: 设备状态变更队列容量，经抖动抑制后频率较低
+ * - rollupQueueSize: 设备数据窗口汇总队列容量，仅开启聚合(device.rollup)时使用
  * - retryDataQueueSize: 重试数据队列容量，建议 = dataQueueSize × 0.5
  * - retryCommandQueueSize: 重试指令队列容量
  * - queueFullThreshold: 队列满载阈值（百分比），超过此值触发告警
  * - monitorIntervalSeconds: 监控任务执行间隔（秒）
+ * - ingestBatchMaxSize: 批量接入接口单次请求的最大消息数
+ * - tenantQueue: 设备数据队列按租户公平排队(每租户一个子队列, 消费时按加权差额轮询组批)
+ * - rateLimit: 设备数据入队前按设备、按租户的令牌桶限流, 支持运行期调整(配置刷新后下一条数据即生效)
+ * <p>
+ * 示例(租户t1权重为2且最多占用30%容量)：
+ * device.buffer.tenant-queue.enabled=true
+ * device.buffer.tenant-queue.tenants.t1.weight=2
+ * device.buffer.tenant-queue.tenants.t1.share=0.3
+ * <p>
+ * 示例(每台设备每10秒1条、突发3条, 租户t1每秒最多5000条)：
+ * device.buffer.rate-limit.enabled=true
+ * device.buffer.rate-limit.device-per-second=0.1
+ * device.buffer.rate-limit.device-burst=3
+ * device.buffer.rate-limit.tenants.t1.per-second=5000
  * 
  * @author alcsyooterranf
  * @date 2025-01-24
@@ -22,6 +42,12 @@ import org.springframework.context.annotation.Configuration;
 @ConfigurationProperties(prefix = "device.buffer")
 public class DataBufferConfig {
 
+    /**
+     * 告警通道容量
+     * 默认2000
+     */
+    private int alarmQueueSize = 2000;
+
     /**
      * 设备数据队列容量
      * 默认10000，可缓冲25秒的峰值流量(400 QPS)
@@ -34,6 +60,18 @@ public class DataBufferConfig {
      */
     private int commandQueueSize = 5000;
 
+    /**
+     * 设备状态变更队列容量
+     * 默认5000
+     */
+    private int statusQueueSize = 5000;
+
+    /**
+     * 设备数据窗口汇总队列容量
+     * 默认5000
+     */
+    private int rollupQueueSize = 5000;
+
     /**
      * 设备数据重试队列容量
      * 默认5000，用于存储RPC调用失败的数据
@@ -76,5 +114,164 @@ public class DataBufferConfig {
      */
     private int maxRetryTimes = 3;
 
+    /**
+     * 批量接入接口单次请求的最大消息数
+     * 默认1000条
+     */
+    private int ingestBatchMaxSize = 1000;
+
+    /**
+     * 设备数据队列按租户公平排队
+     */
+    private TenantQueue tenantQueue = new TenantQueue();
+
+    /**
+     * 设备数据令牌桶限流
+     */
+    private RateLimit rateLimit = new RateLimit();
+
+    @Data
+    public static class TenantQueue {
+
+        /**
+         * 是否开启
+         * 默认关闭, 关闭时所有租户共用一个FIFO子队列, 与原有行为一致
+         */
+        private boolean enabled = false;
+
+        /**
+         * 单个租户最多占用的队列容量比例
+         * 默认0.5, 突发租户最多占满一半容量, 其余租户仍可入队
+         */
+        private double share = 0.5;
+
+        /**
+         * 每个租户的保底容量
+         * 默认200, 租户子队列未达到保底容量时即使总容量已满也允许入队
+         */
+        private int minCapacity = 200;
+
+        /**
+         * 差额轮询权重
+         * 默认1
+         */
+        private int weight = 1;
+
+        /**
+         * 差额轮询每轮每单位权重可取出的消息数
+         * 默认50
+         */
+        private int quantum = 50;
+
+        /**
+         * 独立子队列的租户数上限, 超过后的新租户共用一个子队列
+         * 默认256
+         */
+        private int maxTenants = 256;
+
+        /**
+         * 租户ID → 单独配置, 未配置的项沿用上面的默认值
+         */
+        private Map<String, Tenant> tenants = new HashMap<>();
+
+    }
+
+    @Data
+    public static class Tenant {
+
+        /**
+         * 容量比例
+         */
+        private Double share;
+
+        /**
+         * 保底容量
+         */
+        private Integer minCapacity;
+
+        /**
+         * 差额轮询权重
+         */
+        private Integer weight;
+
+    }
+
+    @Data
+    public static class RateLimit {
+
+        /**
+         * 是否开启
+         * 默认关闭
+         */
+        private boolean enabled = false;
+
+        /**
+         * 单台设备每秒补充的令牌数, ≤0表示不限
+         * 默认1, 即平均每秒1条
+         */
+        private double devicePerSecond = 1;
+
+        /**
+         * 单台设备的令牌桶容量(允许的突发条数)
+         * 默认10
+         */
+        private int deviceBurst = 10;
+
+        /**
+         * 单个租户每秒补充的令牌数, ≤0表示不限
+         * 默认2000
+         */
+        private double tenantPerSecond = 2000;
+
+        /**
+         * 单个租户的令牌桶容量
+         * 默认4000
+         */
+        private int tenantBurst = 4000;
+
+        /**
+         * 跟踪的设备数上限, 超过后淘汰最久未上报的设备(闲置到令牌桶填满的设备, 淘汰后重建结果相同)
+         * 默认100万
+         */
+        private int maxDevices = 1_000_000;
+
+        /**
+         * 分段数, 需为2的幂
+         * 默认64
+         */
+        private int segments = 64;
+
+        /**
+         * 租户ID → 单独配置, 未配置的项沿用上面的默认值
+         */
+        private Map<String, TenantLimit> tenants = new HashMap<>();
+
+    }
+
+    @Data
+    public static class TenantLimit {
+
+        /**
+         * 租户每秒补充的令牌数
+         */
+        private Double perSecond;
+
+        /**
+         * 租户令牌桶容量
+         */
+        private Integer burst;
+
+        /**
+         * 该租户下单台设备每秒补充的令牌数
+         */
+        private Double devicePerSecond;
+
+        /**
+         * 该租户下单台设备的令牌桶容量
+         */
+        private Integer deviceBurst;
+
+    }
+
 }
 
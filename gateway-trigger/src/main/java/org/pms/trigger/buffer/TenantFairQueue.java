@@ -0,0 +1,279 @@
+package org.pms.trigger.buffer;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 按租户公平排队的有界队列
+ * <p>
+ * 设计思路：
+ * - 每个租户一个无锁子队列(ConcurrentLinkedQueue), 容量由租户计数与总计数两个原子计数器控制, 入队不加锁
+ * - 单个租户最多占用share比例的总容量, 突发租户无法占满整个队列
+ * - 子队列未达到保底容量(minCapacity)时即使总容量已满也允许入队,
+ *   总占用最多超出capacity为 minCapacity × 活跃租户数
+ * - 消费时按加权差额轮询(Deficit Round Robin)组批: 每轮给租户增加 quantum × weight 的额度, 按额度取出,
+ *   积压多的租户不会挤占其他租户的转发机会; 同一租户内保持FIFO
+ * - 租户数超过maxTenants后的新租户共用一个子队列, 防止租户ID异常时无限创建子队列
+ * - 只允许单个消费线程调用{@link #drain}
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-04
+ */
+public class TenantFairQueue<E> {
+	
+	/**
+	 * 未开启公平排队、租户ID为空或租户数超限时使用的子队列
+	 */
+	static final String SHARED = "*";
+	
+	private final int capacity;
+	private final DataBufferConfig.TenantQueue config;
+	private final Function<E, String> tenantOf;
+	private final ConcurrentHashMap<String, Lane<E>> lanes = new ConcurrentHashMap<>();
+	private final CopyOnWriteArrayList<Lane<E>> order = new CopyOnWriteArrayList<>();
+	private final AtomicInteger total = new AtomicInteger();
+	
+	/**
+	 * 轮询位置与当前租户是否已获得本轮额度, 仅消费线程访问
+	 */
+	private int cursor;
+	private boolean credited;
+	
+	/**
+	 * @param capacity 总容量
+	 * @param config   公平排队配置
+	 * @param tenantOf 取元素的租户ID
+	 */
+	public TenantFairQueue(int capacity, DataBufferConfig.TenantQueue config, Function<E, String> tenantOf) {
+		this.capacity = capacity;
+		this.config = config;
+		this.tenantOf = tenantOf;
+	}
+	
+	/**
+	 * 入队
+	 *
+	 * @return true-成功, false-租户子队列或总容量已满
+	 */
+	public boolean offer(E element) {
+		return offer(lane(element), element);
+	}
+	
+	/**
+	 * 批量入队, 按顺序入队; 同一租户的消息一旦被拒绝, 该租户在本批次中的后续消息一并拒绝, 保证租户内的入队顺序
+	 *
+	 * @return 与elements一一对应的入队结果
+	 */
+	public boolean[] offerAll(List<E> elements) {
+		boolean[] accepted = new boolean[elements.size()];
+		List<Lane<E>> rejected = null;
+		for (int i = 0; i < elements.size(); i++) {
+			E element = elements.get(i);
+			Lane<E> lane = lane(element);
+			if (rejected != null && rejected.contains(lane)) {
+				lane.rejected.increment();
+				continue;
+			}
+			accepted[i] = offer(lane, element);
+			if (!accepted[i]) {
+				if (rejected == null) {
+					rejected = new ArrayList<>(2);
+				}
+				rejected.add(lane);
+			}
+		}
+		return accepted;
+	}
+	
+	/**
+	 * 按加权差额轮询取出一批元素
+	 *
+	 * @param maxSize 最大取出数量
+	 */
+	public List<E> drain(int maxSize) {
+		List<E> batch = new ArrayList<>(Math.min(maxSize, Math.max(total.get(), 0)));
+		int laneCount = order.size();
+		int idle = 0;
+		while (batch.size() < maxSize && idle < laneCount && total.get() > 0) {
+			if (cursor >= laneCount) {
+				cursor = 0;
+			}
+			Lane<E> lane = order.get(cursor);
+			if (!credited) {
+				lane.deficit += (long) config.getQuantum() * lane.weight;
+				credited = true;
+			}
+			int taken = 0;
+			E element;
+			while (lane.deficit > 0 && batch.size() < maxSize && (element = lane.queue.poll()) != null) {
+				lane.size.decrementAndGet();
+				total.decrementAndGet();
+				lane.deficit--;
+				batch.add(element);
+				taken++;
+			}
+			if (taken > 0) {
+				lane.drained.add(taken);
+			}
+			if (batch.size() >= maxSize && lane.deficit > 0 && !lane.queue.isEmpty()) {
+				// 批次已满, 下次从当前租户继续, 不重复发放额度
+				break;
+			}
+			if (lane.queue.isEmpty()) {
+				// 空闲租户不累积额度
+				lane.deficit = 0;
+			}
+			idle = taken > 0 ? 0 : idle + 1;
+			cursor++;
+			credited = false;
+		}
+		return batch;
+	}
+	
+	public int size() {
+		return Math.max(total.get(), 0);
+	}
+	
+	public int capacity() {
+		return capacity;
+	}
+	
+	public int tenants() {
+		return order.size();
+	}
+	
+	/**
+	 * 累计取出数量
+	 */
+	public long drained() {
+		long drained = 0;
+		for (Lane<E> lane : order) {
+			drained += lane.drained.sum();
+		}
+		return drained;
+	}
+	
+	/**
+	 * 各租户子队列指标, 按当前积压降序
+	 */
+	public List<TenantMetrics> tenantMetrics() {
+		List<TenantMetrics> metrics = new ArrayList<>(order.size());
+		for (Lane<E> lane : order) {
+			metrics.add(TenantMetrics.builder()
+					.tenantId(lane.tenantId)
+					.size(lane.size.get())
+					.capacity(lane.capacity)
+					.minCapacity(lane.minCapacity)
+					.weight(lane.weight)
+					.offered(lane.offered.sum())
+					.rejected(lane.rejected.sum())
+					.drained(lane.drained.sum())
+					.build());
+		}
+		metrics.sort(Comparator.comparingInt(TenantMetrics::getSize).reversed());
+		return metrics;
+	}
+	
+	private boolean offer(Lane<E> lane, E element) {
+		int size = lane.size.incrementAndGet();
+		if (size > lane.capacity) {
+			lane.size.decrementAndGet();
+			lane.rejected.increment();
+			return false;
+		}
+		if (total.incrementAndGet() > capacity && size > lane.minCapacity) {
+			total.decrementAndGet();
+			lane.size.decrementAndGet();
+			lane.rejected.increment();
+			return false;
+		}
+		lane.queue.offer(element);
+		lane.offered.increment();
+		return true;
+	}
+	
+	private Lane<E> lane(E element) {
+		String tenantId = config.isEnabled() ? tenantOf.apply(element) : SHARED;
+		if (tenantId == null) {
+			tenantId = SHARED;
+		}
+		Lane<E> lane = lanes.get(tenantId);
+		if (lane != null) {
+			return lane;
+		}
+		if (lanes.size() >= config.getMaxTenants() && !SHARED.equals(tenantId)) {
+			tenantId = SHARED;
+		}
+		return lanes.computeIfAbsent(tenantId, this::createLane);
+	}
+	
+	private Lane<E> createLane(String tenantId) {
+		Lane<E> lane;
+		if (!config.isEnabled()) {
+			lane = new Lane<>(tenantId, capacity, 0, 1);
+		} else {
+			DataBufferConfig.Tenant tenant = config.getTenants().get(tenantId);
+			double share = tenant != null && tenant.getShare() != null ? tenant.getShare() : config.getShare();
+			int minCapacity = tenant != null && tenant.getMinCapacity() != null ? tenant.getMinCapacity() : config.getMinCapacity();
+			int weight = tenant != null && tenant.getWeight() != null ? tenant.getWeight() : config.getWeight();
+			lane = new Lane<>(tenantId, Math.max(minCapacity, Math.max(1, (int) (capacity * share))),
+					minCapacity, Math.max(1, weight));
+		}
+		order.add(lane);
+		return lane;
+	}
+	
+	private static final class Lane<E> {
+		
+		private final String tenantId;
+		private final int capacity;
+		private final int minCapacity;
+		private final int weight;
+		private final ConcurrentLinkedQueue<E> queue = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger size = new AtomicInteger();
+		private final LongAdder offered = new LongAdder();
+		private final LongAdder rejected = new LongAdder();
+		private final LongAdder drained = new LongAdder();
+		/**
+		 * 差额轮询剩余额度, 仅消费线程访问
+		 */
+		private long deficit;
+		
+		private Lane(String tenantId, int capacity, int minCapacity, int weight) {
+			this.tenantId = tenantId;
+			this.capacity = capacity;
+			this.minCapacity = minCapacity;
+			this.weight = weight;
+		}
+		
+	}
+	
+	/**
+	 * 租户子队列指标
+	 */
+	@Data
+	@Builder
+	public static class TenantMetrics {
+		
+		private String tenantId;
+		private int size;
+		private int capacity;
+		private int minCapacity;
+		private int weight;
+		private long offered;
+		private long rejected;
+		private long drained;
+		
+	}
+	
+}
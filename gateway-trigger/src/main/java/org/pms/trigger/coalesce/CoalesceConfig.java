@@ -0,0 +1,99 @@
+package org.pms.trigger.coalesce;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 代理GET请求合并配置
+ * 配置说明：
+ * - enabled: 是否开启, 开启后相同的并发GET请求只转发一次后端, 其余请求等待并复用该响应
+ * - routes: 参与合并的路由(按路由开启), 未配置的路由不合并
+ * - maxWaitMs: 等待在途请求的最长时间, 超时后自行转发后端
+ * - maxBodyBytes: 可复用的响应体上限, 超过时等待的请求自行转发后端
+ * - maxInFlight: 同时在途的合并键数上限, 超过时新请求不参与合并
+ * <p>
+ * 相同请求指: 路径、查询参数、Accept/Accept-Encoding相同, 且授权范围相同(按路由的scope取用户ID或角色)
+ * Accept含text/event-stream的流式请求不参与合并, 即使路由已配置
+ * 例:
+ * proxy.coalesce.routes[0].pattern=/device_manage/**
+ * proxy.coalesce.routes[1].pattern=/pipeline_manage/**
+ * proxy.coalesce.routes[1].scope=ROLES
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-10
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "proxy.coalesce")
+public class CoalesceConfig {
+	
+	/**
+	 * 是否开启
+	 * 默认关闭
+	 */
+	private boolean enabled = false;
+	
+	/**
+	 * 参与合并的路由
+	 * 默认无
+	 */
+	private List<Route> routes = new ArrayList<>();
+	
+	/**
+	 * 等待在途请求的最长时间(毫秒)
+	 * 默认3000ms
+	 */
+	private long maxWaitMs = 3000;
+	
+	/**
+	 * 可复用的响应体上限(字节)
+	 * 默认2MB
+	 */
+	private int maxBodyBytes = 2 * 1024 * 1024;
+	
+	/**
+	 * 同时在途的合并键数上限
+	 * 默认1024
+	 */
+	private int maxInFlight = 1024;
+	
+	/**
+	 * 授权范围: 决定哪些用户的请求可以共享同一个响应
+	 */
+	public enum Scope {
+		/**
+		 * 同一用户
+		 */
+		USER,
+		/**
+		 * 角色相同的用户, 只适用于后端不按用户过滤数据的接口
+		 */
+		ROLES
+	}
+	
+	@Data
+	public static class Route {
+		
+		/**
+		 * 路径(Ant风格)
+		 */
+		private String pattern;
+		
+		/**
+		 * 授权范围
+		 * 默认USER
+		 */
+		private Scope scope = Scope.USER;
+		
+		/**
+		 * 该路由等待在途请求的最长时间(毫秒), 不配置时取全局值
+		 */
+		private Long maxWaitMs;
+		
+	}
+	
+}
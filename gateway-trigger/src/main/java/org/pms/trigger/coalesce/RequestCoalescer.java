@@ -0,0 +1,168 @@
+package org.pms.trigger.coalesce;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 相同请求合并(singleflight)
+ * 同一合并键同时只有一个领头请求转发后端, 期间到达的相同请求等待领头请求的响应副本;
+ * 领头请求完成时先移除在途记录再发布响应, 之后到达的请求重新转发, 不会拿到旧响应
+ * 等待的请求在以下情况自行转发后端, 不会因合并而失败:
+ * - 等待超时
+ * - 领头请求异常, 或响应不可复用(过大、流式响应)
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-10
+ */
+@Slf4j
+@Component
+public class RequestCoalescer {
+	
+	private final CoalesceConfig config;
+	private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder leaders = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder timedOut = new LongAdder();
+	private final LongAdder fallback = new LongAdder();
+	private final LongAdder bypassed = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	
+	public RequestCoalescer(CoalesceConfig config) {
+		this.config = config;
+	}
+	
+	/**
+	 * 加入合并
+	 *
+	 * @param key    合并键
+	 * @param flight 当前请求新建的在途记录
+	 * @return 该键的在途记录, 与传入的flight相同时当前请求为领头请求; 在途键数已达上限时返回null, 不参与合并
+	 */
+	public Flight join(String key, Flight flight) {
+		requests.increment();
+		if (flights.size() >= config.getMaxInFlight()) {
+			bypassed.increment();
+			return null;
+		}
+		Flight existing = flights.putIfAbsent(key, flight);
+		if (existing == null) {
+			leaders.increment();
+			return flight;
+		}
+		return existing;
+	}
+	
+	/**
+	 * 领头请求完成, 发布响应副本
+	 *
+	 * @param key      合并键
+	 * @param flight   领头请求的在途记录
+	 * @param response 响应副本, 不可复用时为null
+	 */
+	public void complete(String key, Flight flight, SharedResponse response) {
+		flights.remove(key, flight);
+		flight.future.complete(response);
+	}
+	
+	/**
+	 * 等待领头请求的响应副本
+	 *
+	 * @param flight 在途记录
+	 * @param waitMs 最长等待时间(毫秒)
+	 * @return 响应副本, 超时或不可复用时返回null, 由调用方自行转发后端
+	 */
+	public SharedResponse await(Flight flight, long waitMs) {
+		long start = System.nanoTime();
+		try {
+			SharedResponse response = flight.future.get(waitMs, TimeUnit.MILLISECONDS);
+			if (response == null) {
+				fallback.increment();
+				return null;
+			}
+			coalesced.increment();
+			waitNanos.add(System.nanoTime() - start);
+			return response;
+		} catch (TimeoutException e) {
+			timedOut.increment();
+			return null;
+		} catch (ExecutionException e) {
+			fallback.increment();
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fallback.increment();
+			return null;
+		}
+	}
+	
+	/**
+	 * 获取合并指标
+	 */
+	public CoalesceMetrics getMetrics() {
+		long requestCount = requests.sum();
+		long coalescedCount = coalesced.sum();
+		return CoalesceMetrics.builder()
+				.enabled(config.isEnabled())
+				.requests(requestCount)
+				.leaders(leaders.sum())
+				.coalesced(coalescedCount)
+				.coalescedRatio(requestCount == 0 ? 0 : (double) coalescedCount / requestCount)
+				.timedOut(timedOut.sum())
+				.fallback(fallback.sum())
+				.bypassed(bypassed.sum())
+				.inFlight(flights.size())
+				.avgWaitMs(coalescedCount == 0 ? 0 : waitNanos.sum() / 1_000_000.0 / coalescedCount)
+				.build();
+	}
+	
+	/**
+	 * 打印合并状态
+	 */
+	public void logStatus() {
+		CoalesceMetrics metrics = getMetrics();
+		if (!metrics.isEnabled()) {
+			return;
+		}
+		log.info("GET请求合并 - 请求: {}, 转发后端: {}, 合并: {}, 合并率: {}%, 平均等待: {}ms, 等待超时: {}, 回退转发: {}, 超上限不合并: {}, 在途: {}",
+				metrics.getRequests(), metrics.getLeaders(), metrics.getCoalesced(),
+				String.format("%.2f", metrics.getCoalescedRatio() * 100), String.format("%.1f", metrics.getAvgWaitMs()),
+				metrics.getTimedOut(), metrics.getFallback(), metrics.getBypassed(), metrics.getInFlight());
+	}
+	
+	/**
+	 * 在途记录
+	 */
+	public static class Flight {
+		
+		private final CompletableFuture<SharedResponse> future = new CompletableFuture<>();
+		
+	}
+	
+	@Data
+	@Builder
+	public static class CoalesceMetrics {
+		
+		private boolean enabled;
+		private long requests;
+		private long leaders;
+		private long coalesced;
+		private double coalescedRatio;
+		private long timedOut;
+		private long fallback;
+		private long bypassed;
+		private int inFlight;
+		private double avgWaitMs;
+		
+	}
+	
+}
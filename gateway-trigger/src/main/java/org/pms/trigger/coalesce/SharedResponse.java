@@ -0,0 +1,17 @@
+package org.pms.trigger.coalesce;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在途请求的后端响应副本, 由等待的请求原样回放
+ *
+ * @param status      状态码
+ * @param contentType Content-Type
+ * @param headers     其余响应头(不含逐跳头与Set-Cookie)
+ * @param body        响应体
+ * @author alcsyooterranf
+ * @date 2025-03-10
+ */
+public record SharedResponse(int status, String contentType, List<Map.Entry<String, String>> headers, byte[] body) {
+}
@@ -0,0 +1,255 @@
+package org.pms.trigger.command;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.command.dto.BaseCommandRespDataDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 指令往返关联表
+ * <p>
+ * 原先网关只转发指令响应, 不知道哪些指令还在等待响应, 用户只能轮询后端, 卡住的指令也无人发现
+ * 设计思路：
+ * - 指令经网关下发时按taskId登记, 同时放入哈希时间轮, 登记与撤销均为O(1), 超时检查不扫描全表
+ * - 指令响应到达时撤销条目, 记录往返耗时(按产品分直方图)并立即推送给下发用户
+ * - 定时推进时间轮, 到期条目批量取出, 由调用方推送超时事件并批量转发后端
+ * - 关联表(ConcurrentHashMap)与时间轮分开加锁: 先从表中移除者拥有条目, 响应与超时并发时只处理一次
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-08
+ */
+@Slf4j
+@Component
+public class CommandCorrelationTable {
+	
+	/**
+	 * 按产品统计耗时的产品数上限, 超出后计入共用的直方图
+	 */
+	private static final int MAX_PRODUCTS = 1024;
+	private static final String OTHER_PRODUCT = "*";
+	private static final int STATUS_PRODUCT_LIMIT = 10;
+	
+	private final CommandTrackingConfig config;
+	private final CommandEventHub eventHub;
+	private final ConcurrentHashMap<Long, PendingCommand> pending = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, LatencyHistogram> latencyByProduct = new ConcurrentHashMap<>();
+	private final ReentrantLock wheelLock = new ReentrantLock();
+	private final CommandTimingWheel wheel;
+	private final LongAdder registered = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder expired = new LongAdder();
+	private final LongAdder unmatched = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	
+	public CommandCorrelationTable(CommandTrackingConfig config, CommandEventHub eventHub) {
+		this.config = config;
+		this.eventHub = eventHub;
+		this.wheel = new CommandTimingWheel(config.getWheelSize(), config.getTickMs(), System.currentTimeMillis());
+	}
+	
+	public boolean isEnabled() {
+		return config.isEnabled();
+	}
+	
+	/**
+	 * 登记经网关下发的指令
+	 *
+	 * @param taskId    指令任务ID
+	 * @param deviceId  设备ID
+	 * @param productId 产品ID
+	 * @param userId    下发用户ID
+	 * @param now       下发时间(毫秒)
+	 * @return true-已登记, false-未开启、关联表已满或taskId重复
+	 */
+	public boolean register(long taskId, String deviceId, String productId, String userId, long now) {
+		if (!config.isEnabled()) {
+			return false;
+		}
+		if (pending.size() >= config.getMaxOutstanding()) {
+			rejected.increment();
+			log.warn("指令关联表已满, 不再跟踪新指令: taskId={}, size={}", taskId, pending.size());
+			return false;
+		}
+		PendingCommand command = new PendingCommand(taskId, deviceId, productId, userId, now);
+		if (pending.putIfAbsent(taskId, command) != null) {
+			return false;
+		}
+		wheelLock.lock();
+		try {
+			wheel.add(command, now + TimeUnit.SECONDS.toMillis(config.getTimeoutSeconds()));
+		} finally {
+			wheelLock.unlock();
+		}
+		registered.increment();
+		return true;
+	}
+	
+	/**
+	 * 指令响应到达: 撤销条目、记录往返耗时并推送给下发用户
+	 *
+	 * @param response 指令响应
+	 * @param now      到达时间(毫秒)
+	 * @return 对应的待响应指令, 未登记(未经网关下发、已超时或未开启)时返回null
+	 */
+	public PendingCommand complete(BaseCommandRespDataDTO response, long now) {
+		if (!config.isEnabled() || response.getTaskId() == null) {
+			return null;
+		}
+		PendingCommand command = pending.remove(response.getTaskId());
+		if (command == null) {
+			unmatched.increment();
+			return null;
+		}
+		wheelLock.lock();
+		try {
+			wheel.remove(command);
+		} finally {
+			wheelLock.unlock();
+		}
+		completed.increment();
+		long latency = now - command.getIssuedAt();
+		histogram(command.getProductId()).record(latency);
+		eventHub.publish(command.getUserId(), CommandEventDTO.builder()
+				.taskId(command.getTaskId())
+				.deviceId(command.getDeviceId())
+				.productId(command.getProductId())
+				.status(CommandEventDTO.COMPLETED)
+				.resultCode(response.getResult() != null ? response.getResult().getResultCode() : null)
+				.latencyMs(latency)
+				.timestamp(now)
+				.build());
+		return command;
+	}
+	
+	/**
+	 * 推进时间轮, 取出超时的指令并推送超时事件
+	 *
+	 * @param now 当前时间(毫秒)
+	 * @return 超时的指令
+	 */
+	public List<PendingCommand> expire(long now) {
+		List<PendingCommand> due = new ArrayList<>();
+		wheelLock.lock();
+		try {
+			wheel.advance(now, due);
+		} finally {
+			wheelLock.unlock();
+		}
+		List<PendingCommand> timedOut = new ArrayList<>(due.size());
+		for (PendingCommand command : due) {
+			// 已被响应撤销的条目不再处理
+			if (pending.remove(command.getTaskId(), command)) {
+				timedOut.add(command);
+				eventHub.publish(command.getUserId(), CommandEventDTO.builder()
+						.taskId(command.getTaskId())
+						.deviceId(command.getDeviceId())
+						.productId(command.getProductId())
+						.status(CommandEventDTO.TIMEOUT)
+						.resultCode(config.getTimeoutResultCode())
+						.latencyMs(now - command.getIssuedAt())
+						.timestamp(now)
+						.build());
+			}
+		}
+		if (!timedOut.isEmpty()) {
+			expired.add(timedOut.size());
+		}
+		return timedOut;
+	}
+	
+	public int size() {
+		return pending.size();
+	}
+	
+	/**
+	 * 获取指令往返指标
+	 */
+	public CommandTrackingMetrics getMetrics() {
+		List<ProductLatency> products = new ArrayList<>(latencyByProduct.size());
+		for (Map.Entry<String, LatencyHistogram> entry : latencyByProduct.entrySet()) {
+			products.add(new ProductLatency(entry.getKey(), entry.getValue().snapshot()));
+		}
+		products.sort(Comparator.comparingLong((ProductLatency p) -> p.getLatency().getCount()).reversed());
+		return CommandTrackingMetrics.builder()
+				.enabled(config.isEnabled())
+				.outstanding(pending.size())
+				.registered(registered.sum())
+				.completed(completed.sum())
+				.expired(expired.sum())
+				.unmatched(unmatched.sum())
+				.rejected(rejected.sum())
+				.connections(eventHub.connections())
+				.pushed(eventHub.pushed())
+				.pushDropped(eventHub.dropped())
+				.products(products)
+				.build();
+	}
+	
+	/**
+	 * 打印指令往返状态
+	 */
+	public void logStatus() {
+		CommandTrackingMetrics metrics = getMetrics();
+		if (!metrics.isEnabled()) {
+			return;
+		}
+		log.info("指令往返跟踪 - 待响应: {}, 登记: {}, 已响应: {}, 超时: {}, 未匹配响应: {}, 未登记(表满): {}, 推送连接: {}, 已推送: {}, 推送丢弃: {}",
+				metrics.getOutstanding(), metrics.getRegistered(), metrics.getCompleted(), metrics.getExpired(),
+				metrics.getUnmatched(), metrics.getRejected(), metrics.getConnections(), metrics.getPushed(), metrics.getPushDropped());
+		for (ProductLatency product : metrics.getProducts().subList(0, Math.min(STATUS_PRODUCT_LIMIT, metrics.getProducts().size()))) {
+			LatencyHistogram.Snapshot latency = product.getLatency();
+			log.info("指令往返耗时[{}] - 次数: {}, 平均: {}ms, P50: {}ms, P95: {}ms, P99: {}ms, 最大: {}ms",
+					product.getProductId(), latency.getCount(), String.format("%.1f", latency.getAvgMs()),
+					latency.getP50Ms(), latency.getP95Ms(), latency.getP99Ms(), latency.getMaxMs());
+		}
+	}
+	
+	private LatencyHistogram histogram(String productId) {
+		String key = productId != null ? productId : OTHER_PRODUCT;
+		LatencyHistogram histogram = latencyByProduct.get(key);
+		if (histogram != null) {
+			return histogram;
+		}
+		if (latencyByProduct.size() >= MAX_PRODUCTS) {
+			key = OTHER_PRODUCT;
+		}
+		return latencyByProduct.computeIfAbsent(key, k -> new LatencyHistogram());
+	}
+	
+	@Data
+	@Builder
+	public static class CommandTrackingMetrics {
+		
+		private boolean enabled;
+		private int outstanding;
+		private long registered;
+		private long completed;
+		private long expired;
+		private long unmatched;
+		private long rejected;
+		private int connections;
+		private long pushed;
+		private long pushDropped;
+		private List<ProductLatency> products;
+		
+	}
+	
+	@Data
+	public static class ProductLatency {
+		
+		private final String productId;
+		private final LatencyHistogram.Snapshot latency;
+		
+	}
+	
+}
@@ -0,0 +1,47 @@
+package org.pms.trigger.command;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 指令往返事件推送接口(SSE)
+ * 浏览器建立连接后, 本人下发的指令响应到达或超时时立即收到command事件, 不再轮询后端
+ * 用户ID取自JWT验签后透传的X-User-Id
+ * 接口挂在/command下, 与指令下发使用同一权限(只允许admin, 见MyAccessAuthorizationManager);
+ * /ws/前缀留给后端的WebSocket告警推送, 网关本地接口不使用该前缀
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-08
+ */
+@RestController
+public class CommandEventController {
+	
+	private final CommandEventHub eventHub;
+	private final CommandTrackingConfig config;
+	
+	public CommandEventController(CommandEventHub eventHub, CommandTrackingConfig config) {
+		this.eventHub = eventHub;
+		this.config = config;
+	}
+	
+	/**
+	 * 例: GET /command/events
+	 */
+	@RequestMapping(value = "command/events", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter subscribe(@RequestHeader(value = "X-User-Id", required = false) String userId) {
+		if (!config.isEnabled()) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "指令往返跟踪未开启");
+		}
+		if (userId == null || userId.isBlank()) {
+			throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "缺少用户信息");
+		}
+		return eventHub.subscribe(userId);
+	}
+	
+}
@@ -0,0 +1,52 @@
+package org.pms.trigger.command;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 指令往返事件, 推送给下发指令的用户
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-08
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommandEventDTO {
+	
+	public static final String COMPLETED = "COMPLETED";
+	public static final String TIMEOUT = "TIMEOUT";
+	
+	/**
+	 * 指令任务ID
+	 */
+	private Long taskId;
+	/**
+	 * 设备ID
+	 */
+	private String deviceId;
+	/**
+	 * 产品ID
+	 */
+	private String productId;
+	/**
+	 * COMPLETED-已响应, TIMEOUT-超时未响应
+	 */
+	private String status;
+	/**
+	 * 指令执行结果状态(已响应时为设备返回的resultCode)
+	 */
+	private String resultCode;
+	/**
+	 * 下发到响应(或超时)的耗时(毫秒)
+	 */
+	private Long latencyMs;
+	/**
+	 * 事件时间
+	 */
+	private Long timestamp;
+	
+}
@@ -0,0 +1,117 @@
+package org.pms.trigger.command;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 指令往返事件推送(SSE)
+ * <p>
+ * 按用户ID保存推送连接, 事件只推送给下发该指令的用户;
+ * 发送在业务线程池中执行, 浏览器网络慢时不阻塞AEP推送线程
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-08
+ */
+@Slf4j
+@Component
+public class CommandEventHub {
+	
+	private static final String EVENT_NAME = "command";
+	
+	private final CommandTrackingConfig config;
+	private final ThreadPoolExecutor executor;
+	private final ConcurrentHashMap<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+	private final LongAdder pushed = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	
+	public CommandEventHub(CommandTrackingConfig config, ThreadPoolExecutor executor) {
+		this.config = config;
+		this.executor = executor;
+	}
+	
+	/**
+	 * 建立推送连接
+	 *
+	 * @param userId 用户ID
+	 */
+	public SseEmitter subscribe(String userId) {
+		SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(config.getSseTimeoutMinutes()));
+		List<SseEmitter> userEmitters = emitters.computeIfAbsent(userId, k -> new CopyOnWriteArrayList<>());
+		userEmitters.add(emitter);
+		Runnable remove = () -> unsubscribe(userId, emitter);
+		emitter.onCompletion(remove);
+		emitter.onTimeout(remove);
+		emitter.onError(e -> remove.run());
+		return emitter;
+	}
+	
+	/**
+	 * 推送事件给下发指令的用户, 用户没有推送连接时直接丢弃
+	 *
+	 * @param userId 用户ID
+	 * @param event  事件
+	 */
+	public void publish(String userId, CommandEventDTO event) {
+		if (userId == null) {
+			return;
+		}
+		List<SseEmitter> userEmitters = emitters.get(userId);
+		if (userEmitters == null || userEmitters.isEmpty()) {
+			return;
+		}
+		try {
+			executor.execute(() -> send(userId, userEmitters, event));
+		} catch (RejectedExecutionException e) {
+			dropped.increment();
+			log.warn("业务线程池已满, 指令事件未推送: taskId={}, status={}", event.getTaskId(), event.getStatus());
+		}
+	}
+	
+	public int connections() {
+		int connections = 0;
+		for (List<SseEmitter> userEmitters : emitters.values()) {
+			connections += userEmitters.size();
+		}
+		return connections;
+	}
+	
+	public long pushed() {
+		return pushed.sum();
+	}
+	
+	public long dropped() {
+		return dropped.sum();
+	}
+	
+	private void send(String userId, List<SseEmitter> userEmitters, CommandEventDTO event) {
+		for (SseEmitter emitter : userEmitters) {
+			try {
+				emitter.send(SseEmitter.event().name(EVENT_NAME).data(event, MediaType.APPLICATION_JSON));
+				pushed.increment();
+			} catch (IOException | IllegalStateException e) {
+				dropped.increment();
+				unsubscribe(userId, emitter);
+				emitter.completeWithError(e);
+			}
+		}
+	}
+	
+	private void unsubscribe(String userId, SseEmitter emitter) {
+		emitters.computeIfPresent(userId, (k, userEmitters) -> {
+			userEmitters.remove(emitter);
+			return userEmitters.isEmpty() ? null : userEmitters;
+		});
+	}
+	
+}
@@ -0,0 +1,102 @@
+package org.pms.trigger.command;
+
+import org.pms.trigger.utils.DeviceKeys;
+
+import java.util.List;
+
+/**
+ * 哈希时间轮
+ * <p>
+ * 设计思路：
+ * - 槽数为2的幂, 条目按到期刻度 & mask 放入槽内的双向链表, 登记与撤销均为O(1)
+ * - 推进时逐个处理经过的槽, 只取出到期刻度不晚于当前刻度的条目, 超过一圈的条目留在槽内等待后续轮次
+ * - 长时间未推进时最多处理一圈(所有槽各一次), 不按经过的刻度数重复扫描
+ * - 非线程安全, 由调用方加锁
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-08
+ */
+class CommandTimingWheel {
+	
+	private final PendingCommand[] heads;
+	private final int mask;
+	private final long tickMs;
+	
+	/**
+	 * 尚未处理的第一个刻度
+	 */
+	private long currentTick;
+	
+	CommandTimingWheel(int wheelSize, long tickMs, long now) {
+		int size = DeviceKeys.ceilPowerOfTwo(Math.max(2, wheelSize));
+		this.heads = new PendingCommand[size];
+		this.mask = size - 1;
+		this.tickMs = Math.max(1, tickMs);
+		this.currentTick = now / this.tickMs;
+	}
+	
+	/**
+	 * 登记条目, 已过期的条目在下次推进时取出
+	 *
+	 * @param command  条目
+	 * @param deadline 到期时间(毫秒)
+	 */
+	void add(PendingCommand command, long deadline) {
+		command.deadlineTick = Math.max(currentTick, deadline / tickMs);
+		int bucket = (int) (command.deadlineTick & mask);
+		command.bucket = bucket;
+		command.prev = null;
+		command.next = heads[bucket];
+		if (heads[bucket] != null) {
+			heads[bucket].prev = command;
+		}
+		heads[bucket] = command;
+	}
+	
+	/**
+	 * 撤销条目, 条目已被取出时不做处理
+	 */
+	void remove(PendingCommand command) {
+		if (command.bucket < 0) {
+			return;
+		}
+		if (command.prev != null) {
+			command.prev.next = command.next;
+		} else {
+			heads[command.bucket] = command.next;
+		}
+		if (command.next != null) {
+			command.next.prev = command.prev;
+		}
+		command.prev = null;
+		command.next = null;
+		command.bucket = -1;
+	}
+	
+	/**
+	 * 推进到当前时间, 取出到期的条目
+	 *
+	 * @param now     当前时间(毫秒)
+	 * @param expired 到期条目的输出列表
+	 */
+	void advance(long now, List<PendingCommand> expired) {
+		long target = now / tickMs;
+		if (target < currentTick) {
+			return;
+		}
+		long steps = Math.min(target - currentTick + 1, heads.length);
+		for (long i = 0; i < steps; i++) {
+			PendingCommand command = heads[(int) ((currentTick + i) & mask)];
+			while (command != null) {
+				PendingCommand next = command.next;
+				if (command.deadlineTick <= target) {
+					remove(command);
+					expired.add(command);
+				}
+				command = next;
+			}
+		}
+		currentTick = target + 1;
+	}
+	
+}
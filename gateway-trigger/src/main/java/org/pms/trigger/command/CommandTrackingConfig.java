@@ -0,0 +1,90 @@
+package org.pms.trigger.command;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 指令往返跟踪配置
+ * 配置说明：
+ * - enabled: 是否开启, 开启后经网关下发的指令按taskId登记到关联表, 指令响应到达或超时时推送给下发用户
+ * - issuePaths: 指令下发接口(POST), 从后端响应的data中取taskId
+ * - taskIdField: 后端响应data中taskId的字段名
+ * - timeoutSeconds: 指令超时时间
+ * - tickMs / wheelSize: 时间轮的刻度与槽数, 超时精度为一个刻度
+ * - maxOutstanding: 关联表容量, 满时不再登记新指令
+ * - reportTimeouts: 超时指令是否以timeoutResultCode作为执行结果批量转发后端
+ * - sseTimeoutMinutes: 推送连接(SSE)的超时时间, 到期后由浏览器重连
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-08
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.command-tracking")
+public class CommandTrackingConfig {
+	
+	/**
+	 * 是否开启
+	 * 默认关闭
+	 */
+	private boolean enabled = false;
+	
+	/**
+	 * 指令下发接口路径(Ant风格)
+	 * 默认/command/**
+	 */
+	private List<String> issuePaths = new ArrayList<>(List.of("/command/**"));
+	
+	/**
+	 * 后端响应data中taskId的字段名
+	 * 默认taskId
+	 */
+	private String taskIdField = "taskId";
+	
+	/**
+	 * 指令超时时间(秒)
+	 * 默认60秒
+	 */
+	private int timeoutSeconds = 60;
+	
+	/**
+	 * 时间轮刻度(毫秒)
+	 * 默认100ms
+	 */
+	private int tickMs = 100;
+	
+	/**
+	 * 时间轮槽数, 需为2的幂
+	 * 默认1024
+	 */
+	private int wheelSize = 1024;
+	
+	/**
+	 * 关联表容量
+	 * 默认10万
+	 */
+	private int maxOutstanding = 100_000;
+	
+	/**
+	 * 是否将超时指令批量转发后端
+	 * 默认开启
+	 */
+	private boolean reportTimeouts = true;
+	
+	/**
+	 * 超时指令的执行结果状态
+	 * 默认TIMEOUT
+	 */
+	private String timeoutResultCode = "TIMEOUT";
+	
+	/**
+	 * 推送连接超时时间(分钟)
+	 * 默认30分钟
+	 */
+	private int sseTimeoutMinutes = 30;
+	
+}
@@ -0,0 +1,91 @@
+package org.pms.trigger.command;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定分桶的耗时直方图
+ * 分桶上界按1-2-5递增, 分位数取所在分桶的上界, 记录只做一次数组下标计算与LongAdder累加
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-08
+ */
+public class LatencyHistogram {
+	
+	/**
+	 * 分桶上界(毫秒), 超过最后一个上界的计入溢出桶
+	 */
+	private static final long[] BOUNDS = {10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 60000, 120000};
+	
+	private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+	
+	public LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+	
+	public void record(long latencyMs) {
+		long value = Math.max(0, latencyMs);
+		int i = 0;
+		while (i < BOUNDS.length && value > BOUNDS[i]) {
+			i++;
+		}
+		buckets[i].increment();
+		count.increment();
+		sum.add(value);
+		max.accumulateAndGet(value, Math::max);
+	}
+	
+	public Snapshot snapshot() {
+		long[] counts = new long[buckets.length];
+		long total = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			counts[i] = buckets[i].sum();
+			total += counts[i];
+		}
+		return Snapshot.builder()
+				.count(total)
+				.avgMs(total == 0 ? 0 : (double) sum.sum() / total)
+				.p50Ms(percentile(counts, total, 0.50))
+				.p95Ms(percentile(counts, total, 0.95))
+				.p99Ms(percentile(counts, total, 0.99))
+				.maxMs(max.get())
+				.build();
+	}
+	
+	private long percentile(long[] counts, long total, double quantile) {
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(total * quantile);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return i < BOUNDS.length ? BOUNDS[i] : max.get();
+			}
+		}
+		return max.get();
+	}
+	
+	@Data
+	@Builder
+	public static class Snapshot {
+		
+		private long count;
+		private double avgMs;
+		private long p50Ms;
+		private long p95Ms;
+		private long p99Ms;
+		private long maxMs;
+		
+	}
+	
+}
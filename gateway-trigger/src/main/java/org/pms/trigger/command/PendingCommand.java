@@ -0,0 +1,36 @@
+package org.pms.trigger.command;
+
+import lombok.Getter;
+
+/**
+ * 待响应的指令(关联表条目), 同时是时间轮槽内双向链表的节点
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-08
+ */
+@Getter
+public class PendingCommand {
+	
+	private final long taskId;
+	private final String deviceId;
+	private final String productId;
+	private final String userId;
+	private final long issuedAt;
+	
+	/**
+	 * 以下字段由时间轮维护, 只在时间轮的锁内访问
+	 */
+	long deadlineTick;
+	int bucket = -1;
+	PendingCommand prev;
+	PendingCommand next;
+	
+	public PendingCommand(long taskId, String deviceId, String productId, String userId, long issuedAt) {
+		this.taskId = taskId;
+		this.deviceId = deviceId;
+		this.productId = productId;
+		this.userId = userId;
+		this.issuedAt = issuedAt;
+	}
+	
+}
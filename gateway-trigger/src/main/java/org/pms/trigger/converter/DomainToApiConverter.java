@@ -1,6 +1,5 @@
 package org.pms.trigger.converter;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.pms.api.dto.command.CommandRespDTO;
@@ -8,6 +7,8 @@ import org.pms.api.dto.devicedata.DeviceDataDTO;
 import org.pms.api.dto.devicedata.MonitorParameterDTO;
 import org.pms.domain.command.dto.BaseCommandRespDataDTO;
 import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.domain.support.FixedPoint;
 import org.springframework.stereotype.Component;
 
 /**
@@ -20,7 +21,10 @@ import org.springframework.stereotype.Component;
  * 设计思路：
  * - Domain层DTO：接收AEP消息，包含AEP特有字段（upPacketSN、upDataSN等）
  * - API层DTO：RPC通信，只包含业务核心字段
- * TODO: 目前仅支持非透传数据类型转化为{@link MonitorParameterDTO}, 若以后扩展出其他数据上报内容, 请更改!
+ * - payload在入队前已按serviceId解码(见PayloadDecoderRegistry), 此处只做字段映射
+ * - pressure/temperature在网关内为定点值, 后端接口仍为文本: 原文透传模式下转发原始文本, 否则按scale格式化
+ * - pipelineId优先使用设备注册表填充的值, 注册表未收录时沿用productId
+ * - 后端目前只有监测数据接口({@link MonitorParameterDTO}), info_report在接入时即确认并丢弃(IngestResult.NOT_FORWARDED), 不会入队
  *
  * @author alcsyooterranf
  * @date 2025-01-23
@@ -40,21 +44,23 @@ public class DomainToApiConverter {
 			return null;
 		}
 		
-		// 转换payload
-		if (!domain.getPayload().isObject()) {
-			log.error("类型转换错误, payload非对象类型: {}", domain.getPayload());
+		// 转换payload(入队前已由AepDataChangeReader解析并校验)
+		MonitorReadingDTO reading = domain.getReading();
+		if (reading == null) {
+			log.error("类型转换错误, 缺少监测数据: deviceId={}, payload={}", domain.getDeviceId(), domain.getPayload());
 			return null;
 		}
-		JsonNode payload = domain.getPayload();
 		MonitorParameterDTO payloadDto = MonitorParameterDTO.builder()
-				.pressure(payload.get("pressure").asText())
-				.temperature(payload.get("temperature").asText())
-				.voltage(payload.get("voltage").asInt())
+				.pressure(reading.getPressureText() != null ? reading.getPressureText()
+						: FixedPoint.format(reading.getPressure(), reading.getPressureScale()))
+				.temperature(reading.getTemperatureText() != null ? reading.getTemperatureText()
+						: FixedPoint.format(reading.getTemperature(), reading.getTemperatureScale()))
+				.voltage(reading.getVoltage())
 				.build();
 		
 		return DeviceDataDTO.builder()
 				.deviceId(domain.getDeviceId())
-				.pipelineId(domain.getProductId())
+				.pipelineId(domain.getPipelineId() != null ? domain.getPipelineId() : domain.getProductId())
 				.serviceId(domain.getServiceId())
 				.timestamp(domain.getTimestamp())
 				.payload(payloadDto)
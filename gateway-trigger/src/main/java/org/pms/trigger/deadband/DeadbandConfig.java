@@ -0,0 +1,90 @@
+package org.pms.trigger.deadband;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 监测值死区过滤配置
+ * 配置说明：
+ * - enabled: 是否开启
+ * - pressure / temperature / voltage: 各字段的死区, 与上次转发值之差不超过max(absolute, relative × |上次转发值|)视为未变化
+ * 两者均为0时只过滤完全相同的值
+ * - maxSilenceSeconds: 心跳间隔, 距上次转发超过该时间的数据即使未变化也转发
+ * - maxDevices: 跟踪的设备数上限, 超过后淘汰最久未上报的设备(被淘汰设备的下一条数据直接转发)
+ * - segments: 分段数(2的幂)
+ * <p>
+ * 内存估算(每台设备): 索引约41字节 + 上次转发值24字节, 100万设备约62MB
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-26
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.deadband")
+public class DeadbandConfig {
+	
+	/**
+	 * 是否开启
+	 * 默认关闭
+	 */
+	private boolean enabled = false;
+	
+	/**
+	 * 压力死区
+	 */
+	private Band pressure = new Band();
+	
+	/**
+	 * 温度死区
+	 */
+	private Band temperature = new Band();
+	
+	/**
+	 * 电压死区
+	 */
+	private Band voltage = new Band();
+	
+	/**
+	 * 心跳间隔(秒)
+	 * 默认300秒
+	 */
+	private int maxSilenceSeconds = 300;
+	
+	/**
+	 * 跟踪的设备数上限
+	 * 默认100万
+	 */
+	private int maxDevices = 1_000_000;
+	
+	/**
+	 * 分段数, 需为2的幂
+	 * 默认64
+	 */
+	private int segments = 64;
+	
+	@Data
+	public static class Band {
+		
+		/**
+		 * 绝对容差
+		 * 默认0
+		 */
+		private double absolute = 0;
+		
+		/**
+		 * 相对容差(相对上次转发值, 如0.01表示1%)
+		 * 默认0
+		 */
+		private double relative = 0;
+		
+		/**
+		 * 值是否落在以last为中心的死区内
+		 */
+		boolean contains(double last, double value) {
+			return Math.abs(value - last) <= Math.max(absolute, relative * Math.abs(last));
+		}
+		
+	}
+	
+}
@@ -0,0 +1,181 @@
+package org.pms.trigger.deadband;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.trigger.utils.DeviceKeys;
+import org.pms.trigger.utils.DeviceSlotIndex;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 监测值死区过滤器
+ * <p>
+ * 管道压力稳定时大部分上报值与上一条只相差传感器噪声, 逐条入队转发只会增加队列和后端写入压力
+ * 设计思路：
+ * - 每台设备保存上次转发的pressure/temperature/voltage与转发时间, 基本类型数组按槽位号寻址
+ * - 接入时所有字段均落在死区内且未超过心跳间隔的数据不入队(仍向AEP确认, 并更新网关本地视图)
+ * - 检查与记录分开: {@link #isWithinBand}只读, 入队成功后再调用{@link #record}, 入队失败不影响下一条的判断
+ * - 未携带监测值的数据(如info_report)不参与过滤
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-26
+ */
+@Slf4j
+@Component
+public class DeadbandFilter {
+	
+	private final DeadbandConfig config;
+	private final LongAdder checks = new LongAdder();
+	private final LongAdder suppressed = new LongAdder();
+	private Segment[] segments;
+	private int segmentMask;
+	
+	public DeadbandFilter(DeadbandConfig config) {
+		this.config = config;
+	}
+	
+	@PostConstruct
+	public void init() {
+		if (!config.isEnabled()) {
+			log.info("监测值死区过滤未开启");
+			return;
+		}
+		int segmentCount = DeviceKeys.ceilPowerOfTwo(config.getSegments());
+		int perSegment = Math.max(1, (config.getMaxDevices() + segmentCount - 1) / segmentCount);
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(perSegment);
+		}
+		segmentMask = segmentCount - 1;
+		log.info("监测值死区过滤初始化完成: maxDevices={}, segments={}, pressure={}, temperature={}, voltage={}, maxSilenceSeconds={}",
+				(long) perSegment * segmentCount, segmentCount, config.getPressure(), config.getTemperature(),
+				config.getVoltage(), config.getMaxSilenceSeconds());
+	}
+	
+	/**
+	 * 判断监测值是否落在死区内(相对上次转发值未发生有意义的变化)
+	 *
+	 * @param data 设备数据
+	 * @return true-可以不转发
+	 */
+	public boolean isWithinBand(BaseDeviceDataDTO data) {
+		MonitorReadingDTO reading = data.getReading();
+		if (segments == null || reading == null || data.getDeviceId() == null) {
+			return false;
+		}
+		checks.increment();
+		long key = DeviceKeys.of(data.getDeviceId());
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		boolean within;
+		segment.lock.lock();
+		try {
+			int now = DeviceSlotIndex.now();
+			int slot = segment.index.get(key, now);
+			within = slot >= 0
+					&& now - segment.sentAt[slot] < config.getMaxSilenceSeconds()
+					&& config.getPressure().contains(segment.pressure[slot], reading.pressureValue())
+					&& config.getTemperature().contains(segment.temperature[slot], reading.temperatureValue())
+					&& config.getVoltage().contains(segment.voltage[slot], reading.getVoltage());
+		} finally {
+			segment.lock.unlock();
+		}
+		if (within) {
+			suppressed.increment();
+		}
+		return within;
+	}
+	
+	/**
+	 * 记录已转发(已入队)的监测值, 作为之后死区判断的基准
+	 *
+	 * @param data 设备数据
+	 */
+	public void record(BaseDeviceDataDTO data) {
+		MonitorReadingDTO reading = data.getReading();
+		if (segments == null || reading == null || data.getDeviceId() == null) {
+			return;
+		}
+		long key = DeviceKeys.of(data.getDeviceId());
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		segment.lock.lock();
+		try {
+			int now = DeviceSlotIndex.now();
+			int slot = segment.index.acquire(key, now);
+			segment.pressure[slot] = reading.pressureValue();
+			segment.temperature[slot] = reading.temperatureValue();
+			segment.voltage[slot] = reading.getVoltage();
+			segment.sentAt[slot] = now;
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 获取死区过滤指标
+	 */
+	public DeadbandMetrics getMetrics() {
+		long checkCount = checks.sum();
+		long suppressedCount = suppressed.sum();
+		return DeadbandMetrics.builder()
+				.enabled(segments != null)
+				.checks(checkCount)
+				.suppressed(suppressedCount)
+				.suppressionRate(checkCount == 0 ? 0 : (double) suppressedCount / checkCount)
+				.build();
+	}
+	
+	/**
+	 * 打印死区过滤状态
+	 */
+	public void logStatus() {
+		DeadbandMetrics metrics = getMetrics();
+		if (!metrics.isEnabled()) {
+			return;
+		}
+		log.info("监测值死区过滤 - 检查: {}, 未转发: {}, 过滤率: {}%",
+				metrics.getChecks(), metrics.getSuppressed(), String.format("%.2f", metrics.getSuppressionRate() * 100));
+	}
+	
+	/**
+	 * 分段: 槽位索引 + 上次转发值
+	 */
+	private static final class Segment {
+		
+		private final ReentrantLock lock = new ReentrantLock();
+		private final DeviceSlotIndex index;
+		private final double[] pressure;
+		private final double[] temperature;
+		private final int[] voltage;
+		/**
+		 * 上次转发时间(DeviceSlotIndex.now()秒)
+		 */
+		private final int[] sentAt;
+		
+		private Segment(int capacity) {
+			this.index = new DeviceSlotIndex(capacity);
+			this.pressure = new double[capacity];
+			this.temperature = new double[capacity];
+			this.voltage = new int[capacity];
+			this.sentAt = new int[capacity];
+		}
+		
+	}
+	
+	@Data
+	@Builder
+	public static class DeadbandMetrics {
+		
+		private boolean enabled;
+		private long checks;
+		private long suppressed;
+		private double suppressionRate;
+		
+	}
+	
+}
@@ -0,0 +1,50 @@
+package org.pms.trigger.dedup;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * AEP重复消息去重配置
+ * 配置说明：
+ * - enabled: 是否开启去重, 未开启时不分配窗口, 所有消息视为非重复
+ * - windowSize: 每台设备记住的最近序号个数, AEP超时重推通常紧跟原消息, 4个足够
+ * - maxDevices: 同时跟踪的设备数上限, 超过后淘汰最久未上报的设备
+ * - segments: 分段数(2的幂), 分段加锁以降低并发冲突
+ * <p>
+ * 内存估算(每台设备): 索引约41字节(哈希表负载因子≤0.5) + 窗口8×windowSize字节 + 游标1字节
+ * windowSize=4时约74字节, 100万设备约71MB, 开启后启动时一次性分配; maxDevices应按实际设备数配置
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-19
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.dedup")
+public class DedupConfig {
+	
+	/**
+	 * 是否开启去重
+	 * 默认关闭
+	 */
+	private boolean enabled = false;
+	
+	/**
+	 * 每台设备的序号窗口大小
+	 * 默认4, 上限64
+	 */
+	private int windowSize = 4;
+	
+	/**
+	 * 跟踪的设备数上限
+	 * 默认100万
+	 */
+	private int maxDevices = 1_000_000;
+	
+	/**
+	 * 分段数, 需为2的幂
+	 * 默认64
+	 */
+	private int segments = 64;
+	
+}
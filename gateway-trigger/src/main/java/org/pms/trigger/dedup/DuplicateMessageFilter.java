@@ -0,0 +1,260 @@
+package org.pms.trigger.dedup;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.trigger.utils.DeviceKeys;
+import org.pms.trigger.utils.DeviceSlotIndex;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AEP重复消息过滤器
+ * <p>
+ * AEP推送超时会重推同一条消息, 重推消息的upPacketSN/upDataSN与原消息相同
+ * 设计思路：
+ * - 每台设备保存最近windowSize个序号(upPacketSN << 32 | upDataSN), 环形覆盖
+ * - 设备状态存放在按槽位号寻址的long[]/byte[]中, 不为每台设备创建对象
+ * - 按设备键高位分段, 每段一把锁, 段内容量满时淘汰最久未上报的设备
+ * - 未携带序号的消息不参与去重
+ * <p>
+ * 入队失败时需调用{@link #forget}撤销记录, 否则AEP重推的消息会被误判为重复而丢失
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-19
+ */
+@Slf4j
+@Component
+public class DuplicateMessageFilter {
+	
+	/**
+	 * 窗口空位标记, 也表示消息未携带序号
+	 */
+	public static final long EMPTY_SEQ = Long.MIN_VALUE;
+	
+	/**
+	 * 窗口大小上限(游标以byte存储)
+	 */
+	private static final int MAX_WINDOW_SIZE = 64;
+	
+	private final DedupConfig config;
+	private final LongAdder checks = new LongAdder();
+	private final LongAdder duplicates = new LongAdder();
+	private Segment[] segments;
+	private int segmentMask;
+	
+	public DuplicateMessageFilter(DedupConfig config) {
+		this.config = config;
+	}
+	
+	@PostConstruct
+	public void init() {
+		if (!config.isEnabled()) {
+			log.info("AEP重复消息去重未开启");
+			return;
+		}
+		int segmentCount = DeviceKeys.ceilPowerOfTwo(config.getSegments());
+		int perSegment = Math.max(1, (config.getMaxDevices() + segmentCount - 1) / segmentCount);
+		int windowSize = Math.min(Math.max(config.getWindowSize(), 1), MAX_WINDOW_SIZE);
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(perSegment, windowSize);
+		}
+		segmentMask = segmentCount - 1;
+		log.info("AEP重复消息去重初始化完成: maxDevices={}, windowSize={}, segments={}, 每设备约{}字节",
+				(long) perSegment * segmentCount, windowSize, segmentCount, bytesPerDevice());
+	}
+	
+	/**
+	 * 判断消息是否为重复消息, 非重复时记录其序号
+	 *
+	 * @param data 设备数据
+	 * @return 是否重复
+	 */
+	public boolean isDuplicate(BaseDeviceDataDTO data) {
+		long seq = sequenceOf(data);
+		if (segments == null || seq == EMPTY_SEQ || data.getDeviceId() == null) {
+			return false;
+		}
+		checks.increment();
+		long key = DeviceKeys.of(data.getDeviceId());
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		boolean duplicate;
+		segment.lock.lock();
+		try {
+			duplicate = segment.checkAndRecord(key, seq);
+		} finally {
+			segment.lock.unlock();
+		}
+		if (duplicate) {
+			duplicates.increment();
+			log.debug("丢弃AEP重复消息: deviceId={}, upPacketSN={}, upDataSN={}",
+					data.getDeviceId(), data.getUpPacketSN(), data.getUpDataSN());
+		}
+		return duplicate;
+	}
+	
+	/**
+	 * 撤销消息序号的记录(消息最终未被接收时调用)
+	 *
+	 * @param data 设备数据
+	 */
+	public void forget(BaseDeviceDataDTO data) {
+		long seq = sequenceOf(data);
+		if (segments == null || seq == EMPTY_SEQ || data.getDeviceId() == null) {
+			return;
+		}
+		long key = DeviceKeys.of(data.getDeviceId());
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		segment.lock.lock();
+		try {
+			segment.forget(key, seq);
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 获取去重指标
+	 */
+	public DedupMetrics getMetrics() {
+		long checkCount = checks.sum();
+		long duplicateCount = duplicates.sum();
+		int trackedDevices = 0;
+		long evictions = 0;
+		if (segments != null) {
+			for (Segment segment : segments) {
+				segment.lock.lock();
+				try {
+					trackedDevices += segment.index.size();
+					evictions += segment.index.evictions();
+				} finally {
+					segment.lock.unlock();
+				}
+			}
+		}
+		return DedupMetrics.builder()
+				.enabled(segments != null)
+				.checks(checkCount)
+				.duplicates(duplicateCount)
+				.hitRate(checkCount == 0 ? 0 : (double) duplicateCount / checkCount)
+				.trackedDevices(trackedDevices)
+				.evictions(evictions)
+				.bytesPerDevice(bytesPerDevice())
+				.build();
+	}
+	
+	/**
+	 * 打印去重状态
+	 */
+	public void logStatus() {
+		DedupMetrics metrics = getMetrics();
+		if (!metrics.isEnabled()) {
+			return;
+		}
+		log.info("消息去重状态 - 检查: {}, 重复: {}, 命中率: {}%, 跟踪设备: {}, 淘汰: {}, 每设备: {}字节",
+				metrics.getChecks(), metrics.getDuplicates(), String.format("%.2f", metrics.getHitRate() * 100),
+				metrics.getTrackedDevices(), metrics.getEvictions(), metrics.getBytesPerDevice());
+	}
+	
+	private long bytesPerDevice() {
+		if (segments == null) {
+			return 0;
+		}
+		Segment segment = segments[0];
+		return segment.index.bytesPerSlot() + (long) Long.BYTES * segment.windowSize + 1;
+	}
+	
+	/**
+	 * 序号: upPacketSN占高32位, upDataSN占低32位, 均为空时返回EMPTY_SEQ
+	 */
+	public static long sequenceOf(BaseDeviceDataDTO data) {
+		Integer packetSN = data.getUpPacketSN();
+		Integer dataSN = data.getUpDataSN();
+		if (packetSN == null && dataSN == null) {
+			return EMPTY_SEQ;
+		}
+		long high = packetSN == null ? -1 : packetSN;
+		long low = dataSN == null ? 0xFFFFFFFFL : dataSN & 0xFFFFFFFFL;
+		return (high << 32) | low;
+	}
+	
+	/**
+	 * 分段: 槽位索引 + 序号窗口
+	 */
+	private static final class Segment {
+		
+		private final ReentrantLock lock = new ReentrantLock();
+		private final DeviceSlotIndex index;
+		private final int windowSize;
+		/**
+		 * 槽位slot的窗口为window[slot * windowSize, (slot + 1) * windowSize)
+		 */
+		private final long[] window;
+		/**
+		 * 槽位的下一个写入位置
+		 */
+		private final byte[] cursor;
+		
+		private Segment(int capacity, int windowSize) {
+			this.index = new DeviceSlotIndex(capacity);
+			this.windowSize = windowSize;
+			this.window = new long[capacity * windowSize];
+			this.cursor = new byte[capacity];
+		}
+		
+		private boolean checkAndRecord(long key, long seq) {
+			int slot = index.acquire(key, DeviceSlotIndex.now());
+			int base = slot * windowSize;
+			if (index.created()) {
+				for (int i = 0; i < windowSize; i++) {
+					window[base + i] = EMPTY_SEQ;
+				}
+				cursor[slot] = 0;
+			} else {
+				for (int i = 0; i < windowSize; i++) {
+					if (window[base + i] == seq) {
+						return true;
+					}
+				}
+			}
+			int next = cursor[slot];
+			window[base + next] = seq;
+			cursor[slot] = (byte) ((next + 1) % windowSize);
+			return false;
+		}
+		
+		private void forget(long key, long seq) {
+			int slot = index.find(key);
+			if (slot < 0) {
+				return;
+			}
+			int base = slot * windowSize;
+			for (int i = 0; i < windowSize; i++) {
+				if (window[base + i] == seq) {
+					window[base + i] = EMPTY_SEQ;
+				}
+			}
+		}
+		
+	}
+	
+	@Data
+	@Builder
+	public static class DedupMetrics {
+		
+		private boolean enabled;
+		private long checks;
+		private long duplicates;
+		private double hitRate;
+		private int trackedDevices;
+		private long evictions;
+		private long bytesPerDevice;
+		
+	}
+	
+}
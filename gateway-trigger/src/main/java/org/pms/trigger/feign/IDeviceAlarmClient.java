@@ -0,0 +1,35 @@
+package org.pms.trigger.feign;
+
+import org.pms.domain.alarm.dto.DeviceAlarmDTO;
+import org.pms.types.Response;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+
+/**
+ * 后端设备告警服务Feign客户端, 用于网关转发越限告警
+ * <p>
+ * 共享API中暂无告警的Facade与DTO, 请求体直接使用Domain层的{@link DeviceAlarmDTO}
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-27
+ */
+@FeignClient(
+		name = "business-device-alarm-service",
+		url = "${rpc.business.url}",
+		configuration = FeignConfig.class
+)
+public interface IDeviceAlarmClient {
+	
+	/**
+	 * 批量保存设备告警
+	 *
+	 * @param alarmList 告警列表
+	 * @return 响应结果
+	 */
+	@PostMapping("/api/device/alarm/batch-save")
+	Response<Boolean> batchHandleDeviceAlarm(@RequestBody List<DeviceAlarmDTO> alarmList);
+	
+}
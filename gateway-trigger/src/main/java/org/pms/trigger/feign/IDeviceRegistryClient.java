@@ -0,0 +1,40 @@
+package org.pms.trigger.feign;
+
+import org.pms.domain.registry.dto.DeviceRegistryEntryDTO;
+import org.pms.types.Response;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+
+/**
+ * 后端设备台账Feign客户端, 用于网关同步设备注册表
+ * <p>
+ * 共享API中暂无设备台账的Facade与DTO, 响应体直接使用Domain层的{@link DeviceRegistryEntryDTO}
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-01
+ */
+@FeignClient(
+		name = "business-device-registry-service",
+		url = "${rpc.business.url}",
+		configuration = FeignConfig.class
+)
+public interface IDeviceRegistryClient {
+	
+	/**
+	 * 按(updateTime, deviceId)升序分页查询变更过的设备(含已删除设备)
+	 * 返回 updateTime > since, 或 updateTime = since 且 deviceId > afterDeviceId 的设备
+	 *
+	 * @param since         上一页最后一条的updateTime, 全量加载时为0
+	 * @param afterDeviceId 上一页最后一条的deviceId, 全量加载时为空串
+	 * @param limit         每页条数
+	 * @return 设备注册信息
+	 */
+	@GetMapping("/api/device/registry/changes")
+	Response<List<DeviceRegistryEntryDTO>> listChanges(@RequestParam("since") long since,
+													   @RequestParam("afterDeviceId") String afterDeviceId,
+													   @RequestParam("limit") int limit);
+	
+}
@@ -0,0 +1,35 @@
+package org.pms.trigger.feign;
+
+import org.pms.domain.devicedata.dto.DeviceRollupDTO;
+import org.pms.types.Response;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+
+/**
+ * 后端设备数据汇总服务Feign客户端, 用于网关批量转发窗口汇总值
+ * <p>
+ * 共享API中暂无汇总数据的Facade与DTO, 请求体直接使用Domain层的{@link DeviceRollupDTO}
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-25
+ */
+@FeignClient(
+		name = "business-device-rollup-service",
+		url = "${rpc.business.url}",
+		configuration = FeignConfig.class
+)
+public interface IDeviceRollupClient {
+	
+	/**
+	 * 批量保存设备数据窗口汇总
+	 *
+	 * @param rollupList 窗口汇总列表
+	 * @return 响应结果
+	 */
+	@PostMapping("/api/device/data/rollup/batch-save")
+	Response<Boolean> batchHandleDeviceRollup(@RequestBody List<DeviceRollupDTO> rollupList);
+	
+}
@@ -0,0 +1,35 @@
+package org.pms.trigger.feign;
+
+import org.pms.domain.devicestatus.dto.DeviceStatusChangeDTO;
+import org.pms.types.Response;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+
+/**
+ * 后端设备状态服务Feign客户端, 用于网关批量转发设备上下线状态变更
+ * <p>
+ * 共享API中暂无设备状态的Facade与DTO, 请求体直接使用Domain层的{@link DeviceStatusChangeDTO}
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-22
+ */
+@FeignClient(
+		name = "business-device-status-service",
+		url = "${rpc.business.url}",
+		configuration = FeignConfig.class
+)
+public interface IDeviceStatusClient {
+	
+	/**
+	 * 批量保存设备状态变更
+	 *
+	 * @param changeList 设备状态变更列表
+	 * @return 响应结果
+	 */
+	@PostMapping("/api/device/status/batch-save")
+	Response<Boolean> batchHandleDeviceStatus(@RequestBody List<DeviceStatusChangeDTO> changeList);
+	
+}
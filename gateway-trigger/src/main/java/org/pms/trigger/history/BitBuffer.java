@@ -0,0 +1,72 @@
+package org.pms.trigger.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 按位读写ByteBuffer(高位在前), 以64位字为单位访问, 堆内/堆外/内存映射缓冲区通用
+ * 写入前目标位必须为0(块复用时先清零)
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-24
+ */
+final class BitBuffer {
+	
+	private BitBuffer() {
+	}
+	
+	/**
+	 * 写入value的低n位
+	 *
+	 * @param buffer 缓冲区
+	 * @param base   块起始字节偏移
+	 * @param bitPos 块内位偏移
+	 * @param value  值
+	 * @param n      位数(1~64)
+	 */
+	static void write(ByteBuffer buffer, int base, int bitPos, long value, int n) {
+		value &= mask(n);
+		int index = base + ((bitPos >>> 6) << 3);
+		int free = 64 - (bitPos & 63);
+		long word = buffer.getLong(index);
+		if (n <= free) {
+			buffer.putLong(index, word | (value << (free - n)));
+		} else {
+			int rest = n - free;
+			buffer.putLong(index, word | (value >>> rest));
+			buffer.putLong(index + 8, value << (64 - rest));
+		}
+	}
+	
+	/**
+	 * 读取n位
+	 *
+	 * @param buffer 缓冲区
+	 * @param base   块起始字节偏移
+	 * @param bitPos 块内位偏移
+	 * @param n      位数(1~64)
+	 * @return 读取的值(无符号, 位于低n位)
+	 */
+	static long read(ByteBuffer buffer, int base, int bitPos, int n) {
+		int index = base + ((bitPos >>> 6) << 3);
+		int free = 64 - (bitPos & 63);
+		long word = buffer.getLong(index);
+		if (n <= free) {
+			return (word >>> (free - n)) & mask(n);
+		}
+		int rest = n - free;
+		long high = word & mask(free);
+		long low = buffer.getLong(index + 8) >>> (64 - rest);
+		return (high << rest) | low;
+	}
+	
+	static void clear(ByteBuffer buffer, int base, int bytes) {
+		for (int i = 0; i < bytes; i += 8) {
+			buffer.putLong(base + i, 0L);
+		}
+	}
+	
+	private static long mask(int n) {
+		return n == 64 ? -1L : (1L << n) - 1;
+	}
+	
+}
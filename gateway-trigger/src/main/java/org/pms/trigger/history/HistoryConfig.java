@@ -0,0 +1,81 @@
+package org.pms.trigger.history;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 设备历史监测值(边缘时序存储)配置
+ * 配置说明：
+ * - enabled: 是否开启, 未开启时不分配存储, 历史查询接口返回404; 存储不区分租户, 查询接口只开放给admin
+ * - storage: 存储介质, HEAP-堆内, DIRECT-堆外, MAPPED-内存映射文件(mappedFile)
+ * - maxDevices: 保存历史的设备数上限, 超过后淘汰最久未上报的设备
+ * - blocksPerDevice: 每台设备的压缩块个数(环形覆盖最旧的块)
+ * - blockBytes: 压缩块大小(8的倍数)
+ * - segments: 分段数(2的幂)
+ * <p>
+ * 总内存固定为 maxDevices × blocksPerDevice × blockBytes, 另有每块24字节、每设备约90字节的堆内元数据
+ * 默认1万设备 × 8块 × 512字节 = 40MB; 30秒上报一次时每块约容纳100条, 每台设备约保留6~7小时, 开启后才分配
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-24
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.history")
+public class HistoryConfig {
+	
+	/**
+	 * 是否开启
+	 * 默认关闭
+	 */
+	private boolean enabled = false;
+	
+	/**
+	 * 存储介质
+	 * 默认HEAP
+	 */
+	private Storage storage = Storage.HEAP;
+	
+	/**
+	 * 内存映射文件路径, storage=MAPPED时使用
+	 */
+	private String mappedFile = "./data/device-history.bin";
+	
+	/**
+	 * 保存历史的设备数上限, 按哈希分段分配, 需比实际设备数留出约20%余量
+	 * 默认1万
+	 */
+	private int maxDevices = 10_000;
+	
+	/**
+	 * 每台设备的压缩块个数
+	 * 默认8
+	 */
+	private int blocksPerDevice = 8;
+	
+	/**
+	 * 压缩块大小(字节), 需为8的倍数
+	 * 默认512
+	 */
+	private int blockBytes = 512;
+	
+	/**
+	 * 分段数, 需为2的幂
+	 * 默认16
+	 */
+	private int segments = 16;
+	
+	/**
+	 * 单次查询最多返回的点数
+	 * 默认5000
+	 */
+	private int maxQueryPoints = 5000;
+	
+	public enum Storage {
+		HEAP,
+		DIRECT,
+		MAPPED
+	}
+	
+}
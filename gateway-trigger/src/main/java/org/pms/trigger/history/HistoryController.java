@@ -0,0 +1,51 @@
+package org.pms.trigger.history;
+
+import org.pms.types.GatewayCode;
+import org.pms.types.Response;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 设备历史监测值查询接口
+ * 由网关边缘存储响应近期历史, 更早的数据仍需查询后端
+ * 存储不区分租户, 不能像后端查询那样按用户所属租户过滤, 因此只开放给admin(见MyAccessAuthorizationManager)
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-24
+ */
+@RestController
+public class HistoryController {
+	
+	private final HistoryStore historyStore;
+	
+	public HistoryController(HistoryStore historyStore) {
+		this.historyStore = historyStore;
+	}
+	
+	/**
+	 * 查询设备在[from, to]内的历史监测值(毫秒时间戳)
+	 * 例: GET /device_data/history?deviceId=a&from=1700000000000&to=1700003600000
+	 */
+	@RequestMapping(value = "device_data/history", method = RequestMethod.GET)
+	public Response<HistorySeriesDTO> queryHistory(@RequestParam("deviceId") String deviceId,
+												   @RequestParam("from") long from,
+												   @RequestParam(value = "to", required = false) Long to) {
+		long end = to != null ? to : System.currentTimeMillis();
+		if (from > end) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from不能晚于to");
+		}
+		if (!historyStore.isEnabled()) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "设备历史监测值存储未开启");
+		}
+		return Response.<HistorySeriesDTO>builder()
+				.code(GatewayCode.SUCCESS.getCode())
+				.message(GatewayCode.SUCCESS.getMessage())
+				.data(historyStore.query(deviceId, from, end))
+				.build();
+	}
+	
+}
@@ -0,0 +1,43 @@
+package org.pms.trigger.history;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 设备历史监测值(列式, 各数组按下标一一对应, 时间升序)
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-24
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistorySeriesDTO {
+	
+	/**
+	 * 设备ID
+	 */
+	private String deviceId;
+	/**
+	 * 上报时间戳
+	 */
+	private long[] timestamps;
+	/**
+	 * 压力
+	 */
+	private double[] pressure;
+	/**
+	 * 温度
+	 */
+	private double[] temperature;
+	/**
+	 * 电压
+	 */
+	private int[] voltage;
+	/**
+	 * 是否因达到点数上限被截断
+	 */
+	private boolean truncated;
+	
+}
@@ -0,0 +1,513 @@
+package org.pms.trigger.history;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.trigger.utils.DeviceKeys;
+import org.pms.trigger.utils.DeviceSlotIndex;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 设备历史监测值存储(边缘时序存储)
+ * <p>
+ * 设计思路：
+ * - 每台设备固定blocksPerDevice个压缩块, 环形使用, 写满后覆盖最旧的块, 总内存启动时一次性分配
+ * - 块内编码参照Gorilla: 时间戳delta-of-delta, pressure/temperature按double的XOR编码, voltage不变时只占1位
+ * - 块的时间范围与点数记录在堆内元数据中, 范围查询只解压与查询区间相交的块
+ * - 存储介质可选堆内、堆外或内存映射文件; 内存映射只用于把数据放到页缓存, 元数据在堆内, 重启后不恢复
+ * - 时间戳早于该设备上一条的数据(乱序)不写入
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-24
+ */
+@Slf4j
+@Component
+public class HistoryStore {
+	
+	/**
+	 * 块首条数据: 时间戳64位 + pressure 64位 + temperature 64位 + voltage 32位
+	 */
+	private static final int HEADER_BITS = 64 + 64 + 64 + 32;
+	
+	/**
+	 * 追加一条数据最多占用的位数: delta-of-delta(4+64) + 2×XOR(2+5+6+64) + voltage(1+32)
+	 */
+	private static final int MAX_SAMPLE_BITS = 68 + 2 * 77 + 33;
+	
+	private final HistoryConfig config;
+	private final LongAdder appended = new LongAdder();
+	private final LongAdder outOfOrder = new LongAdder();
+	private Segment[] segments;
+	private int segmentMask;
+	
+	public HistoryStore(HistoryConfig config) {
+		this.config = config;
+	}
+	
+	@PostConstruct
+	public void init() {
+		if (!config.isEnabled()) {
+			log.info("设备历史监测值存储未开启");
+			return;
+		}
+		if (config.getBlockBytes() % Long.BYTES != 0 || config.getBlockBytes() * 8 < HEADER_BITS + MAX_SAMPLE_BITS) {
+			throw new IllegalStateException("device.history.block-bytes需为8的倍数且不小于" + (HEADER_BITS + MAX_SAMPLE_BITS + 7) / 8 * 8);
+		}
+		int segmentCount = DeviceKeys.ceilPowerOfTwo(config.getSegments());
+		int perSegment = Math.max(1, (config.getMaxDevices() + segmentCount - 1) / segmentCount);
+		long segmentBytes = (long) perSegment * config.getBlocksPerDevice() * config.getBlockBytes();
+		if (segmentBytes > Integer.MAX_VALUE) {
+			throw new IllegalStateException("单个分段超过2GB, 请增大device.history.segments: " + segmentBytes);
+		}
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(perSegment, config.getBlocksPerDevice(), config.getBlockBytes(),
+					allocate(i, (int) segmentBytes));
+		}
+		segmentMask = segmentCount - 1;
+		log.info("设备历史监测值存储初始化完成: storage={}, maxDevices={}, blocksPerDevice={}, blockBytes={}, 总大小={}MB",
+				config.getStorage(), (long) perSegment * segmentCount, config.getBlocksPerDevice(),
+				config.getBlockBytes(), segmentBytes * segmentCount / 1024 / 1024);
+	}
+	
+	public boolean isEnabled() {
+		return segments != null;
+	}
+	
+	/**
+	 * 追加一条监测值
+	 *
+	 * @param deviceId  设备ID
+	 * @param reading   监测值
+	 * @param timestamp 上报时间戳
+	 */
+	public void append(String deviceId, MonitorReadingDTO reading, long timestamp) {
+		if (segments == null) {
+			return;
+		}
+		long key = DeviceKeys.of(deviceId);
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		boolean written;
+		long stamp = segment.lock.writeLock();
+		try {
+			written = segment.append(key, timestamp, Double.doubleToRawLongBits(reading.pressureValue()),
+					Double.doubleToRawLongBits(reading.temperatureValue()), reading.getVoltage());
+		} finally {
+			segment.lock.unlockWrite(stamp);
+		}
+		if (written) {
+			appended.increment();
+		} else {
+			outOfOrder.increment();
+		}
+	}
+	
+	/**
+	 * 查询设备在[from, to]内的历史监测值
+	 *
+	 * @param deviceId 设备ID
+	 * @param from     起始时间戳(含)
+	 * @param to       结束时间戳(含)
+	 * @return 历史监测值, 超过maxQueryPoints时只返回最早的maxQueryPoints条并标记truncated
+	 */
+	public HistorySeriesDTO query(String deviceId, long from, long to) {
+		Series series = new Series(config.getMaxQueryPoints());
+		if (segments != null) {
+			long key = DeviceKeys.of(deviceId);
+			Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+			long stamp = segment.lock.readLock();
+			try {
+				segment.query(key, from, to, series);
+			} finally {
+				segment.lock.unlockRead(stamp);
+			}
+		}
+		return series.toDTO(deviceId);
+	}
+	
+	/**
+	 * 打印存储状态
+	 */
+	public void logStatus() {
+		if (segments == null) {
+			return;
+		}
+		int devices = 0;
+		for (Segment segment : segments) {
+			long stamp = segment.lock.readLock();
+			try {
+				devices += segment.index.size();
+			} finally {
+				segment.lock.unlockRead(stamp);
+			}
+		}
+		log.info("设备历史监测值 - 设备数: {}, 写入: {}, 乱序丢弃: {}", devices, appended.sum(), outOfOrder.sum());
+	}
+	
+	private ByteBuffer allocate(int segmentNo, int bytes) {
+		switch (config.getStorage()) {
+			case DIRECT:
+				return ByteBuffer.allocateDirect(bytes);
+			case MAPPED:
+				try {
+					Path path = Path.of(config.getMappedFile());
+					if (path.getParent() != null) {
+						Files.createDirectories(path.getParent());
+					}
+					try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+							StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+						// 映射建立后与channel的关闭无关
+						return channel.map(FileChannel.MapMode.READ_WRITE, (long) segmentNo * bytes, bytes);
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException("创建设备历史内存映射文件失败: " + config.getMappedFile(), e);
+				}
+			default:
+				return ByteBuffer.allocate(bytes);
+		}
+	}
+	
+	/**
+	 * 分段: 槽位索引 + 压缩块 + 元数据
+	 * 设备槽位slot的第i个块的全局块号为 slot × blocksPerDevice + i
+	 */
+	private static final class Segment {
+		
+		private final StampedLock lock = new StampedLock();
+		private final DeviceSlotIndex index;
+		private final int blocksPerDevice;
+		private final int blockBytes;
+		private final int blockBits;
+		private final ByteBuffer arena;
+		
+		// ========== 块元数据, 按全局块号寻址 ==========
+		private final long[] blockMinTs;
+		private final long[] blockMaxTs;
+		private final int[] blockCount;
+		private final int[] blockBitLength;
+		
+		// ========== 设备写入状态, 按槽位寻址 ==========
+		/**
+		 * 当前写入块在环中的位置, 已使用块数
+		 */
+		private final int[] head;
+		private final int[] used;
+		private final long[] prevTs;
+		private final long[] prevDelta;
+		private final long[] prevPressure;
+		private final byte[] pressureLead;
+		private final byte[] pressureTrail;
+		private final long[] prevTemperature;
+		private final byte[] temperatureLead;
+		private final byte[] temperatureTrail;
+		private final int[] prevVoltage;
+		
+		private Segment(int capacity, int blocksPerDevice, int blockBytes, ByteBuffer arena) {
+			this.index = new DeviceSlotIndex(capacity);
+			this.blocksPerDevice = blocksPerDevice;
+			this.blockBytes = blockBytes;
+			this.blockBits = blockBytes * 8;
+			this.arena = arena;
+			int blocks = capacity * blocksPerDevice;
+			this.blockMinTs = new long[blocks];
+			this.blockMaxTs = new long[blocks];
+			this.blockCount = new int[blocks];
+			this.blockBitLength = new int[blocks];
+			this.head = new int[capacity];
+			this.used = new int[capacity];
+			this.prevTs = new long[capacity];
+			this.prevDelta = new long[capacity];
+			this.prevPressure = new long[capacity];
+			this.pressureLead = new byte[capacity];
+			this.pressureTrail = new byte[capacity];
+			this.prevTemperature = new long[capacity];
+			this.temperatureLead = new byte[capacity];
+			this.temperatureTrail = new byte[capacity];
+			this.prevVoltage = new int[capacity];
+		}
+		
+		private boolean append(long key, long ts, long pressure, long temperature, int voltage) {
+			int slot = index.acquire(key, DeviceSlotIndex.now());
+			if (index.created()) {
+				used[slot] = 0;
+				head[slot] = -1;
+			}
+			if (used[slot] > 0 && ts < prevTs[slot]) {
+				return false;
+			}
+			int block = slot * blocksPerDevice + Math.max(head[slot], 0);
+			if (used[slot] == 0 || blockBitLength[block] + MAX_SAMPLE_BITS > blockBits) {
+				startBlock(slot, ts, pressure, temperature, voltage);
+				return true;
+			}
+			
+			int base = block * blockBytes;
+			int pos = blockBitLength[block];
+			long delta = ts - prevTs[slot];
+			pos = writeDeltaOfDelta(base, pos, delta - prevDelta[slot]);
+			pos = writeXor(base, pos, prevPressure[slot] ^ pressure, pressureLead, pressureTrail, slot);
+			pos = writeXor(base, pos, prevTemperature[slot] ^ temperature, temperatureLead, temperatureTrail, slot);
+			if (voltage == prevVoltage[slot]) {
+				pos++;
+			} else {
+				BitBuffer.write(arena, base, pos, 1, 1);
+				BitBuffer.write(arena, base, pos + 1, voltage, 32);
+				pos += 33;
+			}
+			
+			blockBitLength[block] = pos;
+			blockMaxTs[block] = ts;
+			blockCount[block]++;
+			prevTs[slot] = ts;
+			prevDelta[slot] = delta;
+			prevPressure[slot] = pressure;
+			prevTemperature[slot] = temperature;
+			prevVoltage[slot] = voltage;
+			return true;
+		}
+		
+		/**
+		 * 环形前进到下一个块(覆盖最旧的块), 写入块首条数据
+		 */
+		private void startBlock(int slot, long ts, long pressure, long temperature, int voltage) {
+			head[slot] = (head[slot] + 1) % blocksPerDevice;
+			if (used[slot] < blocksPerDevice) {
+				used[slot]++;
+			}
+			int block = slot * blocksPerDevice + head[slot];
+			int base = block * blockBytes;
+			BitBuffer.clear(arena, base, blockBytes);
+			BitBuffer.write(arena, base, 0, ts, 64);
+			BitBuffer.write(arena, base, 64, pressure, 64);
+			BitBuffer.write(arena, base, 128, temperature, 64);
+			BitBuffer.write(arena, base, 192, voltage, 32);
+			blockBitLength[block] = HEADER_BITS;
+			blockMinTs[block] = ts;
+			blockMaxTs[block] = ts;
+			blockCount[block] = 1;
+			prevTs[slot] = ts;
+			prevDelta[slot] = 0;
+			prevPressure[slot] = pressure;
+			pressureLead[slot] = -1;
+			pressureTrail[slot] = -1;
+			prevTemperature[slot] = temperature;
+			temperatureLead[slot] = -1;
+			temperatureTrail[slot] = -1;
+			prevVoltage[slot] = voltage;
+		}
+		
+		/**
+		 * delta-of-delta: 0 → '0'; [-64,63] → '10'+7位; [-256,255] → '110'+9位; [-2048,2047] → '1110'+12位(n位补码); 其他 → '1111'+64位
+		 */
+		private int writeDeltaOfDelta(int base, int pos, long dod) {
+			if (dod == 0) {
+				return pos + 1;
+			}
+			if (dod >= -64 && dod <= 63) {
+				BitBuffer.write(arena, base, pos, 0b10, 2);
+				BitBuffer.write(arena, base, pos + 2, dod, 7);
+				return pos + 9;
+			}
+			if (dod >= -256 && dod <= 255) {
+				BitBuffer.write(arena, base, pos, 0b110, 3);
+				BitBuffer.write(arena, base, pos + 3, dod, 9);
+				return pos + 12;
+			}
+			if (dod >= -2048 && dod <= 2047) {
+				BitBuffer.write(arena, base, pos, 0b1110, 4);
+				BitBuffer.write(arena, base, pos + 4, dod, 12);
+				return pos + 16;
+			}
+			BitBuffer.write(arena, base, pos, 0b1111, 4);
+			BitBuffer.write(arena, base, pos + 4, dod, 64);
+			return pos + 68;
+		}
+		
+		/**
+		 * XOR: 相同 → '0'; 有效位落在上一个窗口内 → '10'+有效位; 否则 → '11'+5位前导零+6位有效位长度+有效位
+		 */
+		private int writeXor(int base, int pos, long xor, byte[] lead, byte[] trail, int slot) {
+			if (xor == 0) {
+				return pos + 1;
+			}
+			int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+			int trailing = Long.numberOfTrailingZeros(xor);
+			int prevLead = lead[slot];
+			int prevTrail = trail[slot];
+			if (prevLead >= 0 && leading >= prevLead && trailing >= prevTrail) {
+				int length = 64 - prevLead - prevTrail;
+				BitBuffer.write(arena, base, pos, 0b10, 2);
+				BitBuffer.write(arena, base, pos + 2, xor >>> prevTrail, length);
+				return pos + 2 + length;
+			}
+			int length = 64 - leading - trailing;
+			BitBuffer.write(arena, base, pos, 0b11, 2);
+			BitBuffer.write(arena, base, pos + 2, leading, 5);
+			BitBuffer.write(arena, base, pos + 7, length & 63, 6);
+			BitBuffer.write(arena, base, pos + 13, xor >>> trailing, length);
+			lead[slot] = (byte) leading;
+			trail[slot] = (byte) trailing;
+			return pos + 13 + length;
+		}
+		
+		private void query(long key, long from, long to, Series series) {
+			int slot = index.find(key);
+			if (slot < 0 || used[slot] == 0) {
+				return;
+			}
+			int oldest = (head[slot] - used[slot] + 1 + blocksPerDevice) % blocksPerDevice;
+			for (int i = 0; i < used[slot] && !series.full(); i++) {
+				int block = slot * blocksPerDevice + (oldest + i) % blocksPerDevice;
+				if (blockMaxTs[block] < from || blockMinTs[block] > to) {
+					continue;
+				}
+				decodeBlock(block, from, to, series);
+			}
+		}
+		
+		private void decodeBlock(int block, long from, long to, Series series) {
+			int base = block * blockBytes;
+			long ts = BitBuffer.read(arena, base, 0, 64);
+			long pressure = BitBuffer.read(arena, base, 64, 64);
+			long temperature = BitBuffer.read(arena, base, 128, 64);
+			int voltage = (int) BitBuffer.read(arena, base, 192, 32);
+			int pos = HEADER_BITS;
+			long delta = 0;
+			int pressureLeading = -1;
+			int pressureTrailing = -1;
+			int temperatureLeading = -1;
+			int temperatureTrailing = -1;
+			
+			for (int n = 0; ; n++) {
+				if (ts > to) {
+					return;
+				}
+				if (ts >= from && !series.add(ts, pressure, temperature, voltage)) {
+					return;
+				}
+				if (n + 1 >= blockCount[block]) {
+					return;
+				}
+				
+				// delta-of-delta
+				long dod;
+				if (BitBuffer.read(arena, base, pos++, 1) == 0) {
+					dod = 0;
+				} else if (BitBuffer.read(arena, base, pos++, 1) == 0) {
+					dod = signExtend(BitBuffer.read(arena, base, pos, 7), 7);
+					pos += 7;
+				} else if (BitBuffer.read(arena, base, pos++, 1) == 0) {
+					dod = signExtend(BitBuffer.read(arena, base, pos, 9), 9);
+					pos += 9;
+				} else if (BitBuffer.read(arena, base, pos++, 1) == 0) {
+					dod = signExtend(BitBuffer.read(arena, base, pos, 12), 12);
+					pos += 12;
+				} else {
+					dod = BitBuffer.read(arena, base, pos, 64);
+					pos += 64;
+				}
+				delta += dod;
+				ts += delta;
+				
+				// pressure
+				if (BitBuffer.read(arena, base, pos++, 1) == 1) {
+					if (BitBuffer.read(arena, base, pos++, 1) == 1) {
+						pressureLeading = (int) BitBuffer.read(arena, base, pos, 5);
+						int length = (int) BitBuffer.read(arena, base, pos + 5, 6);
+						length = length == 0 ? 64 : length;
+						pressureTrailing = 64 - pressureLeading - length;
+						pos += 11;
+					}
+					int length = 64 - pressureLeading - pressureTrailing;
+					pressure ^= BitBuffer.read(arena, base, pos, length) << pressureTrailing;
+					pos += length;
+				}
+				
+				// temperature
+				if (BitBuffer.read(arena, base, pos++, 1) == 1) {
+					if (BitBuffer.read(arena, base, pos++, 1) == 1) {
+						temperatureLeading = (int) BitBuffer.read(arena, base, pos, 5);
+						int length = (int) BitBuffer.read(arena, base, pos + 5, 6);
+						length = length == 0 ? 64 : length;
+						temperatureTrailing = 64 - temperatureLeading - length;
+						pos += 11;
+					}
+					int length = 64 - temperatureLeading - temperatureTrailing;
+					temperature ^= BitBuffer.read(arena, base, pos, length) << temperatureTrailing;
+					pos += length;
+				}
+				
+				// voltage
+				if (BitBuffer.read(arena, base, pos++, 1) == 1) {
+					voltage = (int) BitBuffer.read(arena, base, pos, 32);
+					pos += 32;
+				}
+			}
+		}
+		
+		private static long signExtend(long value, int bits) {
+			return (value << (64 - bits)) >> (64 - bits);
+		}
+		
+	}
+	
+	/**
+	 * 查询结果收集(列式)
+	 */
+	private static final class Series {
+		
+		private final int limit;
+		private long[] timestamps = new long[64];
+		private double[] pressure = new double[64];
+		private double[] temperature = new double[64];
+		private int[] voltage = new int[64];
+		private int size;
+		private boolean truncated;
+		
+		private Series(int limit) {
+			this.limit = limit;
+		}
+		
+		private boolean add(long ts, long pressureBits, long temperatureBits, int voltageValue) {
+			if (size >= limit) {
+				truncated = true;
+				return false;
+			}
+			if (size == timestamps.length) {
+				int capacity = Math.min(limit, size * 2);
+				timestamps = Arrays.copyOf(timestamps, capacity);
+				pressure = Arrays.copyOf(pressure, capacity);
+				temperature = Arrays.copyOf(temperature, capacity);
+				voltage = Arrays.copyOf(voltage, capacity);
+			}
+			timestamps[size] = ts;
+			pressure[size] = Double.longBitsToDouble(pressureBits);
+			temperature[size] = Double.longBitsToDouble(temperatureBits);
+			voltage[size] = voltageValue;
+			size++;
+			return true;
+		}
+		
+		private boolean full() {
+			return truncated;
+		}
+		
+		private HistorySeriesDTO toDTO(String deviceId) {
+			return new HistorySeriesDTO(deviceId, Arrays.copyOf(timestamps, size), Arrays.copyOf(pressure, size),
+					Arrays.copyOf(temperature, size), Arrays.copyOf(voltage, size), truncated);
+		}
+		
+	}
+	
+}
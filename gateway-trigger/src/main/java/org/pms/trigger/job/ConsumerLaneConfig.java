@@ -0,0 +1,78 @@
+package org.pms.trigger.job;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 消费定时任务的调度通道配置
+ * 配置说明：
+ * - command: 指令响应消费与重试, 用户在界面上等待指令确认, 优先级最高
+ * - alarm: 告警通道消费
+ * - data: 设备数据、设备数据汇总的消费与设备数据重试
+ * - maintenance: 设备状态、注册表同步、过载保护计算与队列监控等维护任务, 同时作为默认调度器
+ * <p>
+ * 每个通道一个独立的调度线程池, 慢的设备数据RPC不会推迟指令响应的转发;
+ * 每个通道可配置线程数、线程优先级与时延目标(排队等待 + 执行时间), 超出目标的执行次数计入通道指标
+ * <p>
+ * 示例(指令通道3个线程, 时延目标300ms)：
+ * device.lanes.command.threads=3
+ * device.lanes.command.latency-slo-ms=300
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-07
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.lanes")
+public class ConsumerLaneConfig {
+	
+	/**
+	 * 指令响应通道
+	 * 默认2个线程, 优先级8, 时延目标500ms
+	 */
+	private Lane command = new Lane(2, 8, 500);
+	
+	/**
+	 * 告警通道
+	 * 默认1个线程, 优先级8, 时延目标200ms
+	 */
+	private Lane alarm = new Lane(1, 8, 200);
+	
+	/**
+	 * 设备数据通道
+	 * 默认2个线程(批量消费与逐条重试互不阻塞), 优先级4, 时延目标10000ms
+	 */
+	private Lane data = new Lane(2, 4, 10000);
+	
+	/**
+	 * 维护通道
+	 * 默认2个线程, 优先级5, 不设时延目标
+	 */
+	private Lane maintenance = new Lane(2, 5, 0);
+	
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Lane {
+		
+		/**
+		 * 线程数
+		 */
+		private int threads = 1;
+		
+		/**
+		 * 线程优先级(1~10), 虚拟线程模式下不生效
+		 */
+		private int priority = Thread.NORM_PRIORITY;
+		
+		/**
+		 * 时延目标(毫秒): 单次执行的排队等待 + 执行时间, ≤0表示不设目标
+		 */
+		private long latencySloMs;
+		
+	}
+	
+}
@@ -0,0 +1,140 @@
+package org.pms.trigger.job;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带排队与执行耗时统计的调度通道
+ * <p>
+ * 设计思路：
+ * - 每次执行前从ScheduledFutureTask取剩余延迟, 负值即本次执行比计划时间晚了多久(排队等待: 通道线程被其他任务占用)
+ * - 执行时间在执行前后计时, 排队等待 + 执行时间超出时延目标时计一次超标
+ * - 累计值用LongAdder, 最大值按监控周期统计, 打印后清零
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-07
+ */
+@Slf4j
+public class ConsumerLaneScheduler extends ThreadPoolTaskScheduler {
+	
+	private final String lane;
+	private final long latencySloMs;
+	/**
+	 * 当前线程正在执行的任务: 开始时间(纳秒)、排队等待(微秒)
+	 */
+	private final ThreadLocal<long[]> started = ThreadLocal.withInitial(() -> new long[2]);
+	private final LongAdder executions = new LongAdder();
+	private final LongAdder queueWaitMicros = new LongAdder();
+	private final LongAdder executionMicros = new LongAdder();
+	private final LongAdder sloViolations = new LongAdder();
+	private final AtomicLong maxQueueWaitMicros = new AtomicLong();
+	private final AtomicLong maxExecutionMicros = new AtomicLong();
+	
+	/**
+	 * @param lane         通道名称
+	 * @param latencySloMs 时延目标(毫秒), ≤0表示不设目标
+	 */
+	public ConsumerLaneScheduler(String lane, long latencySloMs) {
+		this.lane = lane;
+		this.latencySloMs = latencySloMs;
+	}
+	
+	public String getLane() {
+		return lane;
+	}
+	
+	@Override
+	protected ScheduledExecutorService createExecutor(int poolSize, ThreadFactory threadFactory,
+													  RejectedExecutionHandler rejectedExecutionHandler) {
+		return new ScheduledThreadPoolExecutor(poolSize, threadFactory, rejectedExecutionHandler) {
+			
+			@Override
+			protected void beforeExecute(Thread thread, Runnable task) {
+				long waitMicros = task instanceof Delayed delayed
+						? Math.max(0, -delayed.getDelay(TimeUnit.MICROSECONDS)) : 0;
+				queueWaitMicros.add(waitMicros);
+				maxQueueWaitMicros.accumulateAndGet(waitMicros, Math::max);
+				long[] current = started.get();
+				current[0] = System.nanoTime();
+				current[1] = waitMicros;
+			}
+			
+			@Override
+			protected void afterExecute(Runnable task, Throwable throwable) {
+				long[] current = started.get();
+				long execMicros = (System.nanoTime() - current[0]) / 1000;
+				executions.increment();
+				executionMicros.add(execMicros);
+				maxExecutionMicros.accumulateAndGet(execMicros, Math::max);
+				if (latencySloMs > 0 && current[1] + execMicros > latencySloMs * 1000) {
+					sloViolations.increment();
+				}
+			}
+			
+		};
+	}
+	
+	/**
+	 * 获取通道指标, 最大值为本监控周期内的值
+	 */
+	public LaneMetrics getMetrics() {
+		long count = executions.sum();
+		long waitMicros = queueWaitMicros.sum();
+		long execMicros = executionMicros.sum();
+		return LaneMetrics.builder()
+				.lane(lane)
+				.poolSize(getPoolSize())
+				.activeCount(getActiveCount())
+				.executions(count)
+				.avgQueueWaitMs(count == 0 ? 0 : waitMicros / 1000.0 / count)
+				.maxQueueWaitMs(maxQueueWaitMicros.get() / 1000.0)
+				.avgExecutionMs(count == 0 ? 0 : execMicros / 1000.0 / count)
+				.maxExecutionMs(maxExecutionMicros.get() / 1000.0)
+				.latencySloMs(latencySloMs)
+				.sloViolations(sloViolations.sum())
+				.build();
+	}
+	
+	/**
+	 * 打印通道状态并开始新的监控周期
+	 */
+	public void logStatus() {
+		LaneMetrics metrics = getMetrics();
+		maxQueueWaitMicros.set(0);
+		maxExecutionMicros.set(0);
+		log.info("调度通道[{}] - 线程: {}/{}, 执行次数: {}, 排队等待: 平均{}ms/最大{}ms, 执行时间: 平均{}ms/最大{}ms, 时延目标: {}ms, 超标次数: {}",
+				metrics.getLane(), metrics.getActiveCount(), metrics.getPoolSize(), metrics.getExecutions(),
+				String.format("%.2f", metrics.getAvgQueueWaitMs()), String.format("%.2f", metrics.getMaxQueueWaitMs()),
+				String.format("%.2f", metrics.getAvgExecutionMs()), String.format("%.2f", metrics.getMaxExecutionMs()),
+				metrics.getLatencySloMs(), metrics.getSloViolations());
+	}
+	
+	@Data
+	@Builder
+	public static class LaneMetrics {
+		
+		private String lane;
+		private int poolSize;
+		private int activeCount;
+		private long executions;
+		private double avgQueueWaitMs;
+		private double maxQueueWaitMs;
+		private double avgExecutionMs;
+		private double maxExecutionMs;
+		private long latencySloMs;
+		private long sloViolations;
+		
+	}
+	
+}
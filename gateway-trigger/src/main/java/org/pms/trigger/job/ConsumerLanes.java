@@ -0,0 +1,67 @@
+package org.pms.trigger.job;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * 消费定时任务的调度通道
+ * <p>
+ * 原先所有定时任务共用一个调度线程, 一次10秒的设备数据RPC会推迟用户正在等待的指令确认;
+ * 现按转发链路拆分为独立的调度线程池, 由@Scheduled(scheduler = ...)指定所属通道:
+ * - 指令响应通道与告警通道有专用线程且线程优先级更高, 不与设备数据争抢调度线程
+ * - 设备数据通道的慢RPC只占用本通道的线程
+ * - 维护通道同时注册为taskScheduler, 未指定通道的定时任务在此执行
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-07
+ */
+@Slf4j
+@Configuration
+public class ConsumerLanes {
+	
+	public static final String COMMAND = "commandLaneScheduler";
+	public static final String ALARM = "alarmLaneScheduler";
+	public static final String DATA = "dataLaneScheduler";
+	public static final String MAINTENANCE = "maintenanceLaneScheduler";
+	
+	@Bean(COMMAND)
+	public ConsumerLaneScheduler commandLaneScheduler(ConsumerLaneConfig config, Environment environment) {
+		return create("command", config.getCommand(), environment);
+	}
+	
+	@Bean(ALARM)
+	public ConsumerLaneScheduler alarmLaneScheduler(ConsumerLaneConfig config, Environment environment) {
+		return create("alarm", config.getAlarm(), environment);
+	}
+	
+	@Bean(DATA)
+	public ConsumerLaneScheduler dataLaneScheduler(ConsumerLaneConfig config, Environment environment) {
+		return create("data", config.getData(), environment);
+	}
+	
+	@Bean({MAINTENANCE, "taskScheduler"})
+	public ConsumerLaneScheduler maintenanceLaneScheduler(ConsumerLaneConfig config, Environment environment) {
+		return create("maintenance", config.getMaintenance(), environment);
+	}
+	
+	private static ConsumerLaneScheduler create(String lane, ConsumerLaneConfig.Lane config, Environment environment) {
+		ConsumerLaneScheduler scheduler = new ConsumerLaneScheduler(lane, config.getLatencySloMs());
+		scheduler.setPoolSize(Math.max(1, config.getThreads()));
+		scheduler.setThreadNamePrefix("lane-" + lane + "-");
+		scheduler.setThreadPriority(Math.min(Thread.MAX_PRIORITY, Math.max(Thread.MIN_PRIORITY, config.getPriority())));
+		// 虚拟线程模式下由虚拟线程执行, 线程数仍限制通道的并发数
+		if (Threading.VIRTUAL.isActive(environment)) {
+			scheduler.setThreadFactory(new VirtualThreadTaskExecutor("lane-" + lane + "-vt-").getVirtualThreadFactory());
+		}
+		scheduler.setRemoveOnCancelPolicy(true);
+		scheduler.setWaitForTasksToCompleteOnShutdown(true);
+		scheduler.setAwaitTerminationSeconds(10);
+		log.info("调度通道[{}]: 线程数={}, 优先级={}, 时延目标={}ms", lane, scheduler.getPoolSize(), config.getPriority(), config.getLatencySloMs());
+		return scheduler;
+	}
+	
+}
@@ -4,32 +4,59 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.pms.api.dto.command.CommandRespDTO;
 import org.pms.api.dto.devicedata.DeviceDataDTO;
+import org.pms.domain.alarm.dto.DeviceAlarmDTO;
 import org.pms.domain.command.dto.BaseCommandRespDataDTO;
 import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.devicedata.dto.DeviceRollupDTO;
+import org.pms.domain.devicestatus.dto.DeviceStatusChangeDTO;
+import org.pms.domain.support.StringDictionary;
+import org.pms.trigger.admission.AdmissionController;
+import org.pms.trigger.alarm.AlarmEngine;
 import org.pms.trigger.buffer.DataBuffer;
 import org.pms.trigger.buffer.DataBufferConfig;
+import org.pms.trigger.coalesce.RequestCoalescer;
+import org.pms.trigger.command.CommandCorrelationTable;
+import org.pms.trigger.command.CommandTrackingConfig;
+import org.pms.trigger.command.PendingCommand;
 import org.pms.trigger.converter.DomainToApiConverter;
+import org.pms.trigger.deadband.DeadbandFilter;
+import org.pms.trigger.dedup.DuplicateMessageFilter;
 import org.pms.trigger.feign.ICommandClient;
+import org.pms.trigger.feign.IDeviceAlarmClient;
 import org.pms.trigger.feign.IDeviceClient;
+import org.pms.trigger.feign.IDeviceRollupClient;
+import org.pms.trigger.feign.IDeviceStatusClient;
+import org.pms.trigger.history.HistoryStore;
+import org.pms.trigger.latest.LatestReadingTable;
+import org.pms.trigger.live.LiveHub;
+import org.pms.trigger.presence.PresenceTracker;
+import org.pms.trigger.ratelimit.IngestRateLimiter;
+import org.pms.trigger.registry.DeviceRegistry;
+import org.pms.trigger.reorder.ReorderBuffer;
+import org.pms.trigger.rollup.RollupAggregator;
 import org.pms.types.Response;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
- * 设备数据上报异步消费者, 包含设备数据和指令响应的消费
+ * 设备数据上报异步消费者, 包含设备数据、指令响应和设备状态变更的消费
  * 定时从本地队列中批量取出数据，通过Feign批量调用后端服务
  * <p>
  * 架构设计：
  * 本地队列 → 定时任务(100ms) → 批量取出(1000条) → Feign批量RPC → 后端服务
  * ↓ 失败
  * 重试队列(3次) → Redis Stream持久化
+ * <p>
+ * 定时任务按转发链路分配到独立的调度通道(见{@link ConsumerLanes}), 设备数据的慢RPC不会推迟指令响应与告警的转发
  *
  * @author alcsyooterranf
  * @date 2025-01-23
@@ -42,8 +69,9 @@ public class ReportedDataAsyncConsumer {
 	/**
 	 * 重试次数记录
 	 * key: deviceId, value: 重试次数
+	 * 虚拟线程模式下定时任务不再串行执行于同一个调度线程, 使用ConcurrentHashMap
 	 */
-	private final Map<String, Integer> retryCountMap = new HashMap<>();
+	private final Map<String, Integer> retryCountMap = new ConcurrentHashMap<>();
 	@Resource
 	private DataBuffer dataBuffer;
 	@Resource
@@ -54,6 +82,78 @@ public class ReportedDataAsyncConsumer {
 	private DomainToApiConverter domainToApiConverter;
 	@Resource
 	private DataBufferConfig config;
+	@Resource
+	private DuplicateMessageFilter duplicateFilter;
+	@Resource
+	private IDeviceStatusClient deviceStatusClient;
+	@Resource
+	private PresenceTracker presenceTracker;
+	@Resource
+	private LatestReadingTable latestReadingTable;
+	@Resource
+	private HistoryStore historyStore;
+	@Resource
+	private RollupAggregator rollupAggregator;
+	@Resource
+	private IDeviceRollupClient deviceRollupClient;
+	@Resource
+	private DeadbandFilter deadbandFilter;
+	@Resource
+	private AlarmEngine alarmEngine;
+	@Resource
+	private IDeviceAlarmClient deviceAlarmClient;
+	@Resource
+	private ReorderBuffer reorderBuffer;
+	@Resource
+	private DeviceRegistry deviceRegistry;
+	@Resource
+	private AdmissionController admissionController;
+	@Resource
+	private IngestRateLimiter rateLimiter;
+	@Resource
+	private List<ConsumerLaneScheduler> laneSchedulers;
+	@Resource
+	private CommandCorrelationTable commandCorrelationTable;
+	@Resource
+	private CommandTrackingConfig commandTrackingConfig;
+	@Resource
+	private LiveHub liveHub;
+	@Resource
+	private RequestCoalescer requestCoalescer;
+	
+	// ==================== 告警通道消费 ====================
+	
+	/**
+	 * 定时消费告警通道
+	 * 间隔远小于设备数据消费间隔, 在专用的告警调度通道执行, 不受设备数据RPC耗时影响
+	 */
+	@Scheduled(fixedDelayString = "${device.alarm.consume-interval-ms:10}", scheduler = ConsumerLanes.ALARM)
+	public void consumeAlarmBatch() {
+		try {
+			List<DeviceAlarmDTO> batch = dataBuffer.drainAlarmBatch(config.getBatchSize());
+			if (batch.isEmpty()) {
+				return;
+			}
+			
+			try {
+				Response<Boolean> rpcResponse = deviceAlarmClient.batchHandleDeviceAlarm(batch);
+				if (!rpcResponse.getData()) {
+					log.error("批量转发设备告警失败: {}", rpcResponse.getMessage());
+					// 放回队头重试, 超过重试时限的告警放弃, 无法送达的批次不会一直占住告警通道
+					dataBuffer.requeueAlarms(alarmEngine.retryable(batch, System.currentTimeMillis()));
+				} else {
+					alarmEngine.recordDelivered(batch, System.currentTimeMillis());
+					log.info("批量转发设备告警成功，数量: {}", batch.size());
+				}
+			} catch (Exception e) {
+				log.error("批量调用后端设备告警服务异常", e);
+				dataBuffer.requeueAlarms(alarmEngine.retryable(batch, System.currentTimeMillis()));
+			}
+			
+		} catch (Exception e) {
+			log.error("消费告警通道异常", e);
+		}
+	}
 	
 	// ==================== 设备数据消费 ====================
 	
@@ -61,20 +161,29 @@ public class ReportedDataAsyncConsumer {
 	 * 定时消费设备数据队列
 	 * 执行间隔和批量大小可配置
 	 */
-	@Scheduled(fixedDelayString = "${device.buffer.consume-interval-ms:100}")
+	@Scheduled(fixedDelayString = "${device.buffer.consume-interval-ms:100}", scheduler = ConsumerLanes.DATA)
 	public void consumeDeviceDataBatch() {
 		try {
 			// 1. 批量取出数据（Domain层DTO）
-			List<BaseDeviceDataDTO> domainBatch = dataBuffer.drainDataBatch(config.getBatchSize());
+			// 乱序重排开启时, 本批数据先按设备暂存, 取回暂存到期的数据(本批为空时也要取回)
+			List<BaseDeviceDataDTO> domainBatch = reorderBuffer.reorder(
+					dataBuffer.drainDataBatch(config.getBatchSize()), System.currentTimeMillis());
 			
 			if (domainBatch.isEmpty()) {
 				return;
 			}
 			
-			log.info("开始消费设备数据批次，数量: {}", domainBatch.size());
+			// 2. 命中聚合规则的数据计入窗口汇总, 不再逐条转发
+			int drained = domainBatch.size();
+			domainBatch.removeIf(rollupAggregator::absorb);
+			if (domainBatch.isEmpty()) {
+				return;
+			}
+			
+			log.info("开始消费设备数据批次，数量: {}, 汇总代替: {}", domainBatch.size(), drained - domainBatch.size());
 			long start = System.currentTimeMillis();
 			
-			// 2. 转换为API层DTO
+			// 3. 转换为API层DTO
 			List<DeviceDataDTO> apiBatch = domainBatch.stream()
 					.map(domainToApiConverter::convertDeviceData)
 					.filter(Objects::nonNull)
@@ -85,9 +194,10 @@ public class ReportedDataAsyncConsumer {
 				return;
 			}
 			
-			// 3. 批量调用后端RPC接口
+			// 4. 批量调用后端RPC接口(耗时计入过载保护的负载压力)
 			try {
 				Response<Boolean> rpcResponse = deviceClient.batchHandleDeviceData(apiBatch);
+				admissionController.recordRpc(System.currentTimeMillis() - start, Boolean.TRUE.equals(rpcResponse.getData()));
 				
 				if (!rpcResponse.getData()) {
 					log.error("批量保存设备数据失败: {}", rpcResponse.getMessage());
@@ -99,6 +209,7 @@ public class ReportedDataAsyncConsumer {
 				}
 			} catch (Exception e) {
 				log.error("批量调用后端服务异常", e);
+				admissionController.recordRpc(System.currentTimeMillis() - start, false);
 				// 异常的数据放入重试队列
 				dataBuffer.offerBatchToRetryData(domainBatch);
 			}
@@ -112,7 +223,7 @@ public class ReportedDataAsyncConsumer {
 	 * 定时重试失败的设备数据
 	 * 每5秒执行一次
 	 */
-	@Scheduled(fixedDelay = 5000)
+	@Scheduled(fixedDelay = 5000, scheduler = ConsumerLanes.DATA)
 	public void retryFailedDeviceData() {
 		try {
 			// 1. 批量取出重试数据（Domain层DTO）
@@ -173,13 +284,85 @@ public class ReportedDataAsyncConsumer {
 		}
 	}
 	
+	// ==================== 设备数据汇总消费 ====================
+	
+	/**
+	 * 定时关闭已结束的聚合窗口
+	 */
+	@Scheduled(fixedDelayString = "${device.rollup.flush-interval-ms:1000}", scheduler = ConsumerLanes.DATA)
+	public void flushExpiredRollups() {
+		try {
+			rollupAggregator.flushExpired(System.currentTimeMillis());
+		} catch (Exception e) {
+			log.error("关闭设备数据聚合窗口异常", e);
+		}
+	}
+	
+	/**
+	 * 定时消费设备数据汇总队列
+	 * 汇总失败时放回汇总队列, 超过重试次数或队列已满则丢弃(原始数据未转发, 以日志告警)
+	 */
+	@Scheduled(fixedDelayString = "${device.buffer.consume-interval-ms:100}", scheduler = ConsumerLanes.DATA)
+	public void consumeDeviceRollupBatch() {
+		try {
+			List<DeviceRollupDTO> batch = dataBuffer.drainRollupBatch(config.getBatchSize());
+			if (batch.isEmpty()) {
+				return;
+			}
+			
+			try {
+				Response<Boolean> rpcResponse = deviceRollupClient.batchHandleDeviceRollup(batch);
+				if (!rpcResponse.getData()) {
+					log.error("批量保存设备数据汇总失败: {}", rpcResponse.getMessage());
+					requeueRollups(batch);
+				} else {
+					log.info("批量保存设备数据汇总成功，数量: {}", batch.size());
+					if (!retryCountMap.isEmpty()) {
+						batch.forEach(rollup -> retryCountMap.remove(rollupRetryKey(rollup)));
+					}
+				}
+			} catch (Exception e) {
+				log.error("批量调用后端设备数据汇总服务异常", e);
+				requeueRollups(batch);
+			}
+			
+		} catch (Exception e) {
+			log.error("消费设备数据汇总批次异常", e);
+		}
+	}
+	
+	/**
+	 * 转发失败的汇总放回汇总队列, 同一窗口的汇总最多重试maxRetryTimes次
+	 *
+	 * @param batch 转发失败的汇总
+	 */
+	private void requeueRollups(List<DeviceRollupDTO> batch) {
+		for (DeviceRollupDTO rollup : batch) {
+			String key = rollupRetryKey(rollup);
+			int retryCount = retryCountMap.merge(key, 1, Integer::sum);
+			if (retryCount > config.getMaxRetryTimes()) {
+				log.error("设备数据汇总重试次数超限，放弃重试: deviceId={}, windowStart={}, maxRetryTimes={}",
+						rollup.getDeviceId(), rollup.getWindowStart(), config.getMaxRetryTimes());
+				retryCountMap.remove(key);
+				continue;
+			}
+			if (!dataBuffer.offerRollup(rollup)) {
+				retryCountMap.remove(key);
+			}
+		}
+	}
+	
+	private static String rollupRetryKey(DeviceRollupDTO rollup) {
+		return "rollup_" + rollup.getDeviceId() + "_" + rollup.getWindowStart();
+	}
+	
 	// ==================== 指令响应消费 ====================
 	
 	/**
 	 * 定时消费指令响应队列
 	 * 执行间隔和批量大小可配置
 	 */
-	@Scheduled(fixedDelayString = "${device.buffer.consume-interval-ms:100}")
+	@Scheduled(fixedDelayString = "${device.buffer.consume-interval-ms:100}", scheduler = ConsumerLanes.COMMAND)
 	public void consumeCommandResponseBatch() {
 		try {
 			// 1. 批量取出数据（Domain层DTO）
@@ -230,7 +413,7 @@ public class ReportedDataAsyncConsumer {
 	 * 定时重试失败的指令响应
 	 * 每5秒执行一次
 	 */
-	@Scheduled(fixedDelay = 5000)
+	@Scheduled(fixedDelay = 5000, scheduler = ConsumerLanes.COMMAND)
 	public void retryFailedCommandResponse() {
 		try {
 			// 1. 批量取出重试数据（Domain层DTO）
@@ -292,6 +475,113 @@ public class ReportedDataAsyncConsumer {
 		}
 	}
 	
+	/**
+	 * 按时间轮刻度推进指令关联表, 超时的指令推送给下发用户,
+	 * 并以超时状态作为执行结果批量放入指令响应队列, 由指令响应消费转发后端
+	 */
+	@Scheduled(fixedDelayString = "${device.command-tracking.tick-ms:100}", scheduler = ConsumerLanes.COMMAND)
+	public void expireOutstandingCommands() {
+		try {
+			List<PendingCommand> expired = commandCorrelationTable.expire(System.currentTimeMillis());
+			if (expired.isEmpty()) {
+				return;
+			}
+			log.warn("指令超时未响应，数量: {}", expired.size());
+			if (!commandTrackingConfig.isReportTimeouts()) {
+				return;
+			}
+			long now = System.currentTimeMillis();
+			List<BaseCommandRespDataDTO> timeouts = new ArrayList<>(expired.size());
+			for (PendingCommand command : expired) {
+				BaseCommandRespDataDTO timeout = new BaseCommandRespDataDTO();
+				timeout.setTimestamp(now);
+				timeout.setTaskId(command.getTaskId());
+				timeout.setDeviceId(command.getDeviceId());
+				timeout.setProductId(command.getProductId());
+				timeout.setResult(new BaseCommandRespDataDTO.CommandResultDTO(null, commandTrackingConfig.getTimeoutResultCode()));
+				timeouts.add(timeout);
+			}
+			int accepted = dataBuffer.offerCommandBatch(timeouts);
+			if (accepted < timeouts.size()) {
+				log.error("指令响应队列已满，超时结果未转发: {}", timeouts.size() - accepted);
+			}
+		} catch (Exception e) {
+			log.error("检查超时指令异常", e);
+		}
+	}
+	
+	// ==================== 设备状态消费 ====================
+	
+	/**
+	 * 定时将已稳定的设备状态变化放入状态队列
+	 */
+	@Scheduled(fixedDelayString = "${device.presence.sweep-interval-ms:1000}", scheduler = ConsumerLanes.MAINTENANCE)
+	public void flushSettledDeviceStatus() {
+		try {
+			presenceTracker.flushSettled();
+		} catch (Exception e) {
+			log.error("检查待转发设备状态异常", e);
+		}
+	}
+	
+	/**
+	 * 定时消费设备状态队列
+	 * 同一批次内同一设备只保留最后一次状态变更
+	 */
+	@Scheduled(fixedDelayString = "${device.buffer.consume-interval-ms:100}", scheduler = ConsumerLanes.MAINTENANCE)
+	public void consumeDeviceStatusBatch() {
+		try {
+			List<DeviceStatusChangeDTO> batch = dataBuffer.drainStatusBatch(config.getBatchSize());
+			if (batch.isEmpty()) {
+				return;
+			}
+			
+			Map<String, DeviceStatusChangeDTO> latest = new LinkedHashMap<>();
+			for (DeviceStatusChangeDTO change : batch) {
+				latest.put(change.getDeviceId(), change);
+			}
+			List<DeviceStatusChangeDTO> coalesced = new ArrayList<>(latest.values());
+			
+			try {
+				Response<Boolean> rpcResponse = deviceStatusClient.batchHandleDeviceStatus(coalesced);
+				if (!rpcResponse.getData()) {
+					log.error("批量保存设备状态失败, 本批次放弃: {}", rpcResponse.getMessage());
+					// 后端明确拒绝, 重发也不会成功
+					coalesced.forEach(presenceTracker::discard);
+				} else {
+					log.info("批量保存设备状态成功，数量: {}, 合并前: {}", coalesced.size(), batch.size());
+				}
+			} catch (Exception e) {
+				log.error("批量调用后端设备状态服务异常", e);
+				// 放回待转发表, 以设备最新状态重新转发, 超过重试次数后放弃
+				coalesced.forEach(presenceTracker::requeue);
+			}
+			
+		} catch (Exception e) {
+			log.error("消费设备状态批次异常", e);
+		}
+	}
+	
+	// ==================== 设备注册表同步 ====================
+	
+	/**
+	 * 定时同步设备注册表(首次全量加载, 之后增量同步)
+	 */
+	@Scheduled(initialDelay = 0, fixedDelayString = "${device.registry.refresh-interval-ms:30000}", scheduler = ConsumerLanes.MAINTENANCE)
+	public void refreshDeviceRegistry() {
+		deviceRegistry.refresh();
+	}
+	
+	// ==================== 过载保护 ====================
+	
+	/**
+	 * 定时计算负载压力与各优先级拒绝比例
+	 */
+	@Scheduled(fixedDelayString = "${device.admission.update-interval-ms:1000}", scheduler = ConsumerLanes.MAINTENANCE)
+	public void updateAdmission() {
+		admissionController.update(System.currentTimeMillis());
+	}
+	
 	// ==================== 监控统计 ====================
 	
 	/**
@@ -299,7 +589,7 @@ public class ReportedDataAsyncConsumer {
 	 * 定时监控队列状态，打印日志并检查告警
 	 * 执行间隔可配置，默认10秒
 	 */
-	@Scheduled(fixedDelayString = "${device.buffer.monitor-interval-seconds:10}000")
+	@Scheduled(fixedDelayString = "${device.buffer.monitor-interval-seconds:10}000", scheduler = ConsumerLanes.MAINTENANCE)
 	public void monitorQueueStatus() {
 		try {
 			// 1. 打印队列状态
@@ -308,6 +598,33 @@ public class ReportedDataAsyncConsumer {
 			// 2. 打印重试计数器状态
 			log.info("重试计数器状态 - 大小: {}", retryCountMap.size());
 			
+			// 打印各调度通道的排队等待与执行时间
+			laneSchedulers.forEach(ConsumerLaneScheduler::logStatus);
+			
+			// 打印过载保护、限流、指令跟踪、实时推送、请求合并与设备注册表状态
+			admissionController.logStatus();
+			rateLimiter.logStatus();
+			commandCorrelationTable.logStatus();
+			liveHub.logStatus();
+			requestCoalescer.logStatus();
+			deviceRegistry.logStatus();
+			
+			// 打印去重状态(命中率、跟踪设备数、每设备内存)
+			duplicateFilter.logStatus();
+			
+			// 打印死区、阈值告警、乱序重排、在线状态、本地视图、字符串字典与汇总状态
+			deadbandFilter.logStatus();
+			alarmEngine.logStatus();
+			reorderBuffer.logStatus();
+			presenceTracker.logStatus();
+			if (latestReadingTable.isEnabled()) {
+				log.info("最新监测值缓存 - 设备数: {}", latestReadingTable.size());
+			}
+			historyStore.logStatus();
+			log.info("字符串字典 - 条目: {}, 命中: {}, 未命中: {}",
+					StringDictionary.size(), StringDictionary.hits(), StringDictionary.misses());
+			rollupAggregator.logStatus();
+			
 			// 3. 检查告警
 			List<String> alerts = dataBuffer.checkAlerts();
 			if (!alerts.isEmpty()) {
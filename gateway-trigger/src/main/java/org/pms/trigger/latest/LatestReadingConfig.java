@@ -0,0 +1,52 @@
+package org.pms.trigger.latest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 设备最新监测值缓存配置
+ * 配置说明：
+ * - enabled: 是否开启, 未开启时不分配缓存, /device_data/latest返回404
+ * - maxDevices: 缓存的设备数上限, 超过后淘汰最久未上报的设备
+ * - segments: 分段数(2的幂)
+ * - maxBatchLookup: 批量查询单次最多设备数
+ * <p>
+ * 内存估算(每台设备): 索引约41字节 + 数据28字节(pressure/temperature/timestamp各8字节, voltage 4字节)
+ * 约69字节, 100万设备约66MB, 开启后才分配
+ * <p>
+ * 缓存不记录设备所属租户, 查询接口只开放给admin(见MyAccessAuthorizationManager)
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-23
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.latest")
+public class LatestReadingConfig {
+	
+	/**
+	 * 是否开启
+	 * 默认关闭
+	 */
+	private boolean enabled = false;
+	
+	/**
+	 * 缓存的设备数上限
+	 * 默认100万
+	 */
+	private int maxDevices = 1_000_000;
+	
+	/**
+	 * 分段数, 需为2的幂
+	 * 默认64
+	 */
+	private int segments = 64;
+	
+	/**
+	 * 批量查询单次最多设备数
+	 * 默认500
+	 */
+	private int maxBatchLookup = 500;
+	
+}
@@ -0,0 +1,67 @@
+package org.pms.trigger.latest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.pms.types.GatewayCode;
+import org.pms.types.Response;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * 设备最新监测值查询接口
+ * 直接由网关本地缓存响应, 不转发后端、不查询数据库
+ * 缓存不区分租户, 不能像后端查询那样按用户所属租户过滤, 因此只开放给admin(见MyAccessAuthorizationManager)
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-23
+ */
+@Slf4j
+@RestController
+public class LatestReadingController {
+	
+	private final LatestReadingTable latestReadingTable;
+	
+	public LatestReadingController(LatestReadingTable latestReadingTable) {
+		this.latestReadingTable = latestReadingTable;
+	}
+	
+	/**
+	 * 查询设备最新监测值, 支持多个deviceId参数
+	 * 例: GET /device_data/latest?deviceId=a&deviceId=b
+	 */
+	@RequestMapping(value = "device_data/latest", method = RequestMethod.GET)
+	public Response<List<LatestReadingDTO>> queryLatest(@RequestParam("deviceId") List<String> deviceIds) {
+		return lookup(deviceIds);
+	}
+	
+	/**
+	 * 批量查询设备最新监测值, 请求体为deviceId数组
+	 */
+	@RequestMapping(value = "device_data/latest", method = RequestMethod.POST)
+	public Response<List<LatestReadingDTO>> queryLatestBatch(@RequestBody List<String> deviceIds) {
+		return lookup(deviceIds);
+	}
+	
+	private Response<List<LatestReadingDTO>> lookup(List<String> deviceIds) {
+		if (!latestReadingTable.isEnabled()) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "最新监测值缓存未开启");
+		}
+		if (deviceIds.size() > latestReadingTable.getMaxBatchLookup()) {
+			log.warn("最新监测值批量查询数量超过上限: {} > {}", deviceIds.size(), latestReadingTable.getMaxBatchLookup());
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"批量查询设备数超过上限: " + latestReadingTable.getMaxBatchLookup());
+		}
+		return Response.<List<LatestReadingDTO>>builder()
+				.code(GatewayCode.SUCCESS.getCode())
+				.message(GatewayCode.SUCCESS.getMessage())
+				.data(latestReadingTable.getAll(deviceIds))
+				.build();
+	}
+	
+}
@@ -0,0 +1,39 @@
+package org.pms.trigger.latest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 设备最新监测值
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-23
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LatestReadingDTO {
+	
+	/**
+	 * 设备ID
+	 */
+	private String deviceId;
+	/**
+	 * 压力
+	 */
+	private double pressure;
+	/**
+	 * 温度
+	 */
+	private double temperature;
+	/**
+	 * 电压
+	 */
+	private int voltage;
+	/**
+	 * 上报时间戳
+	 */
+	private long timestamp;
+	
+}
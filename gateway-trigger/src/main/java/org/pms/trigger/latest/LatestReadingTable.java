@@ -0,0 +1,193 @@
+package org.pms.trigger.latest;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.trigger.utils.DeviceKeys;
+import org.pms.trigger.utils.DeviceSlotIndex;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 设备最新监测值缓存
+ * <p>
+ * 设计思路：
+ * - 每台设备只保存最新一条监测值, 字段为基本类型数组, 按槽位号寻址
+ * - 写入在接入路径上完成(入队成功后), 只保留时间戳更新的值, 乱序到达的旧值不覆盖
+ * - 读多写少(看板轮询), 分段使用StampedLock, 查询走乐观读, 与写入冲突时退化为读锁
+ * - 容量满时淘汰最久未上报的设备
+ * - 未开启(device.latest.enabled=false)时不分配缓存, 写入为空操作
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-23
+ */
+@Slf4j
+@Component
+public class LatestReadingTable {
+	
+	private final LatestReadingConfig config;
+	private Segment[] segments;
+	private int segmentMask;
+	
+	public LatestReadingTable(LatestReadingConfig config) {
+		this.config = config;
+	}
+	
+	@PostConstruct
+	public void init() {
+		if (!config.isEnabled()) {
+			log.info("设备最新监测值缓存未开启");
+			return;
+		}
+		int segmentCount = DeviceKeys.ceilPowerOfTwo(config.getSegments());
+		int perSegment = Math.max(1, (config.getMaxDevices() + segmentCount - 1) / segmentCount);
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(perSegment);
+		}
+		segmentMask = segmentCount - 1;
+		log.info("设备最新监测值缓存初始化完成: maxDevices={}, segments={}", (long) perSegment * segmentCount, segmentCount);
+	}
+	
+	public boolean isEnabled() {
+		return segments != null;
+	}
+	
+	/**
+	 * 更新设备最新监测值
+	 *
+	 * @param deviceId  设备ID
+	 * @param reading   监测值
+	 * @param timestamp 上报时间戳
+	 */
+	public void update(String deviceId, MonitorReadingDTO reading, long timestamp) {
+		if (segments == null) {
+			return;
+		}
+		long key = DeviceKeys.of(deviceId);
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		long stamp = segment.lock.writeLock();
+		try {
+			int slot = segment.index.acquire(key, DeviceSlotIndex.now());
+			if (!segment.index.created() && timestamp < segment.timestamp[slot]) {
+				return;
+			}
+			segment.pressure[slot] = reading.pressureValue();
+			segment.temperature[slot] = reading.temperatureValue();
+			segment.voltage[slot] = reading.getVoltage();
+			segment.timestamp[slot] = timestamp;
+		} finally {
+			segment.lock.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * 查询单台设备最新监测值
+	 *
+	 * @param deviceId 设备ID
+	 * @return 最新监测值, 未缓存返回null
+	 */
+	public LatestReadingDTO get(String deviceId) {
+		if (segments == null) {
+			return null;
+		}
+		long key = DeviceKeys.of(deviceId);
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		LatestReadingDTO result = new LatestReadingDTO();
+		result.setDeviceId(deviceId);
+		
+		long stamp = segment.lock.tryOptimisticRead();
+		boolean found = segment.read(key, result);
+		if (!segment.lock.validate(stamp)) {
+			stamp = segment.lock.readLock();
+			try {
+				found = segment.read(key, result);
+			} finally {
+				segment.lock.unlockRead(stamp);
+			}
+		}
+		return found ? result : null;
+	}
+	
+	/**
+	 * 批量查询设备最新监测值
+	 *
+	 * @param deviceIds 设备ID列表
+	 * @return 已缓存设备的最新监测值, 按请求顺序返回, 未缓存的设备不返回
+	 */
+	public List<LatestReadingDTO> getAll(List<String> deviceIds) {
+		List<LatestReadingDTO> results = new ArrayList<>(deviceIds.size());
+		for (String deviceId : deviceIds) {
+			LatestReadingDTO reading = get(deviceId);
+			if (reading != null) {
+				results.add(reading);
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 缓存的设备数
+	 */
+	public int size() {
+		if (segments == null) {
+			return 0;
+		}
+		int size = 0;
+		for (Segment segment : segments) {
+			long stamp = segment.lock.readLock();
+			try {
+				size += segment.index.size();
+			} finally {
+				segment.lock.unlockRead(stamp);
+			}
+		}
+		return size;
+	}
+	
+	public int getMaxBatchLookup() {
+		return config.getMaxBatchLookup();
+	}
+	
+	/**
+	 * 分段: 槽位索引 + 监测值数组
+	 */
+	private static final class Segment {
+		
+		private final StampedLock lock = new StampedLock();
+		private final DeviceSlotIndex index;
+		private final double[] pressure;
+		private final double[] temperature;
+		private final int[] voltage;
+		private final long[] timestamp;
+		
+		private Segment(int capacity) {
+			this.index = new DeviceSlotIndex(capacity);
+			this.pressure = new double[capacity];
+			this.temperature = new double[capacity];
+			this.voltage = new int[capacity];
+			this.timestamp = new long[capacity];
+		}
+		
+		/**
+		 * 读取设备监测值到result(乐观读时结果可能不一致, 由调用方校验stamp)
+		 * 查询不更新访问时间, 淘汰只依据上报时间
+		 */
+		private boolean read(long key, LatestReadingDTO result) {
+			int slot = index.find(key);
+			if (slot < 0) {
+				return false;
+			}
+			result.setPressure(pressure[slot]);
+			result.setTemperature(temperature[slot]);
+			result.setVoltage(voltage[slot]);
+			result.setTimestamp(timestamp[slot]);
+			return true;
+		}
+		
+	}
+	
+}
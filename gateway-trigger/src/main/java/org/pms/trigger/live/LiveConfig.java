@@ -0,0 +1,72 @@
+package org.pms.trigger.live;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 实时监测值推送配置
+ * 配置说明：
+ * - enabled: 是否开启, 开启后接入的监测值直接由网关推送给订阅的看板, 不再经后端入库后回推
+ * - maxSessions: 推送连接数上限
+ * - maxDevicesPerSession: 单个连接按设备订阅时的设备数上限
+ * - bufferSize: 每个连接的待发送缓冲区(环形)大小, 满时丢弃最旧的监测值
+ * - coalesce: 同一设备尚未发出的监测值只保留最新一条
+ * - writerThreads: 发送线程数(虚拟线程模式下每次发送一个虚拟线程, 不受此限制)
+ * - sseTimeoutMinutes: 推送连接(SSE)的超时时间, 到期后由浏览器重连
+ * <p>
+ * 内存估算: 每个连接约 bufferSize × 8字节(引用) + 待发送监测值, 5000个连接、缓冲64条约2.5MB(不含监测值本身)
+ * <p>
+ * 订阅接口(/device_data/live/readings)只开放给admin, 且至少指定一个订阅条件(见LiveController)
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-09
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.live")
+public class LiveConfig {
+	
+	/**
+	 * 是否开启
+	 * 默认关闭
+	 */
+	private boolean enabled = false;
+	
+	/**
+	 * 推送连接数上限
+	 * 默认5000
+	 */
+	private int maxSessions = 5000;
+	
+	/**
+	 * 单个连接订阅的设备数上限
+	 * 默认1000
+	 */
+	private int maxDevicesPerSession = 1000;
+	
+	/**
+	 * 每个连接的待发送缓冲区大小
+	 * 默认64
+	 */
+	private int bufferSize = 64;
+	
+	/**
+	 * 是否合并同一设备未发出的监测值
+	 * 默认开启
+	 */
+	private boolean coalesce = true;
+	
+	/**
+	 * 发送线程数
+	 * 默认4
+	 */
+	private int writerThreads = 4;
+	
+	/**
+	 * 推送连接超时时间(分钟)
+	 * 默认30分钟
+	 */
+	private int sseTimeoutMinutes = 30;
+	
+}
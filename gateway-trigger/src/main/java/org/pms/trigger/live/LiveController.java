@@ -0,0 +1,70 @@
+package org.pms.trigger.live;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 实时监测值推送接口(SSE)
+ * 看板建立连接后, 匹配订阅条件的监测值在网关接入时即以reading事件推送, 每个事件为一组最新监测值
+ * 认证信息中没有用户所属租户, 网关无法像后端查询那样按租户过滤, 因此只开放给admin(见MyAccessAuthorizationManager),
+ * 且至少指定一个订阅条件, 不提供全量推送; /ws/前缀留给后端的WebSocket告警推送, 本接口挂在/device_data下
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-09
+ */
+@RestController
+public class LiveController {
+	
+	private final LiveHub liveHub;
+	private final LiveConfig config;
+	
+	public LiveController(LiveHub liveHub, LiveConfig config) {
+		this.liveHub = liveHub;
+		this.config = config;
+	}
+	
+	/**
+	 * 例: GET /device_data/live/readings?pipelineId=xxx 或 /device_data/live/readings?deviceId=a&deviceId=b
+	 *
+	 * @param tenantId   租户ID
+	 * @param pipelineId 管道ID
+	 * @param deviceIds  设备ID, 可重复; 三个条件至少指定一个
+	 */
+	@RequestMapping(value = "device_data/live/readings", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter subscribe(@RequestParam(value = "tenantId", required = false) String tenantId,
+								@RequestParam(value = "pipelineId", required = false) String pipelineId,
+								@RequestParam(value = "deviceId", required = false) List<String> deviceIds) {
+		if (!config.isEnabled()) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "实时推送未开启");
+		}
+		tenantId = blankToNull(tenantId);
+		pipelineId = blankToNull(pipelineId);
+		Set<String> devices = deviceIds == null ? Set.of() : Set.copyOf(deviceIds);
+		if (tenantId == null && pipelineId == null && devices.isEmpty()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "需指定tenantId、pipelineId或deviceId");
+		}
+		if (devices.size() > config.getMaxDevicesPerSession()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"订阅设备数超过上限: " + config.getMaxDevicesPerSession());
+		}
+		SseEmitter emitter = liveHub.subscribe(tenantId, pipelineId, devices);
+		if (emitter == null) {
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "推送连接数已达上限");
+		}
+		return emitter;
+	}
+	
+	private static String blankToNull(String value) {
+		return value == null || value.isBlank() ? null : value;
+	}
+	
+}
@@ -0,0 +1,278 @@
+package org.pms.trigger.live;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.trigger.latest.LatestReadingDTO;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 实时监测值推送中心
+ * <p>
+ * 原先看板的实时数据经 接入 → 后端 → 数据库 → 后端推送 → 网关代理 → 浏览器, 延迟为秒级;
+ * 现由网关在接入时直接推送给订阅的连接, 延迟为毫秒级, 后端不再承担实时推送
+ * 设计思路：
+ * - 订阅按最具体的条件建索引(设备 > 管道 > 租户 > 全部), 发布时只遍历可能匹配的连接, 没有连接时只做一次计数判断
+ * - 接入线程只把监测值写入各连接的环形缓冲区(满时丢弃最旧, 同一设备未发出的值原地合并), 不做网络IO
+ * - 每个连接同时最多一个发送任务, 由发送线程一次取出缓冲区中的全部监测值作为一个SSE事件发出;
+ *   慢连接只会积压在自己的缓冲区里, 不影响接入与其他连接
+ * - 发送失败的连接直接关闭, 由浏览器重连
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-09
+ */
+@Slf4j
+@Component
+public class LiveHub {
+	
+	private static final String EVENT_NAME = "reading";
+	
+	private final LiveConfig config;
+	private final Executor writer;
+	private final ExecutorService writerPool;
+	private final ConcurrentHashMap<String, Set<LiveSubscription>> byDevice = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Set<LiveSubscription>> byPipeline = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Set<LiveSubscription>> byTenant = new ConcurrentHashMap<>();
+	private final Set<LiveSubscription> unfiltered = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger sessions = new AtomicInteger();
+	private final LongAdder published = new LongAdder();
+	private final LongAdder enqueued = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder events = new LongAdder();
+	private final LongAdder delivered = new LongAdder();
+	private final LongAdder closedOnError = new LongAdder();
+	
+	public LiveHub(LiveConfig config, Environment environment) {
+		this.config = config;
+		if (Threading.VIRTUAL.isActive(environment)) {
+			this.writerPool = null;
+			this.writer = new VirtualThreadTaskExecutor("live-writer-vt-");
+		} else {
+			this.writerPool = Executors.newFixedThreadPool(Math.max(1, config.getWriterThreads()),
+					new CustomizableThreadFactory("live-writer-"));
+			this.writer = writerPool;
+		}
+	}
+	
+	public boolean isEnabled() {
+		return config.isEnabled();
+	}
+	
+	/**
+	 * 建立订阅
+	 *
+	 * @param tenantId   租户ID, 为null时不限
+	 * @param pipelineId 管道ID, 为null时不限
+	 * @param deviceIds  设备ID, 为空时不限
+	 * @return 推送连接, 连接数已达上限时返回null
+	 */
+	public SseEmitter subscribe(String tenantId, String pipelineId, Set<String> deviceIds) {
+		if (sessions.incrementAndGet() > config.getMaxSessions()) {
+			sessions.decrementAndGet();
+			return null;
+		}
+		SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(config.getSseTimeoutMinutes()));
+		LiveSubscription subscription = new LiveSubscription(tenantId, pipelineId, deviceIds, emitter,
+				config.getBufferSize(), config.isCoalesce());
+		index(subscription);
+		Runnable remove = () -> unsubscribe(subscription);
+		emitter.onCompletion(remove);
+		emitter.onTimeout(remove);
+		emitter.onError(e -> remove.run());
+		return emitter;
+	}
+	
+	/**
+	 * 发布一条已接入的监测值, 由接入线程调用
+	 *
+	 * @param data      设备数据
+	 * @param reading   监测值
+	 * @param timestamp 上报时间
+	 */
+	public void publish(BaseDeviceDataDTO data, MonitorReadingDTO reading, long timestamp) {
+		if (!config.isEnabled() || sessions.get() == 0) {
+			return;
+		}
+		published.increment();
+		String deviceId = data.getDeviceId();
+		// 与上报后端时一致, 未设置管道ID的设备以产品ID作为管道ID
+		String pipelineId = data.getPipelineId() != null ? data.getPipelineId() : data.getProductId();
+		String tenantId = data.getTenantId();
+		LatestReadingDTO frame = new LatestReadingDTO(deviceId, reading.pressureValue(),
+				reading.temperatureValue(), reading.getVoltage(), timestamp);
+		deliver(deviceId != null ? byDevice.get(deviceId) : null, tenantId, pipelineId, deviceId, frame);
+		deliver(pipelineId != null ? byPipeline.get(pipelineId) : null, tenantId, pipelineId, deviceId, frame);
+		deliver(tenantId != null ? byTenant.get(tenantId) : null, tenantId, pipelineId, deviceId, frame);
+		deliver(unfiltered, tenantId, pipelineId, deviceId, frame);
+	}
+	
+	private void deliver(Set<LiveSubscription> candidates, String tenantId, String pipelineId, String deviceId,
+						 LatestReadingDTO frame) {
+		if (candidates == null || candidates.isEmpty()) {
+			return;
+		}
+		for (LiveSubscription subscription : candidates) {
+			if (!subscription.matches(tenantId, pipelineId, deviceId)) {
+				continue;
+			}
+			switch (subscription.offer(frame)) {
+				case LiveSubscription.COALESCED -> coalesced.increment();
+				case LiveSubscription.DROPPED_OLDEST -> {
+					dropped.increment();
+					enqueued.increment();
+				}
+				default -> enqueued.increment();
+			}
+			schedule(subscription);
+		}
+	}
+	
+	private void schedule(LiveSubscription subscription) {
+		if (subscription.scheduled.compareAndSet(false, true)) {
+			writer.execute(() -> flush(subscription));
+		}
+	}
+	
+	/**
+	 * 发出连接缓冲区中的全部监测值; 发送期间新写入的监测值由下一个发送任务发出
+	 */
+	private void flush(LiveSubscription subscription) {
+		try {
+			List<LatestReadingDTO> batch = subscription.drain();
+			if (!batch.isEmpty()) {
+				subscription.emitter.send(SseEmitter.event().name(EVENT_NAME).data(batch, MediaType.APPLICATION_JSON));
+				events.increment();
+				delivered.add(batch.size());
+			}
+		} catch (IOException | IllegalStateException e) {
+			closedOnError.increment();
+			unsubscribe(subscription);
+			subscription.emitter.completeWithError(e);
+			return;
+		} finally {
+			subscription.scheduled.set(false);
+		}
+		if (subscription.hasPending()) {
+			schedule(subscription);
+		}
+	}
+	
+	private void index(LiveSubscription subscription) {
+		if (!subscription.deviceIds.isEmpty()) {
+			for (String deviceId : subscription.deviceIds) {
+				byDevice.computeIfAbsent(deviceId, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+			}
+		} else if (subscription.pipelineId != null) {
+			byPipeline.computeIfAbsent(subscription.pipelineId, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+		} else if (subscription.tenantId != null) {
+			byTenant.computeIfAbsent(subscription.tenantId, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+		} else {
+			unfiltered.add(subscription);
+		}
+	}
+	
+	private void unsubscribe(LiveSubscription subscription) {
+		boolean removed;
+		if (!subscription.deviceIds.isEmpty()) {
+			removed = false;
+			for (String deviceId : subscription.deviceIds) {
+				removed |= remove(byDevice, deviceId, subscription);
+			}
+		} else if (subscription.pipelineId != null) {
+			removed = remove(byPipeline, subscription.pipelineId, subscription);
+		} else if (subscription.tenantId != null) {
+			removed = remove(byTenant, subscription.tenantId, subscription);
+		} else {
+			removed = unfiltered.remove(subscription);
+		}
+		// 完成、超时、出错的回调可能先后触发, 只计一次
+		if (removed) {
+			sessions.decrementAndGet();
+		}
+	}
+	
+	private static boolean remove(ConcurrentHashMap<String, Set<LiveSubscription>> index, String key,
+								  LiveSubscription subscription) {
+		boolean[] removed = new boolean[1];
+		index.computeIfPresent(key, (k, subscriptions) -> {
+			removed[0] = subscriptions.remove(subscription);
+			return subscriptions.isEmpty() ? null : subscriptions;
+		});
+		return removed[0];
+	}
+	
+	/**
+	 * 获取推送指标
+	 */
+	public LiveMetrics getMetrics() {
+		return LiveMetrics.builder()
+				.enabled(config.isEnabled())
+				.sessions(sessions.get())
+				.published(published.sum())
+				.enqueued(enqueued.sum())
+				.coalesced(coalesced.sum())
+				.dropped(dropped.sum())
+				.events(events.sum())
+				.delivered(delivered.sum())
+				.closedOnError(closedOnError.sum())
+				.build();
+	}
+	
+	/**
+	 * 打印推送状态
+	 */
+	public void logStatus() {
+		LiveMetrics metrics = getMetrics();
+		if (!metrics.isEnabled()) {
+			return;
+		}
+		log.info("实时推送 - 连接: {}, 发布: {}, 入缓冲: {}, 合并: {}, 丢弃(慢连接): {}, 事件: {}, 已送达: {}, 异常关闭: {}",
+				metrics.getSessions(), metrics.getPublished(), metrics.getEnqueued(), metrics.getCoalesced(),
+				metrics.getDropped(), metrics.getEvents(), metrics.getDelivered(), metrics.getClosedOnError());
+	}
+	
+	@PreDestroy
+	public void shutdown() {
+		if (writerPool != null) {
+			writerPool.shutdownNow();
+		}
+	}
+	
+	@Data
+	@Builder
+	public static class LiveMetrics {
+		
+		private boolean enabled;
+		private int sessions;
+		private long published;
+		private long enqueued;
+		private long coalesced;
+		private long dropped;
+		private long events;
+		private long delivered;
+		private long closedOnError;
+		
+	}
+	
+}
@@ -0,0 +1,120 @@
+package org.pms.trigger.live;
+
+import org.pms.trigger.latest.LatestReadingDTO;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一个推送连接的订阅条件与待发送缓冲区
+ * <p>
+ * 缓冲区为定长环形数组, 按写入序号寻址: 满时丢弃最旧的一条(读序号前移);
+ * 开启合并时记录每台设备最近写入的序号, 该条尚未发出时原地替换, 慢连接只会看到每台设备的最新值
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-09
+ */
+class LiveSubscription {
+	
+	static final int ADDED = 0;
+	static final int COALESCED = 1;
+	static final int DROPPED_OLDEST = 2;
+	
+	final String tenantId;
+	final String pipelineId;
+	final Set<String> deviceIds;
+	final SseEmitter emitter;
+	
+	/**
+	 * 是否已提交发送任务, 每个连接同时最多一个发送任务
+	 */
+	final AtomicBoolean scheduled = new AtomicBoolean();
+	
+	private final LatestReadingDTO[] ring;
+	private final Map<String, Long> pendingSeq;
+	private long head;
+	private long tail;
+	private long dropped;
+	
+	LiveSubscription(String tenantId, String pipelineId, Set<String> deviceIds, SseEmitter emitter,
+					 int bufferSize, boolean coalesce) {
+		this.tenantId = tenantId;
+		this.pipelineId = pipelineId;
+		this.deviceIds = deviceIds;
+		this.emitter = emitter;
+		this.ring = new LatestReadingDTO[Math.max(1, bufferSize)];
+		this.pendingSeq = coalesce ? new HashMap<>() : null;
+	}
+	
+	/**
+	 * 订阅条件是否匹配, 未指定的条件不参与匹配
+	 */
+	boolean matches(String tenantId, String pipelineId, String deviceId) {
+		return (this.tenantId == null || this.tenantId.equals(tenantId))
+				&& (this.pipelineId == null || this.pipelineId.equals(pipelineId))
+				&& (deviceIds.isEmpty() || deviceIds.contains(deviceId));
+	}
+	
+	/**
+	 * 写入待发送缓冲区
+	 *
+	 * @return ADDED / COALESCED / DROPPED_OLDEST
+	 */
+	synchronized int offer(LatestReadingDTO reading) {
+		if (pendingSeq != null) {
+			Long seq = pendingSeq.get(reading.getDeviceId());
+			if (seq != null && seq >= head) {
+				ring[(int) (seq % ring.length)] = reading;
+				return COALESCED;
+			}
+		}
+		int result = ADDED;
+		if (tail - head == ring.length) {
+			int slot = (int) (head % ring.length);
+			if (pendingSeq != null) {
+				pendingSeq.remove(ring[slot].getDeviceId(), head);
+			}
+			ring[slot] = null;
+			head++;
+			dropped++;
+			result = DROPPED_OLDEST;
+		}
+		ring[(int) (tail % ring.length)] = reading;
+		if (pendingSeq != null) {
+			pendingSeq.put(reading.getDeviceId(), tail);
+		}
+		tail++;
+		return result;
+	}
+	
+	/**
+	 * 取出全部待发送的监测值
+	 */
+	synchronized List<LatestReadingDTO> drain() {
+		List<LatestReadingDTO> batch = new ArrayList<>((int) (tail - head));
+		for (long seq = head; seq < tail; seq++) {
+			int slot = (int) (seq % ring.length);
+			batch.add(ring[slot]);
+			ring[slot] = null;
+		}
+		head = tail;
+		if (pendingSeq != null) {
+			pendingSeq.clear();
+		}
+		return batch;
+	}
+	
+	synchronized boolean hasPending() {
+		return tail > head;
+	}
+	
+	synchronized long dropped() {
+		return dropped;
+	}
+	
+}
@@ -0,0 +1,40 @@
+package org.pms.trigger.presence;
+
+import org.pms.types.GatewayCode;
+import org.pms.types.Response;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 设备在线状态查询接口(本地状态表, 不访问后端)
+ * 状态表不记录设备所属租户, 不能像后端查询那样按用户所属租户过滤, 因此只开放给admin(见MyAccessAuthorizationManager)
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-22
+ */
+@RestController
+public class DevicePresenceController {
+	
+	private final PresenceTracker presenceTracker;
+	
+	public DevicePresenceController(PresenceTracker presenceTracker) {
+		this.presenceTracker = presenceTracker;
+	}
+	
+	@RequestMapping(value = "device_manage/presence", method = RequestMethod.GET)
+	public Response<PresenceSnapshot> queryPresence(@RequestParam("deviceId") String deviceId) {
+		if (!presenceTracker.isEnabled()) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "设备在线状态跟踪未开启");
+		}
+		return Response.<PresenceSnapshot>builder()
+				.code(GatewayCode.SUCCESS.getCode())
+				.message(GatewayCode.SUCCESS.getMessage())
+				.data(presenceTracker.lookup(deviceId))
+				.build();
+	}
+	
+}
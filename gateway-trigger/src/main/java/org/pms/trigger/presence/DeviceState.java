@@ -0,0 +1,28 @@
+package org.pms.trigger.presence;
+
+/**
+ * 设备在线状态
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-22
+ */
+public enum DeviceState {
+	
+	/**
+	 * 网关启动后未收到过该设备的上下线通知(或已被淘汰)
+	 */
+	UNKNOWN,
+	ONLINE,
+	OFFLINE;
+	
+	private static final DeviceState[] VALUES = values();
+	
+	static DeviceState of(byte code) {
+		return VALUES[code];
+	}
+	
+	byte code() {
+		return (byte) ordinal();
+	}
+	
+}
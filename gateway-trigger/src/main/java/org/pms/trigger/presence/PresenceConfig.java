@@ -0,0 +1,83 @@
+package org.pms.trigger.presence;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 设备在线状态跟踪配置
+ * 配置说明：
+ * - enabled: 是否开启, 未开启时上下线通知只确认接收, 不分配状态表, 不转发后端(后端设备状态批量接口上线后再开启)
+ * - maxDevices: 跟踪的设备数上限, 超过后淘汰最久没有上下线事件的设备
+ * - segments: 分段数(2的幂)
+ * - settleSeconds: 状态保持不变多久后才转发, 吸收网络抖动造成的短暂掉线
+ * - flapWindowSeconds / flapThreshold: 窗口内状态切换次数达到阈值视为抖动
+ * - dampedSettleSeconds: 抖动设备的状态需保持不变多久后才转发(只转发一次最终状态)
+ * - sweepIntervalMs: 检查待转发状态的间隔
+ * - maxRetries: 同一次状态变化转发失败(后端拒绝或调用异常)后的最多重试次数, 超过后放弃该次转发
+ * <p>
+ * 内存估算(每台设备): 索引约41字节 + 状态约20字节, 100万设备约58MB, 开启后才分配
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-22
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.presence")
+public class PresenceConfig {
+	
+	/**
+	 * 是否开启
+	 * 默认关闭
+	 */
+	private boolean enabled = false;
+	
+	/**
+	 * 跟踪的设备数上限
+	 * 默认100万
+	 */
+	private int maxDevices = 1_000_000;
+	
+	/**
+	 * 分段数, 需为2的幂
+	 * 默认64
+	 */
+	private int segments = 64;
+	
+	/**
+	 * 状态稳定时间(秒)
+	 * 默认5秒
+	 */
+	private int settleSeconds = 5;
+	
+	/**
+	 * 抖动判定窗口(秒)
+	 * 默认60秒
+	 */
+	private int flapWindowSeconds = 60;
+	
+	/**
+	 * 抖动判定阈值(窗口内状态切换次数)
+	 * 默认3次
+	 */
+	private int flapThreshold = 3;
+	
+	/**
+	 * 抖动设备的状态稳定时间(秒)
+	 * 默认60秒
+	 */
+	private int dampedSettleSeconds = 60;
+	
+	/**
+	 * 待转发状态检查间隔(毫秒)
+	 * 默认1000ms
+	 */
+	private int sweepIntervalMs = 1000;
+	
+	/**
+	 * 转发失败后的最多重试次数
+	 * 默认3次
+	 */
+	private int maxRetries = 3;
+	
+}
@@ -0,0 +1,39 @@
+package org.pms.trigger.presence;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 设备在线状态快照
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-22
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PresenceSnapshot {
+	
+	/**
+	 * 设备ID
+	 */
+	private String deviceId;
+	/**
+	 * 当前状态(最近一次上下线通知)
+	 */
+	private DeviceState state;
+	/**
+	 * 已转发给后端的状态
+	 */
+	private DeviceState reportedState;
+	/**
+	 * 是否处于抖动抑制中
+	 */
+	private boolean flapping;
+	/**
+	 * 最近一次上下线通知的时间戳
+	 */
+	private Long timestamp;
+	
+}
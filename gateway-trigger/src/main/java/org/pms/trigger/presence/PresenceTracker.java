@@ -0,0 +1,412 @@
+package org.pms.trigger.presence;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicestatus.dto.BaseDeviceStatusDTO;
+import org.pms.domain.devicestatus.dto.DeviceStatusChangeDTO;
+import org.pms.trigger.buffer.DataBuffer;
+import org.pms.trigger.utils.DeviceKeys;
+import org.pms.trigger.utils.DeviceSlotIndex;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 设备在线状态跟踪
+ * <p>
+ * 设计思路：
+ * - 设备状态存放在按槽位号寻址的基本类型数组中, 按设备键分段加锁
+ * - 状态变化先进入待转发表, 保持settleSeconds不变后才转发, 短暂掉线又恢复的设备不产生任何上报
+ * - 窗口内切换次数达到阈值的设备视为抖动, 稳定时间延长为dampedSettleSeconds, 稳定后只转发一次最终状态
+ * - 转发走DataBuffer状态队列, 与设备数据共用异步批量RPC管道
+ * - 待转发表只包含最近发生变化的设备, 定时检查时不需要遍历整张状态表
+ * - 转发异常(调用失败、本地队列满)的状态变化放回待转发表重试, 同一次状态变化最多重试maxRetries次,
+ *   超过后放弃(计入放弃数), 设备再次发生状态变化时重新计数; 后端明确拒绝的状态变化直接放弃
+ * - 未开启(device.presence.enabled=false)时不分配状态表, 通知只计数不跟踪
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-22
+ */
+@Slf4j
+@Component
+public class PresenceTracker {
+	
+	private final PresenceConfig config;
+	private final DataBuffer dataBuffer;
+	private final LongAdder events = new LongAdder();
+	private final LongAdder ignored = new LongAdder();
+	private final LongAdder forwarded = new LongAdder();
+	private final LongAdder suppressed = new LongAdder();
+	private final LongAdder retried = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private Segment[] segments;
+	private int segmentMask;
+	
+	public PresenceTracker(PresenceConfig config, DataBuffer dataBuffer) {
+		this.config = config;
+		this.dataBuffer = dataBuffer;
+	}
+	
+	@PostConstruct
+	public void init() {
+		if (!config.isEnabled()) {
+			log.info("设备在线状态跟踪未开启");
+			return;
+		}
+		int segmentCount = DeviceKeys.ceilPowerOfTwo(config.getSegments());
+		int perSegment = Math.max(1, (config.getMaxDevices() + segmentCount - 1) / segmentCount);
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(perSegment);
+		}
+		segmentMask = segmentCount - 1;
+		log.info("设备在线状态跟踪初始化完成: maxDevices={}, segments={}, settle={}s, flap={}次/{}s, dampedSettle={}s",
+				(long) perSegment * segmentCount, segmentCount, config.getSettleSeconds(),
+				config.getFlapThreshold(), config.getFlapWindowSeconds(), config.getDampedSettleSeconds());
+	}
+	
+	public boolean isEnabled() {
+		return segments != null;
+	}
+	
+	/**
+	 * 处理一条上下线通知
+	 *
+	 * @param event AEP上下线通知
+	 */
+	public void onEvent(BaseDeviceStatusDTO event) {
+		events.increment();
+		if (segments == null) {
+			ignored.increment();
+			return;
+		}
+		long key = DeviceKeys.of(event.getDeviceId());
+		byte state = event.getEventType() == BaseDeviceStatusDTO.EVENT_ONLINE
+				? DeviceState.ONLINE.code() : DeviceState.OFFLINE.code();
+		long timestamp = event.getTimestamp() != null ? event.getTimestamp() : System.currentTimeMillis();
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		segment.lock.lock();
+		try {
+			if (!segment.record(key, state, timestamp, DeviceSlotIndex.now(), config)) {
+				ignored.increment();
+				return;
+			}
+			segment.pending.put(key, DeviceStatusChangeDTO.builder()
+					.deviceId(event.getDeviceId())
+					.productId(event.getProductId())
+					.tenantId(event.getTenantId())
+					.build());
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 查询设备当前状态
+	 *
+	 * @param deviceId 设备ID
+	 * @return 状态快照, 未跟踪的设备状态为UNKNOWN
+	 */
+	public PresenceSnapshot lookup(String deviceId) {
+		if (segments == null) {
+			return new PresenceSnapshot(deviceId, DeviceState.UNKNOWN, DeviceState.UNKNOWN, false, null);
+		}
+		long key = DeviceKeys.of(deviceId);
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		segment.lock.lock();
+		try {
+			int slot = segment.index.find(key);
+			if (slot < 0) {
+				return new PresenceSnapshot(deviceId, DeviceState.UNKNOWN, DeviceState.UNKNOWN, false, null);
+			}
+			return new PresenceSnapshot(deviceId, DeviceState.of(segment.state[slot]),
+					DeviceState.of(segment.reported[slot]),
+					segment.isFlapping(slot, DeviceSlotIndex.now(), config), segment.timestamp[slot]);
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 查询设备当前状态(只返回状态, 不创建快照对象)
+	 */
+	public DeviceState stateOf(String deviceId) {
+		if (segments == null) {
+			return DeviceState.UNKNOWN;
+		}
+		long key = DeviceKeys.of(deviceId);
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		segment.lock.lock();
+		try {
+			int slot = segment.index.find(key);
+			return slot < 0 ? DeviceState.UNKNOWN : DeviceState.of(segment.state[slot]);
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 检查待转发表, 将已稳定的状态变化放入DataBuffer状态队列
+	 */
+	public void flushSettled() {
+		if (segments == null) {
+			return;
+		}
+		int now = DeviceSlotIndex.now();
+		List<DeviceStatusChangeDTO> settled = new ArrayList<>();
+		for (Segment segment : segments) {
+			segment.lock.lock();
+			try {
+				segment.collectSettled(now, config, settled);
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		for (DeviceStatusChangeDTO change : settled) {
+			if (dataBuffer.offerStatus(change)) {
+				forwarded.increment();
+				suppressed.add(change.getSuppressedToggles());
+			} else {
+				requeue(change);
+			}
+		}
+	}
+	
+	/**
+	 * 转发失败的状态变化重新放回待转发表, 下次检查时按设备最新状态重新转发
+	 * 同一次状态变化重试超过maxRetries次后放弃, 已转发状态保持为本次状态, 不再重发
+	 *
+	 * @param change 转发失败的状态变化
+	 */
+	public void requeue(DeviceStatusChangeDTO change) {
+		if (segments == null) {
+			return;
+		}
+		long key = DeviceKeys.of(change.getDeviceId());
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		segment.lock.lock();
+		try {
+			int slot = segment.index.find(key);
+			if (slot < 0) {
+				return;
+			}
+			if (segment.retries[slot] >= config.getMaxRetries()) {
+				dropped.increment();
+				log.warn("设备状态转发重试{}次仍失败, 放弃本次转发: deviceId={}, online={}",
+						segment.retries[slot], change.getDeviceId(), change.isOnline());
+				return;
+			}
+			segment.retries[slot]++;
+			retried.increment();
+			segment.reported[slot] = DeviceState.UNKNOWN.code();
+			segment.pending.putIfAbsent(key, change);
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 后端明确拒绝的状态变化直接放弃, 重发也不会成功
+	 *
+	 * @param change 被拒绝的状态变化
+	 */
+	public void discard(DeviceStatusChangeDTO change) {
+		dropped.increment();
+		log.warn("后端拒绝设备状态, 放弃本次转发: deviceId={}, online={}", change.getDeviceId(), change.isOnline());
+	}
+	
+	/**
+	 * 获取在线状态跟踪指标
+	 */
+	public PresenceMetrics getMetrics() {
+		int trackedDevices = 0;
+		int pendingDevices = 0;
+		int online = 0;
+		for (Segment segment : segments != null ? segments : new Segment[0]) {
+			segment.lock.lock();
+			try {
+				trackedDevices += segment.index.size();
+				pendingDevices += segment.pending.size();
+				online += segment.online;
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		return PresenceMetrics.builder()
+				.events(events.sum())
+				.ignoredEvents(ignored.sum())
+				.forwarded(forwarded.sum())
+				.suppressedToggles(suppressed.sum())
+				.retried(retried.sum())
+				.dropped(dropped.sum())
+				.trackedDevices(trackedDevices)
+				.onlineDevices(online)
+				.pendingDevices(pendingDevices)
+				.build();
+	}
+	
+	/**
+	 * 打印在线状态跟踪状态
+	 */
+	public void logStatus() {
+		if (segments == null) {
+			return;
+		}
+		PresenceMetrics metrics = getMetrics();
+		log.info("设备在线状态 - 事件: {}, 忽略: {}, 转发: {}, 抑制切换: {}, 重试: {}, 放弃: {}, 跟踪设备: {}, 在线: {}, 待转发: {}",
+				metrics.getEvents(), metrics.getIgnoredEvents(), metrics.getForwarded(),
+				metrics.getSuppressedToggles(), metrics.getRetried(), metrics.getDropped(),
+				metrics.getTrackedDevices(), metrics.getOnlineDevices(), metrics.getPendingDevices());
+	}
+	
+	/**
+	 * 分段: 槽位索引 + 设备状态数组 + 待转发表
+	 */
+	private static final class Segment {
+		
+		private final ReentrantLock lock = new ReentrantLock();
+		private final DeviceSlotIndex index;
+		/**
+		 * 当前状态 / 已转发状态, 取值为DeviceState.code()
+		 */
+		private final byte[] state;
+		private final byte[] reported;
+		/**
+		 * 最近一次通知的AEP时间戳, 用于丢弃乱序到达的旧通知
+		 */
+		private final long[] timestamp;
+		/**
+		 * 最近一次状态变化时间(秒)
+		 */
+		private final int[] lastChange;
+		/**
+		 * 抖动窗口起始时间(秒)与窗口内切换次数
+		 */
+		private final int[] windowStart;
+		private final byte[] toggles;
+		/**
+		 * 当前这次状态变化已重试转发的次数
+		 */
+		private final byte[] retries;
+		/**
+		 * 待转发的设备: 设备键 → 转发模板(设备ID、产品ID、租户ID)
+		 * 只包含状态发生变化且尚未转发的设备, 数量远小于跟踪设备数
+		 */
+		private final Map<Long, DeviceStatusChangeDTO> pending = new HashMap<>();
+		private int online;
+		
+		private Segment(int capacity) {
+			this.index = new DeviceSlotIndex(capacity);
+			this.state = new byte[capacity];
+			this.reported = new byte[capacity];
+			this.timestamp = new long[capacity];
+			this.lastChange = new int[capacity];
+			this.windowStart = new int[capacity];
+			this.toggles = new byte[capacity];
+			this.retries = new byte[capacity];
+		}
+		
+		/**
+		 * 记录一次通知
+		 *
+		 * @return 状态是否发生变化(重复通知、乱序旧通知返回false)
+		 */
+		private boolean record(long key, byte newState, long eventTimestamp, int now, PresenceConfig config) {
+			int slot = index.acquire(key, now);
+			if (index.created()) {
+				// 复用被淘汰设备的槽位时, 修正在线计数
+				if (state[slot] == DeviceState.ONLINE.code()) {
+					online--;
+				}
+				state[slot] = DeviceState.UNKNOWN.code();
+				reported[slot] = DeviceState.UNKNOWN.code();
+				timestamp[slot] = Long.MIN_VALUE;
+				windowStart[slot] = now;
+				toggles[slot] = 0;
+			}
+			if (eventTimestamp < timestamp[slot]) {
+				return false;
+			}
+			timestamp[slot] = eventTimestamp;
+			if (state[slot] == newState) {
+				return false;
+			}
+			if (state[slot] == DeviceState.ONLINE.code()) {
+				online--;
+			}
+			if (newState == DeviceState.ONLINE.code()) {
+				online++;
+			}
+			state[slot] = newState;
+			lastChange[slot] = now;
+			retries[slot] = 0;
+			if (now - windowStart[slot] >= config.getFlapWindowSeconds()) {
+				windowStart[slot] = now;
+				toggles[slot] = 0;
+			}
+			if (toggles[slot] < Byte.MAX_VALUE) {
+				toggles[slot]++;
+			}
+			return true;
+		}
+		
+		private boolean isFlapping(int slot, int now, PresenceConfig config) {
+			return toggles[slot] >= config.getFlapThreshold()
+					&& now - windowStart[slot] < config.getFlapWindowSeconds();
+		}
+		
+		private void collectSettled(int now, PresenceConfig config, List<DeviceStatusChangeDTO> settled) {
+			Iterator<Map.Entry<Long, DeviceStatusChangeDTO>> iterator = pending.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<Long, DeviceStatusChangeDTO> entry = iterator.next();
+				int slot = index.find(entry.getKey());
+				if (slot < 0) {
+					iterator.remove();
+					continue;
+				}
+				boolean flapping = isFlapping(slot, now, config);
+				int settleSeconds = flapping ? config.getDampedSettleSeconds() : config.getSettleSeconds();
+				if (now - lastChange[slot] < settleSeconds) {
+					continue;
+				}
+				iterator.remove();
+				if (state[slot] == reported[slot]) {
+					// 抖动后回到了已转发的状态, 无需上报
+					continue;
+				}
+				DeviceStatusChangeDTO change = entry.getValue();
+				change.setOnline(state[slot] == DeviceState.ONLINE.code());
+				change.setTimestamp(timestamp[slot]);
+				change.setSuppressedToggles(Math.max(0, toggles[slot] - 1));
+				reported[slot] = state[slot];
+				settled.add(change);
+			}
+		}
+		
+	}
+	
+	@Data
+	@Builder
+	public static class PresenceMetrics {
+		
+		private long events;
+		private long ignoredEvents;
+		private long forwarded;
+		private long suppressedToggles;
+		private long retried;
+		private long dropped;
+		private int trackedDevices;
+		private int onlineDevices;
+		private int pendingDevices;
+		
+	}
+	
+}
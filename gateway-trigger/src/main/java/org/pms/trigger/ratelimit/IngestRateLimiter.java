@@ -0,0 +1,327 @@
+package org.pms.trigger.ratelimit;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.trigger.buffer.DataBufferConfig;
+import org.pms.trigger.utils.DeviceKeys;
+import org.pms.trigger.utils.DeviceSlotIndex;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 设备数据接入限流(令牌桶)
+ * <p>
+ * 上报间隔被误配为100ms的终端会占用大量网关容量, 在入队前按设备、按租户两级令牌桶限流
+ * 设计思路：
+ * - 设备令牌桶按分段存放在基本类型数组中(令牌数 + 上次补充时间, 每台设备16字节), 由{@link DeviceSlotIndex}按槽位号寻址,
+ *   首次上报时创建, 表满时淘汰最久未上报的设备; 闲置到令牌桶填满的设备淘汰后重建, 结果与未淘汰相同
+ * - 租户令牌桶数量很少, 放在ConcurrentHashMap中; 超过上限后的新租户共用一个令牌桶
+ * - 令牌以百万分之一为单位的整数计数, 补充时按经过的毫秒数计算, 不依赖定时任务, 低速率下的舍入误差可忽略
+ * - 设备令牌取得后若被租户令牌桶拒绝, 归还设备令牌, 被拒绝的消息不消耗任何一级的额度
+ * - 被限流的消息向AEP确认接收并丢弃(见{@link org.pms.trigger.aep.IngestResult#THROTTLED}), 重推只会再次被限流
+ * - 限流参数每次判断时从{@link DataBufferConfig}读取, 配置刷新(ConfigurationPropertiesRebinder重新绑定)后立即生效;
+ *   设备令牌桶在首次开启时才分配
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-06
+ */
+@Slf4j
+@Component
+public class IngestRateLimiter {
+	
+	/**
+	 * 1个令牌 = 1000000个计数单位
+	 */
+	private static final long UNIT = 1_000_000;
+	
+	/**
+	 * 每秒1个令牌时每毫秒补充的计数单位
+	 */
+	private static final double UNITS_PER_MILLI = UNIT / 1000.0;
+	
+	/**
+	 * 租户令牌桶数量上限
+	 */
+	private static final int MAX_TENANT_BUCKETS = 4096;
+	
+	/**
+	 * 超过上限后的新租户共用的令牌桶
+	 */
+	private static final String SHARED_TENANT = "*";
+	
+	private final DataBufferConfig config;
+	private final ConcurrentHashMap<String, TenantBucket> tenantBuckets = new ConcurrentHashMap<>();
+	private final ReentrantLock initLock = new ReentrantLock();
+	private final LongAdder checks = new LongAdder();
+	private final LongAdder throttledByDevice = new LongAdder();
+	private final LongAdder throttledByTenant = new LongAdder();
+	private volatile Segment[] segments;
+	private int segmentMask;
+	
+	public IngestRateLimiter(DataBufferConfig config) {
+		this.config = config;
+	}
+	
+	/**
+	 * 申请一个令牌, 设备与租户令牌桶都有令牌时才放行
+	 *
+	 * @param data 设备数据
+	 * @return true-放行, false-被限流
+	 */
+	public boolean tryAcquire(BaseDeviceDataDTO data) {
+		return tryAcquire(data, System.currentTimeMillis());
+	}
+	
+	boolean tryAcquire(BaseDeviceDataDTO data, long now) {
+		DataBufferConfig.RateLimit limit = config.getRateLimit();
+		if (!limit.isEnabled()) {
+			return true;
+		}
+		checks.increment();
+		DataBufferConfig.TenantLimit tenantLimit = data.getTenantId() != null ? limit.getTenants().get(data.getTenantId()) : null;
+		
+		double devicePerSecond = tenantLimit != null && tenantLimit.getDevicePerSecond() != null
+				? tenantLimit.getDevicePerSecond() : limit.getDevicePerSecond();
+		int deviceBurst = tenantLimit != null && tenantLimit.getDeviceBurst() != null
+				? tenantLimit.getDeviceBurst() : limit.getDeviceBurst();
+		boolean deviceLimited = devicePerSecond > 0 && data.getDeviceId() != null;
+		if (deviceLimited && !acquireDevice(data.getDeviceId(), devicePerSecond, deviceBurst, now)) {
+			throttledByDevice.increment();
+			return false;
+		}
+		
+		double tenantPerSecond = tenantLimit != null && tenantLimit.getPerSecond() != null
+				? tenantLimit.getPerSecond() : limit.getTenantPerSecond();
+		int tenantBurst = tenantLimit != null && tenantLimit.getBurst() != null
+				? tenantLimit.getBurst() : limit.getTenantBurst();
+		if (tenantPerSecond > 0 && data.getTenantId() != null) {
+			TenantBucket bucket = tenantBucket(data.getTenantId());
+			if (!bucket.acquire(tenantPerSecond, tenantBurst, now)) {
+				throttledByTenant.increment();
+				if (deviceLimited) {
+					refundDevice(data.getDeviceId(), deviceBurst);
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private TenantBucket tenantBucket(String tenantId) {
+		TenantBucket bucket = tenantBuckets.get(tenantId);
+		if (bucket != null) {
+			return bucket;
+		}
+		if (tenantBuckets.size() >= MAX_TENANT_BUCKETS) {
+			tenantId = SHARED_TENANT;
+		}
+		return tenantBuckets.computeIfAbsent(tenantId, TenantBucket::new);
+	}
+	
+	private boolean acquireDevice(String deviceId, double perSecond, int burst, long now) {
+		Segment[] current = segments();
+		long key = DeviceKeys.of(deviceId);
+		Segment segment = current[DeviceKeys.segment(key, segmentMask)];
+		long capacity = Math.max(1, burst) * UNIT;
+		segment.lock.lock();
+		try {
+			int slot = segment.index.acquire(key, DeviceSlotIndex.now());
+			long tokens = segment.index.created()
+					? capacity
+					: refill(segment.tokens[slot], segment.refilledAt[slot], perSecond, capacity, now);
+			segment.refilledAt[slot] = now;
+			if (tokens < UNIT) {
+				segment.tokens[slot] = tokens;
+				return false;
+			}
+			segment.tokens[slot] = tokens - UNIT;
+			return true;
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 归还一个设备令牌, 不超过桶容量; 设备已被淘汰时无需归还(重建时令牌桶是满的)
+	 */
+	private void refundDevice(String deviceId, int burst) {
+		long key = DeviceKeys.of(deviceId);
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		long capacity = Math.max(1, burst) * UNIT;
+		segment.lock.lock();
+		try {
+			int slot = segment.index.find(key);
+			if (slot >= 0) {
+				segment.tokens[slot] = Math.min(capacity, segment.tokens[slot] + UNIT);
+			}
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+	
+	/**
+	 * 按经过的时间补充令牌, 不超过桶容量
+	 */
+	private static long refill(long tokens, long refilledAt, double perSecond, long capacity, long now) {
+		long elapsed = Math.max(0, now - refilledAt);
+		return Math.min(capacity, tokens + (long) (elapsed * perSecond * UNITS_PER_MILLI));
+	}
+	
+	private Segment[] segments() {
+		Segment[] current = segments;
+		if (current != null) {
+			return current;
+		}
+		initLock.lock();
+		try {
+			if (segments == null) {
+				DataBufferConfig.RateLimit limit = config.getRateLimit();
+				int segmentCount = DeviceKeys.ceilPowerOfTwo(limit.getSegments());
+				int perSegment = Math.max(1, (limit.getMaxDevices() + segmentCount - 1) / segmentCount);
+				Segment[] created = new Segment[segmentCount];
+				for (int i = 0; i < segmentCount; i++) {
+					created[i] = new Segment(perSegment);
+				}
+				segmentMask = segmentCount - 1;
+				segments = created;
+				log.info("设备令牌桶初始化完成: maxDevices={}, segments={}", (long) perSegment * segmentCount, segmentCount);
+			}
+			return segments;
+		} finally {
+			initLock.unlock();
+		}
+	}
+	
+	/**
+	 * 获取限流指标
+	 */
+	public RateLimitMetrics getMetrics() {
+		Segment[] current = segments;
+		long trackedDevices = 0;
+		long evictions = 0;
+		if (current != null) {
+			for (Segment segment : current) {
+				segment.lock.lock();
+				try {
+					trackedDevices += segment.index.size();
+					evictions += segment.index.evictions();
+				} finally {
+					segment.lock.unlock();
+				}
+			}
+		}
+		List<TenantThrottle> tenants = new ArrayList<>();
+		for (TenantBucket bucket : tenantBuckets.values()) {
+			long throttled = bucket.throttled.sum();
+			if (throttled > 0) {
+				tenants.add(new TenantThrottle(bucket.tenantId, throttled));
+			}
+		}
+		tenants.sort(Comparator.comparingLong(TenantThrottle::getThrottled).reversed());
+		return RateLimitMetrics.builder()
+				.enabled(config.getRateLimit().isEnabled())
+				.checks(checks.sum())
+				.throttledByDevice(throttledByDevice.sum())
+				.throttledByTenant(throttledByTenant.sum())
+				.trackedDevices(trackedDevices)
+				.evictions(evictions)
+				.tenants(tenants)
+				.build();
+	}
+	
+	/**
+	 * 打印限流状态
+	 */
+	public void logStatus() {
+		RateLimitMetrics metrics = getMetrics();
+		if (!metrics.isEnabled()) {
+			return;
+		}
+		log.info("接入限流 - 检查: {}, 设备限流: {}, 租户限流: {}, 跟踪设备数: {}, 淘汰: {}, 被限流租户: {}",
+				metrics.getChecks(), metrics.getThrottledByDevice(), metrics.getThrottledByTenant(),
+				metrics.getTrackedDevices(), metrics.getEvictions(), metrics.getTenants());
+	}
+	
+	/**
+	 * 分段: 槽位索引 + 令牌数 + 上次补充时间
+	 */
+	private static final class Segment {
+		
+		private final ReentrantLock lock = new ReentrantLock();
+		private final DeviceSlotIndex index;
+		private final long[] tokens;
+		private final long[] refilledAt;
+		
+		private Segment(int capacity) {
+			this.index = new DeviceSlotIndex(capacity);
+			this.tokens = new long[capacity];
+			this.refilledAt = new long[capacity];
+		}
+		
+	}
+	
+	/**
+	 * 租户令牌桶
+	 */
+	private static final class TenantBucket {
+		
+		private final String tenantId;
+		private final ReentrantLock lock = new ReentrantLock();
+		private final LongAdder throttled = new LongAdder();
+		private long tokens = -1;
+		private long refilledAt;
+		
+		private TenantBucket(String tenantId) {
+			this.tenantId = tenantId;
+		}
+		
+		private boolean acquire(double perSecond, int burst, long now) {
+			long capacity = Math.max(1, burst) * UNIT;
+			lock.lock();
+			try {
+				tokens = tokens < 0 ? capacity : refill(tokens, refilledAt, perSecond, capacity, now);
+				refilledAt = now;
+				if (tokens < UNIT) {
+					throttled.increment();
+					return false;
+				}
+				tokens -= UNIT;
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+	}
+	
+	@Data
+	@Builder
+	public static class RateLimitMetrics {
+		
+		private boolean enabled;
+		private long checks;
+		private long throttledByDevice;
+		private long throttledByTenant;
+		private long trackedDevices;
+		private long evictions;
+		private List<TenantThrottle> tenants;
+		
+	}
+	
+	@Data
+	public static class TenantThrottle {
+		
+		private final String tenantId;
+		private final long throttled;
+		
+	}
+	
+}
@@ -0,0 +1,258 @@
+package org.pms.trigger.registry;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.registry.dto.DeviceRegistryEntryDTO;
+import org.pms.trigger.feign.IDeviceRegistryClient;
+import org.pms.types.Response;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 设备注册表(后端设备台账的本地缓存)
+ * <p>
+ * /aep/**接口对外开放, 任意deviceId的数据都会占用队列并转发后端, 由后端拒绝
+ * 设计思路：
+ * - 启动后全量加载设备台账, 之后按(updateTime, deviceId)游标增量同步, 定期全量重建
+ * - 布隆过滤器位于注册表之前, 未注册设备绝大多数在一次布隆查询内被拒绝, 不访问HashMap
+ * - 布隆过滤器只能追加, 已删除/停用设备由注册表条目的状态拒绝, 全量重建时从布隆过滤器中清除
+ * - 消息中的tenantId与注册表不一致时同样拒绝
+ * - 接入时用注册表填充pipelineId, 转发后端时不再以productId代替
+ * - 首次全量加载完成前默认放行, 后端不可用时不影响数据接入
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-01
+ */
+@Slf4j
+@Component
+public class DeviceRegistry {
+	
+	private final DeviceRegistryConfig config;
+	private final IDeviceRegistryClient registryClient;
+	private final ReentrantLock refreshLock = new ReentrantLock();
+	private final LongAdder admitted = new LongAdder();
+	private final LongAdder bloomRejected = new LongAdder();
+	private final LongAdder registryRejected = new LongAdder();
+	
+	/**
+	 * 全量重建时整体替换, 两者一起发布
+	 */
+	private volatile Snapshot snapshot;
+	
+	// ========== 同步游标, 仅在refreshLock内访问 ==========
+	private long cursorTime;
+	private String cursorDeviceId = "";
+	private long lastFullReloadAt;
+	
+	public DeviceRegistry(DeviceRegistryConfig config, IDeviceRegistryClient registryClient) {
+		this.config = config;
+		this.registryClient = registryClient;
+	}
+	
+	/**
+	 * 接入准入检查, 通过时填充pipelineId
+	 *
+	 * @param data 设备数据
+	 * @return 是否放行
+	 */
+	public boolean admit(BaseDeviceDataDTO data) {
+		if (!config.isEnabled()) {
+			return true;
+		}
+		Snapshot current = snapshot;
+		if (current == null) {
+			return !config.isRejectWhenNotReady();
+		}
+		String deviceId = data.getDeviceId();
+		if (deviceId == null || !current.bloom.mightContain(deviceId)) {
+			bloomRejected.increment();
+			return false;
+		}
+		Entry entry = current.devices.get(deviceId);
+		if (entry == null || entry.status != DeviceRegistryEntryDTO.STATUS_ENABLED
+				|| (data.getTenantId() != null && entry.tenantId != null && !entry.tenantId.equals(data.getTenantId()))) {
+			registryRejected.increment();
+			return false;
+		}
+		data.setPipelineId(entry.pipelineId);
+		admitted.increment();
+		return true;
+	}
+	
+	/**
+	 * 同步设备台账: 首次或到达全量重建间隔时全量加载, 否则增量同步
+	 * 由定时任务调用, 上一次同步未结束时跳过
+	 */
+	public void refresh() {
+		if (!config.isEnabled() || !refreshLock.tryLock()) {
+			return;
+		}
+		try {
+			long now = System.currentTimeMillis();
+			if (snapshot == null || now - lastFullReloadAt >= config.getFullReloadMinutes() * 60_000L) {
+				fullReload();
+				lastFullReloadAt = now;
+			} else {
+				incrementalRefresh();
+			}
+		} catch (Exception e) {
+			log.error("同步设备注册表失败, 继续使用现有注册表", e);
+		} finally {
+			refreshLock.unlock();
+		}
+	}
+	
+	/**
+	 * 获取注册表指标
+	 */
+	public RegistryMetrics getMetrics() {
+		Snapshot current = snapshot;
+		return RegistryMetrics.builder()
+				.enabled(config.isEnabled())
+				.ready(current != null)
+				.devices(current == null ? 0 : current.devices.size())
+				.bloomFalsePositiveRate(current == null ? 0 : current.bloom.expectedFpp())
+				.admitted(admitted.sum())
+				.bloomRejected(bloomRejected.sum())
+				.registryRejected(registryRejected.sum())
+				.build();
+	}
+	
+	/**
+	 * 打印注册表状态
+	 */
+	public void logStatus() {
+		RegistryMetrics metrics = getMetrics();
+		if (!metrics.isEnabled()) {
+			return;
+		}
+		log.info("设备注册表 - 已加载: {}, 设备数: {}, 布隆误判率: {}, 放行: {}, 布隆拒绝: {}, 注册表拒绝: {}",
+				metrics.isReady(), metrics.getDevices(), String.format("%.5f", metrics.getBloomFalsePositiveRate()),
+				metrics.getAdmitted(), metrics.getBloomRejected(), metrics.getRegistryRejected());
+	}
+	
+	private void fullReload() {
+		long start = System.currentTimeMillis();
+		Map<String, Entry> devices = new ConcurrentHashMap<>();
+		long time = 0;
+		String deviceId = "";
+		List<DeviceRegistryEntryDTO> page;
+		do {
+			page = fetch(time, deviceId);
+			for (DeviceRegistryEntryDTO dto : page) {
+				if (dto.getStatus() != null && dto.getStatus() != DeviceRegistryEntryDTO.STATUS_DELETED) {
+					devices.put(dto.getDeviceId(), Entry.of(dto));
+				}
+			}
+			if (!page.isEmpty()) {
+				DeviceRegistryEntryDTO last = page.get(page.size() - 1);
+				time = last.getUpdateTime() != null ? last.getUpdateTime() : time;
+				deviceId = last.getDeviceId();
+			}
+		} while (page.size() >= config.getPageSize());
+		
+		BloomFilter<CharSequence> bloom = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+				Math.max(config.getExpectedDevices(), devices.size() * 2L), config.getFalsePositiveRate());
+		devices.keySet().forEach(bloom::put);
+		snapshot = new Snapshot(devices, bloom);
+		cursorTime = time;
+		cursorDeviceId = deviceId;
+		log.info("设备注册表全量加载完成: 设备数={}, 耗时={}ms", devices.size(), System.currentTimeMillis() - start);
+	}
+	
+	private void incrementalRefresh() {
+		Snapshot current = snapshot;
+		int changed = 0;
+		List<DeviceRegistryEntryDTO> page;
+		do {
+			page = fetch(cursorTime, cursorDeviceId);
+			for (DeviceRegistryEntryDTO dto : page) {
+				if (dto.getStatus() == null || dto.getStatus() == DeviceRegistryEntryDTO.STATUS_DELETED) {
+					current.devices.remove(dto.getDeviceId());
+				} else {
+					// 先放入注册表再放入布隆过滤器, 通过布隆检查的设备一定能在注册表中查到
+					current.devices.put(dto.getDeviceId(), Entry.of(dto));
+					current.bloom.put(dto.getDeviceId());
+				}
+				changed++;
+			}
+			if (!page.isEmpty()) {
+				DeviceRegistryEntryDTO last = page.get(page.size() - 1);
+				cursorTime = last.getUpdateTime() != null ? last.getUpdateTime() : cursorTime;
+				cursorDeviceId = last.getDeviceId();
+			}
+		} while (page.size() >= config.getPageSize());
+		if (changed > 0) {
+			log.info("设备注册表增量同步完成: 变更设备数={}, 设备数={}", changed, current.devices.size());
+		}
+	}
+	
+	private List<DeviceRegistryEntryDTO> fetch(long since, String afterDeviceId) {
+		Response<List<DeviceRegistryEntryDTO>> response = registryClient.listChanges(since, afterDeviceId, config.getPageSize());
+		if (response == null || response.getData() == null) {
+			throw new IllegalStateException("查询设备台账失败: " + (response == null ? null : response.getMessage()));
+		}
+		return response.getData();
+	}
+	
+	/**
+	 * 注册表与布隆过滤器
+	 */
+	private static final class Snapshot {
+		
+		private final Map<String, Entry> devices;
+		private final BloomFilter<CharSequence> bloom;
+		
+		private Snapshot(Map<String, Entry> devices, BloomFilter<CharSequence> bloom) {
+			this.devices = devices;
+			this.bloom = bloom;
+		}
+		
+	}
+	
+	/**
+	 * 注册表条目(不可变)
+	 */
+	private static final class Entry {
+		
+		private final String tenantId;
+		private final String pipelineId;
+		private final int status;
+		
+		private Entry(String tenantId, String pipelineId, int status) {
+			this.tenantId = tenantId;
+			this.pipelineId = pipelineId;
+			this.status = status;
+		}
+		
+		private static Entry of(DeviceRegistryEntryDTO dto) {
+			return new Entry(dto.getTenantId(), dto.getPipelineId(), dto.getStatus());
+		}
+		
+	}
+	
+	@Data
+	@Builder
+	public static class RegistryMetrics {
+		
+		private boolean enabled;
+		private boolean ready;
+		private int devices;
+		private double bloomFalsePositiveRate;
+		private long admitted;
+		private long bloomRejected;
+		private long registryRejected;
+		
+	}
+	
+}
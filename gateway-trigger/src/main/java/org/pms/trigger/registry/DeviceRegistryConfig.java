@@ -0,0 +1,69 @@
+package org.pms.trigger.registry;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 设备注册表配置
+ * 配置说明：
+ * - enabled: 是否开启, 开启后未注册(或已停用、已删除)的设备数据在入队前拒绝
+ * - refreshIntervalMs: 增量同步间隔
+ * - fullReloadMinutes: 全量重建间隔, 重建时同时重建布隆过滤器以清除已删除设备
+ * - pageSize: 同步时每页条数
+ * - expectedDevices / falsePositiveRate: 布隆过滤器的预期设备数与误判率
+ * - rejectWhenNotReady: 首次全量加载完成前是否拒绝数据, 默认放行(后端不可用时不影响数据接入)
+ * <p>
+ * 内存估算: 布隆过滤器100万设备、误判率0.1%约1.8MB; 注册表每设备约200字节
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-01
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.registry")
+public class DeviceRegistryConfig {
+	
+	/**
+	 * 是否开启
+	 * 默认关闭
+	 */
+	private boolean enabled = false;
+	
+	/**
+	 * 增量同步间隔(毫秒)
+	 * 默认30秒
+	 */
+	private int refreshIntervalMs = 30_000;
+	
+	/**
+	 * 全量重建间隔(分钟)
+	 * 默认60分钟
+	 */
+	private int fullReloadMinutes = 60;
+	
+	/**
+	 * 同步时每页条数
+	 * 默认5000
+	 */
+	private int pageSize = 5000;
+	
+	/**
+	 * 布隆过滤器预期设备数, 实际设备数更多时按实际数的2倍构建
+	 * 默认100万
+	 */
+	private int expectedDevices = 1_000_000;
+	
+	/**
+	 * 布隆过滤器误判率
+	 * 默认0.001
+	 */
+	private double falsePositiveRate = 0.001;
+	
+	/**
+	 * 首次全量加载完成前是否拒绝数据
+	 * 默认false
+	 */
+	private boolean rejectWhenNotReady = false;
+	
+}
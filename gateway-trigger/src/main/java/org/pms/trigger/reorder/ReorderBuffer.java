@@ -0,0 +1,329 @@
+package org.pms.trigger.reorder;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.trigger.utils.DeviceKeys;
+import org.pms.trigger.utils.DeviceSlotIndex;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 设备数据乱序重排缓冲
+ * <p>
+ * AEP重推时同一设备的消息可能乱序到达, 按到达顺序转发会让后端的最新值回退
+ * 设计思路：
+ * - 位于消费者取出数据之后, 每台设备的数据按(timestamp, upDataSN)插入有序的暂存数组
+ * - 暂存超过maxDelayMs的数据连同排在它之前的数据一起按顺序转发, 保证同一设备的转发顺序单调
+ * - 每台设备记录最后转发的排序键, 之后到达的更早数据视为迟到, 直接转发并计数
+ * - 分段加锁, 不使用全局锁; 暂存数组按maxDevices × maxPerDevice启动时一次性分配
+ * - 未携带timestamp的数据无法排序, 直接转发
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-28
+ */
+@Slf4j
+@Component
+public class ReorderBuffer {
+	
+	private final ReorderConfig config;
+	private final LongAdder held = new LongAdder();
+	private final LongAdder reordered = new LongAdder();
+	private final LongAdder late = new LongAdder();
+	private final LongAdder overflows = new LongAdder();
+	private Segment[] segments;
+	private int segmentMask;
+	
+	public ReorderBuffer(ReorderConfig config) {
+		this.config = config;
+	}
+	
+	@PostConstruct
+	public void init() {
+		if (!config.isEnabled()) {
+			log.info("设备数据乱序重排未开启");
+			return;
+		}
+		int segmentCount = DeviceKeys.ceilPowerOfTwo(config.getSegments());
+		int perSegment = Math.max(1, (config.getMaxDevices() + segmentCount - 1) / segmentCount);
+		int maxPerDevice = Math.max(1, config.getMaxPerDevice());
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(perSegment, maxPerDevice);
+		}
+		segmentMask = segmentCount - 1;
+		log.info("设备数据乱序重排初始化完成: maxDelayMs={}, maxPerDevice={}, maxDevices={}, segments={}",
+				config.getMaxDelayMs(), maxPerDevice, (long) perSegment * segmentCount, segmentCount);
+	}
+	
+	/**
+	 * 暂存本批数据, 返回可以转发的数据(同一设备内按顺序)
+	 * 本批为空时也需调用, 以转发暂存到期的数据
+	 *
+	 * @param batch 消费者取出的设备数据
+	 * @param now   当前时间戳
+	 * @return 可以转发的数据
+	 */
+	public List<BaseDeviceDataDTO> reorder(List<BaseDeviceDataDTO> batch, long now) {
+		if (segments == null) {
+			return batch;
+		}
+		List<BaseDeviceDataDTO> released = new ArrayList<>(batch.size());
+		for (BaseDeviceDataDTO data : batch) {
+			if (data.getDeviceId() == null || data.getTimestamp() == null) {
+				released.add(data);
+				continue;
+			}
+			long key = DeviceKeys.of(data.getDeviceId());
+			Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+			segment.lock.lock();
+			try {
+				offer(segment, key, data, now, released);
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		long deadline = now - config.getMaxDelayMs();
+		for (Segment segment : segments) {
+			segment.lock.lock();
+			try {
+				releaseExpired(segment, deadline, released);
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		return released;
+	}
+	
+	/**
+	 * 获取重排指标
+	 */
+	public ReorderMetrics getMetrics() {
+		int pending = 0;
+		if (segments != null) {
+			for (Segment segment : segments) {
+				segment.lock.lock();
+				try {
+					for (int i = 0; i < segment.activeCount; i++) {
+						pending += segment.count[segment.active[i]];
+					}
+				} finally {
+					segment.lock.unlock();
+				}
+			}
+		}
+		return ReorderMetrics.builder()
+				.enabled(segments != null)
+				.held(held.sum())
+				.reordered(reordered.sum())
+				.late(late.sum())
+				.overflows(overflows.sum())
+				.pending(pending)
+				.build();
+	}
+	
+	/**
+	 * 打印重排状态
+	 */
+	public void logStatus() {
+		ReorderMetrics metrics = getMetrics();
+		if (!metrics.isEnabled()) {
+			return;
+		}
+		log.info("设备数据乱序重排 - 暂存: {}, 调整顺序: {}, 迟到: {}, 超出暂存上限: {}, 当前暂存: {}",
+				metrics.getHeld(), metrics.getReordered(), metrics.getLate(), metrics.getOverflows(), metrics.getPending());
+	}
+	
+	private void offer(Segment segment, long key, BaseDeviceDataDTO data, long now, List<BaseDeviceDataDTO> released) {
+		int slot = segment.index.acquire(key, DeviceSlotIndex.now());
+		if (segment.index.created()) {
+			// 槽位淘汰自其他设备, 其暂存数据立即转发
+			segment.releaseFirst(slot, segment.count[slot], released);
+			segment.hasReleased[slot] = false;
+		}
+		long timestamp = data.getTimestamp();
+		int sn = data.getUpDataSN() != null ? data.getUpDataSN() : 0;
+		if (segment.hasReleased[slot]
+				&& compare(timestamp, sn, segment.releasedTs[slot], segment.releasedSn[slot]) < 0) {
+			late.increment();
+			released.add(data);
+			return;
+		}
+		if (segment.count[slot] == segment.maxPerDevice) {
+			overflows.increment();
+			int base = slot * segment.maxPerDevice;
+			if (compare(timestamp, sn, segment.pendingTs[base], segment.pendingSn[base]) < 0) {
+				// 新数据排在全部暂存数据之前, 提前转发的就是它本身, 先转发暂存数据会破坏顺序
+				released.add(data);
+				segment.releasedTs[slot] = timestamp;
+				segment.releasedSn[slot] = sn;
+				segment.hasReleased[slot] = true;
+				return;
+			}
+			segment.releaseFirst(slot, 1, released);
+		}
+		if (segment.insert(slot, data, timestamp, sn, now)) {
+			reordered.increment();
+		}
+		held.increment();
+	}
+	
+	private void releaseExpired(Segment segment, long deadline, List<BaseDeviceDataDTO> released) {
+		for (int i = segment.activeCount - 1; i >= 0; i--) {
+			int slot = segment.active[i];
+			int base = slot * segment.maxPerDevice;
+			// 释放到最后一条到期数据为止, 排在它之前的数据一并释放以保持顺序
+			int last = -1;
+			for (int j = 0; j < segment.count[slot]; j++) {
+				if (segment.arrivedAt[base + j] <= deadline) {
+					last = j;
+				}
+			}
+			if (last >= 0) {
+				segment.releaseFirst(slot, last + 1, released);
+			}
+		}
+	}
+	
+	private static int compare(long ts, int sn, long otherTs, int otherSn) {
+		int result = Long.compare(ts, otherTs);
+		return result != 0 ? result : Integer.compare(sn, otherSn);
+	}
+	
+	/**
+	 * 分段: 槽位索引 + 暂存数组
+	 * 槽位slot的暂存区为[slot × maxPerDevice, slot × maxPerDevice + count[slot]), 按排序键升序
+	 */
+	private static final class Segment {
+		
+		private final ReentrantLock lock = new ReentrantLock();
+		private final DeviceSlotIndex index;
+		private final int maxPerDevice;
+		private final BaseDeviceDataDTO[] pending;
+		private final long[] pendingTs;
+		private final int[] pendingSn;
+		private final long[] arrivedAt;
+		private final int[] count;
+		
+		// ========== 最后转发的排序键 ==========
+		private final long[] releasedTs;
+		private final int[] releasedSn;
+		private final boolean[] hasReleased;
+		
+		// ========== 有暂存数据的槽位 ==========
+		private final int[] active;
+		private final int[] activePos;
+		private int activeCount;
+		
+		private Segment(int capacity, int maxPerDevice) {
+			this.index = new DeviceSlotIndex(capacity);
+			this.maxPerDevice = maxPerDevice;
+			this.pending = new BaseDeviceDataDTO[capacity * maxPerDevice];
+			this.pendingTs = new long[capacity * maxPerDevice];
+			this.pendingSn = new int[capacity * maxPerDevice];
+			this.arrivedAt = new long[capacity * maxPerDevice];
+			this.count = new int[capacity];
+			this.releasedTs = new long[capacity];
+			this.releasedSn = new int[capacity];
+			this.hasReleased = new boolean[capacity];
+			this.active = new int[capacity];
+			this.activePos = new int[capacity];
+		}
+		
+		/**
+		 * 按排序键插入
+		 *
+		 * @return 是否插在已有数据之前(即发生了乱序)
+		 */
+		private boolean insert(int slot, BaseDeviceDataDTO data, long ts, int sn, long now) {
+			int base = slot * maxPerDevice;
+			int n = count[slot];
+			int pos = n;
+			while (pos > 0 && compare(ts, sn, pendingTs[base + pos - 1], pendingSn[base + pos - 1]) < 0) {
+				pending[base + pos] = pending[base + pos - 1];
+				pendingTs[base + pos] = pendingTs[base + pos - 1];
+				pendingSn[base + pos] = pendingSn[base + pos - 1];
+				arrivedAt[base + pos] = arrivedAt[base + pos - 1];
+				pos--;
+			}
+			pending[base + pos] = data;
+			pendingTs[base + pos] = ts;
+			pendingSn[base + pos] = sn;
+			arrivedAt[base + pos] = now;
+			if (n == 0) {
+				activePos[slot] = activeCount;
+				active[activeCount++] = slot;
+			}
+			count[slot] = n + 1;
+			return pos < n;
+		}
+		
+		/**
+		 * 按顺序释放前n条暂存数据
+		 */
+		private void releaseFirst(int slot, int n, List<BaseDeviceDataDTO> released) {
+			if (n <= 0) {
+				return;
+			}
+			int base = slot * maxPerDevice;
+			for (int i = 0; i < n; i++) {
+				released.add(pending[base + i]);
+			}
+			releasedTs[slot] = pendingTs[base + n - 1];
+			releasedSn[slot] = pendingSn[base + n - 1];
+			hasReleased[slot] = true;
+			int remaining = count[slot] - n;
+			System.arraycopy(pending, base + n, pending, base, remaining);
+			System.arraycopy(pendingTs, base + n, pendingTs, base, remaining);
+			System.arraycopy(pendingSn, base + n, pendingSn, base, remaining);
+			System.arraycopy(arrivedAt, base + n, arrivedAt, base, remaining);
+			for (int i = remaining; i < count[slot]; i++) {
+				pending[base + i] = null;
+			}
+			count[slot] = remaining;
+			if (remaining == 0) {
+				// 从活跃列表移除: 末尾槽位填入空位
+				int pos = activePos[slot];
+				int moved = active[--activeCount];
+				active[pos] = moved;
+				activePos[moved] = pos;
+			}
+		}
+		
+	}
+	
+	@Data
+	@Builder
+	public static class ReorderMetrics {
+		
+		private boolean enabled;
+		/**
+		 * 经过暂存的数据条数
+		 */
+		private long held;
+		/**
+		 * 插在已暂存数据之前(被调整顺序)的条数
+		 */
+		private long reordered;
+		/**
+		 * 早于已转发数据、无法调整顺序直接转发的条数
+		 */
+		private long late;
+		/**
+		 * 超过每设备暂存上限而提前转发的次数
+		 */
+		private long overflows;
+		/**
+		 * 当前暂存条数
+		 */
+		private int pending;
+		
+	}
+	
+}
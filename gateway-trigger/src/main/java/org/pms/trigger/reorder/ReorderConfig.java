@@ -0,0 +1,56 @@
+package org.pms.trigger.reorder;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 设备数据乱序重排配置
+ * 配置说明：
+ * - enabled: 是否开启, 开启后消费者取出的设备数据先按设备暂存, 按(timestamp, upDataSN)顺序转发
+ * - maxDelayMs: 单条数据最长暂存时间, 即可容忍的乱序时间差; 设备数据的转发延迟相应增加
+ * - maxPerDevice: 每台设备最多暂存条数, 超过时提前转发最早的一条
+ * - maxDevices: 同时跟踪的设备数上限, 超过后淘汰最久未上报的设备(其暂存数据立即转发)
+ * - segments: 分段数(2的幂)
+ * <p>
+ * 暂存内存上限为 maxDevices × maxPerDevice 条设备数据
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-28
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.reorder")
+public class ReorderConfig {
+	
+	/**
+	 * 是否开启
+	 * 默认关闭
+	 */
+	private boolean enabled = false;
+	
+	/**
+	 * 最长暂存时间(毫秒)
+	 * 默认2000ms
+	 */
+	private int maxDelayMs = 2000;
+	
+	/**
+	 * 每台设备最多暂存条数
+	 * 默认16
+	 */
+	private int maxPerDevice = 16;
+	
+	/**
+	 * 同时跟踪的设备数上限
+	 * 默认10万
+	 */
+	private int maxDevices = 100_000;
+	
+	/**
+	 * 分段数, 需为2的幂
+	 * 默认16
+	 */
+	private int segments = 16;
+	
+}
@@ -0,0 +1,138 @@
+package org.pms.trigger.response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.pms.types.GatewayCode;
+import org.pms.types.Response;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预序列化响应体缓存
+ * <p>
+ * 设计思路：
+ * - GatewayCode对应的响应体在类加载时一次性序列化为UTF-8字节, 之后直接写出字节
+ * - 过滤器/异常处理器鉴权失败时不再创建ObjectMapper和Response对象
+ * - AEP接口的成功响应按模板预先序列化, 数据上报响应按serviceId缓存(serviceId取值很少)
+ * <p>
+ * 注意：返回的字节数组为共享实例, 调用方不得修改
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-10
+ */
+public final class ResponseBodyCache {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	/**
+	 * 数据上报成功响应按serviceId缓存的上限, 超过后退化为即时序列化, 防止恶意serviceId撑爆缓存
+	 */
+	private static final int MAX_SERVICE_ID_ENTRIES = 256;
+
+	private static final String CONTENT_TYPE = "application/json";
+	private static final String CHARACTER_ENCODING = "UTF-8";
+
+	/**
+	 * GatewayCode → 响应体字节(data为null)
+	 */
+	private static final Map<GatewayCode, byte[]> CODE_BODIES = new EnumMap<>(GatewayCode.class);
+
+	/**
+	 * serviceId → 数据上报成功响应体字节
+	 */
+	private static final Map<String, byte[]> DATA_ACCEPTED_BODIES = new ConcurrentHashMap<>();
+
+	private static final byte[] COMMAND_ACCEPTED_BODY;
+	private static final byte[] ON_OFFLINE_ACCEPTED_BODY;
+
+	static {
+		for (GatewayCode code : GatewayCode.values()) {
+			CODE_BODIES.put(code, serialize(code, null));
+		}
+		COMMAND_ACCEPTED_BODY = serialize(GatewayCode.SUCCESS, "接受设备指令响应通知");
+		ON_OFFLINE_ACCEPTED_BODY = serialize(GatewayCode.SUCCESS, "接受设备上下线通知");
+	}
+
+	private ResponseBodyCache() {
+	}
+
+	/**
+	 * 获取GatewayCode对应的响应体
+	 *
+	 * @param code 响应码
+	 * @return 预序列化的响应体字节
+	 */
+	public static byte[] of(GatewayCode code) {
+		return CODE_BODIES.get(code);
+	}
+
+	/**
+	 * 获取设备数据上报成功的响应体, data为"接受设备数据(serviceId)上报"
+	 *
+	 * @param serviceId 服务标识
+	 * @return 预序列化的响应体字节
+	 */
+	public static byte[] dataAccepted(String serviceId) {
+		if (serviceId == null) {
+			return serialize(GatewayCode.SUCCESS, "接受设备数据(null)上报");
+		}
+		byte[] body = DATA_ACCEPTED_BODIES.get(serviceId);
+		if (body != null) {
+			return body;
+		}
+		body = serialize(GatewayCode.SUCCESS, "接受设备数据(" + serviceId + ")上报");
+		if (DATA_ACCEPTED_BODIES.size() < MAX_SERVICE_ID_ENTRIES) {
+			DATA_ACCEPTED_BODIES.putIfAbsent(serviceId, body);
+		}
+		return body;
+	}
+
+	/**
+	 * 获取指令响应接收成功的响应体
+	 */
+	public static byte[] commandAccepted() {
+		return COMMAND_ACCEPTED_BODY;
+	}
+
+	/**
+	 * 获取设备上下线通知接收成功的响应体
+	 */
+	public static byte[] onOfflineAccepted() {
+		return ON_OFFLINE_ACCEPTED_BODY;
+	}
+
+	/**
+	 * 将GatewayCode对应的响应体直接写入HttpServletResponse
+	 *
+	 * @param response     HttpServletResponse
+	 * @param responseCode 响应码
+	 * @throws IOException 写出失败
+	 */
+	public static void write(HttpServletResponse response, GatewayCode responseCode) throws IOException {
+		byte[] body = of(responseCode);
+		response.setCharacterEncoding(CHARACTER_ENCODING);
+		response.setContentType(CONTENT_TYPE);
+		response.setContentLength(body.length);
+		ServletOutputStream outputStream = response.getOutputStream();
+		outputStream.write(body);
+		outputStream.flush();
+	}
+
+	private static byte[] serialize(GatewayCode code, String data) {
+		try {
+			return OBJECT_MAPPER.writeValueAsBytes(Response.<String>builder()
+					.code(code.getCode())
+					.message(code.getMessage())
+					.data(data)
+					.build());
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("响应体预序列化失败: " + code, e);
+		}
+	}
+
+}
@@ -0,0 +1,364 @@
+package org.pms.trigger.rollup;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.devicedata.dto.DeviceRollupDTO;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.trigger.buffer.DataBuffer;
+import org.pms.trigger.utils.DeviceKeys;
+import org.pms.trigger.utils.DeviceSlotIndex;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 设备数据滚动窗口聚合
+ * <p>
+ * 设计思路：
+ * - 位于消费者之前: 命中规则的设备数据计入所在窗口的累加器, 不再逐条转发后端
+ * - 窗口按数据时间戳对齐(windowStart = ts - ts % window), 每台设备同时只有一个打开的窗口
+ * - 累加器为基本类型数组(count/min/max/sum/last), 按槽位号寻址, 接入时只做比较和加法
+ * - 越过压力阈值的数据仍逐条转发(同时计入汇总), 早于当前窗口的迟到数据直接逐条转发
+ * - 窗口在下一窗口的数据到达时或定时任务发现已超过graceSeconds时关闭, 汇总值放入汇总队列
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-25
+ */
+@Slf4j
+@Component
+public class RollupAggregator {
+	
+	/**
+	 * 规则中的通配值
+	 */
+	public static final String ANY = "*";
+	
+	private final RollupConfig config;
+	private final DataBuffer dataBuffer;
+	private final LongAdder absorbed = new LongAdder();
+	private final LongAdder crossings = new LongAdder();
+	private final LongAdder lateReadings = new LongAdder();
+	private final LongAdder rollups = new LongAdder();
+	private final LongAdder droppedRollups = new LongAdder();
+	
+	/**
+	 * tenantId → productId → 规则
+	 */
+	private final Map<String, Map<String, RollupConfig.Rule>> rulesByTenant = new HashMap<>();
+	private Segment[] segments;
+	private int segmentMask;
+	
+	public RollupAggregator(RollupConfig config, DataBuffer dataBuffer) {
+		this.config = config;
+		this.dataBuffer = dataBuffer;
+	}
+	
+	@PostConstruct
+	public void init() {
+		if (!config.isEnabled() || config.getRules().isEmpty()) {
+			log.info("设备数据窗口聚合未开启");
+			return;
+		}
+		for (RollupConfig.Rule rule : config.getRules()) {
+			if (rule.getWindowSeconds() <= 0) {
+				throw new IllegalStateException("device.rollup.rules.window-seconds必须大于0: " + rule);
+			}
+			rulesByTenant.computeIfAbsent(rule.getTenantId(), k -> new HashMap<>()).put(rule.getProductId(), rule);
+		}
+		int segmentCount = DeviceKeys.ceilPowerOfTwo(config.getSegments());
+		int perSegment = Math.max(1, (config.getMaxDevices() + segmentCount - 1) / segmentCount);
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(perSegment);
+		}
+		segmentMask = segmentCount - 1;
+		log.info("设备数据窗口聚合初始化完成: rules={}, maxDevices={}, segments={}",
+				config.getRules().size(), (long) perSegment * segmentCount, segmentCount);
+	}
+	
+	/**
+	 * 将设备数据计入窗口汇总
+	 *
+	 * @param data 设备数据
+	 * @return true-已由汇总代替, 不需要逐条转发; false-需要逐条转发
+	 */
+	public boolean absorb(BaseDeviceDataDTO data) {
+		if (segments == null) {
+			return false;
+		}
+		MonitorReadingDTO reading = data.getReading();
+		if (reading == null) {
+			return false;
+		}
+		RollupConfig.Rule rule = match(data.getTenantId(), data.getProductId());
+		if (rule == null) {
+			return false;
+		}
+		long timestamp = data.getTimestamp() != null ? data.getTimestamp() : System.currentTimeMillis();
+		long windowMs = rule.getWindowSeconds() * 1000L;
+		long windowStart = timestamp - Math.floorMod(timestamp, windowMs);
+		
+		long key = DeviceKeys.of(data.getDeviceId());
+		Segment segment = segments[DeviceKeys.segment(key, segmentMask)];
+		segment.lock.lock();
+		try {
+			int slot = segment.index.acquire(key, DeviceSlotIndex.now());
+			if (segment.index.created() && segment.count[slot] > 0) {
+				// 槽位淘汰自其他设备, 先转发其未结束的窗口
+				emit(segment, slot, false);
+			}
+			if (segment.count[slot] > 0 && windowStart != segment.windowStart[slot]) {
+				if (windowStart < segment.windowStart[slot]) {
+					lateReadings.increment();
+					return false;
+				}
+				emit(segment, slot, false);
+			}
+			segment.accumulate(slot, data, reading, timestamp, windowStart, windowStart + windowMs);
+		} finally {
+			segment.lock.unlock();
+		}
+		
+		double pressure = reading.pressureValue();
+		if ((rule.getPressureHigh() != null && pressure > rule.getPressureHigh())
+				|| (rule.getPressureLow() != null && pressure < rule.getPressureLow())) {
+			crossings.increment();
+			return false;
+		}
+		absorbed.increment();
+		return true;
+	}
+	
+	/**
+	 * 关闭已超过等待时间的窗口, 汇总值放入汇总队列
+	 * 汇总队列已满时保留窗口, 下次检查时再转发
+	 *
+	 * @param now 当前时间戳
+	 */
+	public void flushExpired(long now) {
+		if (segments == null) {
+			return;
+		}
+		long deadline = now - config.getGraceSeconds() * 1000L;
+		for (Segment segment : segments) {
+			segment.lock.lock();
+			try {
+				for (int slot = 0; slot < segment.count.length; slot++) {
+					if (segment.count[slot] > 0 && segment.windowEnd[slot] <= deadline && !emit(segment, slot, true)) {
+						return;
+					}
+				}
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * 获取聚合指标
+	 */
+	public RollupMetrics getMetrics() {
+		return RollupMetrics.builder()
+				.absorbed(absorbed.sum())
+				.crossings(crossings.sum())
+				.lateReadings(lateReadings.sum())
+				.rollups(rollups.sum())
+				.droppedRollups(droppedRollups.sum())
+				.build();
+	}
+	
+	/**
+	 * 打印聚合状态
+	 */
+	public void logStatus() {
+		if (segments == null) {
+			return;
+		}
+		RollupMetrics metrics = getMetrics();
+		long forwarded = metrics.getRollups() + metrics.getCrossings() + metrics.getLateReadings();
+		log.info("设备数据窗口聚合 - 汇入: {}, 越限转发: {}, 迟到转发: {}, 汇总: {}, 汇总丢弃: {}, 压缩比: {}",
+				metrics.getAbsorbed(), metrics.getCrossings(), metrics.getLateReadings(), metrics.getRollups(),
+				metrics.getDroppedRollups(),
+				forwarded == 0 ? "-" : String.format("%.1f",
+						(double) (metrics.getAbsorbed() + metrics.getCrossings() + metrics.getLateReadings()) / forwarded));
+	}
+	
+	private RollupConfig.Rule match(String tenantId, String productId) {
+		RollupConfig.Rule rule = match(rulesByTenant.get(tenantId), productId);
+		return rule != null ? rule : match(rulesByTenant.get(ANY), productId);
+	}
+	
+	private static RollupConfig.Rule match(Map<String, RollupConfig.Rule> rulesByProduct, String productId) {
+		if (rulesByProduct == null) {
+			return null;
+		}
+		RollupConfig.Rule rule = rulesByProduct.get(productId);
+		return rule != null ? rule : rulesByProduct.get(ANY);
+	}
+	
+	/**
+	 * 关闭槽位上的窗口并放入汇总队列(调用方持有分段锁)
+	 *
+	 * @param retain 入队失败时是否保留窗口; 下一窗口的数据已到达时无法保留, 入队失败即丢弃
+	 * @return 是否入队成功
+	 */
+	private boolean emit(Segment segment, int slot, boolean retain) {
+		if (dataBuffer.offerRollup(segment.toRollup(slot))) {
+			rollups.increment();
+			segment.count[slot] = 0;
+			return true;
+		}
+		if (!retain) {
+			droppedRollups.increment();
+			segment.count[slot] = 0;
+		}
+		return false;
+	}
+	
+	/**
+	 * 分段: 槽位索引 + 窗口累加器
+	 */
+	private static final class Segment {
+		
+		private final ReentrantLock lock = new ReentrantLock();
+		private final DeviceSlotIndex index;
+		private final String[] deviceId;
+		private final String[] tenantId;
+		private final String[] productId;
+		private final long[] windowStart;
+		private final long[] windowEnd;
+		private final long[] lastTimestamp;
+		private final int[] count;
+		private final double[] pressureMin;
+		private final double[] pressureMax;
+		private final double[] pressureSum;
+		private final double[] pressureLast;
+		private final double[] temperatureMin;
+		private final double[] temperatureMax;
+		private final double[] temperatureSum;
+		private final double[] temperatureLast;
+		private final int[] voltageMin;
+		private final int[] voltageMax;
+		private final int[] voltageLast;
+		
+		private Segment(int capacity) {
+			this.index = new DeviceSlotIndex(capacity);
+			this.deviceId = new String[capacity];
+			this.tenantId = new String[capacity];
+			this.productId = new String[capacity];
+			this.windowStart = new long[capacity];
+			this.windowEnd = new long[capacity];
+			this.lastTimestamp = new long[capacity];
+			this.count = new int[capacity];
+			this.pressureMin = new double[capacity];
+			this.pressureMax = new double[capacity];
+			this.pressureSum = new double[capacity];
+			this.pressureLast = new double[capacity];
+			this.temperatureMin = new double[capacity];
+			this.temperatureMax = new double[capacity];
+			this.temperatureSum = new double[capacity];
+			this.temperatureLast = new double[capacity];
+			this.voltageMin = new int[capacity];
+			this.voltageMax = new int[capacity];
+			this.voltageLast = new int[capacity];
+		}
+		
+		private void accumulate(int slot, BaseDeviceDataDTO data, MonitorReadingDTO reading, long timestamp,
+								long start, long end) {
+			double pressure = reading.pressureValue();
+			double temperature = reading.temperatureValue();
+			int voltage = reading.getVoltage();
+			if (count[slot] == 0) {
+				deviceId[slot] = data.getDeviceId();
+				tenantId[slot] = data.getTenantId();
+				productId[slot] = data.getProductId();
+				windowStart[slot] = start;
+				windowEnd[slot] = end;
+				pressureMin[slot] = pressureMax[slot] = pressure;
+				pressureSum[slot] = 0;
+				temperatureMin[slot] = temperatureMax[slot] = temperature;
+				temperatureSum[slot] = 0;
+				voltageMin[slot] = voltageMax[slot] = voltage;
+				lastTimestamp[slot] = Long.MIN_VALUE;
+			} else {
+				pressureMin[slot] = Math.min(pressureMin[slot], pressure);
+				pressureMax[slot] = Math.max(pressureMax[slot], pressure);
+				temperatureMin[slot] = Math.min(temperatureMin[slot], temperature);
+				temperatureMax[slot] = Math.max(temperatureMax[slot], temperature);
+				voltageMin[slot] = Math.min(voltageMin[slot], voltage);
+				voltageMax[slot] = Math.max(voltageMax[slot], voltage);
+			}
+			pressureSum[slot] += pressure;
+			temperatureSum[slot] += temperature;
+			count[slot]++;
+			// 窗口内乱序到达时last取时间戳最大的一条
+			if (timestamp >= lastTimestamp[slot]) {
+				lastTimestamp[slot] = timestamp;
+				pressureLast[slot] = pressure;
+				temperatureLast[slot] = temperature;
+				voltageLast[slot] = voltage;
+			}
+		}
+		
+		private DeviceRollupDTO toRollup(int slot) {
+			return DeviceRollupDTO.builder()
+					.deviceId(deviceId[slot])
+					.tenantId(tenantId[slot])
+					.productId(productId[slot])
+					.windowStart(windowStart[slot])
+					.windowEnd(windowEnd[slot])
+					.count(count[slot])
+					.lastTimestamp(lastTimestamp[slot])
+					.pressureMin(pressureMin[slot])
+					.pressureMax(pressureMax[slot])
+					.pressureMean(pressureSum[slot] / count[slot])
+					.pressureLast(pressureLast[slot])
+					.temperatureMin(temperatureMin[slot])
+					.temperatureMax(temperatureMax[slot])
+					.temperatureMean(temperatureSum[slot] / count[slot])
+					.temperatureLast(temperatureLast[slot])
+					.voltageMin(voltageMin[slot])
+					.voltageMax(voltageMax[slot])
+					.voltageLast(voltageLast[slot])
+					.build();
+		}
+		
+	}
+	
+	/**
+	 * 聚合监控指标
+	 */
+	@Data
+	@Builder
+	public static class RollupMetrics {
+		
+		/**
+		 * 由汇总代替、未逐条转发的数据条数
+		 */
+		private long absorbed;
+		/**
+		 * 越过压力阈值、仍逐条转发的数据条数
+		 */
+		private long crossings;
+		/**
+		 * 早于当前窗口、逐条转发的迟到数据条数
+		 */
+		private long lateReadings;
+		/**
+		 * 已入队的汇总条数
+		 */
+		private long rollups;
+		/**
+		 * 汇总队列已满被丢弃的汇总条数
+		 */
+		private long droppedRollups;
+		
+	}
+	
+}
@@ -0,0 +1,59 @@
+package org.pms.trigger.utils;
+
+/**
+ * 设备ID → 64位整数键
+ * <p>
+ * 网关内按设备维度维护的状态表(去重窗口、在线状态、最新值等)统一使用64位哈希作为主键,
+ * 避免为每台设备保存String键和装箱对象; 百万级设备下64位哈希的碰撞概率约为1e-8, 可忽略
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-19
+ */
+public final class DeviceKeys {
+	
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	
+	private DeviceKeys() {
+	}
+	
+	/**
+	 * 计算设备ID的64位键, 结果不为0(0保留为空槽位标记)
+	 *
+	 * @param deviceId 设备ID
+	 * @return 64位键
+	 */
+	public static long of(String deviceId) {
+		long h = FNV_OFFSET;
+		for (int i = 0; i < deviceId.length(); i++) {
+			h ^= deviceId.charAt(i);
+			h *= FNV_PRIME;
+		}
+		// murmur3 fmix64, 使高低位都充分混合(低位用于表内定位, 高位用于分段)
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h == 0 ? 1 : h;
+	}
+	
+	/**
+	 * 根据键选择分段, 使用高位, 与{@link DeviceSlotIndex}内部使用的低位错开
+	 *
+	 * @param key         64位键
+	 * @param segmentMask 分段数-1(分段数为2的幂)
+	 * @return 分段下标
+	 */
+	public static int segment(long key, int segmentMask) {
+		return (int) (key >>> 40) & segmentMask;
+	}
+	
+	/**
+	 * 不小于value的最小2的幂
+	 */
+	public static int ceilPowerOfTwo(int value) {
+		return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+	}
+	
+}
@@ -0,0 +1,288 @@
+package org.pms.trigger.utils;
+
+/**
+ * 设备键 → 槽位号 的定长索引(非线程安全, 由调用方加锁)
+ * <p>
+ * 设计思路：
+ * - 开放寻址(线性探测)哈希表, 键为{@link DeviceKeys}生成的64位键, 值为[0, capacity)内的槽位号
+ * - 槽位号在设备被淘汰前保持不变, 调用方以槽位号为下标把设备状态存放在自己的基本类型数组中
+ * - 容量固定, 所有数组启动时一次性分配, 运行期不扩容、不产生垃圾
+ * - 表满时按近似LRU淘汰: 随机抽样若干槽位, 淘汰其中最久未访问的设备, 槽位号复用给新设备
+ * - 删除采用backward-shift, 不留墓碑, 探测链长度不随淘汰次数退化
+ *
+ * @author alcsyooterranf
+ * @date 2025-02-19
+ */
+public final class DeviceSlotIndex {
+	
+	/**
+	 * 空槽标记, DeviceKeys不会生成0
+	 */
+	private static final long EMPTY = 0L;
+	
+	/**
+	 * 淘汰时的抽样数量, 与Redis的近似LRU取值相同
+	 */
+	private static final int EVICTION_SAMPLES = 8;
+	
+	/**
+	 * 时间基准(秒), 访问时间以int秒存储
+	 */
+	private static final long EPOCH_SECONDS = System.currentTimeMillis() / 1000;
+	
+	private final int capacity;
+	private final int mask;
+	
+	/**
+	 * 哈希表: 键与槽位号, 表长为不小于2倍容量的2的幂, 负载因子≤0.5
+	 */
+	private final long[] tableKeys;
+	private final int[] tableSlots;
+	
+	/**
+	 * 槽位 → 键, 淘汰时用于从哈希表中删除
+	 */
+	private final long[] slotKeys;
+	/**
+	 * 槽位 → 最近访问时间(秒)
+	 */
+	private final int[] slotAccess;
+	
+	/**
+	 * 空闲槽位栈
+	 */
+	private final int[] freeSlots;
+	private int freeTop;
+	
+	private int size;
+	private long evictions;
+	private int seed = 0x9E3779B9;
+	
+	/**
+	 * 最近一次acquire是否新建了槽位(新设备或复用被淘汰的槽位)
+	 */
+	private boolean created;
+	
+	public DeviceSlotIndex(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity必须大于0: " + capacity);
+		}
+		this.capacity = capacity;
+		int tableSize = DeviceKeys.ceilPowerOfTwo(capacity * 2);
+		this.mask = tableSize - 1;
+		this.tableKeys = new long[tableSize];
+		this.tableSlots = new int[tableSize];
+		this.slotKeys = new long[capacity];
+		this.slotAccess = new int[capacity];
+		this.freeSlots = new int[capacity];
+		for (int i = 0; i < capacity; i++) {
+			freeSlots[i] = capacity - 1 - i;
+		}
+		this.freeTop = capacity;
+	}
+	
+	/**
+	 * 当前时间(秒), 作为访问时间传入
+	 */
+	public static int now() {
+		return (int) (System.currentTimeMillis() / 1000 - EPOCH_SECONDS);
+	}
+	
+	/**
+	 * 查找设备槽位, 不更新访问时间
+	 *
+	 * @param key 设备键
+	 * @return 槽位号, 不存在返回-1
+	 */
+	public int find(long key) {
+		int pos = indexOf(key);
+		while (tableKeys[pos] != EMPTY) {
+			if (tableKeys[pos] == key) {
+				return tableSlots[pos];
+			}
+			pos = (pos + 1) & mask;
+		}
+		return -1;
+	}
+	
+	/**
+	 * 查找设备槽位并更新访问时间
+	 *
+	 * @param key 设备键
+	 * @param now 当前时间(秒)
+	 * @return 槽位号, 不存在返回-1
+	 */
+	public int get(long key, int now) {
+		int slot = find(key);
+		if (slot >= 0) {
+			slotAccess[slot] = now;
+		}
+		return slot;
+	}
+	
+	/**
+	 * 获取设备槽位, 不存在时分配新槽位(表满时淘汰最久未访问的设备)
+	 * 调用后通过{@link #created()}判断槽位是否为新分配, 新槽位需由调用方重置状态
+	 *
+	 * @param key 设备键
+	 * @param now 当前时间(秒)
+	 * @return 槽位号
+	 */
+	public int acquire(long key, int now) {
+		int pos = indexOf(key);
+		while (tableKeys[pos] != EMPTY) {
+			if (tableKeys[pos] == key) {
+				int slot = tableSlots[pos];
+				slotAccess[slot] = now;
+				created = false;
+				return slot;
+			}
+			pos = (pos + 1) & mask;
+		}
+		
+		int slot;
+		if (freeTop > 0) {
+			slot = freeSlots[--freeTop];
+		} else {
+			slot = evictOne();
+			// 淘汰时backward-shift可能移动了探测链, 重新定位插入位置
+			pos = indexOf(key);
+			while (tableKeys[pos] != EMPTY) {
+				pos = (pos + 1) & mask;
+			}
+		}
+		tableKeys[pos] = key;
+		tableSlots[pos] = slot;
+		slotKeys[slot] = key;
+		slotAccess[slot] = now;
+		size++;
+		created = true;
+		return slot;
+	}
+	
+	/**
+	 * 最近一次{@link #acquire}是否新分配了槽位
+	 */
+	public boolean created() {
+		return created;
+	}
+	
+	/**
+	 * 删除设备, 槽位归还空闲栈
+	 *
+	 * @param key 设备键
+	 * @return 被释放的槽位号, 不存在返回-1
+	 */
+	public int remove(long key) {
+		int pos = indexOf(key);
+		while (tableKeys[pos] != EMPTY) {
+			if (tableKeys[pos] == key) {
+				int slot = tableSlots[pos];
+				deleteAt(pos);
+				slotKeys[slot] = EMPTY;
+				freeSlots[freeTop++] = slot;
+				size--;
+				return slot;
+			}
+			pos = (pos + 1) & mask;
+		}
+		return -1;
+	}
+	
+	/**
+	 * 槽位当前对应的设备键, 空闲槽位返回0
+	 */
+	public long keyAt(int slot) {
+		return slotKeys[slot];
+	}
+	
+	/**
+	 * 槽位最近访问时间(秒)
+	 */
+	public int accessAt(int slot) {
+		return slotAccess[slot];
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public int capacity() {
+		return capacity;
+	}
+	
+	/**
+	 * 累计淘汰次数
+	 */
+	public long evictions() {
+		return evictions;
+	}
+	
+	/**
+	 * 每个槽位在索引中占用的字节数(不含调用方自己的状态数组)
+	 * 哈希表按2倍容量计: 2 × (8 + 4), 槽位数组: 8 + 4 + 4
+	 */
+	public long bytesPerSlot() {
+		long tableBytes = (long) (mask + 1) * (Long.BYTES + Integer.BYTES);
+		long slotBytes = (long) capacity * (Long.BYTES + Integer.BYTES + Integer.BYTES);
+		return (tableBytes + slotBytes) / capacity;
+	}
+	
+	/**
+	 * 抽样淘汰最久未访问的设备, 返回其槽位号
+	 * 仅在表满(所有槽位均已占用)时调用
+	 */
+	private int evictOne() {
+		int victim = nextRandom(capacity);
+		for (int i = 1; i < EVICTION_SAMPLES; i++) {
+			int candidate = nextRandom(capacity);
+			if (slotAccess[candidate] - slotAccess[victim] < 0) {
+				victim = candidate;
+			}
+		}
+		long victimKey = slotKeys[victim];
+		int pos = indexOf(victimKey);
+		while (tableKeys[pos] != victimKey) {
+			pos = (pos + 1) & mask;
+		}
+		deleteAt(pos);
+		size--;
+		evictions++;
+		return victim;
+	}
+	
+	/**
+	 * backward-shift删除: 把后续探测链上可以前移的元素依次前移, 保证查找不需要墓碑
+	 */
+	private void deleteAt(int pos) {
+		int next = (pos + 1) & mask;
+		while (tableKeys[next] != EMPTY) {
+			int ideal = indexOf(tableKeys[next]);
+			// next处元素的理想位置不在(pos, next]区间内时, 可以前移到pos
+			if (((next - ideal) & mask) >= ((next - pos) & mask)) {
+				tableKeys[pos] = tableKeys[next];
+				tableSlots[pos] = tableSlots[next];
+				pos = next;
+			}
+			next = (next + 1) & mask;
+		}
+		tableKeys[pos] = EMPTY;
+	}
+	
+	private int indexOf(long key) {
+		return (int) key & mask;
+	}
+	
+	/**
+	 * xorshift32, 只用于淘汰抽样, 不需要密码学强度
+	 */
+	private int nextRandom(int bound) {
+		int x = seed;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		seed = x;
+		return (int) (((x & 0xFFFFFFFFL) * bound) >>> 32);
+	}
+	
+}
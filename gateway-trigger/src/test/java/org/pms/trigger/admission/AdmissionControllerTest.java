@@ -0,0 +1,114 @@
+package org.pms.trigger.admission;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pms.trigger.buffer.DataBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 过载保护负载压力计算测试
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+class AdmissionControllerTest {
+	
+	private StubDataBuffer dataBuffer;
+	private AdmissionController admission;
+	
+	@BeforeEach
+	void setUp() {
+		AdmissionConfig config = new AdmissionConfig();
+		config.setEnabled(true);
+		dataBuffer = new StubDataBuffer();
+		admission = new AdmissionController(config, dataBuffer);
+	}
+	
+	@Test
+	void idleQueueAdmitsEverything() {
+		admission.update(1_000);
+		
+		assertEquals(0, admission.getMetrics().getPressure());
+		assertTrue(admission.admitData());
+		assertTrue(admission.admitCommand());
+	}
+	
+	@Test
+	void recoversAfterFailedBatchOnceRpcsStop() {
+		// 一次失败按耗时目标的2倍计入, 压力为2, 设备数据全部拒绝
+		admission.recordRpc(100, false);
+		admission.update(1_000);
+		assertEquals(1, admission.getMetrics().getDataShedRatio());
+		assertFalse(admission.admitData());
+		
+		// 数据全部被拒绝后不再有RPC, 耗时逐周期衰减, 压力回落到拒绝阈值以下
+		long now = 1_000;
+		int ticks = 0;
+		while (admission.getMetrics().getDataShedRatio() > 0 && ticks < 10) {
+			now += 1_000;
+			admission.update(now);
+			ticks++;
+		}
+		assertEquals(3, ticks);
+		assertTrue(admission.admitData());
+	}
+	
+	@Test
+	void keepsSheddingWhileRpcsKeepFailing() {
+		long now = 0;
+		for (int i = 0; i < 10; i++) {
+			admission.recordRpc(100, false);
+			now += 1_000;
+			admission.update(now);
+		}
+		
+		assertEquals(1, admission.getMetrics().getDataShedRatio());
+		assertFalse(admission.admitData());
+	}
+	
+	@Test
+	void backlogDrivesPressureAndRetryAfter() {
+		// 积压2000条, 实测消费速率100条/秒 → 需要20秒, 为目标10秒的2倍
+		dataBuffer.backlog = 2_000;
+		admission.update(1_000);
+		dataBuffer.drained = 100;
+		admission.update(2_000);
+		
+		assertEquals(2, admission.getMetrics().getPressure(), 0.001);
+		assertEquals(20, admission.getRetryAfterSeconds());
+		assertFalse(admission.admitData());
+		
+		dataBuffer.backlog = 0;
+		admission.update(3_000);
+		assertEquals(0, admission.getMetrics().getDataShedRatio());
+	}
+	
+	/**
+	 * 只提供负载压力计算用到的队列指标
+	 */
+	private static final class StubDataBuffer extends DataBuffer {
+		
+		private int backlog;
+		private long drained;
+		
+		@Override
+		public int getDataQueueSize() {
+			return backlog;
+		}
+		
+		@Override
+		public double getDataQueueUsageRate() {
+			return backlog / 10_000.0;
+		}
+		
+		@Override
+		public long getDataDrainedCount() {
+			return drained;
+		}
+		
+	}
+	
+}
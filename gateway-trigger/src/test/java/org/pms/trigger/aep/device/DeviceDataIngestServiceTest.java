@@ -0,0 +1,171 @@
+package org.pms.trigger.aep.device;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pms.domain.alarm.dto.DeviceAlarmDTO;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+import org.pms.trigger.admission.AdmissionConfig;
+import org.pms.trigger.admission.AdmissionController;
+import org.pms.trigger.aep.IngestResult;
+import org.pms.trigger.aep.codec.ReadingFormatProperties;
+import org.pms.trigger.alarm.AlarmConfig;
+import org.pms.trigger.alarm.AlarmEngine;
+import org.pms.trigger.buffer.DataBuffer;
+import org.pms.trigger.buffer.DataBufferConfig;
+import org.pms.trigger.deadband.DeadbandConfig;
+import org.pms.trigger.deadband.DeadbandFilter;
+import org.pms.trigger.dedup.DedupConfig;
+import org.pms.trigger.dedup.DuplicateMessageFilter;
+import org.pms.trigger.history.HistoryConfig;
+import org.pms.trigger.history.HistoryStore;
+import org.pms.trigger.latest.LatestReadingConfig;
+import org.pms.trigger.latest.LatestReadingTable;
+import org.pms.trigger.live.LiveConfig;
+import org.pms.trigger.live.LiveHub;
+import org.pms.trigger.ratelimit.IngestRateLimiter;
+import org.pms.trigger.registry.DeviceRegistry;
+import org.pms.trigger.registry.DeviceRegistryConfig;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 设备数据接入测试: 设备数据队列已满时越限告警照常放入告警通道, 重推不重复告警
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+class DeviceDataIngestServiceTest {
+	
+	private SaturatedDataBuffer dataBuffer;
+	private AlarmEngine alarmEngine;
+	private LiveHub liveHub;
+	private DeviceDataIngestService ingestService;
+	
+	@BeforeEach
+	void setUp() {
+		StandardEnvironment environment = new StandardEnvironment();
+		dataBuffer = new SaturatedDataBuffer();
+		
+		AlarmConfig alarmConfig = new AlarmConfig();
+		AlarmConfig.Rule rule = new AlarmConfig.Rule();
+		rule.setProductId("p1");
+		rule.setPressureHigh(1.6);
+		alarmConfig.getRules().add(rule);
+		alarmEngine = new AlarmEngine(alarmConfig, new ReadingFormatProperties(), dataBuffer, environment);
+		alarmEngine.init();
+		
+		DedupConfig dedupConfig = new DedupConfig();
+		dedupConfig.setEnabled(true);
+		dedupConfig.setMaxDevices(64);
+		dedupConfig.setSegments(4);
+		DuplicateMessageFilter duplicateFilter = new DuplicateMessageFilter(dedupConfig);
+		duplicateFilter.init();
+		
+		liveHub = new LiveHub(new LiveConfig(), environment);
+		ingestService = new DeviceDataIngestService(dataBuffer, duplicateFilter,
+				new LatestReadingTable(new LatestReadingConfig()), new HistoryStore(new HistoryConfig()),
+				new DeadbandFilter(new DeadbandConfig()), alarmEngine,
+				new DeviceRegistry(new DeviceRegistryConfig(), null),
+				new AdmissionController(new AdmissionConfig(), dataBuffer),
+				new IngestRateLimiter(new DataBufferConfig()), liveHub);
+	}
+	
+	@AfterEach
+	void tearDown() {
+		liveHub.shutdown();
+	}
+	
+	@Test
+	void alarmQueuedWhenDataQueueFull() {
+		assertEquals(IngestResult.QUEUE_FULL, ingestService.ingest(data("d1", 1, 2_000)));
+		
+		assertEquals(1, dataBuffer.alarms.size());
+		assertEquals("d1", dataBuffer.alarms.get(0).getDeviceId());
+	}
+	
+	@Test
+	void redeliveredMessageDoesNotAlarmAgain() {
+		ingestService.ingest(data("d1", 1, 2_000));
+		// AEP重推同一条消息: 去重记录已撤销, 数据再次尝试入队, 告警不重复
+		assertEquals(IngestResult.QUEUE_FULL, ingestService.ingest(data("d1", 1, 2_000)));
+		
+		assertEquals(1, dataBuffer.alarms.size());
+		assertEquals(1, alarmEngine.getMetrics().getRepeated());
+		
+		// 同一设备的新消息照常告警
+		ingestService.ingest(data("d1", 2, 2_000));
+		assertEquals(2, dataBuffer.alarms.size());
+	}
+	
+	@Test
+	void batchAlarmsQueuedWhenDataQueueFull() {
+		List<BaseDeviceDataDTO> batch = List.of(data("d1", 1, 2_000), data("d2", 1, 1_000), data("d3", 1, 2_500));
+		
+		IngestResult[] results = ingestService.ingestBatch(batch);
+		
+		IngestResult[] expected = new IngestResult[3];
+		Arrays.fill(expected, IngestResult.QUEUE_FULL);
+		assertArrayEquals(expected, results);
+		assertEquals(2, dataBuffer.alarms.size());
+		assertEquals("d1", dataBuffer.alarms.get(0).getDeviceId());
+		assertEquals("d3", dataBuffer.alarms.get(1).getDeviceId());
+	}
+	
+	@Test
+	void withinLimitsRaisesNothing() {
+		ingestService.ingest(data("d1", 1, 1_000));
+		
+		assertTrue(dataBuffer.alarms.isEmpty());
+	}
+	
+	/**
+	 * @param pressure 压力定点值(3位小数), 告警上限为1.600
+	 */
+	private static BaseDeviceDataDTO data(String deviceId, int upDataSN, long pressure) {
+		BaseDeviceDataDTO data = new BaseDeviceDataDTO();
+		data.setProtocol("mqtt");
+		data.setDeviceId(deviceId);
+		data.setTenantId("t1");
+		data.setProductId("p1");
+		data.setUpPacketSN(1);
+		data.setUpDataSN(upDataSN);
+		data.setTimestamp(1_700_000_000_000L + upDataSN);
+		data.setReading(new MonitorReadingDTO(null, pressure, 3, null, 2_500, 2, 3600));
+		return data;
+	}
+	
+	/**
+	 * 设备数据队列始终已满, 告警通道记录放入的告警
+	 */
+	private static final class SaturatedDataBuffer extends DataBuffer {
+		
+		private final List<DeviceAlarmDTO> alarms = new ArrayList<>();
+		
+		@Override
+		public boolean offerAlarm(DeviceAlarmDTO alarm) {
+			alarms.add(alarm);
+			return true;
+		}
+		
+		@Override
+		public boolean offerData(BaseDeviceDataDTO data) {
+			return false;
+		}
+		
+		@Override
+		public boolean[] offerDataBatch(List<BaseDeviceDataDTO> dataList) {
+			return new boolean[dataList.size()];
+		}
+		
+	}
+	
+}
@@ -0,0 +1,148 @@
+package org.pms.trigger.buffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按租户公平排队的有界队列测试, 元素格式为"租户:序号"
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+class TenantFairQueueTest {
+	
+	@Test
+	void disabledIsSingleFifo() {
+		TenantFairQueue<String> queue = queue(3, new DataBufferConfig.TenantQueue());
+		
+		assertTrue(queue.offer("a:1"));
+		assertTrue(queue.offer("b:1"));
+		assertTrue(queue.offer("a:2"));
+		assertFalse(queue.offer("b:2"));
+		
+		assertEquals(List.of("a:1", "b:1", "a:2"), queue.drain(10));
+		assertEquals(1, queue.tenants());
+	}
+	
+	@Test
+	void shareCapsBurstTenant() {
+		DataBufferConfig.TenantQueue config = enabled(1);
+		config.setShare(0.5);
+		config.setMinCapacity(0);
+		TenantFairQueue<String> queue = queue(10, config);
+		
+		for (int i = 1; i <= 5; i++) {
+			assertTrue(queue.offer("a:" + i));
+		}
+		assertFalse(queue.offer("a:6"));
+		for (int i = 1; i <= 5; i++) {
+			assertTrue(queue.offer("b:" + i));
+		}
+		assertFalse(queue.offer("c:1"));
+	}
+	
+	@Test
+	void minCapacityAdmitsBeyondTotal() {
+		DataBufferConfig.TenantQueue config = enabled(1);
+		config.setShare(1.0);
+		config.setMinCapacity(2);
+		TenantFairQueue<String> queue = queue(4, config);
+		
+		for (int i = 1; i <= 4; i++) {
+			assertTrue(queue.offer("a:" + i));
+		}
+		assertFalse(queue.offer("a:5"));
+		assertTrue(queue.offer("b:1"));
+		assertTrue(queue.offer("b:2"));
+		assertFalse(queue.offer("b:3"));
+		assertEquals(6, queue.size());
+	}
+	
+	@Test
+	void drainRoundRobinsByQuantum() {
+		TenantFairQueue<String> queue = queue(100, enabled(2));
+		offer(queue, "a", 10);
+		offer(queue, "b", 2);
+		
+		assertEquals(List.of("a:1", "a:2", "b:1", "b:2", "a:3", "a:4"), queue.drain(6));
+		assertEquals(List.of("a:5", "a:6", "a:7", "a:8", "a:9", "a:10"), queue.drain(10));
+		assertEquals(0, queue.size());
+	}
+	
+	@Test
+	void drainHonoursWeight() {
+		DataBufferConfig.TenantQueue config = enabled(1);
+		DataBufferConfig.Tenant heavy = new DataBufferConfig.Tenant();
+		heavy.setWeight(3);
+		config.getTenants().put("b", heavy);
+		TenantFairQueue<String> queue = queue(100, config);
+		offer(queue, "a", 10);
+		offer(queue, "b", 10);
+		
+		assertEquals(List.of("a:1", "b:1", "b:2", "b:3", "a:2", "b:4", "b:5", "b:6"), queue.drain(8));
+	}
+	
+	@Test
+	void fullBatchResumesWithoutRecrediting() {
+		TenantFairQueue<String> queue = queue(100, enabled(5));
+		offer(queue, "a", 10);
+		offer(queue, "b", 10);
+		
+		assertEquals(List.of("a:1", "a:2", "a:3"), queue.drain(3));
+		assertEquals(List.of("a:4", "a:5", "b:1"), queue.drain(3));
+		assertEquals(List.of("b:2", "b:3", "b:4", "b:5", "a:6"), queue.drain(5));
+	}
+	
+	@Test
+	void offerAllRejectsRestOfTenantAfterFirstRejection() {
+		DataBufferConfig.TenantQueue config = enabled(1);
+		config.setShare(0.2);
+		config.setMinCapacity(0);
+		TenantFairQueue<String> queue = queue(10, config);
+		
+		boolean[] accepted = queue.offerAll(List.of("a:1", "a:2", "a:3", "b:1", "a:4"));
+		
+		assertArrayEquals(new boolean[]{true, true, false, true, false}, accepted);
+		assertEquals(List.of("a:1", "b:1", "a:2"), queue.drain(10));
+	}
+	
+	@Test
+	void tenantsBeyondLimitShareOneLane() {
+		DataBufferConfig.TenantQueue config = enabled(1);
+		config.setMaxTenants(2);
+		TenantFairQueue<String> queue = queue(100, config);
+		
+		queue.offer("a:1");
+		queue.offer("b:1");
+		queue.offer("c:1");
+		queue.offer("d:1");
+		
+		assertEquals(3, queue.tenants());
+		assertTrue(queue.tenantMetrics().stream()
+				.anyMatch(m -> TenantFairQueue.SHARED.equals(m.getTenantId()) && m.getSize() == 2));
+	}
+	
+	private static TenantFairQueue<String> queue(int capacity, DataBufferConfig.TenantQueue config) {
+		return new TenantFairQueue<>(capacity, config, element -> element.substring(0, element.indexOf(':')));
+	}
+	
+	private static DataBufferConfig.TenantQueue enabled(int quantum) {
+		DataBufferConfig.TenantQueue config = new DataBufferConfig.TenantQueue();
+		config.setEnabled(true);
+		config.setQuantum(quantum);
+		return config;
+	}
+	
+	private static void offer(TenantFairQueue<String> queue, String tenantId, int count) {
+		for (int i = 1; i <= count; i++) {
+			queue.offer(tenantId + ":" + i);
+		}
+	}
+	
+}
@@ -0,0 +1,114 @@
+package org.pms.trigger.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 指令超时时间轮测试
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+class CommandTimingWheelTest {
+	
+	/**
+	 * 8个槽, 每个刻度100ms, 一圈800ms
+	 */
+	private final CommandTimingWheel wheel = new CommandTimingWheel(8, 100, 0);
+	
+	@Test
+	void expiresAtDeadlineTick() {
+		PendingCommand command = command(1);
+		wheel.add(command, 350);
+		
+		assertTrue(advance(299).isEmpty());
+		assertEquals(List.of(command), advance(300));
+		assertTrue(advance(1_000).isEmpty());
+	}
+	
+	@Test
+	void keepsEntriesBeyondOneRevolution() {
+		PendingCommand near = command(1);
+		PendingCommand far = command(2);
+		wheel.add(near, 200);
+		// 与near落在同一个槽, 晚一圈到期
+		wheel.add(far, 1_000);
+		
+		assertEquals(List.of(near), advance(200));
+		assertTrue(advance(999).isEmpty());
+		assertEquals(List.of(far), advance(1_000));
+	}
+	
+	@Test
+	void removedEntryNeverExpires() {
+		PendingCommand a = command(1);
+		PendingCommand b = command(2);
+		PendingCommand c = command(3);
+		wheel.add(a, 500);
+		wheel.add(b, 500);
+		wheel.add(c, 500);
+		
+		wheel.remove(b);
+		// 重复撤销不影响链表
+		wheel.remove(b);
+		
+		List<PendingCommand> expired = advance(500);
+		assertEquals(2, expired.size());
+		assertTrue(expired.contains(a) && expired.contains(c));
+		// 已取出的条目撤销时不做处理
+		wheel.remove(a);
+	}
+	
+	@Test
+	void pastDeadlineExpiresOnNextAdvance() {
+		advance(1_000);
+		PendingCommand late = command(1);
+		// 截止时间已过, 放入下一个刻度
+		wheel.add(late, 100);
+		
+		assertTrue(advance(1_000).isEmpty());
+		assertEquals(List.of(late), advance(1_100));
+	}
+	
+	@Test
+	void longPauseScansEachSlotOnce() {
+		List<PendingCommand> commands = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			PendingCommand command = command(i);
+			wheel.add(command, i * 100L);
+			commands.add(command);
+		}
+		
+		// 超过两圈未推进, 一次推进取出全部到期条目
+		List<PendingCommand> expired = advance(10_000);
+		assertEquals(20, expired.size());
+		assertTrue(expired.containsAll(commands));
+		assertTrue(advance(20_000).isEmpty());
+	}
+	
+	@Test
+	void clockGoingBackwardsIsIgnored() {
+		PendingCommand command = command(1);
+		wheel.add(command, 500);
+		advance(300);
+		
+		assertTrue(advance(100).isEmpty());
+		assertEquals(List.of(command), advance(500));
+	}
+	
+	private List<PendingCommand> advance(long now) {
+		List<PendingCommand> expired = new ArrayList<>();
+		wheel.advance(now, expired);
+		return expired;
+	}
+	
+	private static PendingCommand command(long taskId) {
+		return new PendingCommand(taskId, "d" + taskId, "p1", "u1", 0);
+	}
+	
+}
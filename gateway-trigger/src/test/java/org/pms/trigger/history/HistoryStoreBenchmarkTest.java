@@ -0,0 +1,86 @@
+package org.pms.trigger.history;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 设备历史监测值存储的写入开销与查询延迟基准
+ * 1万台设备, 每台设备30秒一条, 写入6小时数据后测量; 块配置取默认值(8块 × 512字节),
+ * 设备数上限留出25%余量(按哈希分段, 设备数贴近上限时个别分段会提前淘汰)
+ * 单线程计时, 只用于对比改动前后的量级, 结果输出到控制台
+ * 默认构建不运行, 需要时: mvn -Pdev,benchmark test
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+@Tag("benchmark")
+class HistoryStoreBenchmarkTest {
+	
+	private static final int DEVICES = 10_000;
+	private static final int SAMPLES_PER_DEVICE = 720;
+	private static final long INTERVAL_MS = 30_000;
+	private static final long T0 = 1_700_000_000_000L;
+	private static final long END = T0 + SAMPLES_PER_DEVICE * INTERVAL_MS;
+	
+	private static HistoryStore store;
+	private static String[] deviceIds;
+	private static MonitorReadingDTO[] readings;
+	
+	@BeforeAll
+	static void setUp() {
+		HistoryConfig config = new HistoryConfig();
+		config.setEnabled(true);
+		config.setMaxDevices(DEVICES * 5 / 4);
+		store = new HistoryStore(config);
+		store.init();
+		deviceIds = new String[DEVICES];
+		for (int i = 0; i < DEVICES; i++) {
+			deviceIds[i] = "device-" + i;
+		}
+		// 压力在12.000附近小幅波动, 温度与电压偶尔变化, 接近实际上报
+		readings = new MonitorReadingDTO[64];
+		for (int i = 0; i < readings.length; i++) {
+			readings[i] = HistoryStoreTest.reading(12_000 + i % 7, 215 + i / 32, 36 - i / 48);
+		}
+	}
+	
+	@Test
+	void ingestThenQuery() {
+		long start = System.nanoTime();
+		for (int n = 0; n < SAMPLES_PER_DEVICE; n++) {
+			long ts = T0 + n * INTERVAL_MS;
+			for (int i = 0; i < DEVICES; i++) {
+				store.append(deviceIds[i], readings[(n + i) & 63], ts);
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		long appends = (long) DEVICES * SAMPLES_PER_DEVICE;
+		System.out.printf("历史存储写入: %d条, 平均%.0fns/条%n", appends, (double) elapsed / appends);
+		
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int rounds = 20_000;
+		long[] latency = new long[rounds];
+		long points = 0;
+		for (int r = 0; r < rounds; r++) {
+			String deviceId = deviceIds[random.nextInt(DEVICES)];
+			long queryStart = System.nanoTime();
+			points += store.query(deviceId, END - 3_600_000, END).getTimestamps().length;
+			latency[r] = System.nanoTime() - queryStart;
+		}
+		Arrays.sort(latency);
+		System.out.printf("历史存储查询(最近1小时): %d次, 平均%d点, p50=%dus, p99=%dus%n", rounds, points / rounds,
+				latency[rounds / 2] / 1000, latency[rounds * 99 / 100] / 1000);
+		
+		// 每台设备的最后一条一定保留在最新的块中
+		long[] last = store.query(deviceIds[0], END - INTERVAL_MS, END).getTimestamps();
+		assertEquals(END - INTERVAL_MS, last[last.length - 1]);
+	}
+	
+}
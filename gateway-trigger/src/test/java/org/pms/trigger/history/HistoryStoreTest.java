@@ -0,0 +1,116 @@
+package org.pms.trigger.history;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.pms.domain.devicedata.dto.MonitorReadingDTO;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 设备历史监测值存储编解码测试
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+class HistoryStoreTest {
+	
+	private static final long T0 = 1_700_000_000_000L;
+	
+	private HistoryStore store;
+	
+	@BeforeEach
+	void setUp() {
+		HistoryConfig config = new HistoryConfig();
+		config.setEnabled(true);
+		config.setMaxDevices(64);
+		config.setSegments(4);
+		config.setBlocksPerDevice(4);
+		config.setBlockBytes(256);
+		store = new HistoryStore(config);
+		store.init();
+	}
+	
+	/**
+	 * 每个delta-of-delta编码区间的上下边界及其两侧, 第3条的dod为+dod, 第4条为-dod
+	 */
+	@ParameterizedTest
+	@ValueSource(longs = {0, 1, -1, 63, 64, -64, -65, 255, 256, -256, -257, 2047, 2048, -2048, -2049,
+			1_000_000, -20_000})
+	void deltaOfDeltaRoundTrip(long dod) {
+		long[] timestamps = {T0, T0 + 30_000, T0 + 60_000 + dod, T0 + 90_000 + dod};
+		for (long ts : timestamps) {
+			store.append("d1", reading(12_300, 215, 36), ts);
+		}
+		
+		HistorySeriesDTO series = store.query("d1", T0, T0 + 10_000_000);
+		
+		assertArrayEquals(timestamps, series.getTimestamps());
+	}
+	
+	@Test
+	void valuesRoundTrip() {
+		long[] pressure = {12_300, 12_300, 12_301, 9_999_999, 0, -12_300};
+		int[] temperature = {215, 216, 216, 216, -40, 215};
+		int[] voltage = {36, 36, 35, 35, 36, 0};
+		for (int i = 0; i < pressure.length; i++) {
+			store.append("d1", reading(pressure[i], temperature[i], voltage[i]), T0 + i * 30_000L);
+		}
+		
+		HistorySeriesDTO series = store.query("d1", T0, T0 + 1_000_000);
+		
+		assertEquals(pressure.length, series.getTimestamps().length);
+		for (int i = 0; i < pressure.length; i++) {
+			MonitorReadingDTO expected = reading(pressure[i], temperature[i], voltage[i]);
+			assertEquals(expected.pressureValue(), series.getPressure()[i]);
+			assertEquals(expected.temperatureValue(), series.getTemperature()[i]);
+			assertEquals(voltage[i], series.getVoltage()[i]);
+		}
+	}
+	
+	@Test
+	void rangeQueryAcrossBlocks() {
+		// 256字节的块约容纳十几条, 200条会跨越并覆盖多个块, 只保留最近的4块
+		for (int i = 0; i < 200; i++) {
+			store.append("d1", reading(12_300 + i, 215, 36), T0 + i * 30_000L);
+		}
+		
+		long[] all = store.query("d1", T0, T0 + 200 * 30_000L).getTimestamps();
+		assertTrue(all.length > 0 && all.length < 200);
+		assertEquals(T0 + 199 * 30_000L, all[all.length - 1]);
+		
+		long from = all[all.length - 10];
+		long to = all[all.length - 5];
+		long[] range = store.query("d1", from, to).getTimestamps();
+		assertEquals(6, range.length);
+		assertEquals(from, range[0]);
+		assertEquals(to, range[5]);
+	}
+	
+	@Test
+	void outOfOrderIsDropped() {
+		store.append("d1", reading(1, 1, 1), T0 + 60_000);
+		store.append("d1", reading(2, 2, 2), T0);
+		
+		assertArrayEquals(new long[]{T0 + 60_000}, store.query("d1", T0, T0 + 60_000).getTimestamps());
+	}
+	
+	@Test
+	void disabledByDefault() {
+		HistoryStore disabled = new HistoryStore(new HistoryConfig());
+		disabled.init();
+		disabled.append("d1", reading(1, 1, 1), T0);
+		
+		assertFalse(disabled.isEnabled());
+		assertEquals(0, disabled.query("d1", T0, T0).getTimestamps().length);
+	}
+	
+	static MonitorReadingDTO reading(long pressure, int temperature, int voltage) {
+		return new MonitorReadingDTO(null, pressure, 3, null, temperature, 1, voltage);
+	}
+	
+}
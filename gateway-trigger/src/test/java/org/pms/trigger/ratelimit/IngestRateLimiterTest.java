@@ -0,0 +1,120 @@
+package org.pms.trigger.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+import org.pms.trigger.buffer.DataBufferConfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 设备、租户两级令牌桶限流测试
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+class IngestRateLimiterTest {
+	
+	private DataBufferConfig config;
+	private IngestRateLimiter limiter;
+	
+	@BeforeEach
+	void setUp() {
+		config = new DataBufferConfig();
+		DataBufferConfig.RateLimit limit = config.getRateLimit();
+		limit.setEnabled(true);
+		limit.setDevicePerSecond(10);
+		limit.setDeviceBurst(2);
+		limit.setTenantPerSecond(0);
+		limit.setMaxDevices(64);
+		limit.setSegments(4);
+		limiter = new IngestRateLimiter(config);
+	}
+	
+	@Test
+	void disabledAlwaysAdmits() {
+		config.getRateLimit().setEnabled(false);
+		
+		for (int i = 0; i < 100; i++) {
+			assertTrue(limiter.tryAcquire(data("d1", "t1"), 0));
+		}
+	}
+	
+	@Test
+	void deviceBurstThenRefill() {
+		assertTrue(limiter.tryAcquire(data("d1", "t1"), 1_000));
+		assertTrue(limiter.tryAcquire(data("d1", "t1"), 1_000));
+		assertFalse(limiter.tryAcquire(data("d1", "t1"), 1_000));
+		// 其他设备不受影响
+		assertTrue(limiter.tryAcquire(data("d2", "t1"), 1_000));
+		
+		// 每秒10个令牌, 100ms补充1个
+		assertFalse(limiter.tryAcquire(data("d1", "t1"), 1_099));
+		assertTrue(limiter.tryAcquire(data("d1", "t1"), 1_100));
+		assertFalse(limiter.tryAcquire(data("d1", "t1"), 1_100));
+		
+		// 闲置再久也不超过桶容量
+		assertTrue(limiter.tryAcquire(data("d1", "t1"), 60_000));
+		assertTrue(limiter.tryAcquire(data("d1", "t1"), 60_000));
+		assertFalse(limiter.tryAcquire(data("d1", "t1"), 60_000));
+		
+		assertEquals(4, limiter.getMetrics().getThrottledByDevice());
+	}
+	
+	@Test
+	void tenantBucketCapsAllDevices() {
+		DataBufferConfig.TenantLimit tenant = new DataBufferConfig.TenantLimit();
+		tenant.setPerSecond(1.0);
+		tenant.setBurst(3);
+		config.getRateLimit().getTenants().put("t1", tenant);
+		
+		for (int i = 0; i < 3; i++) {
+			assertTrue(limiter.tryAcquire(data("d" + i, "t1"), 1_000));
+		}
+		assertFalse(limiter.tryAcquire(data("d9", "t1"), 1_000));
+		assertTrue(limiter.tryAcquire(data("d9", "t2"), 1_000));
+		assertTrue(limiter.tryAcquire(data("d9", "t1"), 2_000));
+		
+		assertEquals(1, limiter.getMetrics().getThrottledByTenant());
+	}
+	
+	@Test
+	void tenantRejectionRefundsDeviceToken() {
+		DataBufferConfig.TenantLimit tenant = new DataBufferConfig.TenantLimit();
+		tenant.setPerSecond(0.001);
+		tenant.setBurst(1);
+		config.getRateLimit().getTenants().put("t1", tenant);
+		
+		assertTrue(limiter.tryAcquire(data("d1", "t1"), 1_000));
+		// 被租户令牌桶拒绝, 设备令牌归还
+		assertFalse(limiter.tryAcquire(data("d1", "t1"), 1_000));
+		assertFalse(limiter.tryAcquire(data("d1", "t1"), 1_000));
+		
+		// 设备仍剩1个令牌(桶容量2, 只成功放行过1条)
+		assertTrue(limiter.tryAcquire(data("d1", "t2"), 1_000));
+		assertFalse(limiter.tryAcquire(data("d1", "t2"), 1_000));
+	}
+	
+	@Test
+	void perTenantDeviceLimitOverridesDefault() {
+		DataBufferConfig.TenantLimit tenant = new DataBufferConfig.TenantLimit();
+		tenant.setDevicePerSecond(1.0);
+		tenant.setDeviceBurst(5);
+		config.getRateLimit().getTenants().put("t1", tenant);
+		
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limiter.tryAcquire(data("d1", "t1"), 1_000));
+		}
+		assertFalse(limiter.tryAcquire(data("d1", "t1"), 1_000));
+	}
+	
+	private static BaseDeviceDataDTO data(String deviceId, String tenantId) {
+		BaseDeviceDataDTO data = new BaseDeviceDataDTO();
+		data.setDeviceId(deviceId);
+		data.setTenantId(tenantId);
+		return data;
+	}
+	
+}
@@ -0,0 +1,155 @@
+package org.pms.trigger.reorder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pms.domain.devicedata.dto.BaseDeviceDataDTO;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 设备数据乱序重排缓冲测试
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+class ReorderBufferTest {
+	
+	private ReorderConfig config;
+	
+	@BeforeEach
+	void setUp() {
+		config = new ReorderConfig();
+		config.setEnabled(true);
+		config.setMaxDelayMs(100);
+		config.setMaxPerDevice(4);
+		config.setMaxDevices(64);
+		config.setSegments(4);
+	}
+	
+	@Test
+	void disabledPassesBatchThrough() {
+		config.setEnabled(false);
+		ReorderBuffer buffer = buffer();
+		List<BaseDeviceDataDTO> batch = List.of(data("a", 2, 0), data("a", 1, 0));
+		
+		assertSame(batch, buffer.reorder(batch, 0));
+		assertFalse(buffer.getMetrics().isEnabled());
+	}
+	
+	@Test
+	void releasesInOrderAfterMaxDelay() {
+		ReorderBuffer buffer = buffer();
+		BaseDeviceDataDTO second = data("a", 20, 0);
+		BaseDeviceDataDTO first = data("a", 10, 0);
+		
+		assertTrue(buffer.reorder(List.of(second), 0).isEmpty());
+		assertTrue(buffer.reorder(List.of(first), 50).isEmpty());
+		// second到期时排在它之前的first一并转发
+		assertEquals(List.of(first, second), buffer.reorder(List.of(), 100));
+		
+		ReorderBuffer.ReorderMetrics metrics = buffer.getMetrics();
+		assertEquals(2, metrics.getHeld());
+		assertEquals(1, metrics.getReordered());
+		assertEquals(0, metrics.getPending());
+	}
+	
+	@Test
+	void sameTimestampOrderedBySequence() {
+		ReorderBuffer buffer = buffer();
+		BaseDeviceDataDTO sn2 = data("a", 10, 2);
+		BaseDeviceDataDTO sn1 = data("a", 10, 1);
+		
+		buffer.reorder(List.of(sn2, sn1), 0);
+		
+		assertEquals(List.of(sn1, sn2), buffer.reorder(List.of(), 100));
+	}
+	
+	@Test
+	void lateDataForwardedImmediately() {
+		ReorderBuffer buffer = buffer();
+		buffer.reorder(List.of(data("a", 20, 0)), 0);
+		buffer.reorder(List.of(), 100);
+		
+		BaseDeviceDataDTO late = data("a", 10, 0);
+		assertEquals(List.of(late), buffer.reorder(List.of(late), 150));
+		assertEquals(1, buffer.getMetrics().getLate());
+		assertEquals(0, buffer.getMetrics().getPending());
+	}
+	
+	@Test
+	void overflowReleasesEarliest() {
+		ReorderBuffer buffer = buffer();
+		BaseDeviceDataDTO earliest = data("a", 10, 0);
+		buffer.reorder(List.of(earliest), 0);
+		for (int i = 1; i < 4; i++) {
+			buffer.reorder(List.of(data("a", 10 + i, 0)), 0);
+		}
+		
+		assertEquals(List.of(earliest), buffer.reorder(List.of(data("a", 20, 0)), 0));
+		assertEquals(1, buffer.getMetrics().getOverflows());
+		assertEquals(4, buffer.getMetrics().getPending());
+	}
+	
+	@Test
+	void overflowWithEarlierDataKeepsOrder() {
+		ReorderBuffer buffer = buffer();
+		for (int i = 0; i < 4; i++) {
+			buffer.reorder(List.of(data("a", 10 + i, 0)), 0);
+		}
+		
+		// 新数据早于全部暂存数据, 直接转发它本身
+		BaseDeviceDataDTO earlier = data("a", 5, 0);
+		assertEquals(List.of(earlier), buffer.reorder(List.of(earlier), 0));
+		assertEquals(4, buffer.getMetrics().getPending());
+		
+		List<BaseDeviceDataDTO> released = buffer.reorder(List.of(), 100);
+		assertEquals(4, released.size());
+		long previous = 5;
+		for (BaseDeviceDataDTO data : released) {
+			assertTrue(data.getTimestamp() > previous);
+			previous = data.getTimestamp();
+		}
+	}
+	
+	@Test
+	void dataWithoutTimestampNotHeld() {
+		ReorderBuffer buffer = buffer();
+		BaseDeviceDataDTO data = data("a", 0, 0);
+		data.setTimestamp(null);
+		
+		assertEquals(List.of(data), buffer.reorder(List.of(data), 0));
+		assertEquals(0, buffer.getMetrics().getHeld());
+	}
+	
+	@Test
+	void evictedDeviceReleasesPendingData() {
+		config.setMaxDevices(1);
+		config.setSegments(1);
+		ReorderBuffer buffer = buffer();
+		BaseDeviceDataDTO a = data("a", 10, 0);
+		
+		assertTrue(buffer.reorder(List.of(a), 0).isEmpty());
+		assertEquals(List.of(a), buffer.reorder(List.of(data("b", 10, 0)), 0));
+		assertEquals(1, buffer.getMetrics().getPending());
+	}
+	
+	private ReorderBuffer buffer() {
+		ReorderBuffer buffer = new ReorderBuffer(config);
+		buffer.init();
+		return buffer;
+	}
+	
+	private static BaseDeviceDataDTO data(String deviceId, long timestamp, int upDataSN) {
+		BaseDeviceDataDTO data = new BaseDeviceDataDTO();
+		data.setDeviceId(deviceId);
+		data.setTimestamp(timestamp);
+		data.setUpDataSN(upDataSN);
+		return data;
+	}
+	
+}
@@ -0,0 +1,125 @@
+package org.pms.trigger.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 设备槽位索引测试
+ *
+ * @author alcsyooterranf
+ * @date 2025-03-12
+ */
+class DeviceSlotIndexTest {
+	
+	@Test
+	void acquireIsStableUntilRemoved() {
+		DeviceSlotIndex index = new DeviceSlotIndex(16);
+		long key = DeviceKeys.of("device-1");
+		
+		int slot = index.acquire(key, 1);
+		assertTrue(index.created());
+		assertEquals(slot, index.acquire(key, 2));
+		assertFalse(index.created());
+		assertEquals(slot, index.find(key));
+		assertEquals(key, index.keyAt(slot));
+		assertEquals(2, index.accessAt(slot));
+		assertEquals(1, index.size());
+		
+		assertEquals(slot, index.remove(key));
+		assertEquals(-1, index.find(key));
+		assertEquals(-1, index.remove(key));
+		assertEquals(0, index.keyAt(slot));
+		assertEquals(0, index.size());
+	}
+	
+	@Test
+	void findDoesNotTouchAccessTime() {
+		DeviceSlotIndex index = new DeviceSlotIndex(4);
+		long key = DeviceKeys.of("device-1");
+		int slot = index.acquire(key, 1);
+		
+		index.find(key);
+		assertEquals(1, index.accessAt(slot));
+		index.get(key, 5);
+		assertEquals(5, index.accessAt(slot));
+		assertEquals(-1, index.get(DeviceKeys.of("device-2"), 5));
+	}
+	
+	@Test
+	void slotsAreDistinctWithinCapacity() {
+		int capacity = 1000;
+		DeviceSlotIndex index = new DeviceSlotIndex(capacity);
+		Set<Integer> slots = new HashSet<>();
+		for (int i = 0; i < capacity; i++) {
+			int slot = index.acquire(DeviceKeys.of("device-" + i), 0);
+			assertTrue(slot >= 0 && slot < capacity);
+			slots.add(slot);
+		}
+		
+		assertEquals(capacity, slots.size());
+		assertEquals(0, index.evictions());
+		for (int i = 0; i < capacity; i++) {
+			assertNotEquals(-1, index.find(DeviceKeys.of("device-" + i)));
+		}
+	}
+	
+	@Test
+	void fullTableEvictsStaleDevice() {
+		int capacity = 64;
+		DeviceSlotIndex index = new DeviceSlotIndex(capacity);
+		// 只有device-0的访问时间最早, 其余设备都较新
+		index.acquire(DeviceKeys.of("device-0"), 0);
+		for (int i = 1; i < capacity; i++) {
+			index.acquire(DeviceKeys.of("device-" + i), 100);
+		}
+		
+		// 近似LRU: 64次淘汰共抽样512个槽位, 最旧的设备会被抽中并淘汰(抽样种子固定, 结果确定)
+		for (int i = 0; i < capacity; i++) {
+			long key = DeviceKeys.of("new-" + i);
+			int slot = index.acquire(key, 200);
+			assertTrue(index.created());
+			assertEquals(key, index.keyAt(slot));
+			assertEquals(capacity, index.size());
+		}
+		
+		assertEquals(capacity, index.evictions());
+		assertEquals(-1, index.find(DeviceKeys.of("device-0")));
+	}
+	
+	@Test
+	void lookupsSurviveRemovalChurn() {
+		int capacity = 256;
+		DeviceSlotIndex index = new DeviceSlotIndex(capacity);
+		for (int i = 0; i < capacity; i++) {
+			index.acquire(DeviceKeys.of("device-" + i), 0);
+		}
+		// 删除一半后探测链经backward-shift前移, 其余设备仍可查到
+		for (int i = 0; i < capacity; i += 2) {
+			assertNotEquals(-1, index.remove(DeviceKeys.of("device-" + i)));
+		}
+		for (int i = 0; i < capacity; i++) {
+			int slot = index.find(DeviceKeys.of("device-" + i));
+			assertEquals(i % 2 == 1, slot >= 0, "device-" + i);
+		}
+		// 释放的槽位可以复用, 不触发淘汰
+		for (int i = 0; i < capacity; i += 2) {
+			index.acquire(DeviceKeys.of("other-" + i), 0);
+		}
+		assertEquals(capacity, index.size());
+		assertEquals(0, index.evictions());
+	}
+	
+	@Test
+	void rejectsNonPositiveCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new DeviceSlotIndex(0));
+	}
+	
+}